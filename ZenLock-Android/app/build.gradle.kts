@@ -39,6 +39,10 @@ android {
             buildConfigField("boolean", "DEBUG_LOGGING", "true")
         }
     }
+    testOptions {
+        // JVM tests run against android.jar stubs; let Log and friends no-op there
+        unitTests.isReturnDefaultValues = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_15
         targetCompatibility = JavaVersion.VERSION_15
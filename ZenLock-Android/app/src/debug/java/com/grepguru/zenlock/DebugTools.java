@@ -0,0 +1,22 @@
+package com.grepguru.zenlock;
+
+import android.content.Intent;
+import android.view.View;
+
+/**
+ * Entry points to the debug screens; release builds have a no-op copy
+ */
+public final class DebugTools {
+
+    private DebugTools() {}
+
+    /**
+     * Open QueryProfilerActivity when trigger is long-pressed
+     */
+    public static void attachEntryPoint(View trigger) {
+        trigger.setOnLongClickListener(v -> {
+            v.getContext().startActivity(new Intent(v.getContext(), QueryProfilerActivity.class));
+            return true;
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package com.grepguru.zenlock;
+
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SwitchCompat;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.grepguru.zenlock.data.database.AnalyticsDatabase;
+import com.grepguru.zenlock.data.database.QueryProfiler;
+import com.grepguru.zenlock.utils.MemoryPressure;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * QueryProfilerActivity - debug screen for AnalyticsDatabase query timings
+ * Lists the slowest recorded statements with their EXPLAIN QUERY PLAN output.
+ * Debug builds only, opened by long-pressing the feedback card in Settings (see DebugTools)
+ */
+public class QueryProfilerActivity extends AppCompatActivity {
+
+    private static final int MAX_ROWS = 20;
+
+    private TextView summaryText;
+    private TextView resultsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_query_profiler);
+
+        summaryText = findViewById(R.id.profilerSummary);
+        resultsText = findViewById(R.id.profilerResults);
+        SwitchCompat toggle = findViewById(R.id.profilerToggle);
+        Button refreshButton = findViewById(R.id.profilerRefreshButton);
+        Button clearButton = findViewById(R.id.profilerClearButton);
+
+        // Recording only starts once the database has been opened with the profiling helper
+        AnalyticsDatabase.getDatabase(this);
+        toggle.setChecked(QueryProfiler.isEnabled());
+        toggle.setOnCheckedChangeListener((button, checked) -> {
+            QueryProfiler.setEnabled(checked);
+            SharedPreferences prefs = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
+            prefs.edit().putBoolean(AnalyticsDatabase.PREF_QUERY_PROFILER, checked).apply();
+        });
+        refreshButton.setOnClickListener(v -> loadReport());
+        clearButton.setOnClickListener(v -> {
+            QueryProfiler.clear();
+            loadReport();
+        });
+
+        loadReport();
+    }
+
+    private void loadReport() {
+        resultsText.setText("Loading...");
+        new Thread(() -> {
+            SupportSQLiteDatabase db = AnalyticsDatabase.getDatabase(this).getOpenHelper().getReadableDatabase();
+            List<QueryProfiler.QueryStats> slowest = QueryProfiler.getSlowest(MAX_ROWS);
+
+            StringBuilder report = new StringBuilder();
+            for (QueryProfiler.QueryStats stats : slowest) {
+                report.append(String.format(Locale.US,
+                        "max %.1f ms | avg %.1f ms | x%d | %d binds | %d rows (max %d)%n",
+                        stats.maxNanos / 1e6, stats.getAverageNanos() / 1e6, stats.executions,
+                        stats.bindCount, stats.lastRows, stats.maxRows));
+                report.append(stats.sql.trim()).append('\n');
+                for (String line : QueryProfiler.explain(db, stats).split("\n")) {
+                    report.append("  > ").append(line).append('\n');
+                }
+                report.append('\n');
+            }
+            appendReceiverStats(report);
+            appendCacheStats(report);
+            String summary = slowest.isEmpty()
+                    ? (QueryProfiler.isEnabled() ? "No queries recorded yet" : "Recording is off")
+                    : "Slowest " + slowest.size() + " statements by worst-case time";
+
+            runOnUiThread(() -> {
+                summaryText.setText(summary);
+                resultsText.setText(report.toString());
+            });
+        }).start();
+    }
+
+    /**
+     * Broadcast receiver timings share this screen; they are in-memory since process start
+     */
+    private void appendReceiverStats(StringBuilder report) {
+        Map<String, AsyncBroadcastReceiver.ExecutionStats> receivers = AsyncBroadcastReceiver.getStats();
+        if (receivers.isEmpty()) return;
+        report.append("Receivers\n");
+        for (AsyncBroadcastReceiver.ExecutionStats stats : receivers.values()) {
+            report.append(String.format(Locale.US, "%s: x%d | avg %d ms | max %d ms | last %d ms | %d timeouts%n",
+                    stats.receiver, stats.runs, stats.totalMillis / Math.max(1, stats.runs),
+                    stats.maxMillis, stats.lastMillis, stats.timeouts));
+        }
+    }
+
+    /**
+     * Caches of this process registered with MemoryPressure, and what trimming took back
+     */
+    private void appendCacheStats(StringBuilder report) {
+        List<MemoryPressure.Entry> caches = MemoryPressure.get().getReport();
+        if (caches.isEmpty()) return;
+        report.append("\nCaches\n");
+        for (MemoryPressure.Entry cache : caches) {
+            report.append(String.format(Locale.US, "%s: tier %d | %d KB | x%d trims | last %d KB | total %d KB%n",
+                    cache.name, cache.tier, cache.estimateBytes() / 1024, cache.trims,
+                    cache.lastFreedBytes / 1024, cache.totalFreedBytes / 1024));
+        }
+    }
+}
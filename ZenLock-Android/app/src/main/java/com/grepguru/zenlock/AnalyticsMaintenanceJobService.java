@@ -0,0 +1,67 @@
+package com.grepguru.zenlock;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import com.grepguru.zenlock.utils.AnalyticsRetentionManager;
+
+/**
+ * AnalyticsMaintenanceJobService - daily retention and compaction of the analytics database
+ * Only runs while the device is idle and charging, so batch deletes and vacuum never
+ * compete with the lock screen or analytics UI
+ */
+public class AnalyticsMaintenanceJobService extends JobService {
+
+    private static final String TAG = "AnalyticsMaintenance";
+    private static final int JOB_ID = 4201;
+    private static final long INTERVAL_MS = 24L * 60 * 60 * 1000;
+
+    private volatile AnalyticsRetentionManager retentionManager;
+
+    /**
+     * Schedule the periodic maintenance job if it is not already pending
+     */
+    public static void schedule(Context context) {
+        try {
+            JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+            if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+
+            JobInfo job = new JobInfo.Builder(JOB_ID,
+                    new ComponentName(context, AnalyticsMaintenanceJobService.class))
+                    .setRequiresDeviceIdle(true)
+                    .setRequiresCharging(true)
+                    .setPeriodic(INTERVAL_MS)
+                    .setPersisted(true)
+                    .build();
+            scheduler.schedule(job);
+            Log.d(TAG, "Analytics maintenance job scheduled");
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to schedule analytics maintenance", e);
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        AnalyticsRetentionManager manager = new AnalyticsRetentionManager(this);
+        retentionManager = manager;
+        new Thread(() -> {
+            manager.applyRetention();
+            manager.compact();
+            jobFinished(params, false);
+        }, "analytics-maintenance").start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Device left idle/charging: stop after the current batch and retry next window
+        AnalyticsRetentionManager manager = retentionManager;
+        if (manager != null) manager.requestStop();
+        return true;
+    }
+}
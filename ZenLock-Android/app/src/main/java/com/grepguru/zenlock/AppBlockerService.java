@@ -4,90 +4,67 @@ import android.accessibilityservice.AccessibilityService;
 import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.widget.Toast;
 
-import com.grepguru.zenlock.utils.AppUtils;
-import com.grepguru.zenlock.utils.AnalyticsManager;
+import com.grepguru.zenlock.utils.BlockerState;
+import com.grepguru.zenlock.utils.DeviceStateMonitor;
 import com.grepguru.zenlock.utils.KeyguardUtils;
+import com.grepguru.zenlock.utils.LauncherClassifier;
 import com.grepguru.zenlock.utils.MiuiUtils;
-import com.grepguru.zenlock.utils.WhitelistManager;
-
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import com.grepguru.zenlock.utils.SurfaceInspector;
 
+/**
+ * Runs in the ":blocker" process. Every decision comes from the BlockerState snapshot the app
+ * process publishes; budgets, daily limits and analytics stay in the app process and are fed
+ * through BlockerEventReceiver
+ */
 public class AppBlockerService extends AccessibilityService {
-    private static final Set<String> LAUNCHER_PACKAGES = new HashSet<>(Arrays.asList(
-        // Samsung
-        "com.sec.android.app.launcher",           // Samsung One UI Launcher
-        "com.samsung.android.launcher",           // Samsung Launcher (legacy)
-        // Google / AOSP
-        "com.google.android.apps.nexuslauncher",  // Pixel Launcher
-        "com.android.launcher",                   // Stock Android Launcher (legacy)
-        "com.android.launcher2",                  // AOSP Launcher2 (legacy)
-        "com.android.launcher3",                  // AOSP Launcher3
-        "com.google.android.launcher",            // Google Now Launcher (legacy)
-        // Xiaomi / Redmi / POCO
-        "com.miui.home",                          // MIUI / HyperOS Launcher
-        "com.mi.android.globallauncher",          // POCO Launcher
-        // OnePlus
-        "com.oneplus.launcher",                   // OnePlus Launcher (OxygenOS 13+)
-        "net.oneplus.launcher",                   // OnePlus Launcher (older OxygenOS)
-        // Huawei / Honor
-        "com.huawei.android.launcher",            // Huawei EMUI Launcher
-        "com.hihonor.android.launcher",           // Honor MagicOS Launcher
-        // Oppo / Realme
-        "com.oppo.launcher",                      // OPPO ColorOS / Realme UI Launcher
-        "com.realme.launcher",                    // Realme Launcher (legacy)
-        // Vivo
-        "com.bbk.launcher2",                      // Vivo FuntouchOS / OriginOS Launcher
-        "com.vivo.launcher",                      // Vivo Launcher (legacy)
-        // Nothing
-        "com.nothing.launcher",                   // Nothing Phone Launcher
-        // Motorola
-        "com.motorola.launcher3",                 // Moto Launcher
-        "com.motorola.launcher",                  // Moto Launcher (legacy)
-        // Nokia (HMD)
-        "com.hmd.launcher",                       // Nokia Launcher
-        // ASUS
-        "com.asus.launcher",                      // ASUS ZenUI / ROG Launcher
-        // Lenovo
-        "com.lenovo.launcher",                    // Lenovo Launcher
-        // Sony
-        "com.sonymobile.home",                    // Sony Xperia Home (older)
-        "com.sonymobile.launcher",                // Sony Xperia Launcher (newer)
-        "com.sony.launcher",                      // Sony Launcher (legacy)
-        // LG (legacy)
-        "com.lge.launcher2",                      // LG Launcher (older)
-        "com.lge.launcher3",                      // LG Launcher (newer)
-        // HTC
-        "com.htc.launcher",                       // HTC Sense Home
-        "com.htc.launcher.edge",                  // HTC Edge Launcher
-        // Tecno / Infinix / itel (Transsion)
-        "com.transsion.hilauncher",               // Tecno HiOS Launcher
-        "com.transsion.XOSLauncher",              // Infinix XOS Launcher
-        "com.transsion.itel.launcher",            // itel Launcher
-        // ZTE / Nubia
-        "com.zte.mifavor.launcher",               // ZTE MiFavor Launcher
-        "com.nubia.launcher",                     // Nubia Launcher
-        // Third-party launchers
-        "com.nova.launcher",                      // Nova Launcher
-        "com.teslacoilsw.launcher",               // Nova Launcher (alternative pkg)
-        "com.microsoft.launcher",                 // Microsoft Launcher
-        "com.anddoes.launcher",                   // ADW Launcher
-        "com.go.launcher",                        // GO Launcher
-        "com.apex.launcher",                      // Apex Launcher
-        "com.lx.launcher8"                        // Launcher 8
-    ));
     private String lastLoggedPackage = "";
     private long lastLogTime = 0;
     private static final long LOG_DEBOUNCE_MS = 1000; // Only log same package once per second
     private String lastForegroundPackage = "";
     private long lastForegroundCheckTime = 0;
     private static final long FOREGROUND_CHECK_DEBOUNCE_MS = 100; // Reduced debounce for instant response
-    private AnalyticsManager analyticsManager;
+    private BlockerState state;
+    private final BlockerState.Listener stateListener = this::onStateChanged;
+    private LauncherClassifier launchers;
+    private SurfaceInspector surfaces;
+    private final SurfaceInspector.ConfigListener surfaceListener = enabled -> updateServiceInfo();
+    private boolean lastForegroundAllowed = false;
+    private long lastSurfaceNoticeTime = 0;
+    private String lastWindowPackage = ""; // Tracked in and out of sessions, for daily limits
+    private String lastLimitNoticePackage = "";
+    private long lastLimitNoticeTime = 0;
+    private static final long LIMIT_NOTICE_DEBOUNCE_MS = 3000;
+    // Allowed events are counted here and reported in batches, not one broadcast each
+    private String usagePackage = "";
+    private int usageEvents = 0;
+    private static final int USAGE_FLUSH_EVENTS = 30;
+    // Package without a verdict in the snapshot, blocked until the app process decides it
+    private String pendingPackage = "";
+    private long pendingAskedAt = 0;
+    private static final long RESOLVE_RETRY_MS = 1000;
+    // Fires when a running budget or daily limit of the snapshot runs out, app process or not
+    private final Handler deadlineHandler = new Handler(Looper.getMainLooper());
+    private final Runnable deadlineCheck = this::onDeadline;
+    // Window events stop while the keyguard is up, so screen off and unlock are reported from here
+    private final DeviceStateMonitor.PresenceListener presenceListener = new DeviceStateMonitor.PresenceListener() {
+        @Override
+        public void onUserAway() {
+            onScreenOff();
+        }
+
+        @Override
+        public void onUserPresent() {
+            onUnlocked();
+        }
+    };
     
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
@@ -101,14 +78,32 @@ public class AppBlockerService extends AccessibilityService {
             return;
         }
 
-        SharedPreferences preferences = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-        boolean isLocked = preferences.getBoolean("isLocked", false);
-        boolean allowLauncherDuringLock = preferences.getBoolean("allow_launcher_during_lock", false);
+        BlockerState.Snapshot snapshot = state.get();
+        boolean isLocked = snapshot.locked;
+        boolean allowLauncherDuringLock = snapshot.allowLauncher;
+
+        // Daily limits count all day, in and out of sessions; every window switch (including to our
+        // own lock screen) also moves the running app budget
+        if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED && event.getPackageName() != null) {
+            String windowPackage = event.getPackageName().toString();
+            if (!windowPackage.equals(lastWindowPackage)) {
+                reportForeground(snapshot, lastWindowPackage, windowPackage);
+                lastWindowPackage = windowPackage;
+            }
+            if (!isLocked && snapshot.isLimitReached(lastWindowPackage, System.currentTimeMillis())) {
+                leaveLimitedApp(lastWindowPackage);
+                return;
+            }
+        }
 
         if (!isLocked) {
             return; // No focus session active, nothing to block
         }
 
+        if (snapshot.breakActive) {
+            return; // Break of a focus cycle, everything is allowed until the next focus block
+        }
+
         String packageName = event.getPackageName() != null ? event.getPackageName().toString() : "";
         String className = event.getClassName() != null ? event.getClassName().toString() : "";
         
@@ -117,12 +112,20 @@ public class AppBlockerService extends AccessibilityService {
             return;
         }
 
+        // Content changes are only subscribed to for the surface inspector, and only matter for the app in front
+        if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED) {
+            if (lastForegroundAllowed && packageName.equals(lastForegroundPackage)) {
+                blockSurface(event, packageName);
+            }
+            return;
+        }
+
         // Skip if the event is from our own LockScreenActivity to prevent self-blocking loops
         if (className.contains("LockScreenActivity") || packageName.equals(getApplicationContext().getPackageName())) {
             return;
         }
         // IMMEDIATE BLOCK: Block launcher classes that bypass the lock
-        if (isLauncherBypassClass(className)) {
+        if (launchers.isBypassClass(className)) {
             if (!allowLauncherDuringLock) {
                 Log.d("AppBlockerService", "🚫 BLOCKING LAUNCHER BYPASS: " + packageName + " | Class: " + className);
                 launchLockScreen();
@@ -134,35 +137,56 @@ public class AppBlockerService extends AccessibilityService {
         long currentTime = System.currentTimeMillis();
         if (packageName.equals(lastForegroundPackage) && (currentTime - lastForegroundCheckTime) < FOREGROUND_CHECK_DEBOUNCE_MS) {
             // Only skip if the package is the same and not the launcher (so launcher is always processed)
-            if (!AppUtils.isLauncherPackage(this, packageName)) {
+            if (!launchers.isLauncherPackage(packageName)) {
                 return; // Skip processing the same package too frequently
             }
         }
         // -----------------------------------
         lastForegroundPackage = packageName;
         lastForegroundCheckTime = currentTime;
+        lastForegroundAllowed = false;
         
         // FIRST: Check if this is a launcher package (skip whitelist check for these)
-        boolean isLauncherPackage = isLauncherPackage(packageName);
+        boolean isLauncherPackage = launchers.isLauncherPackage(packageName);
         // SECOND: Check if this is a specific launcher/recent activity class that should be blocked
-        boolean isLauncherBypass = isLauncherBypassClass(className);
+        boolean isLauncherBypass = launchers.isBypassClass(className);
         // THIRD: Determine if allowed
         boolean isAllowed;
+        boolean isUndecided = false;
         if (isLauncherPackage) {
             // For launcher packages, only block specific classes (like Launcher, RecentsActivity)
             isAllowed = allowLauncherDuringLock || !isLauncherBypass;
+        } else if (snapshot.hasBudget(packageName)) {
+            // Budgeted apps are allowed until their session time is used up
+            isAllowed = !snapshot.isBudgetExhausted(packageName, currentTime);
+        } else if (snapshot.isDecided(packageName)) {
+            // For non-launcher packages, check the compiled policy
+            isAllowed = snapshot.isAllowed(packageName);
         } else {
-            // For non-launcher packages, check whitelist
-            isAllowed = WhitelistManager.isAppWhitelisted(this, packageName);
+            // Installed after the last compile or not listed by it: blocked until the next snapshot
+            // has its verdict, and reopened then if that says allowed
+            isAllowed = false;
+            isUndecided = true;
+            if (!packageName.equals(pendingPackage) || currentTime - pendingAskedAt > RESOLVE_RETRY_MS) {
+                pendingPackage = packageName;
+                pendingAskedAt = currentTime;
+                BlockerEventReceiver.sendResolve(this, packageName);
+            }
+        }
+        if (isAllowed && !isLauncherPackage && snapshot.isLimitReached(packageName, currentTime)) {
+            // Allowed in the session, but today's time for it is used up
+            isAllowed = false;
+        }
+        lastForegroundAllowed = isAllowed;
+        if (isAllowed && !isLauncherPackage && blockSurface(event, packageName)) {
+            return;
         }
         
         // Track analytics
-        if (analyticsManager != null && analyticsManager.hasActiveSession()) {
-            if (isAllowed) {
-                analyticsManager.recordAppAccess(packageName);
-            } else {
-                analyticsManager.recordBlockedAttempt(packageName);
-            }
+        if (isAllowed) {
+            countUsage(packageName);
+        } else if (!isUndecided) {
+            BlockerEventReceiver.sendBlocked(this, packageName);
         }
         
         // Log EVERY package event for debugging (with debouncing to prevent spam)
@@ -183,12 +207,9 @@ public class AppBlockerService extends AccessibilityService {
             OverlayLockService.showOverlay(this); // Ensure overlay is shown instantly
             launchLockScreen();
         } else {
-            // Mark that we allowed a whitelisted app to prevent LockScreenActivity from restarting
-            SharedPreferences prefs = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putLong("lastWhitelistedAppTime", System.currentTimeMillis());
-            editor.apply();
-            // Log.d("AppBlockerService", "Marked whitelisted app access time: " + packageName);
+            // Mark that we allowed a whitelisted app to prevent LockScreenActivity from restarting.
+            // Never through FocusLockPrefs: this process holds a stale copy and would overwrite the app's edits
+            state.markAllowed(System.currentTimeMillis());
         }
     }
 
@@ -222,32 +243,227 @@ public class AppBlockerService extends AccessibilityService {
         }
     }
 
-    @Override
-    public void onInterrupt() {
+    /**
+     * A blocked site or short-video surface inside an allowed app: go back out of it rather than
+     * locking, the app itself stays usable
+     *
+     * @return true if something was blocked
+     */
+    private boolean blockSurface(AccessibilityEvent event, String packageName) {
+        if (surfaces == null || !surfaces.isEnabled()) return false;
+        String found = surfaces.inspect(this, event, packageName);
+        if (found == null) return false;
+
+        Log.d("AppBlockerService", "🚫 BLOCKING SURFACE: " + found);
+        BlockerEventReceiver.sendBlocked(this, packageName);
+        performGlobalAction(GLOBAL_ACTION_BACK);
+        long now = System.currentTimeMillis();
+        if (now - lastSurfaceNoticeTime > LIMIT_NOTICE_DEBOUNCE_MS) {
+            lastSurfaceNoticeTime = now;
+            Toast.makeText(this, "Blocked during focus: " + found, Toast.LENGTH_SHORT).show();
+        }
+        return true;
     }
 
-    private boolean isLauncherPackage(String packageName) {
-        return LAUNCHER_PACKAGES.contains(packageName);
+    /**
+     * A new snapshot from the app process. Budgets and limits run out there while an app stays in
+     * front, so no window event will come; compare with the previous snapshot and block now
+     */
+    private void onStateChanged(BlockerState.Snapshot previous, BlockerState.Snapshot current) {
+        if (surfaces != null) {
+            surfaces.configure(current.blockedSites, current.blockShortVideo);
+        }
+        armDeadline(current);
+        if (!pendingPackage.isEmpty() && (current.isDecided(pendingPackage) || !current.locked)) {
+            String resolved = pendingPackage;
+            pendingPackage = "";
+            if (current.locked && !current.breakActive && resolved.equals(lastForegroundPackage)
+                    && !lastForegroundAllowed) {
+                long now = System.currentTimeMillis();
+                boolean allowed = current.hasBudget(resolved)
+                        ? !current.isBudgetExhausted(resolved, now) : current.isAllowed(resolved);
+                if (allowed && !current.isLimitReached(resolved, now)) {
+                    onResolvedAllowed(resolved);
+                } else {
+                    BlockerEventReceiver.sendBlocked(this, resolved);
+                }
+            }
+        }
+        if (lastWindowPackage.isEmpty()) {
+            return;
+        }
+        if (current.locked && current.hasBudget(lastWindowPackage)
+                && (previous.locked != current.locked || previous.breakActive != current.breakActive)) {
+            // Session started or a break ended with a budgeted app in front: start draining it
+            BlockerEventReceiver.sendForeground(this, lastWindowPackage);
+        }
+        long now = System.currentTimeMillis();
+        if (current.locked && !current.breakActive && current.isBudgetExhausted(lastForegroundPackage, now)
+                && !previous.isBudgetExhausted(lastForegroundPackage, now)) {
+            onBudgetExhausted(lastForegroundPackage);
+        }
+        if (current.isLimitReached(lastWindowPackage, now) && !previous.isLimitReached(lastWindowPackage, now)) {
+            onDailyLimitReached(current, lastWindowPackage);
+        }
     }
 
-    private boolean isLauncherBypassClass(String className) {
-        // Block launcher classes that can bypass the lock
-        // Block any class containing "Launcher" keyword (covers custom launchers)
-        // Block specific recent activity classes
+    /**
+     * One callback for the earliest running deadline of the snapshot
+     */
+    private void armDeadline(BlockerState.Snapshot snapshot) {
+        deadlineHandler.removeCallbacks(deadlineCheck);
+        long now = System.currentTimeMillis();
+        long next = snapshot.nextDeadline(now);
+        if (next >= 0) deadlineHandler.postDelayed(deadlineCheck, next - now);
+    }
 
-        String classLower = className.toLowerCase();
+    /**
+     * A running budget or limit ran out with no new snapshot; the app process may not be running
+     * to publish one, so act on the deadline it left
+     */
+    private void onDeadline() {
+        BlockerState.Snapshot snapshot = state.get();
+        long now = System.currentTimeMillis();
+        if (snapshot.locked && !snapshot.breakActive && lastForegroundPackage.equals(lastWindowPackage)
+                && snapshot.isBudgetExhausted(lastForegroundPackage, now)) {
+            onBudgetExhausted(lastForegroundPackage);
+        } else if (snapshot.isLimitReached(lastWindowPackage, now)) {
+            onDailyLimitReached(snapshot, lastWindowPackage);
+        }
+        armDeadline(snapshot);
+    }
 
-        // Block any class containing "Launcher" (covers all launchers)
-        if (classLower.contains("launcher")) {
-            return true;
+    /**
+     * The app process allowed a package that was blocked while it had no verdict; the lock
+     * screen is in front of it now, so open it again
+     */
+    private void onResolvedAllowed(String packageName) {
+        Log.d("AppBlockerService", "✅ Resolved as allowed: " + packageName);
+        lastForegroundAllowed = true;
+        state.markAllowed(System.currentTimeMillis());
+        Intent launch = getPackageManager().getLaunchIntentForPackage(packageName);
+        if (launch == null) return; // Nothing to reopen; allowed from its next event on
+        launch.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        try {
+            startActivity(launch);
+        } catch (Exception e) {
+            Log.e("AppBlockerService", "Failed to reopen " + packageName, e);
         }
+    }
 
-        // Block any class containing "Recents" (covers OEM recents screens)
-        if (classLower.contains("recents")) {
-            return true;
+    /**
+     * Budget ran out while the app was in front
+     */
+    private void onBudgetExhausted(String packageName) {
+        Log.d("AppBlockerService", "⏱ Budget used up for " + packageName + ", blocking");
+        BlockerEventReceiver.sendBlocked(this, packageName);
+        OverlayLockService.showOverlay(this);
+        launchLockScreen();
+    }
+
+    /**
+     * Daily limit ran out while the app was in front
+     */
+    private void onDailyLimitReached(BlockerState.Snapshot snapshot, String packageName) {
+        if (snapshot.locked) {
+            Log.d("AppBlockerService", "⏱ Daily limit reached for " + packageName + ", blocking");
+            OverlayLockService.showOverlay(this);
+            launchLockScreen();
+        } else {
+            leaveLimitedApp(packageName);
         }
+    }
 
-        return false;
+    /**
+     * Outside a session there is no lock screen to show; send the user home instead
+     */
+    private void leaveLimitedApp(String packageName) {
+        Log.d("AppBlockerService", "⏱ Daily limit reached for " + packageName + ", going home");
+        performGlobalAction(GLOBAL_ACTION_HOME);
+        long now = System.currentTimeMillis();
+        if (!packageName.equals(lastLimitNoticePackage) || now - lastLimitNoticeTime > LIMIT_NOTICE_DEBOUNCE_MS) {
+            lastLimitNoticePackage = packageName;
+            lastLimitNoticeTime = now;
+            CharSequence label = packageName;
+            try {
+                label = getPackageManager().getApplicationLabel(getPackageManager().getApplicationInfo(packageName, 0));
+            } catch (PackageManager.NameNotFoundException e) {
+                Log.e("AppBlockerService", "No label for " + packageName, e);
+            }
+            Toast.makeText(this, "Daily limit reached for " + label, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Tell the app process about a switch that starts or stops a budget or daily limit running;
+     * switches between untracked apps stay in this process
+     */
+    private void reportForeground(BlockerState.Snapshot snapshot, String previous, String current) {
+        if (snapshot.hasLimit(current) || snapshot.hasLimit(previous)
+                || snapshot.hasBudget(current) || snapshot.hasBudget(previous)) {
+            BlockerEventReceiver.sendForeground(this, current);
+        }
+    }
+
+    /**
+     * Nobody is using the app left in front; stop its budget or daily limit from draining
+     * through standby. Forgetting it makes the first window after unlock a switch again
+     */
+    private void onScreenOff() {
+        BlockerState.Snapshot snapshot = state.get();
+        if (snapshot.hasLimit(lastWindowPackage) || snapshot.hasBudget(lastWindowPackage)) {
+            BlockerEventReceiver.sendAway(this);
+        }
+        lastWindowPackage = "";
+    }
+
+    /**
+     * Unlocking straight back into the same app sends no window event; start it draining again
+     */
+    private void onUnlocked() {
+        if (!lastWindowPackage.isEmpty()) return;
+        AccessibilityNodeInfo root = getRootInActiveWindow();
+        if (root == null) return;
+        CharSequence windowPackage = root.getPackageName();
+        root.recycle();
+        if (windowPackage == null) return;
+        lastWindowPackage = windowPackage.toString();
+        reportForeground(state.get(), "", lastWindowPackage);
+    }
+
+    private void countUsage(String packageName) {
+        if (!packageName.equals(usagePackage)) {
+            flushUsage();
+            usagePackage = packageName;
+        }
+        if (++usageEvents >= USAGE_FLUSH_EVENTS) {
+            flushUsage();
+        }
+    }
+
+    private void flushUsage() {
+        if (usageEvents > 0) {
+            BlockerEventReceiver.sendAppUsage(this, usagePackage, usageEvents);
+            usageEvents = 0;
+        }
+    }
+
+    @Override
+    public void onInterrupt() {
+    }
+
+    @Override
+    public void onDestroy() {
+        flushUsage();
+        deadlineHandler.removeCallbacks(deadlineCheck);
+        DeviceStateMonitor.getInstance(this).removeListener(presenceListener);
+        if (state != null) {
+            state.removeListener(stateListener);
+        }
+        if (surfaces != null) {
+            surfaces.removeListener(surfaceListener);
+        }
+        super.onDestroy();
     }
 
     private String getEventTypeName(int eventType) {
@@ -258,6 +474,8 @@ public class AppBlockerService extends AccessibilityService {
                 return "LONG_CLICK";
             case AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED:
                 return "WINDOW_CHANGE";
+            case AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED:
+                return "CONTENT_CHANGE";
             case AccessibilityEvent.TYPE_VIEW_FOCUSED:
                 return "FOCUS";
             default:
@@ -269,15 +487,38 @@ public class AppBlockerService extends AccessibilityService {
     protected void onServiceConnected() {
         super.onServiceConnected();
         
-        // Initialize analytics manager
-        analyticsManager = new AnalyticsManager(this);
-        
+        state = BlockerState.getInstance(this);
+        state.addListener(stateListener);
+        if (!state.isPublished()) {
+            // Nothing shared yet (first start after install or update); the app process publishes on start
+            BlockerEventReceiver.sendSync(this);
+        }
+        // Start tracking screen/keyguard broadcasts before the first event needs them
+        DeviceStateMonitor.getInstance(this).addListener(presenceListener);
+        launchers = LauncherClassifier.getInstance(this);
+        surfaces = SurfaceInspector.getInstance();
+        BlockerState.Snapshot snapshot = state.get();
+        surfaces.configure(snapshot.blockedSites, snapshot.blockShortVideo);
+        surfaces.addListener(surfaceListener);
+        armDeadline(snapshot);
+        updateServiceInfo();
+    }
+
+    /**
+     * Content-change events are frequent; only ask for them while sites or surfaces are blocked
+     */
+    private void updateServiceInfo() {
         AccessibilityServiceInfo info = new AccessibilityServiceInfo();
         info.eventTypes = AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED | 
                          AccessibilityEvent.TYPE_VIEW_CLICKED | 
                          AccessibilityEvent.TYPE_VIEW_LONG_CLICKED |
                          AccessibilityEvent.TYPE_VIEW_FOCUSED;
+        if (surfaces != null && surfaces.isEnabled()) {
+            info.eventTypes |= AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED;
+        }
         info.feedbackType = AccessibilityServiceInfo.FEEDBACK_GENERIC;
+        // View ids let the surface inspector find URL bars and video pagers
+        info.flags = AccessibilityServiceInfo.FLAG_REPORT_VIEW_IDS;
         info.notificationTimeout = 100;
         setServiceInfo(info);
     }
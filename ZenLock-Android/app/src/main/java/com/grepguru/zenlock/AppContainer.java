@@ -0,0 +1,69 @@
+package com.grepguru.zenlock;
+
+import android.content.Context;
+
+import com.grepguru.zenlock.data.repository.AnalyticsRepository;
+import com.grepguru.zenlock.utils.AnalyticsManager;
+import com.grepguru.zenlock.utils.AppCatalog;
+import com.grepguru.zenlock.utils.MobileUsageTracker;
+import com.grepguru.zenlock.utils.SessionTelemetryJournal;
+
+/**
+ * Process-wide object graph for analytics and the running session
+ *
+ * Each dependency is built on first use and then shared, so relaunching the lock screen or
+ * re-binding a service reuses the same repository thread pool, usage tracker and session
+ * state instead of building new ones. Held by ZenLockApplication
+ */
+public final class AppContainer {
+
+    private final Context appContext;
+
+    private volatile AnalyticsRepository analyticsRepository;
+    private volatile MobileUsageTracker mobileUsageTracker;
+    private volatile AnalyticsManager analyticsManager;
+
+    AppContainer(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public AnalyticsRepository getAnalyticsRepository() {
+        if (analyticsRepository == null) {
+            synchronized (this) {
+                if (analyticsRepository == null) {
+                    analyticsRepository = new AnalyticsRepository(appContext);
+                }
+            }
+        }
+        return analyticsRepository;
+    }
+
+    public MobileUsageTracker getMobileUsageTracker() {
+        if (mobileUsageTracker == null) {
+            synchronized (this) {
+                if (mobileUsageTracker == null) {
+                    mobileUsageTracker = new MobileUsageTracker(appContext);
+                }
+            }
+        }
+        return mobileUsageTracker;
+    }
+
+    /**
+     * The analytics facade, which also owns the live session telemetry
+     */
+    public AnalyticsManager getAnalyticsManager() {
+        if (analyticsManager == null) {
+            synchronized (this) {
+                if (analyticsManager == null) {
+                    analyticsManager = new AnalyticsManager(appContext,
+                            getAnalyticsRepository(),
+                            getMobileUsageTracker(),
+                            AppCatalog.getInstance(appContext),
+                            SessionTelemetryJournal.getInstance(appContext));
+                }
+            }
+        }
+        return analyticsManager;
+    }
+}
@@ -0,0 +1,159 @@
+package com.grepguru.zenlock;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AsyncBroadcastReceiver - Base for receivers whose work shouldn't run on the main thread
+ * onReceive() calls goAsync() and runs doWork() on a shared background thread. The broadcast
+ * is always finished: when the work returns, when it throws, or when the deadline passes
+ * (the work is left to complete on its own, but the system is no longer held up).
+ * Work from all receivers runs on one thread, in arrival order, so lock state edits from
+ * different broadcasts never interleave
+ */
+public abstract class AsyncBroadcastReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "AsyncBroadcastReceiver";
+
+    // Background broadcasts ANR after 60s and foreground ones after 10s; stay well inside both
+    private static final long DEFAULT_DEADLINE_MS = 8000;
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "zenlock-receivers"));
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "zenlock-receiver-watchdog"));
+
+    private static final Map<String, ExecutionStats> STATS = new LinkedHashMap<>();
+
+    /**
+     * Execution times of one receiver class since process start
+     */
+    public static final class ExecutionStats {
+        public final String receiver;
+        public int runs;
+        public int timeouts;
+        public long totalMillis;
+        public long maxMillis;
+        public long lastMillis;
+
+        ExecutionStats(String receiver) {
+            this.receiver = receiver;
+        }
+
+        ExecutionStats copy() {
+            ExecutionStats copy = new ExecutionStats(receiver);
+            copy.runs = runs;
+            copy.timeouts = timeouts;
+            copy.totalMillis = totalMillis;
+            copy.maxMillis = maxMillis;
+            copy.lastMillis = lastMillis;
+            return copy;
+        }
+    }
+
+    /**
+     * The receiver's work; runs off the main thread
+     */
+    protected abstract void doWork(Context context, Intent intent);
+
+    /**
+     * How long the broadcast may stay pending before it is finished regardless
+     */
+    protected long getDeadlineMillis() {
+        return DEFAULT_DEADLINE_MS;
+    }
+
+    @Override
+    public final void onReceive(Context context, Intent intent) {
+        final PendingResult pendingResult = goAsync();
+        if (pendingResult == null) {
+            // Not delivered by the system (e.g. called directly), nothing to keep alive
+            handleNow(context, intent);
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        final String name = getClass().getSimpleName();
+        final long queuedAt = SystemClock.elapsedRealtime();
+        final AtomicBoolean finished = new AtomicBoolean(false);
+
+        final ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            if (finished.compareAndSet(false, true)) {
+                Log.w(TAG, name + " still running after " + getDeadlineMillis() + "ms, finishing broadcast");
+                record(name, SystemClock.elapsedRealtime() - queuedAt, true);
+                pendingResult.finish();
+            }
+        }, getDeadlineMillis(), TimeUnit.MILLISECONDS);
+
+        WORKER.execute(() -> {
+            try {
+                doWork(appContext, intent);
+            } catch (Exception e) {
+                Log.e(TAG, name + " failed", e);
+            } finally {
+                watchdog.cancel(false);
+                if (finished.compareAndSet(false, true)) {
+                    record(name, SystemClock.elapsedRealtime() - queuedAt, false);
+                    pendingResult.finish();
+                }
+            }
+        });
+    }
+
+    /**
+     * Run the work synchronously on the calling thread, for in-process dispatch from code that
+     * is already off the main thread (e.g. the schedule alarm multiplexer)
+     */
+    public final void handleNow(Context context, Intent intent) {
+        String name = getClass().getSimpleName();
+        long start = SystemClock.elapsedRealtime();
+        try {
+            doWork(context.getApplicationContext(), intent);
+        } catch (Exception e) {
+            Log.e(TAG, name + " failed", e);
+        } finally {
+            record(name, SystemClock.elapsedRealtime() - start, false);
+        }
+    }
+
+    private static void record(String name, long elapsedMillis, boolean timedOut) {
+        synchronized (STATS) {
+            ExecutionStats stats = STATS.get(name);
+            if (stats == null) {
+                stats = new ExecutionStats(name);
+                STATS.put(name, stats);
+            }
+            stats.runs++;
+            if (timedOut) stats.timeouts++;
+            stats.totalMillis += elapsedMillis;
+            stats.maxMillis = Math.max(stats.maxMillis, elapsedMillis);
+            stats.lastMillis = elapsedMillis;
+        }
+        Log.d(TAG, name + (timedOut ? " timed out after " : " took ") + elapsedMillis + "ms");
+    }
+
+    /**
+     * Snapshot of execution times per receiver
+     */
+    public static Map<String, ExecutionStats> getStats() {
+        Map<String, ExecutionStats> snapshot = new LinkedHashMap<>();
+        synchronized (STATS) {
+            for (Map.Entry<String, ExecutionStats> entry : STATS.entrySet()) {
+                snapshot.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,123 @@
+package com.grepguru.zenlock;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.grepguru.zenlock.utils.AnalyticsManager;
+import com.grepguru.zenlock.utils.BlockerStatePublisher;
+import com.grepguru.zenlock.utils.BlockingPolicy;
+import com.grepguru.zenlock.utils.DailyLimitManager;
+import com.grepguru.zenlock.utils.FocusCycleManager;
+import com.grepguru.zenlock.utils.FocusSessionController;
+import com.grepguru.zenlock.utils.SessionBudgetManager;
+
+/**
+ * What AppBlockerService, running in the ":blocker" process, reports back to the app process:
+ * foreground switches that move a budget or daily limit, the screen going off while one runs,
+ * app usage and blocked attempts for analytics, packages the published policy has no verdict
+ * for, and requests for a first snapshot. Sent as explicit broadcasts, so the app process only
+ * runs while there is something to record
+ */
+public class BlockerEventReceiver extends AsyncBroadcastReceiver {
+
+    private static final String TAG = "BlockerEventReceiver";
+
+    public static final String ACTION_FOREGROUND = "com.grepguru.zenlock.action.BLOCKER_FOREGROUND";
+    public static final String ACTION_AWAY = "com.grepguru.zenlock.action.BLOCKER_AWAY";
+    public static final String ACTION_APP_USAGE = "com.grepguru.zenlock.action.BLOCKER_APP_USAGE";
+    public static final String ACTION_BLOCKED = "com.grepguru.zenlock.action.BLOCKER_BLOCKED";
+    public static final String ACTION_RESOLVE = "com.grepguru.zenlock.action.BLOCKER_RESOLVE";
+    public static final String ACTION_SYNC = "com.grepguru.zenlock.action.BLOCKER_SYNC";
+
+    private static final String EXTRA_PACKAGE = "package";
+    private static final String EXTRA_EVENTS = "events";
+
+    // Each allowed event counted as this much usage, as AnalyticsManager.recordAppAccess does
+    private static final long USAGE_PER_EVENT_MS = 1000;
+
+    @Override
+    protected void doWork(Context context, Intent intent) {
+        if (intent == null || intent.getAction() == null) return;
+        String packageName = intent.getStringExtra(EXTRA_PACKAGE);
+        switch (intent.getAction()) {
+            case ACTION_FOREGROUND:
+                if (packageName == null) return;
+                DailyLimitManager.getInstance(context).onForeground(packageName);
+                // Budgets only drain during focus blocks of a session
+                if (FocusSessionController.getInstance(context).isLocked() && !FocusCycleManager.isBreakActive(context)) {
+                    SessionBudgetManager.getInstance(context).onForeground(packageName);
+                }
+                // The blocker needs the deadline of whatever started draining
+                BlockerStatePublisher.getInstance(context).requestPublish();
+                break;
+            case ACTION_AWAY:
+                // Screen off: nothing is in front until the blocker reports the next window
+                DailyLimitManager.getInstance(context).pause();
+                SessionBudgetManager.getInstance(context).pause();
+                BlockerStatePublisher.getInstance(context).requestPublish();
+                break;
+            case ACTION_APP_USAGE:
+                AnalyticsManager usage = AnalyticsManager.getInstance(context);
+                if (packageName != null && usage.hasActiveSession()) {
+                    usage.recordAppUsage(packageName, intent.getIntExtra(EXTRA_EVENTS, 1) * USAGE_PER_EVENT_MS);
+                }
+                break;
+            case ACTION_BLOCKED:
+                AnalyticsManager blocked = AnalyticsManager.getInstance(context);
+                if (packageName != null && blocked.hasActiveSession()) {
+                    blocked.recordBlockedAttempt(packageName);
+                }
+                break;
+            case ACTION_RESOLVE:
+                if (packageName == null) return;
+                // Decides it into the table's late verdicts, which the next snapshot carries
+                BlockingPolicy.getInstance(context).isAllowed(packageName);
+                BlockerStatePublisher.getInstance(context).requestPublish();
+                break;
+            case ACTION_SYNC:
+                // ZenLockApplication started the publisher when this process came up
+                BlockerStatePublisher.getInstance(context).requestPublish();
+                break;
+            default:
+                Log.w(TAG, "Unknown action " + intent.getAction());
+        }
+    }
+
+    // =====================================
+    // SENDING, from the blocker process
+    // =====================================
+
+    public static void sendForeground(Context context, String packageName) {
+        send(context, new Intent(ACTION_FOREGROUND).putExtra(EXTRA_PACKAGE, packageName));
+    }
+
+    public static void sendAway(Context context) {
+        send(context, new Intent(ACTION_AWAY));
+    }
+
+    public static void sendAppUsage(Context context, String packageName, int events) {
+        send(context, new Intent(ACTION_APP_USAGE).putExtra(EXTRA_PACKAGE, packageName).putExtra(EXTRA_EVENTS, events));
+    }
+
+    public static void sendBlocked(Context context, String packageName) {
+        send(context, new Intent(ACTION_BLOCKED).putExtra(EXTRA_PACKAGE, packageName));
+    }
+
+    public static void sendResolve(Context context, String packageName) {
+        send(context, new Intent(ACTION_RESOLVE).putExtra(EXTRA_PACKAGE, packageName));
+    }
+
+    public static void sendSync(Context context) {
+        send(context, new Intent(ACTION_SYNC));
+    }
+
+    private static void send(Context context, Intent intent) {
+        intent.setClass(context, BlockerEventReceiver.class);
+        try {
+            context.sendBroadcast(intent);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to report " + intent.getAction(), e);
+        }
+    }
+}
@@ -1,40 +1,41 @@
 package com.grepguru.zenlock;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.util.Log;
 
+import com.grepguru.zenlock.model.FocusSessionState;
+import com.grepguru.zenlock.utils.FocusSessionController;
 import com.grepguru.zenlock.utils.ManualStartDelayScheduler;
 import com.grepguru.zenlock.utils.ScheduleActivator;
+import com.grepguru.zenlock.utils.ScheduleIntervalIndex;
 
 /**
  * BootReceiver - Handles device restart events
  * Reschedules all active focus schedules after device reboot
  * Also handles device restart detection for active focus sessions
  */
-public class BootReceiver extends BroadcastReceiver {
+public class BootReceiver extends AsyncBroadcastReceiver {
     
     private static final String TAG = "BootReceiver";
     
     @Override
-    public void onReceive(Context context, Intent intent) {
+    protected void doWork(Context context, Intent intent) {
         if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
             Log.d(TAG, "Device boot completed, rescheduling focus sessions");
             
             // Mark device as restarted for active sessions
-            markDeviceRestarted(context);
+            FocusSessionController sessions = FocusSessionController.getInstance(context);
+            markDeviceRestarted(sessions);
             
-            // Reschedule all enabled schedules
-            rescheduleAllSchedules(context);
-            ManualStartDelayScheduler.reschedulePendingSession(context);
-
-            // Check if there was an active lock session before restart
+            // Check if there was an active lock session before restart; this is re-asserted
+            // first so the lock isn't held up by rescheduling
             SharedPreferences prefs = context.getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-            boolean isLocked = prefs.getBoolean("isLocked", false);
+            FocusSessionState session = sessions.getState();
+            boolean isLocked = session.isLocked();
             boolean autoRestart = prefs.getBoolean("auto_restart", false);
-            long lockEndTime = prefs.getLong("lockEndTime", 0);
+            long lockEndTime = session.endTime;
             long currentTime = System.currentTimeMillis();
             
             Log.d(TAG, "Auto-restart preference: " + autoRestart);
@@ -58,36 +59,63 @@ public class BootReceiver extends BroadcastReceiver {
                 Log.d(TAG, "Lock session active after boot: started overlay and lock screen");
             } else if (isLocked && !autoRestart) {
                 // Clear lock if auto-restart is disabled
-                SharedPreferences.Editor editor = prefs.edit();
-                editor.putBoolean("isLocked", false);
-                editor.remove("lockEndTime");
-                editor.putBoolean("wasDeviceRestarted", false);
-                editor.apply();
+                sessions.expire();
                 Log.d(TAG, "Auto-restart disabled, cleared lock state");
             } else if (isLocked && lockEndTime <= currentTime) {
                 // Lock expired during restart, clear it
-                SharedPreferences.Editor editor = prefs.edit();
-                editor.putBoolean("isLocked", false);
-                editor.remove("lockEndTime");
-                editor.putBoolean("wasDeviceRestarted", false);
-                editor.apply();
+                sessions.expire();
                 Log.d(TAG, "Lock expired during restart, cleared lock state");
             }
+            
+            // Reschedule all enabled schedules
+            rescheduleAllSchedules(context);
+            ManualStartDelayScheduler.reschedulePendingSession(context);
+            
+            // A schedule whose start was missed while the device was off is resumed for its
+            // remaining time, under the same preference that restores locks after reboot
+            if (autoRestart && !(isLocked && lockEndTime > currentTime)) {
+                resumeMissedSchedule(context, currentTime);
+            }
+            sessions.flush(2000);
+        }
+    }
+    
+    /**
+     * Start the schedule occurrence covering now, if any, ending with its merged block. An
+     * occurrence the last session already finished or unlocked early is not started again
+     */
+    private void resumeMissedSchedule(Context context, long now) {
+        try {
+            ScheduleIntervalIndex index = ScheduleIntervalIndex.get(context);
+            ScheduleIntervalIndex.Occurrence occurrence = null;
+            for (ScheduleIntervalIndex.Occurrence candidate : index.activeAt(now)) {
+                if (!ScheduleIntervalIndex.isConsumed(context, candidate)) {
+                    occurrence = candidate;
+                    break;
+                }
+            }
+            if (occurrence == null) return;
+            
+            Intent trigger = new Intent(context, ScheduleTriggerReceiver.class);
+            trigger.putExtra(ScheduleTriggerReceiver.EXTRA_SCHEDULE_ID, occurrence.schedule.getId());
+            trigger.putExtra(ScheduleTriggerReceiver.EXTRA_SCHEDULE_NAME, occurrence.schedule.getName());
+            trigger.putExtra(ScheduleTriggerReceiver.EXTRA_DURATION_MINUTES, occurrence.schedule.getFocusDurationMinutes());
+            trigger.putExtra(ScheduleTriggerReceiver.EXTRA_START_TIME, occurrence.startMillis);
+            trigger.putExtra(ScheduleTriggerReceiver.EXTRA_END_TIME, index.coverageEnd(now));
+            new ScheduleTriggerReceiver().handleNow(context, trigger);
+            Log.d(TAG, "Resumed schedule missed during restart: " + occurrence.schedule.getName());
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to resume missed schedule after boot", e);
         }
     }
     
     /**
      * Mark device as restarted so active focus sessions can detect it
      */
-    private void markDeviceRestarted(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        boolean isLocked = prefs.getBoolean("isLocked", false);
-        
-        if (isLocked) {
+    private void markDeviceRestarted(FocusSessionController sessions) {
+        if (sessions.isLocked()) {
             Log.d(TAG, "Active focus session detected, marking device as restarted");
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putBoolean("wasDeviceRestarted", true);
-            editor.apply();
+            sessions.markDeviceRestarted();
         }
     }
     
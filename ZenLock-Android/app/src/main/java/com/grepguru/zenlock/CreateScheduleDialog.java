@@ -1,5 +1,6 @@
 package com.grepguru.zenlock;
 
+import android.app.AlertDialog;
 import android.app.TimePickerDialog;
 import android.os.Bundle;
 import android.view.LayoutInflater;
@@ -19,11 +20,21 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
 
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.grepguru.zenlock.model.FocusCyclePlan;
 import com.grepguru.zenlock.model.ScheduleModel;
+import com.grepguru.zenlock.ui.CycleConfigDialog;
+import com.grepguru.zenlock.utils.AllowlistProfiles;
+import com.grepguru.zenlock.utils.ScheduleIntervalIndex;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
+
 /**
  * Dialog for creating and editing schedules
  * Features: Time picker, focus duration, repeat options, pre-notify settings
@@ -38,6 +49,8 @@ public class CreateScheduleDialog extends DialogFragment {
     private TextView startTimeText;
     private TextView selectedDurationDisplay;
     private TextView selectedFrequencyDisplay;
+    private TextView selectedCycleDisplay;
+    private TextView selectedProfileDisplay;
     private LinearLayout frequencySelectionLayout;
     private RadioGroup repeatTypeGroup;
     private LinearLayout weeklyDaysLayout;
@@ -53,6 +66,15 @@ public class CreateScheduleDialog extends DialogFragment {
     private int selectedDurationHours = 0;
     private int selectedDurationMinutes = 1;
     
+    // Focus cycle, cycleCount 0 = plain session
+    private int cycleFocusMinutes = CycleConfigDialog.DEFAULT_FOCUS_MINUTES;
+    private int cycleBreakMinutes = CycleConfigDialog.DEFAULT_BREAK_MINUTES;
+    private int cycleCount = 0;
+    private int cycleLongBreakMinutes = CycleConfigDialog.DEFAULT_LONG_BREAK_MINUTES;
+    
+    // Allowlist profile, 0 = whatever manual sessions use
+    private int allowlistProfileId = 0;
+    
     public interface ScheduleListener {
         void onScheduleCreated(ScheduleModel schedule);
     }
@@ -79,6 +101,7 @@ public class CreateScheduleDialog extends DialogFragment {
             updateStartTimeDisplay();
             updateDurationDisplay();
             updateFrequencyDisplay();
+            updateProfileDisplay();
         }
         
         return view;
@@ -89,6 +112,8 @@ public class CreateScheduleDialog extends DialogFragment {
         startTimeText = view.findViewById(R.id.startTimeText);
         selectedDurationDisplay = view.findViewById(R.id.selectedDurationDisplay);
         selectedFrequencyDisplay = view.findViewById(R.id.selectedFrequencyDisplay);
+        selectedCycleDisplay = view.findViewById(R.id.selectedCycleDisplay);
+        selectedProfileDisplay = view.findViewById(R.id.selectedProfileDisplay);
         frequencySelectionLayout = view.findViewById(R.id.frequencySelectionLayout);
         repeatTypeGroup = view.findViewById(R.id.repeatTypeGroup);
         weeklyDaysLayout = view.findViewById(R.id.weeklyDaysLayout);
@@ -115,6 +140,12 @@ public class CreateScheduleDialog extends DialogFragment {
         // Focus duration picker
         selectedDurationDisplay.setOnClickListener(v -> showDurationPicker());
         
+        // Focus cycle picker
+        selectedCycleDisplay.setOnClickListener(v -> showCyclePicker());
+        
+        // Allowlist profile picker
+        selectedProfileDisplay.setOnClickListener(v -> showProfilePicker());
+        
         // Frequency selection
         selectedFrequencyDisplay.setOnClickListener(v -> toggleFrequencySelection());
         
@@ -170,6 +201,11 @@ public class CreateScheduleDialog extends DialogFragment {
                     int minuteIndex = minutesPicker.getValue();
                     selectedDurationMinutes = Integer.parseInt(minuteValues[minuteIndex]);
                     updateDurationDisplay();
+                    if (cycleCount > 0) {
+                        // A hand-picked duration no longer matches the cycle plan
+                        cycleCount = 0;
+                        updateCycleDisplay();
+                    }
                 })
                 .setNegativeButton("Cancel", null)
                 .create();
@@ -183,6 +219,64 @@ public class CreateScheduleDialog extends DialogFragment {
         dialog.show();
     }
     
+    private void showCyclePicker() {
+        CycleConfigDialog.show(requireContext(), cycleFocusMinutes, cycleBreakMinutes,
+                cycleCount > 0 ? cycleCount : CycleConfigDialog.DEFAULT_CYCLES, cycleLongBreakMinutes,
+                new CycleConfigDialog.Listener() {
+                    @Override
+                    public void onCycleSet(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes) {
+                        cycleFocusMinutes = focusMinutes;
+                        cycleBreakMinutes = breakMinutes;
+                        cycleCount = cycles;
+                        cycleLongBreakMinutes = longBreakMinutes;
+                        // The session lasts exactly as long as its cycles
+                        int total = FocusCyclePlan.totalMinutes(focusMinutes, breakMinutes, cycles, longBreakMinutes);
+                        selectedDurationHours = total / 60;
+                        selectedDurationMinutes = total % 60;
+                        updateDurationDisplay();
+                        updateCycleDisplay();
+                    }
+                    
+                    @Override
+                    public void onCycleOff() {
+                        cycleCount = 0;
+                        updateCycleDisplay();
+                    }
+                });
+    }
+    
+    private void showProfilePicker() {
+        List<AllowlistProfiles.Profile> profiles = AllowlistProfiles.getInstance(requireContext()).getProfiles();
+        String[] items = new String[profiles.size() + 1];
+        items[0] = "Same as manual sessions";
+        int checked = 0;
+        for (int i = 0; i < profiles.size(); i++) {
+            items[i + 1] = profiles.get(i).name;
+            if (profiles.get(i).id == allowlistProfileId) checked = i + 1;
+        }
+        new MaterialAlertDialogBuilder(requireContext(), R.style.ModernAlertDialog)
+                .setTitle("Allowed apps")
+                .setSingleChoiceItems(items, checked, (dialog, which) -> {
+                    allowlistProfileId = which == 0 ? 0 : profiles.get(which - 1).id;
+                    updateProfileDisplay();
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+    
+    private void updateProfileDisplay() {
+        AllowlistProfiles.Profile profile = AllowlistProfiles.getInstance(requireContext()).getProfile(allowlistProfileId);
+        // A deleted profile falls back to the manual one, as it does when the schedule runs
+        selectedProfileDisplay.setText(profile.id == allowlistProfileId ? profile.name : "Same as manual sessions");
+    }
+    
+    private void updateCycleDisplay() {
+        selectedCycleDisplay.setText(cycleCount > 0
+                ? FocusCyclePlan.describe(cycleFocusMinutes, cycleBreakMinutes, cycleCount, cycleLongBreakMinutes)
+                : "Off");
+    }
+    
     private int getMinuteIndex(int minutes) {
         int[] minuteValues = {0, 1, 5, 10, 15, 20, 30, 40, 50};
         for (int i = 0; i < minuteValues.length; i++) {
@@ -297,6 +391,19 @@ public class CreateScheduleDialog extends DialogFragment {
         selectedDurationMinutes = totalMinutes % 60;
         updateDurationDisplay();
         
+        // Set focus cycle
+        if (scheduleToEdit.hasFocusCycle()) {
+            cycleFocusMinutes = scheduleToEdit.getCycleFocusMinutes();
+            cycleBreakMinutes = scheduleToEdit.getCycleBreakMinutes();
+            cycleCount = scheduleToEdit.getCycleCount();
+            cycleLongBreakMinutes = scheduleToEdit.getCycleLongBreakMinutes();
+        }
+        updateCycleDisplay();
+        
+        // Set allowlist profile
+        allowlistProfileId = scheduleToEdit.getAllowlistProfileId();
+        updateProfileDisplay();
+        
         // Set repeat type
         switch (scheduleToEdit.getRepeatType()) {
             case DAILY:
@@ -313,9 +420,8 @@ public class CreateScheduleDialog extends DialogFragment {
         updateFrequencyDisplay();
         
         // Set weekly days
-        Set<Integer> repeatDays = scheduleToEdit.getRepeatDays();
         for (int i = 0; i < dayCheckboxes.length; i++) {
-            dayCheckboxes[i].setChecked(repeatDays.contains(i + 1));
+            dayCheckboxes[i].setChecked(scheduleToEdit.hasRepeatDay(i + 1));
         }
         
         // Set pre-notify
@@ -361,11 +467,11 @@ public class CreateScheduleDialog extends DialogFragment {
         }
         
         // Get weekly days
-        Set<Integer> repeatDays = new HashSet<>();
+        int repeatDaysMask = 0;
         if (repeatType == ScheduleModel.RepeatType.WEEKLY) {
             for (int i = 0; i < dayCheckboxes.length; i++) {
                 if (dayCheckboxes[i].isChecked()) {
-                    repeatDays.add(i + 1); // Calendar.DAY_OF_WEEK values
+                    repeatDaysMask |= 1 << i; // Bit (Calendar.DAY_OF_WEEK - 1)
                 }
             }
         }
@@ -379,6 +485,35 @@ public class CreateScheduleDialog extends DialogFragment {
             preNotifyMinutes = notifyTimes[notifyIndex];
         }
         
+        // Check the new timing against other schedules before touching the edited model
+        final int daysMask = repeatDaysMask;
+        final int notifyMinutes = preNotifyMinutes;
+        ScheduleModel candidate = new ScheduleModel();
+        if (scheduleToEdit != null) {
+            candidate.setId(scheduleToEdit.getId());
+            candidate.copyRecurrenceFrom(scheduleToEdit);
+        }
+        applyInputs(candidate, name, totalDurationMinutes, repeatType, daysMask, preNotifyEnabled, notifyMinutes);
+        
+        List<ScheduleIntervalIndex.Occurrence> conflicts =
+                ScheduleIntervalIndex.get(requireContext()).conflictsWith(candidate);
+        if (conflicts.isEmpty()) {
+            saveSchedule(name, totalDurationMinutes, repeatType, daysMask, preNotifyEnabled, notifyMinutes);
+            return;
+        }
+        
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Overlapping schedule")
+                .setMessage(describeConflicts(conflicts) +
+                        "\n\nOverlapping sessions are merged into one longer focus session.")
+                .setPositiveButton("Save anyway", (d, which) ->
+                        saveSchedule(name, totalDurationMinutes, repeatType, daysMask, preNotifyEnabled, notifyMinutes))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+    
+    private void saveSchedule(String name, int totalDurationMinutes, ScheduleModel.RepeatType repeatType,
+                              int repeatDaysMask, boolean preNotifyEnabled, int preNotifyMinutes) {
         // Create or update schedule
         ScheduleModel schedule;
         if (scheduleToEdit != null) {
@@ -387,19 +522,47 @@ public class CreateScheduleDialog extends DialogFragment {
             schedule = new ScheduleModel();
         }
         
+        applyInputs(schedule, name, totalDurationMinutes, repeatType, repeatDaysMask, preNotifyEnabled, preNotifyMinutes);
+        
+        if (listener != null) {
+            listener.onScheduleCreated(schedule);
+        }
+        
+        dismiss();
+    }
+    
+    private void applyInputs(ScheduleModel schedule, String name, int totalDurationMinutes,
+                             ScheduleModel.RepeatType repeatType, int repeatDaysMask,
+                             boolean preNotifyEnabled, int preNotifyMinutes) {
         schedule.setName(name);
         schedule.setStartHour(selectedHour);
         schedule.setStartMinute(selectedMinute);
         schedule.setFocusDurationMinutes(totalDurationMinutes);
         schedule.setRepeatType(repeatType);
-        schedule.setRepeatDays(repeatDays);
+        schedule.setRepeatDaysMask(repeatDaysMask);
         schedule.setPreNotifyEnabled(preNotifyEnabled);
         schedule.setPreNotifyMinutes(preNotifyMinutes);
-        
-        if (listener != null) {
-            listener.onScheduleCreated(schedule);
+        if (cycleCount > 0) {
+            schedule.setFocusCycle(cycleFocusMinutes, cycleBreakMinutes, cycleCount, cycleLongBreakMinutes);
+        } else {
+            schedule.clearFocusCycle();
         }
-        
-        dismiss();
+        schedule.setAllowlistProfileId(allowlistProfileId);
+    }
+    
+    /**
+     * One line per conflicting schedule with its first overlapping run in the next 7 days
+     */
+    private String describeConflicts(List<ScheduleIntervalIndex.Occurrence> conflicts) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE HH:mm", Locale.getDefault());
+        StringBuilder message = new StringBuilder("This schedule overlaps with:");
+        Set<Integer> listed = new HashSet<>();
+        for (ScheduleIntervalIndex.Occurrence conflict : conflicts) {
+            if (!listed.add(conflict.schedule.getId())) continue;
+            message.append("\n\u2022 ").append(conflict.schedule.getName())
+                    .append(" (").append(format.format(new Date(conflict.startMillis)))
+                    .append(" - ").append(conflict.schedule.getFormattedEndTime()).append(")");
+        }
+        return message.toString();
     }
 } 
\ No newline at end of file
@@ -64,6 +64,19 @@ public class LockOverlayView extends FrameLayout {
         return params;
     }
 
+    /**
+     * Hide and let touches through (focus cycle breaks), or block again, keeping the window attached
+     * Callers apply the changed params with WindowManager.updateViewLayout()
+     */
+    public void setPassThrough(boolean passThrough) {
+        if (passThrough) {
+            params.flags |= WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        } else {
+            params.flags &= ~WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        }
+        setVisibility(passThrough ? GONE : VISIBLE);
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
         // Intercept all touch events to block interaction
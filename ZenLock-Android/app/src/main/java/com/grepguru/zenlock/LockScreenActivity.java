@@ -32,15 +32,22 @@ import com.grepguru.zenlock.model.*;
 import com.grepguru.zenlock.ui.adapter.*;
 import com.grepguru.zenlock.ui.timer.TimerType;
 import com.grepguru.zenlock.ui.timer.TimerFactory;
+import com.grepguru.zenlock.utils.AllowlistProfiles;
+import com.grepguru.zenlock.utils.AppIconCache;
+import com.grepguru.zenlock.utils.BlockerState;
 import com.grepguru.zenlock.utils.AppUtils;
 import com.grepguru.zenlock.utils.AnalyticsManager;
+import com.grepguru.zenlock.utils.DailyLimitManager;
+import com.grepguru.zenlock.utils.DeviceStateMonitor;
 import com.grepguru.zenlock.utils.EnhancedUnlockManager;
+import com.grepguru.zenlock.utils.FocusCycleManager;
+import com.grepguru.zenlock.utils.FocusSessionController;
 import com.grepguru.zenlock.utils.KeyguardUtils;
+import com.grepguru.zenlock.utils.SessionBudgetManager;
 import com.grepguru.zenlock.utils.WhitelistManager;
 import com.grepguru.zenlock.VibrationUtils;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -51,6 +58,7 @@ public class LockScreenActivity extends AppCompatActivity {
     private SharedPreferences preferences;
     private boolean isLaunchingWhitelistedApp = false;
     private AnalyticsManager analyticsManager;
+    private FocusSessionController sessions;
     private boolean isExpanded = false;
     private EnhancedUnlockManager unlockManager;
     private android.os.CountDownTimer countDownTimer;
@@ -67,6 +75,17 @@ public class LockScreenActivity extends AppCompatActivity {
     private static final int NOTIFICATION_ID = 1001;
     private NotificationManager notificationManager;
 
+    // Focus cycle phase changes arrive on the alarm thread; the activity stays alive across them
+    private final FocusCycleManager.PhaseListener phaseListener = (phase, phaseEndMillis) ->
+            runOnUiThread(() -> onCyclePhaseChanged(phase, phaseEndMillis));
+
+    /**
+     * Whether a lock screen instance is currently alive (possibly behind other apps during a break)
+     */
+    public static boolean isActive() {
+        return isLockScreenActive;
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         if (android.os.Build.VERSION.SDK_INT >= 27) {
@@ -84,6 +103,7 @@ public class LockScreenActivity extends AppCompatActivity {
             getWindow().addFlags(android.view.WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         }
         super.onCreate(savedInstanceState);
+        sessions = FocusSessionController.getInstance(this);
         // Prevent multiple instances
         if (isLockScreenActive) {
             Log.d("LockScreenActivity", "Lock screen already active, finishing duplicate instance");
@@ -107,26 +127,15 @@ public class LockScreenActivity extends AppCompatActivity {
         }
         
         preferences = getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        analyticsManager = new AnalyticsManager(this);
+        analyticsManager = AnalyticsManager.getInstance(this);
         unlockManager = new EnhancedUnlockManager(this);
 
-        // Detect reboot using system uptime
-        long storedUptime = preferences.getLong("uptimeAtLock", -1);
-        long currentUptime = android.os.SystemClock.elapsedRealtime();
-
-        // Check if the device restarted using uptime OR if the wasDeviceRestarted flag is set
-        boolean wasRestarted = preferences.getBoolean("wasDeviceRestarted", false);
+        // Device restarted since the lock (uptime went backwards or BootReceiver flagged it)
         boolean autoRestartPref = preferences.getBoolean("auto_restart", false);
-
-        // If device was restarted (stored uptime > current uptime OR wasDeviceRestarted flag is set)
-        if (storedUptime > currentUptime || wasRestarted) {
+        if (sessions.wasDeviceRestarted()) {
             if (!autoRestartPref) {
                 // User disabled auto-restart, clear the lock
-                SharedPreferences.Editor editor = preferences.edit();
-                editor.putBoolean("isLocked", false);
-                editor.remove("lockEndTime");
-                editor.putBoolean("wasDeviceRestarted", false);
-                editor.apply();
+                sessions.expire();
 
                 if (analyticsManager.hasActiveSession()) {
                     analyticsManager.endSession(false);
@@ -136,22 +145,19 @@ public class LockScreenActivity extends AppCompatActivity {
                 return;
             } else {
                 // Auto-restart is enabled, clear the restart flag and continue with lock
-                preferences.edit().putBoolean("wasDeviceRestarted", false).apply();
+                sessions.clearRestartFlag();
                 // Continue — lock remains active and will be enforced below
             }
         }
 
         // Normal behaviour if the device is not restarted
-        // Retrieve saved lock end time
-        long lockEndTime = preferences.getLong("lockEndTime", 0);
+        FocusSessionState session = sessions.getState();
+        long lockEndTime = session.endTime;
         long currentTime = System.currentTimeMillis();
 
         // If no active lock or timer already expired or device restarted, exit lock screen
-        if (!preferences.getBoolean("isLocked", false) || lockEndTime == 0 || currentTime >= lockEndTime) {
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putBoolean("isLocked", false);
-            editor.remove("lockEndTime");
-            editor.apply();
+        if (!session.isLockedAt(currentTime)) {
+            sessions.expire();
 
             // End analytics session if active
             if (analyticsManager.hasActiveSession()) {
@@ -190,16 +196,7 @@ public class LockScreenActivity extends AppCompatActivity {
         long remainingTimeMillis = lockEndTime - currentTime;
         
         // Determine target duration to preserve progress across reinstates
-        long targetDuration = preferences.getLong("lockTargetDuration", 0);
-        if (targetDuration <= 0) {
-            long lockStartTime = preferences.getLong("lockStartTime", 0);
-            if (lockStartTime > 0 && lockEndTime > lockStartTime) {
-                targetDuration = lockEndTime - lockStartTime;
-            } else {
-                // Fallback to current remaining time (old installs)
-                targetDuration = remainingTimeMillis;
-            }
-        }
+        long targetDuration = session.getEffectiveTargetDuration(currentTime);
         
         // Initialize timer system with total target duration
         initializeTimer(targetDuration);
@@ -218,8 +215,7 @@ public class LockScreenActivity extends AppCompatActivity {
         androidx.recyclerview.widget.GridLayoutManager layoutManager = new androidx.recyclerview.widget.GridLayoutManager(this, 3);
         appsRecycler.setLayoutManager(layoutManager);
 
-        SharedPreferences preferences = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-        Set<String> whitelistedApps = preferences.getStringSet("whitelisted_apps", new HashSet<>());
+        Set<String> whitelistedApps = AllowlistProfiles.getInstance(this).getActivePackages();
 
         // Separate default apps and additional apps
         Set<String> defaultApps = AppUtils.getMainDefaultApps(this);
@@ -230,13 +226,25 @@ public class LockScreenActivity extends AppCompatActivity {
                 additionalApps.add(packageName);
             }
         }
+        // Apps with session time left can be opened from here too
+        for (String packageName : SessionBudgetManager.getInstance(this).getAvailablePackages()) {
+            if (!defaultApps.contains(packageName) && !additionalApps.contains(packageName)) {
+                additionalApps.add(packageName);
+            }
+        }
+
+        // Apps whose daily limit is used up stay hidden until tomorrow
+        Set<String> limitReachedApps = DailyLimitManager.getInstance(this).getLimitReachedPackages();
+        additionalApps.removeAll(limitReachedApps);
 
         // Load default apps
         List<AppModel> defaultAppModels = new ArrayList<>();
         PackageManager pm = getPackageManager();
+        AppIconCache icons = AppIconCache.getInstance(this);
         for (String packageName : defaultApps) {
+            if (limitReachedApps.contains(packageName)) continue;
             try {
-                Drawable icon = pm.getApplicationIcon(packageName);
+                Drawable icon = icons.get(packageName);
                 String appName = pm.getApplicationLabel(pm.getApplicationInfo(packageName, PackageManager.GET_META_DATA)).toString();
                 defaultAppModels.add(new AppModel(packageName, appName, true, icon));
             } catch (PackageManager.NameNotFoundException e) {
@@ -248,7 +256,7 @@ public class LockScreenActivity extends AppCompatActivity {
         List<AppModel> additionalAppModels = new ArrayList<>();
         for (String packageName : additionalApps) {
             try {
-                Drawable icon = pm.getApplicationIcon(packageName);
+                Drawable icon = icons.get(packageName);
                 String appName = pm.getApplicationLabel(pm.getApplicationInfo(packageName, PackageManager.GET_META_DATA)).toString();
                 additionalAppModels.add(new AppModel(packageName, appName, false, icon));
             } catch (PackageManager.NameNotFoundException e) {
@@ -457,6 +465,17 @@ public class LockScreenActivity extends AppCompatActivity {
 
         // Start Countdown Timer
         startCountdownTimer(targetDuration, remainingTimeMillis);
+
+        // Follow focus/break switches of a cycle session in place
+        FocusCycleManager.addListener(phaseListener);
+        FocusCyclePlan cyclePlan = FocusCycleManager.getPlan(this);
+        if (cyclePlan != null) {
+            long now = System.currentTimeMillis();
+            int segment = cyclePlan.segmentAt(now);
+            if (segment >= 0 && segment < cyclePlan.getSegmentCount()) {
+                showCyclePhase(cyclePlan, segment);
+            }
+        }
         
         // Create persistent notification if enabled
         createPersistentNotificationIfEnabled();
@@ -466,6 +485,12 @@ public class LockScreenActivity extends AppCompatActivity {
     protected void onPause() {
         super.onPause();
 
+        // During a focus cycle break the user may leave freely; focus brings us back
+        if (FocusCycleManager.isBreakActive(this)) {
+            Log.d("LockScreenActivity", "Cycle break active. Not restarting on pause.");
+            return;
+        }
+
         // If we're launching a whitelisted app, don't restart the lock screen immediately
         if (isLaunchingWhitelistedApp) {
             isLaunchingWhitelistedApp = false; // Reset the flag
@@ -488,7 +513,7 @@ public class LockScreenActivity extends AppCompatActivity {
         }
 
         // Check if AppBlockerService recently allowed a whitelisted app
-        long lastWhitelistedAppTime = preferences.getLong("lastWhitelistedAppTime", 0);
+        long lastWhitelistedAppTime = BlockerState.getInstance(this).getLastAllowedTime();
         long currentTime = System.currentTimeMillis();
         if (lastWhitelistedAppTime > 0 && (currentTime - lastWhitelistedAppTime) < 5000) { // Within last 5 seconds
             Log.d("LockScreenActivity", "AppBlockerService recently allowed whitelisted app. Not restarting on pause.");
@@ -505,7 +530,7 @@ public class LockScreenActivity extends AppCompatActivity {
         if (!isFinishing() && !isDestroyed()) {
             // Use a longer delay to prevent rapid restarts
             new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
-                if (!isFinishing() && !isDestroyed()) {
+                if (!isFinishing() && !isDestroyed() && !FocusCycleManager.isBreakActive(this)) {
                     // Check screen is still on before restarting
                     if (!isScreenOn()) {
                         Log.d("LockScreenActivity", "Screen turned off. Canceling restart.");
@@ -518,7 +543,7 @@ public class LockScreenActivity extends AppCompatActivity {
                     }
 
                     // Double-check if AppBlockerService recently allowed a whitelisted app
-                    long lastWhitelistedAppTime2 = preferences.getLong("lastWhitelistedAppTime", 0);
+                    long lastWhitelistedAppTime2 = BlockerState.getInstance(LockScreenActivity.this).getLastAllowedTime();
                     long currentTime2 = System.currentTimeMillis();
                     if (lastWhitelistedAppTime2 > 0 && (currentTime2 - lastWhitelistedAppTime2) < 5000) {
                         Log.d("LockScreenActivity", "AppBlockerService recently allowed whitelisted app. Canceling restart.");
@@ -543,6 +568,11 @@ public class LockScreenActivity extends AppCompatActivity {
     protected void onStop() {
         super.onStop();
 
+        if (FocusCycleManager.isBreakActive(this)) {
+            Log.d("LockScreenActivity", "Cycle break active. Not restarting on stop.");
+            return;
+        }
+
         // If we're launching a whitelisted app, don't restart the lock screen immediately
         if (isLaunchingWhitelistedApp) {
             Log.d("LockScreenActivity", "Whitelisted app launch detected. Not restarting on stop.");
@@ -561,7 +591,7 @@ public class LockScreenActivity extends AppCompatActivity {
         }
 
         // Check if AppBlockerService recently allowed a whitelisted app
-        long lastWhitelistedAppTime = preferences.getLong("lastWhitelistedAppTime", 0);
+        long lastWhitelistedAppTime = BlockerState.getInstance(this).getLastAllowedTime();
         long currentTime = System.currentTimeMillis();
         if (lastWhitelistedAppTime > 0 && (currentTime - lastWhitelistedAppTime) < 5000) { // Within last 5 seconds
             Log.d("LockScreenActivity", "AppBlockerService recently allowed whitelisted app. Not restarting on stop.");
@@ -578,7 +608,7 @@ public class LockScreenActivity extends AppCompatActivity {
         if (!isFinishing() && !isDestroyed()) {
             // Use a longer delay to prevent rapid restarts
             new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
-                if (!isFinishing() && !isDestroyed()) {
+                if (!isFinishing() && !isDestroyed() && !FocusCycleManager.isBreakActive(this)) {
                     // Check screen is still on
                     if (!isScreenOn()) {
                         Log.d("LockScreenActivity", "Screen turned off. Canceling restart.");
@@ -591,7 +621,7 @@ public class LockScreenActivity extends AppCompatActivity {
                     }
 
                     // Double-check if AppBlockerService recently allowed a whitelisted app
-                    long lastWhitelistedAppTime2 = preferences.getLong("lastWhitelistedAppTime", 0);
+                    long lastWhitelistedAppTime2 = BlockerState.getInstance(LockScreenActivity.this).getLastAllowedTime();
                     long currentTime2 = System.currentTimeMillis();
                     if (lastWhitelistedAppTime2 > 0 && (currentTime2 - lastWhitelistedAppTime2) < 5000) {
                         Log.d("LockScreenActivity", "AppBlockerService recently allowed whitelisted app. Canceling restart.");
@@ -713,6 +743,7 @@ public class LockScreenActivity extends AppCompatActivity {
         super.onDestroy();
         // Always reset the flag when activity is destroyed
         isLockScreenActive = false;
+        FocusCycleManager.removeListener(phaseListener);
 
         // Stop overlay lock service to prevent resource leak
         stopService(new Intent(this, OverlayLockService.class));
@@ -744,12 +775,7 @@ public class LockScreenActivity extends AppCompatActivity {
      * which would cause an infinite wake loop due to setTurnScreenOn(true).
      */
     private boolean isScreenOn() {
-        try {
-            android.os.PowerManager powerManager = (android.os.PowerManager) getSystemService(Context.POWER_SERVICE);
-            return powerManager != null && powerManager.isInteractive();
-        } catch (Exception e) {
-            return true; // Assume screen is on if check fails
-        }
+        return DeviceStateMonitor.getInstance(this).isInteractive();
     }
 
     /**
@@ -803,10 +829,7 @@ public class LockScreenActivity extends AppCompatActivity {
         }
 
         // Reset lock state
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putBoolean("isLocked", false); // Mark as unlocked
-        editor.remove("lockEndTime");
-        editor.apply();
+        sessions.unlock();
 
         // Return to MainActivity
         isLockScreenActive = false; // Reset flag before finishing
@@ -908,25 +931,15 @@ public class LockScreenActivity extends AppCompatActivity {
 
             @Override
             public void onFinish() {
-                long persistedEndTime = preferences.getLong("lockEndTime", 0);
+                FocusSessionState session = sessions.getState();
                 long currentTime = System.currentTimeMillis();
 
                 // If the session was extended elsewhere, this timer instance is stale.
-                // Restart from the persisted state instead of ending the focus session early.
-                if (preferences.getBoolean("isLocked", false) && persistedEndTime > currentTime) {
-                    long remainingTimeMillis = persistedEndTime - currentTime;
-                    long persistedTargetDuration = preferences.getLong("lockTargetDuration", 0);
-                    if (persistedTargetDuration <= 0) {
-                        long persistedStartTime = preferences.getLong("lockStartTime", 0);
-                        if (persistedStartTime > 0 && persistedEndTime > persistedStartTime) {
-                            persistedTargetDuration = persistedEndTime - persistedStartTime;
-                        } else {
-                            persistedTargetDuration = remainingTimeMillis;
-                        }
-                    }
-
+                // Restart from the current state instead of ending the focus session early.
+                if (session.isLockedAt(currentTime)) {
+                    long remainingTimeMillis = session.endTime - currentTime;
                     updateTimerDisplay(remainingTimeMillis);
-                    startCountdownTimer(persistedTargetDuration, remainingTimeMillis);
+                    startCountdownTimer(session.getEffectiveTargetDuration(currentTime), remainingTimeMillis);
                     updatePersistentNotification();
                     return;
                 }
@@ -937,11 +950,7 @@ public class LockScreenActivity extends AppCompatActivity {
                     if (analyticsManager.hasActiveSession()) {
                         analyticsManager.endSession(true); // Completed successfully
                     }
-
-                    SharedPreferences.Editor editor = preferences.edit();
-                    editor.putBoolean("isLocked", false);
-                    editor.remove("lockEndTime"); // Remove saved lock end time
-                    editor.apply();
+                    sessions.expire();
 
                     // Vibrate on timer completion
                     VibrationUtils.vibrate(LockScreenActivity.this, 500); // 500ms vibration
@@ -954,6 +963,71 @@ public class LockScreenActivity extends AppCompatActivity {
         countDownTimer.start();
     }
 
+    /**
+     * Switch between focus and break without recreating the activity: step aside for a break,
+     * come back to the front when focus resumes
+     */
+    private void onCyclePhaseChanged(FocusCyclePlan.Phase phase, long phaseEndMillis) {
+        if (isFinishing() || isDestroyed()) return;
+
+        if (phase == null) {
+            // Cycle over; if the session was extended past it, the rest is plain focus time
+            setupMotivationalQuotes();
+            if (sessions.getState().endTime > System.currentTimeMillis() + 1000) {
+                bringToFront();
+            }
+            return;
+        }
+
+        FocusCyclePlan plan = FocusCycleManager.getPlan(this);
+        if (plan != null) {
+            int segment = plan.segmentAt(System.currentTimeMillis());
+            if (segment >= 0 && segment < plan.getSegmentCount()) showCyclePhase(plan, segment);
+        }
+
+        if (phase.isBreak()) {
+            VibrationUtils.vibrate(this, 200);
+            Toast.makeText(this, phase == FocusCyclePlan.Phase.LONG_BREAK ? "Long break time!" : "Break time!",
+                    Toast.LENGTH_SHORT).show();
+            moveTaskToBack(true);
+        } else {
+            VibrationUtils.vibrate(this, 200);
+            bringToFront();
+        }
+    }
+
+    private void bringToFront() {
+        ActivityManager am = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
+        if (am != null) {
+            am.moveTaskToFront(getTaskId(), 0);
+        }
+    }
+
+    /**
+     * Show which block of the cycle is running and when it ends in place of the quote
+     */
+    private void showCyclePhase(FocusCyclePlan plan, int segment) {
+        TextView lockscreenMessage = findViewById(R.id.lockscreenMessage);
+        if (lockscreenMessage == null) return;
+
+        String endsAt = android.text.format.DateFormat.getTimeFormat(this)
+                .format(new java.util.Date(plan.getSegmentEnd(segment)));
+        FocusCyclePlan.Phase phase = plan.getPhase(segment);
+        String text;
+        if (phase == FocusCyclePlan.Phase.FOCUS) {
+            boolean last = segment + 1 >= plan.getSegmentCount();
+            String next = last ? "ends at " : plan.getPhase(segment + 1) == FocusCyclePlan.Phase.LONG_BREAK
+                    ? "long break at " : "break at ";
+            text = "Focus " + plan.cycleNumberOf(segment) + " of " + plan.cycles + " · " + next + endsAt;
+        } else if (phase == FocusCyclePlan.Phase.BREAK) {
+            text = "Break · focus resumes at " + endsAt;
+        } else {
+            text = "Long break · ends at " + endsAt;
+        }
+        lockscreenMessage.setText(text);
+        lockscreenMessage.setVisibility(View.VISIBLE);
+    }
+
     private void finishLockScreen() {
         // Call this when lock ends (unlock, timer expires, etc.)
         isLockScreenActive = false;
@@ -1027,16 +1101,12 @@ public class LockScreenActivity extends AppCompatActivity {
      * Extend the current lock duration
      */
     private void extendLockDuration(long extraMillis) {
-        long lockEndTime = preferences.getLong("lockEndTime", 0);
-        long newEndTime = lockEndTime + extraMillis;
-        preferences.edit().putLong("lockEndTime", newEndTime).apply();
-        
-        long lockStartTime = preferences.getLong("lockStartTime", 0);
-        long targetDuration = preferences.getLong("lockTargetDuration", 0) + extraMillis;
-        preferences.edit().putLong("lockTargetDuration", targetDuration).apply();
+        long newEndTime = sessions.getState().endTime + extraMillis;
+        sessions.extendTo(newEndTime);
         
         long currentTime = System.currentTimeMillis();
         long remainingTimeMillis = newEndTime - currentTime;
+        long targetDuration = sessions.getState().getEffectiveTargetDuration(currentTime);
 
         // Restart timer with new duration
         if (countDownTimer != null) {
@@ -1135,7 +1205,7 @@ public class LockScreenActivity extends AppCompatActivity {
         );
         
         // Get end time for display
-        long lockEndTime = preferences.getLong("lockEndTime", 0);
+        long lockEndTime = sessions.getState().endTime;
         java.text.SimpleDateFormat timeFormat = new java.text.SimpleDateFormat("HH:mm", java.util.Locale.getDefault());
         String endTimeText = timeFormat.format(new java.util.Date(lockEndTime));
         
@@ -1189,7 +1259,7 @@ public class LockScreenActivity extends AppCompatActivity {
     private void clearPreNotificationsForCurrentSession() {
         try {
             // Get current session source to identify which schedule triggered this session
-            String sessionSource = preferences.getString("current_session_source", "");
+            String sessionSource = sessions.getState().source;
             if (sessionSource.startsWith("schedule:")) {
                 // Extract schedule ID from session source (format: "schedule:ScheduleName")
                 // For now, we'll clear all pre-notifications since we don't store schedule ID in session source
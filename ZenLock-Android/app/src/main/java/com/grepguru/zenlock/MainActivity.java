@@ -1,7 +1,6 @@
 package com.grepguru.zenlock;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.util.Log;
 import androidx.activity.result.ActivityResultLauncher;
@@ -16,6 +15,8 @@ import com.grepguru.zenlock.utils.NotificationPermissionManager;
 import com.grepguru.zenlock.utils.ScheduleActivator;
 import com.grepguru.zenlock.utils.AlarmPermissionManager;
 import com.grepguru.zenlock.utils.AnalyticsManager;
+import com.grepguru.zenlock.utils.AppCatalog;
+import com.grepguru.zenlock.utils.FocusSessionController;
 import com.grepguru.zenlock.utils.ForegroundServicePermissionManager;
 
 public class MainActivity extends AppCompatActivity {
@@ -94,21 +95,9 @@ public class MainActivity extends AppCompatActivity {
      */
     private void cleanupStaleSessionState() {
         try {
-            android.content.SharedPreferences prefs = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-            boolean isLocked = prefs.getBoolean("isLocked", false);
-            long lockEndTime = prefs.getLong("lockEndTime", 0);
-            long currentTime = System.currentTimeMillis();
-            
-                    if (isLocked && lockEndTime > 0 && currentTime >= lockEndTime) {
-                        Log.w(TAG, "Found expired session on app start, cleaning up");
-                        android.content.SharedPreferences.Editor editor = prefs.edit();
-                        editor.putBoolean("isLocked", false);
-                        editor.remove("lockEndTime");
-                        editor.remove("uptimeAtLock");
-                        editor.remove("wasDeviceRestarted");
-                        editor.remove("current_session_source");
-                        editor.apply();
-                    }
+            if (FocusSessionController.getInstance(this).expireIfDue(System.currentTimeMillis())) {
+                Log.w(TAG, "Found expired session on app start, cleaned up");
+            }
         } catch (Exception e) {
             Log.e(TAG, "Failed to cleanup stale session state", e);
         }
@@ -135,10 +124,16 @@ public class MainActivity extends AppCompatActivity {
     private void initializeAnalytics() {
         try {
             Log.d(TAG, "Initializing analytics on app start");
-            AnalyticsManager analyticsManager = new AnalyticsManager(this);
+            AnalyticsManager analyticsManager = AnalyticsManager.getInstance(this);
             
             // Auto-fetch mobile usage data if permission is available
             analyticsManager.updateTodayMobileUsageIfAvailable();
+            
+            // Refresh app labels/flags in the apps dictionary (at most once a day)
+            AppCatalog.getInstance(this).syncIfStaleAsync();
+            
+            // Retention and compaction run later, while idle and charging
+            AnalyticsMaintenanceJobService.schedule(this);
             Log.d(TAG, "Analytics initialization completed");
         } catch (Exception e) {
             Log.e(TAG, "Failed to initialize analytics", e);
@@ -149,8 +144,7 @@ public class MainActivity extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
         // Enforce lock: if locked, redirect to lock screen and prevent access
-        SharedPreferences preferences = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-        boolean isLocked = preferences.getBoolean("isLocked", false);
+        boolean isLocked = FocusSessionController.getInstance(this).isLocked();
         if (isLocked) {
             Intent lockIntent = new Intent(this, com.grepguru.zenlock.LockScreenActivity.class);
             lockIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
@@ -1,48 +1,38 @@
 package com.grepguru.zenlock;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.widget.Toast;
 
+import com.grepguru.zenlock.model.FocusCyclePlan;
 import com.grepguru.zenlock.utils.AnalyticsManager;
+import com.grepguru.zenlock.utils.FocusCycleManager;
+import com.grepguru.zenlock.utils.FocusSessionController;
 import com.grepguru.zenlock.utils.ManualStartDelayScheduler;
 
 /**
  * Starts a manual focus session after a one-off home screen delay.
  */
-public class ManualStartDelayReceiver extends BroadcastReceiver {
+public class ManualStartDelayReceiver extends AsyncBroadcastReceiver {
 
     private static final String TAG = "ManualStartReceiver";
     public static final String EXTRA_DURATION_MS = "duration_ms";
     public static final String EXTRA_ABSOLUTE_END_TIME_MS = "absolute_end_time_ms";
+    public static final String EXTRA_CYCLE_CONFIG = "cycle_config";
 
     @Override
-    public void onReceive(Context context, Intent intent) {
+    protected void doWork(Context context, Intent intent) {
         ManualStartDelayScheduler.clearPendingSessionState(context);
 
-        SharedPreferences prefs = context.getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        boolean isCurrentlyLocked = prefs.getBoolean("isLocked", false);
+        FocusSessionController sessions = FocusSessionController.getInstance(context);
         long currentTime = System.currentTimeMillis();
-        long currentLockEndTime = prefs.getLong("lockEndTime", 0L);
+        sessions.expireIfDue(currentTime);
 
-        if (isCurrentlyLocked && currentLockEndTime > 0 && currentTime >= currentLockEndTime) {
-            prefs.edit()
-                    .putBoolean("isLocked", false)
-                    .remove("lockEndTime")
-                    .remove("uptimeAtLock")
-                    .remove("wasDeviceRestarted")
-                    .remove("current_session_source")
-                    .apply();
-            isCurrentlyLocked = false;
-        }
-
-        if (isCurrentlyLocked) {
+        if (sessions.isLocked()) {
             Log.w(TAG, "A focus session is already active, skipping delayed manual session");
             return;
         }
@@ -60,25 +50,22 @@ public class ManualStartDelayReceiver extends BroadcastReceiver {
         }
 
         long lockStartTime = currentTime;
-        long lockEndTime = lockStartTime + durationMillis;
-        long uptimeAtLock = android.os.SystemClock.elapsedRealtime();
-
-        boolean saved = prefs.edit()
-                .putBoolean("isLocked", true)
-                .putLong("lockStartTime", lockStartTime)
-                .putLong("lockEndTime", lockEndTime)
-                .putLong("lockTargetDuration", durationMillis)
-                .putLong("uptimeAtLock", uptimeAtLock)
-                .putBoolean("wasDeviceRestarted", false)
-                .putString("current_session_source", "manual")
-                .commit();
-
-        if (!saved) {
-            Log.e(TAG, "Failed to save delayed manual focus session state");
-            return;
+        FocusCyclePlan cyclePlan = FocusCyclePlan.fromConfig(intent.getStringExtra(EXTRA_CYCLE_CONFIG), lockStartTime);
+        if (cyclePlan != null) {
+            // Cycles start when the session does, so the lock covers exactly the plan
+            durationMillis = cyclePlan.getEndMillis() - lockStartTime;
+        }
+        sessions.lock(lockStartTime, durationMillis, "manual");
+        // The process may be gone soon after this receiver returns
+        sessions.flush(2000);
+
+        if (cyclePlan != null) {
+            FocusCycleManager.start(context, cyclePlan);
+        } else {
+            FocusCycleManager.clear(context);
         }
 
-        AnalyticsManager analyticsManager = new AnalyticsManager(context);
+        AnalyticsManager analyticsManager = AnalyticsManager.getInstance(context);
         analyticsManager.startSession(durationMillis, "manual");
 
         int durationMinutes = (int) Math.max(1L, durationMillis / 60_000L);
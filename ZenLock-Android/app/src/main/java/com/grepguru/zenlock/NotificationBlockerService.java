@@ -5,36 +5,35 @@ import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
 import android.util.Log;
 
+import com.grepguru.zenlock.utils.AllowlistProfiles;
 import com.grepguru.zenlock.utils.AppUtils;
+import com.grepguru.zenlock.utils.FocusSessionController;
 
-import java.util.Set;
 
 public class NotificationBlockerService extends NotificationListenerService {
 
     private static final String TAG = "NotificationBlocker";
-    private SharedPreferences.OnSharedPreferenceChangeListener prefsListener;
+    private FocusSessionController.Listener sessionListener;
 
     @Override
     public void onListenerConnected() {
         super.onListenerConnected();
         clearBlockedNotifications();
 
-        SharedPreferences prefs = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-        prefsListener = (sharedPreferences, key) -> {
-            if ("isLocked".equals(key) && sharedPreferences.getBoolean("isLocked", false)) {
+        sessionListener = (previous, current) -> {
+            if (current.isLocked() && !previous.isLocked()) {
                 clearBlockedNotifications();
             }
         };
-        prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+        FocusSessionController.getInstance(this).addListener(sessionListener);
     }
 
     @Override
     public void onListenerDisconnected() {
         super.onListenerDisconnected();
-        if (prefsListener != null) {
-            SharedPreferences prefs = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-            prefs.unregisterOnSharedPreferenceChangeListener(prefsListener);
-            prefsListener = null;
+        if (sessionListener != null) {
+            FocusSessionController.getInstance(this).removeListener(sessionListener);
+            sessionListener = null;
         }
     }
 
@@ -76,25 +75,20 @@ public class NotificationBlockerService extends NotificationListenerService {
     }
 
     private boolean shouldBlockNotification(String packageName) {
-        SharedPreferences prefs = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
+        if (!FocusSessionController.getInstance(this).isLockedAt(System.currentTimeMillis())) return false;
 
-        boolean isLocked = prefs.getBoolean("isLocked", false);
-        if (!isLocked) return false;
+        SharedPreferences prefs = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
 
         boolean blockNotifications = prefs.getBoolean("block_notifications", true);
         if (!blockNotifications) return false;
 
-        long lockEndTime = prefs.getLong("lockEndTime", 0);
-        if (lockEndTime > 0 && System.currentTimeMillis() >= lockEndTime) return false;
-
         if ("com.grepguru.zenlock".equals(packageName)) return false;
 
         if ("android".equals(packageName) || "com.android.systemui".equals(packageName)) return false;
 
         if (isEssentialApp(packageName, prefs)) return false;
 
-        Set<String> whitelistedApps = prefs.getStringSet("whitelisted_apps", null);
-        if (whitelistedApps != null && whitelistedApps.contains(packageName)) return false;
+        if (AllowlistProfiles.getInstance(this).isInActiveProfile(packageName)) return false;
 
         return true;
     }
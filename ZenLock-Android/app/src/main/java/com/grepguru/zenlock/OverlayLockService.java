@@ -8,20 +8,38 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.IBinder;
+import android.util.Log;
 import android.view.WindowManager;
 import androidx.annotation.Nullable;
 
+import com.grepguru.zenlock.utils.BlockerState;
+
+/**
+ * Not declared in the manifest, so the start calls in AppBlockerService and LockScreenActivity
+ * are no-ops. Focus cycle breaks come from the BlockerState snapshot; the window it adds
+ * intercepts every touch, so it must not be declared until it stops doing that
+ */
 public class OverlayLockService extends Service {
+    private static final String TAG = "OverlayLockService";
     private static final String CHANNEL_ID = "zenlock_overlay_lock";
     private LockOverlayView overlayView;
     private WindowManager windowManager;
+    private BlockerState state;
+
+    // Focus cycle breaks suspend the overlay in place instead of stopping the service
+    private final BlockerState.Listener stateListener = (previous, current) -> {
+        if (previous.breakActive != current.breakActive) applyBreak(current.breakActive);
+    };
 
     @Override
     public void onCreate() {
         super.onCreate();
         windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
+        state = BlockerState.getInstance(this);
         overlayView = new LockOverlayView(this);
+        overlayView.setPassThrough(state.get().breakActive);
         windowManager.addView(overlayView, overlayView.getLayoutParams());
+        state.addListener(stateListener);
         startForeground(1, createNotification());
     }
 
@@ -34,12 +52,23 @@ public class OverlayLockService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        state.removeListener(stateListener);
         if (overlayView != null) {
             windowManager.removeView(overlayView);
             overlayView = null;
         }
     }
 
+    private void applyBreak(boolean passThrough) {
+        if (overlayView == null) return;
+        try {
+            overlayView.setPassThrough(passThrough);
+            windowManager.updateViewLayout(overlayView, overlayView.getLayoutParams());
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Overlay not attached, cannot switch phase", e);
+        }
+    }
+
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
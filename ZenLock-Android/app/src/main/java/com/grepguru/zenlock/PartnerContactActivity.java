@@ -25,6 +25,7 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import androidx.core.view.WindowCompat;
 
+import com.grepguru.zenlock.utils.FocusSessionController;
 import com.grepguru.zenlock.utils.OTPManager;
 import java.util.regex.Pattern;
 
@@ -45,8 +46,7 @@ public class PartnerContactActivity extends AppCompatActivity {
     private OTPManager otpManager;
 
     private boolean isLockActive(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-        return prefs.getBoolean("isLocked", false);
+        return FocusSessionController.getInstance(context).isLocked();
     }
 
     @Override
@@ -101,8 +101,7 @@ public class PartnerContactActivity extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
         // Enforce lock: if locked, redirect to lock screen and prevent access
-        SharedPreferences preferences = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-        boolean isLocked = preferences.getBoolean("isLocked", false);
+        boolean isLocked = FocusSessionController.getInstance(this).isLocked();
         if (isLocked) {
             Intent lockIntent = new Intent(this, com.grepguru.zenlock.LockScreenActivity.class);
             lockIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
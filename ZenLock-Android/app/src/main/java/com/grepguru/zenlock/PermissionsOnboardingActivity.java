@@ -15,6 +15,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 
+import com.grepguru.zenlock.utils.DeviceStateMonitor;
 import com.grepguru.zenlock.utils.MiuiUtils;
 
 /**
@@ -166,7 +167,8 @@ public class PermissionsOnboardingActivity extends AppCompatActivity {
 
         // Only show MIUI card on Xiaomi/Redmi/POCO devices
         if (MiuiUtils.isXiaomiDevice()) {
-            boolean miuiGranted = MiuiUtils.canStartActivityFromBackground(this);
+            // May have just been changed in MIUI's permission editor
+            boolean miuiGranted = DeviceStateMonitor.getInstance(this).refreshBackgroundStart();
             updatePermissionCard(miuiCard, miuiButton, miuiGranted, "Granted", "Grant");
             miuiCard.setVisibility(View.VISIBLE);
         } else {
@@ -4,7 +4,6 @@ import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
@@ -16,14 +15,14 @@ import androidx.core.app.NotificationCompat;
  * PreNotificationReceiver - Handles pre-notifications for scheduled focus sessions
  * Shows notification X minutes before a scheduled focus session starts
  */
-public class PreNotificationReceiver extends BroadcastReceiver {
+public class PreNotificationReceiver extends AsyncBroadcastReceiver {
     
     private static final String TAG = "PreNotificationReceiver";
     private static final String CHANNEL_ID = "zenlock_pre_notifications";
     private static final int NOTIFICATION_ID_BASE = 2000; // Base ID for pre-notifications
     
     @Override
-    public void onReceive(Context context, Intent intent) {
+    protected void doWork(Context context, Intent intent) {
         Log.d(TAG, "Pre-notification received");
         
         // Get schedule details from intent
@@ -0,0 +1,26 @@
+package com.grepguru.zenlock;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.grepguru.zenlock.utils.FocusSessionController;
+import com.grepguru.zenlock.utils.ScheduleAlarmMultiplexer;
+
+/**
+ * ScheduleAlarmReceiver - Receives the single multiplexed schedule alarm
+ * Dispatches every due schedule event and re-arms the alarm for the next one
+ */
+public class ScheduleAlarmReceiver extends AsyncBroadcastReceiver {
+
+    private static final String TAG = "ScheduleAlarmReceiver";
+
+    @Override
+    protected void doWork(Context context, Intent intent) {
+        long dueAt = intent.getLongExtra(ScheduleAlarmMultiplexer.EXTRA_DUE_AT, System.currentTimeMillis());
+        Log.d(TAG, "Schedule alarm fired (due at " + dueAt + ")");
+        ScheduleAlarmMultiplexer.onAlarm(context, dueAt);
+        // Dispatched events may have started or ended the session
+        FocusSessionController.getInstance(context).flush(2000);
+    }
+}
@@ -1,14 +1,16 @@
 package com.grepguru.zenlock;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Build;
 import android.util.Log;
 
+import com.grepguru.zenlock.data.repository.ScheduleRepository;
+import com.grepguru.zenlock.model.FocusCyclePlan;
 import com.grepguru.zenlock.model.ScheduleModel;
 import com.grepguru.zenlock.utils.AnalyticsManager;
+import com.grepguru.zenlock.utils.FocusCycleManager;
+import com.grepguru.zenlock.utils.FocusSessionController;
 import com.grepguru.zenlock.utils.ScheduleManager;
 
 /**
@@ -16,7 +18,7 @@ import com.grepguru.zenlock.utils.ScheduleManager;
  * Triggered by AlarmManager when a scheduled focus session should start
  * Properly sets up the focus session state and launches LockScreenActivity
  */
-public class ScheduleTriggerReceiver extends BroadcastReceiver {
+public class ScheduleTriggerReceiver extends AsyncBroadcastReceiver {
     
     private static final String TAG = "ScheduleTriggerReceiver";
     
@@ -24,9 +26,13 @@ public class ScheduleTriggerReceiver extends BroadcastReceiver {
     public static final String EXTRA_SCHEDULE_ID = "schedule_id";
     public static final String EXTRA_SCHEDULE_NAME = "schedule_name";
     public static final String EXTRA_DURATION_MINUTES = "duration_minutes";
+    // Optional absolute end time, used when resuming an occurrence that is already under way
+    public static final String EXTRA_END_TIME = "end_time";
+    // Start of the occurrence being resumed; absent when it starts now
+    public static final String EXTRA_START_TIME = "start_time";
     
     @Override
-    public void onReceive(Context context, Intent intent) {
+    protected void doWork(Context context, Intent intent) {
         Log.d(TAG, "Schedule trigger received");
         
         // Get schedule details from intent
@@ -45,29 +51,13 @@ public class ScheduleTriggerReceiver extends BroadcastReceiver {
         clearPreNotification(context, scheduleId);
         
         // Check if there's already an active session
-        SharedPreferences prefs = context.getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        boolean isCurrentlyLocked = prefs.getBoolean("isLocked", false);
-        long lockEndTime = prefs.getLong("lockEndTime", 0);
+        FocusSessionController sessions = FocusSessionController.getInstance(context);
         long currentTime = System.currentTimeMillis();
-        
-                // Check if session is actually expired
-                if (isCurrentlyLocked && lockEndTime > 0 && currentTime >= lockEndTime) {
-                    Log.w(TAG, "Found expired session, cleaning up stale state");
-                    SharedPreferences.Editor editor = prefs.edit();
-                    editor.putBoolean("isLocked", false);
-                    editor.remove("lockEndTime");
-                    editor.remove("uptimeAtLock");
-                    editor.remove("wasDeviceRestarted");
-                    editor.remove("current_session_source");
-                    editor.apply();
-
-                    isCurrentlyLocked = false;
-                }
-        
-        if (isCurrentlyLocked) {
-            Log.w(TAG, "Focus session already active, skipping scheduled session");
-            return;
+        if (sessions.expireIfDue(currentTime)) {
+            Log.w(TAG, "Found expired session, cleaned up stale state");
         }
+        boolean isCurrentlyLocked = sessions.isLocked();
+        long lockEndTime = sessions.getState().endTime;
         
         // Verify schedule still exists and is enabled
         ScheduleManager scheduleManager = new ScheduleManager(context);
@@ -78,19 +68,51 @@ public class ScheduleTriggerReceiver extends BroadcastReceiver {
             return;
         }
         
-        // Set up focus session state (same as HomeFragment does)
-        boolean setupSuccess = setupFocusSession(context, durationMinutes, scheduleName);
+        long endTime = intent.getLongExtra(EXTRA_END_TIME, 0L);
+        if (endTime <= currentTime) {
+            endTime = currentTime + durationMinutes * 60 * 1000L;
+        }
         
-        if (!setupSuccess) {
-            Log.e(TAG, "Failed to setup focus session state");
+        if (isCurrentlyLocked) {
+            // Overlapping schedules merge into the running session instead of being dropped
+            if (endTime > lockEndTime) {
+                sessions.extendTo(endTime);
+                Log.d(TAG, "Focus session already active, extended to cover " + scheduleName);
+            } else {
+                Log.d(TAG, "Focus session already active and covers " + scheduleName);
+            }
+            sessions.flush(2000);
+            rescheduleIfNeeded(context, schedule);
             return;
         }
         
+        // Set up focus session state
+        sessions.lock(currentTime, endTime - currentTime, "schedule:" + scheduleName);
+        // The process may be gone soon after this receiver returns
+        sessions.flush(2000);
+        Log.d(TAG, "Focus session state setup complete for scheduled session");
+        
+        // Cycles are anchored to the occurrence's start so a resumed session lands in the right phase.
+        // endTime can't give it: it is the end of the whole merged block
+        long cycleStart = intent.getLongExtra(EXTRA_START_TIME, 0L);
+        if (cycleStart <= 0 || cycleStart > currentTime) {
+            cycleStart = sessions.getState().startTime;
+        }
+        FocusCyclePlan cyclePlan = schedule.createCyclePlan(cycleStart);
+        if (cyclePlan != null) {
+            FocusCycleManager.start(context, cyclePlan);
+        } else {
+            FocusCycleManager.clear(context);
+        }
+        
+        // Shorter than the schedule's duration when resuming an occurrence already under way
+        int sessionMinutes = (int) Math.max(1, (endTime - currentTime + 59_999) / 60_000);
+        
         // Start LockScreenService (Foreground Service) to handle background launch
         Intent serviceIntent = new Intent(context, LockScreenService.class);
         serviceIntent.putExtra(LockScreenService.EXTRA_SCHEDULE_NAME, scheduleName);
         serviceIntent.putExtra(LockScreenService.EXTRA_SCHEDULE_ID, scheduleId);
-        serviceIntent.putExtra(LockScreenService.EXTRA_DURATION_MINUTES, durationMinutes);
+        serviceIntent.putExtra(LockScreenService.EXTRA_DURATION_MINUTES, sessionMinutes);
         
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -103,54 +125,18 @@ public class ScheduleTriggerReceiver extends BroadcastReceiver {
             Log.e(TAG, "Failed to start LockScreenService, trying notification launcher", e);
             
             // Fallback: use notification-based launcher
-            LockScreenLauncher.launchWithNotification(context, scheduleName, scheduleId, durationMinutes);
+            LockScreenLauncher.launchWithNotification(context, scheduleName, scheduleId, sessionMinutes);
         }
         
+        // Start analytics tracking only once the lock is on its way, so opening the analytics
+        // database never delays the lock screen
+        AnalyticsManager analyticsManager = AnalyticsManager.getInstance(context);
+        analyticsManager.startSession(endTime - currentTime);
+        
         // Reschedule for next occurrence (if recurring)
         rescheduleIfNeeded(context, schedule);
     }
     
-    /**
-     * Set up focus session state in SharedPreferences (mimics HomeFragment behavior)
-     */
-    private boolean setupFocusSession(Context context, int durationMinutes, String scheduleName) {
-        try {
-            SharedPreferences prefs = context.getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-            
-            long lockDurationMillis = durationMinutes * 60 * 1000L;
-            long lockStartTime = System.currentTimeMillis();
-            long lockEndTime = lockStartTime + lockDurationMillis;
-            long uptimeAtLock = android.os.SystemClock.elapsedRealtime();
-            
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putBoolean("isLocked", true);
-            editor.putLong("lockStartTime", lockStartTime);
-            editor.putLong("lockEndTime", lockEndTime);
-            editor.putLong("lockTargetDuration", lockDurationMillis);
-            editor.putLong("uptimeAtLock", uptimeAtLock);  // Critical for restart detection
-            editor.putBoolean("wasDeviceRestarted", false);
-            editor.putString("current_session_source", "schedule:" + scheduleName);
-            
-            boolean commitResult = editor.commit(); // Use commit() for immediate write
-            
-            if (!commitResult) {
-                Log.e(TAG, "Failed to save focus session state");
-                return false;
-            }
-            
-            // Start analytics tracking
-            AnalyticsManager analyticsManager = new AnalyticsManager(context);
-            analyticsManager.startSession(lockDurationMillis);
-            
-            Log.d(TAG, "Focus session state setup complete for scheduled session");
-            return true;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to setup focus session state", e);
-            return false;
-        }
-    }
-    
     /**
      * Clear pre-notification for a specific schedule
      */
@@ -185,6 +171,8 @@ public class ScheduleTriggerReceiver extends BroadcastReceiver {
             ScheduleManager scheduleManager = new ScheduleManager(context);
             schedule.setEnabled(false);
             scheduleManager.updateSchedule(schedule);
+            // Writes are queued; make sure this one lands before the receiver returns
+            ScheduleRepository.getInstance(context).flush(2000);
             Log.d(TAG, "Disabled one-time schedule: " + schedule.getName());
         }
     }
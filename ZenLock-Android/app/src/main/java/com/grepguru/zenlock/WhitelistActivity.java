@@ -3,7 +3,6 @@ package com.grepguru.zenlock;
 import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
@@ -16,6 +15,7 @@ import android.view.View;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
@@ -25,11 +25,17 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.tabs.TabLayout;
 
 import com.grepguru.zenlock.model.*;
 import com.grepguru.zenlock.ui.adapter.*;
+import com.grepguru.zenlock.utils.AllowlistProfiles;
+import com.grepguru.zenlock.utils.AppIconCache;
 import com.grepguru.zenlock.utils.AppUtils;
+import com.grepguru.zenlock.utils.DailyLimitManager;
+import com.grepguru.zenlock.utils.FocusSessionController;
+import com.grepguru.zenlock.utils.SessionBudgetManager;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -45,7 +51,9 @@ import java.util.Set;
 public class WhitelistActivity extends AppCompatActivity {
 
     // Configuration - Easy to modify
-    private static final int MAX_ADDITIONAL_APPS = 4;
+    private static final int MAX_ADDITIONAL_APPS = 4; // Per allowlist profile
+    private static final int[] SESSION_BUDGET_OPTIONS = {0, 5, 10, 15, 20, 30, 45, 60}; // minutes, 0 = none
+    private static final int[] DAILY_LIMIT_OPTIONS = {0, 15, 30, 45, 60, 90, 120, 180}; // minutes, 0 = none
     
     // UI Components
     private RecyclerView recyclerView;
@@ -74,16 +82,19 @@ public class WhitelistActivity extends AppCompatActivity {
     private Set<String> defaultApps = new HashSet<>(); // Phone, Calendar, Clock (excluded from selection)
     private Set<String> selectedApps = new HashSet<>(); // User's additional app selections
     private Map<String, SelectableAppModel> appModelMap = new HashMap<>(); // Quick lookup for app info
+    private Map<String, Integer> sessionBudgets = new HashMap<>(); // Apps allowed for limited minutes per session
+    private Map<String, Integer> dailyLimits = new HashMap<>(); // Apps capped to some minutes a day
     // Set of device default app package names (Phone, Calendar, Clock) - always excluded from quota
     private Set<String> deviceDefaultAppPackages = new HashSet<>();
+    // Allowlist profile being edited; saving also makes it the manual session's profile
+    private int editingProfileId;
 
     // Tab constants
     private static final int TAB_SYSTEM = 0;
     private static final int TAB_USER = 1;
 
     private boolean isLockActive(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-        return prefs.getBoolean("isLocked", false);
+        return FocusSessionController.getInstance(context).isLocked();
     }
 
     @Override
@@ -113,7 +124,10 @@ public class WhitelistActivity extends AppCompatActivity {
         if (clockPkg != null) deviceDefaultAppPackages.add(clockPkg);
 
         defaultApps = AppUtils.getMainDefaultApps(this); // This is still used for lock screen logic
+        editingProfileId = AllowlistProfiles.getInstance(this).getManualProfileId();
         loadUserSelections();
+        updateTitle();
+        whitelistTitle.setOnClickListener(v -> showProfilePicker());
 
         // Setup tabs
         setupTabs();
@@ -124,6 +138,7 @@ public class WhitelistActivity extends AppCompatActivity {
             updateSaveButtonText();
             updateSelectedAppsBar();
         });
+        adapter.setTimeLimits(sessionBudgets, dailyLimits, this::showTimeLimitsDialog);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(adapter);
 
@@ -142,8 +157,7 @@ public class WhitelistActivity extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
         // Enforce lock: if locked, redirect to lock screen and prevent access
-        SharedPreferences preferences = getSharedPreferences("FocusLockPrefs", MODE_PRIVATE);
-        boolean isLocked = preferences.getBoolean("isLocked", false);
+        boolean isLocked = FocusSessionController.getInstance(this).isLocked();
         if (isLocked) {
             Intent lockIntent = new Intent(this, com.grepguru.zenlock.LockScreenActivity.class);
             lockIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
@@ -404,8 +418,13 @@ public class WhitelistActivity extends AppCompatActivity {
     }
 
     private void loadUserSelections() {
-        SharedPreferences preferences = getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        Set<String> savedWhitelist = preferences.getStringSet("whitelisted_apps", new HashSet<>());
+        loadProfileSelections();
+        sessionBudgets.putAll(SessionBudgetManager.readConfiguredMinutes(this));
+        dailyLimits.putAll(DailyLimitManager.readConfiguredMinutes(this));
+    }
+
+    private void loadProfileSelections() {
+        Set<String> savedWhitelist = AllowlistProfiles.getInstance(this).getPackages(editingProfileId);
         
         // Filter out device default apps from saved selections - they don't count toward quota
         for (String packageName : savedWhitelist) {
@@ -414,6 +433,133 @@ public class WhitelistActivity extends AppCompatActivity {
             }
         }
     }
+
+    // =====================================
+    // ALLOWLIST PROFILES
+    // =====================================
+
+    private void updateTitle() {
+        AllowlistProfiles.Profile profile = AllowlistProfiles.getInstance(this).getProfile(editingProfileId);
+        whitelistTitle.setText("Whitelist: " + profile.name + " \u25BE");
+    }
+
+    private void showProfilePicker() {
+        AllowlistProfiles profiles = AllowlistProfiles.getInstance(this);
+        List<AllowlistProfiles.Profile> all = profiles.getProfiles();
+        String[] items = new String[all.size() + 1];
+        int checked = 0;
+        for (int i = 0; i < all.size(); i++) {
+            items[i] = all.get(i).name;
+            if (all.get(i).id == editingProfileId) checked = i;
+        }
+        items[all.size()] = "+ New profile";
+
+        MaterialAlertDialogBuilder builder = new MaterialAlertDialogBuilder(this, R.style.ModernAlertDialog)
+                .setTitle("Allowlist profile")
+                .setSingleChoiceItems(items, checked, (dialog, which) -> {
+                    dialog.dismiss();
+                    if (which == all.size()) {
+                        showNewProfileDialog();
+                    } else {
+                        switchProfile(all.get(which).id);
+                    }
+                })
+                .setNegativeButton("Cancel", null);
+        if (editingProfileId != AllowlistProfiles.DEFAULT_PROFILE_ID) {
+            builder.setNeutralButton("Delete", (dialog, which) -> {
+                profiles.delete(editingProfileId);
+                switchProfile(profiles.getManualProfileId());
+            });
+        }
+        builder.show();
+    }
+
+    private void showNewProfileDialog() {
+        EditText nameInput = new EditText(this);
+        nameInput.setHint("e.g. Work, Study, Sleep");
+        nameInput.setSingleLine(true);
+        FrameLayout container = new FrameLayout(this);
+        int padding = (int) (24 * getResources().getDisplayMetrics().density);
+        container.setPadding(padding, padding / 2, padding, 0);
+        container.addView(nameInput);
+
+        new MaterialAlertDialogBuilder(this, R.style.ModernAlertDialog)
+                .setTitle("New profile")
+                .setView(container)
+                .setPositiveButton("Create", (dialog, which) -> {
+                    String name = nameInput.getText().toString().trim();
+                    if (name.isEmpty()) {
+                        Toast.makeText(this, "Profile name can't be empty", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    switchProfile(AllowlistProfiles.getInstance(this).create(name));
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Edit another profile; unsaved selections of the current one are dropped
+     */
+    private void switchProfile(int profileId) {
+        editingProfileId = profileId;
+        selectedApps.clear();
+        loadProfileSelections();
+        updateTitle();
+        if (recyclerView.getAdapter() != null) {
+            recyclerView.getAdapter().notifyDataSetChanged();
+        }
+        updateSaveButtonText();
+        updateSelectedAppsBar();
+    }
+
+    private void showTimeLimitsDialog(SelectableAppModel app) {
+        Integer budget = sessionBudgets.get(app.getPackageName());
+        Integer daily = dailyLimits.get(app.getPackageName());
+        String[] items = {
+                "Session time: " + (budget != null ? budget + " min" : "none"),
+                "Daily limit: " + (daily != null ? daily + " min" : "none")
+        };
+        new MaterialAlertDialogBuilder(this, R.style.ModernAlertDialog)
+                .setTitle(app.getAppName())
+                .setItems(items, (dialog, which) -> {
+                    if (which == 0) {
+                        // Let an app through for a limited time per session, independent of the whitelist quota
+                        showMinutesDialog(app, sessionBudgets, SESSION_BUDGET_OPTIONS, "No session time", " min per session");
+                    } else {
+                        // Cap an app's use per day, in and out of sessions
+                        showMinutesDialog(app, dailyLimits, DAILY_LIMIT_OPTIONS, "No daily limit", " min a day");
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showMinutesDialog(SelectableAppModel app, Map<String, Integer> limits, int[] options,
+                                   String noneLabel, String suffix) {
+        String[] labels = new String[options.length];
+        Integer current = limits.get(app.getPackageName());
+        int checked = 0;
+        for (int i = 0; i < options.length; i++) {
+            labels[i] = options[i] == 0 ? noneLabel : options[i] + suffix;
+            if (current != null && current == options[i]) checked = i;
+        }
+
+        new MaterialAlertDialogBuilder(this, R.style.ModernAlertDialog)
+                .setTitle(app.getAppName())
+                .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                    if (options[which] == 0) {
+                        limits.remove(app.getPackageName());
+                    } else {
+                        limits.put(app.getPackageName(), options[which]);
+                    }
+                    RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+                    if (adapter != null) adapter.notifyDataSetChanged();
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
     
     private void loadAndOrganizeAppsAsync(WhitelistAdapter adapter) {
         // Show loading animation
@@ -471,7 +617,7 @@ public class WhitelistActivity extends AppCompatActivity {
                 
                 Drawable icon;
                 try {
-                    icon = pm.getApplicationIcon(packageName);
+                    icon = AppIconCache.getInstance(this).get(packageName);
                 } catch (PackageManager.NameNotFoundException e) {
                     icon = getDrawable(R.drawable.default_app_icon);
                 }
@@ -520,12 +666,15 @@ public class WhitelistActivity extends AppCompatActivity {
         finalWhitelist.addAll(defaultApps);
         finalWhitelist.addAll(selectedApps);
         
-        SharedPreferences preferences = getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putStringSet("whitelisted_apps", finalWhitelist);
-        editor.apply();
-
-        Toast.makeText(this, "Whitelist Updated! Selected " + selectedApps.size() + " additional apps.", Toast.LENGTH_SHORT).show();
+        AllowlistProfiles profiles = AllowlistProfiles.getInstance(this);
+        profiles.save(editingProfileId, finalWhitelist);
+        profiles.setManualProfileId(editingProfileId);
+        SessionBudgetManager.saveConfiguredMinutes(this, sessionBudgets);
+        DailyLimitManager.saveConfiguredMinutes(this, dailyLimits);
+        DailyLimitManager.getInstance(this).reload();
+
+        Toast.makeText(this, "Whitelist \"" + profiles.getProfile(editingProfileId).name + "\" updated! Selected "
+                + selectedApps.size() + " additional apps.", Toast.LENGTH_SHORT).show();
         finish();
     }
 }
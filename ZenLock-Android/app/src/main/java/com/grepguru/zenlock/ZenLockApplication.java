@@ -0,0 +1,42 @@
+package com.grepguru.zenlock;
+
+import android.app.Application;
+import android.content.Context;
+
+import com.grepguru.zenlock.utils.BlockerStatePublisher;
+import com.grepguru.zenlock.utils.MemoryPressure;
+
+/**
+ * Process entry point, owns the AppContainer every component resolves shared objects from
+ *
+ * Also created in the ":blocker" process, where only AppBlockerService runs; nothing else is
+ * started there
+ */
+public class ZenLockApplication extends Application {
+
+    private AppContainer container;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Cheap: the container builds nothing until something asks for it
+        container = new AppContainer(this);
+        // Caches register themselves with MemoryPressure as they are created
+        registerComponentCallbacks(MemoryPressure.get());
+        if (getPackageName().equals(getProcessName())) {
+            // App process: keep the blocker process's view of the lock state current
+            BlockerStatePublisher.getInstance(this).start();
+        }
+    }
+
+    public AppContainer getContainer() {
+        return container;
+    }
+
+    /**
+     * Container of the current process, reachable from any Context
+     */
+    public static AppContainer container(Context context) {
+        return ((ZenLockApplication) context.getApplicationContext()).getContainer();
+    }
+}
@@ -0,0 +1,22 @@
+package com.grepguru.zenlock.data.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.grepguru.zenlock.data.entities.AllowlistProfileEntity;
+
+import java.util.List;
+
+@Dao
+public interface AllowlistProfileDao {
+    @Query("SELECT * FROM allowlist_profiles ORDER BY id ASC")
+    List<AllowlistProfileEntity> getAll();
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(AllowlistProfileEntity profile);
+
+    @Query("DELETE FROM allowlist_profiles WHERE id = :id")
+    int deleteById(int id);
+}
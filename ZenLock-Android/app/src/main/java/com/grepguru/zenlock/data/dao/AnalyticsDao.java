@@ -8,11 +8,15 @@ import androidx.room.Query;
 import androidx.room.Transaction;
 import androidx.room.Update;
 
+import com.grepguru.zenlock.data.entities.AppEntity;
+import com.grepguru.zenlock.data.entities.AppUsageDailyEntity;
 import com.grepguru.zenlock.data.entities.AppUsageEntity;
 import com.grepguru.zenlock.data.entities.DailyMobileUsageEntity;
 import com.grepguru.zenlock.data.entities.DailyStatsEntity;
 import com.grepguru.zenlock.data.entities.MonthlyStatsEntity;
 import com.grepguru.zenlock.data.entities.SessionEntity;
+import com.grepguru.zenlock.data.entities.UsageArchiveEntity;
+import com.grepguru.zenlock.data.entities.UsageRollupEntity;
 import com.grepguru.zenlock.data.entities.WeeklyStatsEntity;
 
 import java.util.List;
@@ -201,6 +205,39 @@ public interface AnalyticsDao {
     @Query("DELETE FROM monthly_stats WHERE month_key < :cutoffMonthKey")
     void deleteOldMonthlyStats(String cutoffMonthKey);
     
+    // Bounded batches so retention never holds the write lock for long
+    @Query("SELECT DISTINCT date(start_time/1000, 'unixepoch') FROM sessions WHERE start_time < :cutoffTime")
+    List<String> getSessionDatesBefore(long cutoffTime);
+    
+    @Query("DELETE FROM app_usage WHERE session_id IN " +
+           "(SELECT session_id FROM sessions WHERE start_time < :cutoffTime " +
+           "ORDER BY start_time, session_id LIMIT :limit)")
+    int deleteOldAppUsageBatch(long cutoffTime, int limit);
+    
+    @Query("DELETE FROM sessions WHERE session_id IN " +
+           "(SELECT session_id FROM sessions WHERE start_time < :cutoffTime " +
+           "ORDER BY start_time, session_id LIMIT :limit)")
+    int deleteOldSessionsBatch(long cutoffTime, int limit);
+    
+    // Per-app totals of the same session set, by UTC session date
+    @Query("SELECT date(s.start_time/1000, 'unixepoch') AS date, u.app_id AS app_id, " +
+           "SUM(u.usage_time) AS usage_time, COUNT(DISTINCT u.session_id) AS session_count " +
+           "FROM app_usage u INNER JOIN sessions s ON s.session_id = u.session_id " +
+           "WHERE u.session_id IN (SELECT session_id FROM sessions WHERE start_time < :cutoffTime " +
+           "ORDER BY start_time, session_id LIMIT :limit) GROUP BY date, u.app_id")
+    List<AppUsageDailyEntity> getOldAppUsageDailyBatch(long cutoffTime, int limit);
+    
+    @Insert
+    void insertAppUsageDaily(AppUsageDailyEntity appUsageDaily);
+    
+    @Query("UPDATE app_usage_daily SET usage_time = usage_time + :usageTime, " +
+           "session_count = session_count + :sessionCount WHERE date = :date AND app_id = :appId")
+    int addToAppUsageDaily(String date, int appId, long usageTime, int sessionCount);
+    
+    @Query("DELETE FROM daily_stats WHERE date IN " +
+           "(SELECT date FROM daily_stats WHERE date < :cutoffDate ORDER BY date LIMIT :limit)")
+    int deleteOldDailyStatsBatch(String cutoffDate, int limit);
+    
     // =====================================
     // BATCH OPERATIONS
     // =====================================
@@ -216,6 +253,19 @@ public interface AnalyticsDao {
         }
     }
     
+    @Transaction
+    default int deleteOldSessionBatch(long cutoffTime, int limit) {
+        // Keep per-app daily totals; a session is in exactly one batch, so counts just add up
+        for (AppUsageDailyEntity day : getOldAppUsageDailyBatch(cutoffTime, limit)) {
+            if (addToAppUsageDaily(day.date, day.appId, day.usageTime, day.sessionCount) == 0) {
+                insertAppUsageDaily(day);
+            }
+        }
+        // Children first, same session set as the parent delete
+        deleteOldAppUsageBatch(cutoffTime, limit);
+        return deleteOldSessionsBatch(cutoffTime, limit);
+    }
+    
     @Transaction
     default void cleanupOldData(long sessionCutoffTime, String dailyCutoffDate, 
                                String weeklyCutoffKey, String monthlyCutoffKey) {
@@ -288,8 +338,87 @@ public interface AnalyticsDao {
     @Query("DELETE FROM daily_mobile_usage")
     void deleteAllDailyMobileUsage();
     
-    // FIFO-like behavior: Keep only last 30 days
+    // FIFO-like behavior: Keep only the newest :keepDays days (older days live on in usage_rollups)
+    @Transaction
+    @Query("DELETE FROM daily_mobile_usage WHERE date < (SELECT date FROM daily_mobile_usage ORDER BY date DESC LIMIT 1 OFFSET :keepDays - 1)")
+    void trimDailyMobileUsage(int keepDays);
+    
+    @Query("SELECT SUM(total_mobile_usage) FROM daily_mobile_usage WHERE date >= :startDate AND date <= :endDate")
+    Long getTotalMobileUsageForDateRange(String startDate, String endDate);
+    
+    @Query("SELECT COUNT(*) FROM daily_mobile_usage WHERE date >= :startDate AND date <= :endDate")
+    int getDailyMobileUsageCountForDateRange(String startDate, String endDate);
+    
+    // =====================================
+    // USAGE ROLLUP OPERATIONS
+    // =====================================
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertUsageRollups(List<UsageRollupEntity> rollups);
+    
+    @Query("SELECT * FROM usage_rollups WHERE period_type = :periodType AND period_start >= :fromDay " +
+           "ORDER BY period_start ASC LIMIT :limit")
+    List<UsageRollupEntity> getUsageRollups(int periodType, long fromDay, int limit);
+    
+    @Query("SELECT * FROM usage_rollups WHERE period_type = :periodType AND period_start = :periodStart")
+    UsageRollupEntity getUsageRollup(int periodType, long periodStart);
+    
+    @Query("SELECT COUNT(*) FROM usage_rollups")
+    int getUsageRollupCount();
+    
+    @Query("SELECT SUM(total_focus_time) FROM daily_stats WHERE date >= :startDate AND date <= :endDate")
+    Long getTotalFocusTimeForDateRange(String startDate, String endDate);
+    
+    @Query("SELECT SUM(total_sessions) FROM daily_stats WHERE date >= :startDate AND date <= :endDate")
+    Integer getTotalSessionsForDateRange(String startDate, String endDate);
+    
+    @Query("SELECT MIN(date) FROM daily_stats")
+    String getOldestDailyStatsDate();
+    
+    // =====================================
+    // APP DICTIONARY OPERATIONS
+    // =====================================
+    
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertApp(AppEntity app);
+    
+    @Query("SELECT app_id FROM apps WHERE package_name = :packageName")
+    Integer getAppId(String packageName);
+    
+    @Query("SELECT * FROM apps")
+    List<AppEntity> getAllApps();
+    
+    @Query("SELECT * FROM apps WHERE app_id = :appId")
+    AppEntity getApp(int appId);
+    
+    @Query("UPDATE apps SET label = :label, flags = :flags, updated_at = :updatedAt WHERE app_id = :appId")
+    void updateAppDetails(int appId, String label, int flags, long updatedAt);
+    
     @Transaction
-    @Query("DELETE FROM daily_mobile_usage WHERE date < (SELECT date FROM daily_mobile_usage ORDER BY date DESC LIMIT 1 OFFSET 29)")
-    void maintainMax30DaysMobileUsage();
+    default int internApp(String packageName) {
+        Integer existing = getAppId(packageName);
+        if (existing != null) {
+            return existing;
+        }
+        return (int) insertApp(new AppEntity(packageName));
+    }
+    
+    // =====================================
+    // USAGE ARCHIVE OPERATIONS
+    // =====================================
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertUsageArchive(UsageArchiveEntity archive);
+    
+    @Query("SELECT COUNT(*) FROM usage_archive WHERE day = :day")
+    int getUsageArchiveCountForDay(long day);
+    
+    @Query("SELECT * FROM usage_archive WHERE day >= :fromDay AND day <= :toDay ORDER BY day ASC LIMIT :limit")
+    List<UsageArchiveEntity> getUsageArchiveRange(long fromDay, long toDay, int limit);
+    
+    @Query("SELECT COUNT(*) FROM usage_archive")
+    int getUsageArchiveCount();
+    
+    @Query("SELECT SUM(LENGTH(data)) FROM usage_archive")
+    Long getUsageArchiveBytes();
 }
@@ -6,15 +6,20 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
 
 import com.grepguru.zenlock.data.dao.AnalyticsDao;
+import com.grepguru.zenlock.data.entities.AppEntity;
+import com.grepguru.zenlock.data.entities.AppUsageDailyEntity;
 import com.grepguru.zenlock.data.entities.AppUsageEntity;
 import com.grepguru.zenlock.data.entities.DailyMobileUsageEntity;
 import com.grepguru.zenlock.data.entities.DailyStatsEntity;
 import com.grepguru.zenlock.data.entities.MonthlyStatsEntity;
 import com.grepguru.zenlock.data.entities.SessionEntity;
-import com.grepguru.zenlock.data.entities.ScheduleEntity;
-import com.grepguru.zenlock.data.dao.ScheduleDao;
+import com.grepguru.zenlock.data.entities.UsageArchiveEntity;
+import com.grepguru.zenlock.data.entities.UsageRollupEntity;
 import com.grepguru.zenlock.data.entities.WeeklyStatsEntity;
 
 /**
@@ -29,9 +34,12 @@ import com.grepguru.zenlock.data.entities.WeeklyStatsEntity;
         DailyMobileUsageEntity.class,
         WeeklyStatsEntity.class,
         MonthlyStatsEntity.class,
-        ScheduleEntity.class
+        UsageRollupEntity.class,
+        AppEntity.class,
+        UsageArchiveEntity.class,
+        AppUsageDailyEntity.class
     },
-    version = 4, // Incremented to add ScheduleEntity
+    version = 11, // Incremented to drop the schedules table ScheduleDatabase took over
     exportSchema = false
 )
 @TypeConverters({Converters.class})
@@ -39,8 +47,10 @@ public abstract class AnalyticsDatabase extends RoomDatabase {
     
     private static final String DATABASE_NAME = "zenlock_analytics_database";
     
+    // FocusLockPrefs flag that turns on query profiling in release builds
+    public static final String PREF_QUERY_PROFILER = "query_profiler_enabled";
+    
     public abstract AnalyticsDao analyticsDao();
-    public abstract ScheduleDao scheduleDao();
     
     private static volatile AnalyticsDatabase INSTANCE;
     
@@ -52,15 +62,25 @@ public abstract class AnalyticsDatabase extends RoomDatabase {
         if (INSTANCE == null) {
             synchronized (AnalyticsDatabase.class) {
                 if (INSTANCE == null) {
+                    // Off unless turned on from the profiler screen, debug builds included
+                    QueryProfiler.setEnabled(context.getApplicationContext()
+                        .getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE)
+                        .getBoolean(PREF_QUERY_PROFILER, false));
+                    final Context appContext = context.getApplicationContext();
                     INSTANCE = Room.databaseBuilder(
-                        context.getApplicationContext(),
+                        appContext,
                         AnalyticsDatabase.class,
                         DATABASE_NAME
                     )
                     // Allow queries on main thread for simple operations (not recommended for complex queries)
                     .allowMainThreadQueries()
-                    // Fallback to destructive migration for now (will add proper migrations later)
+                    // Real migrations from v4 onwards so long-term history survives upgrades
+                    .addMigrations(MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9,
+                        MIGRATION_9_10, migration10To11(appContext))
+                    // Fallback to destructive migration for older schema versions
                     .fallbackToDestructiveMigration()
+                    // Time every statement into QueryProfiler (no-op while profiling is off)
+                    .openHelperFactory(new ProfilingOpenHelperFactory(new FrameworkSQLiteOpenHelperFactory()))
                     // Add callback for database creation
                     .addCallback(roomDatabaseCallback)
                     .build();
@@ -72,31 +92,173 @@ public abstract class AnalyticsDatabase extends RoomDatabase {
     
     /**
      * Database callback for initialization
+     * Indexes are declared on the entities so Room can validate them during migrations
      */
     private static RoomDatabase.Callback roomDatabaseCallback = new RoomDatabase.Callback() {
         @Override
-        public void onCreate(androidx.sqlite.db.SupportSQLiteDatabase db) {
+        public void onCreate(SupportSQLiteDatabase db) {
             super.onCreate(db);
             // Database created, can perform any initialization here
-            
-            // Create indexes for better performance
-            db.execSQL("CREATE INDEX IF NOT EXISTS idx_sessions_start_time ON sessions(start_time)");
-            db.execSQL("CREATE INDEX IF NOT EXISTS idx_sessions_date ON sessions(date(start_time/1000, 'unixepoch'))");
-            db.execSQL("CREATE INDEX IF NOT EXISTS idx_app_usage_session_id ON app_usage(session_id)");
-            db.execSQL("CREATE INDEX IF NOT EXISTS idx_daily_stats_date ON daily_stats(date)");
-            db.execSQL("CREATE INDEX IF NOT EXISTS idx_daily_mobile_usage_date ON daily_mobile_usage(date)");
-            db.execSQL("CREATE INDEX IF NOT EXISTS idx_weekly_stats_week_key ON weekly_stats(week_key)");
-            db.execSQL("CREATE INDEX IF NOT EXISTS idx_monthly_stats_month_key ON monthly_stats(month_key)");
-            db.execSQL("CREATE INDEX IF NOT EXISTS idx_schedules_enabled ON schedules(enabled)");
         }
         
         @Override
-        public void onOpen(androidx.sqlite.db.SupportSQLiteDatabase db) {
+        public void onOpen(SupportSQLiteDatabase db) {
             super.onOpen(db);
             // Database opened, can perform any maintenance here
         }
     };
     
+    /**
+     * v4 -> v5: adds usage_rollups and drops the ad-hoc indexes the old onCreate callback
+     * created (they duplicated primary keys or were expression indexes Room cannot validate)
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `usage_rollups` (" +
+                    "`period_type` INTEGER NOT NULL, `period_start` INTEGER NOT NULL, " +
+                    "`focus_time` INTEGER NOT NULL, `mobile_usage` INTEGER NOT NULL, " +
+                    "`session_count` INTEGER NOT NULL, `days_covered` INTEGER NOT NULL, " +
+                    "`updated_at` INTEGER NOT NULL, PRIMARY KEY(`period_type`, `period_start`))");
+            
+            db.execSQL("DROP INDEX IF EXISTS idx_sessions_date");
+            db.execSQL("DROP INDEX IF EXISTS idx_app_usage_session_id");
+            db.execSQL("DROP INDEX IF EXISTS idx_daily_stats_date");
+            db.execSQL("DROP INDEX IF EXISTS idx_daily_mobile_usage_date");
+            db.execSQL("DROP INDEX IF EXISTS idx_weekly_stats_week_key");
+            db.execSQL("DROP INDEX IF EXISTS idx_monthly_stats_month_key");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `idx_sessions_start_time` ON `sessions` (`start_time`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `idx_schedules_enabled` ON `schedules` (`enabled`)");
+        }
+    };
+    
+    /**
+     * v5 -> v6: adds the app dictionary and the per-app usage archive
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `apps` (" +
+                    "`app_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `package_name` TEXT NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_apps_package_name` ON `apps` (`package_name`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `usage_archive` (" +
+                    "`day` INTEGER NOT NULL, `data` BLOB NOT NULL, `created_at` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`day`))");
+        }
+    };
+    
+    /**
+     * v6 -> v7: adds label/flags to the app dictionary and rebuilds app_usage to reference
+     * apps by integer id instead of repeating package and app name strings
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `apps` ADD COLUMN `label` TEXT NOT NULL DEFAULT ''");
+            db.execSQL("ALTER TABLE `apps` ADD COLUMN `flags` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `apps` ADD COLUMN `updated_at` INTEGER NOT NULL DEFAULT 0");
+            
+            // Intern every package already referenced by app_usage. Old rows stored the package
+            // name as app_name, so only keep names that are real labels
+            db.execSQL("INSERT OR IGNORE INTO `apps` (`package_name`, `label`) " +
+                    "SELECT `package_name`, '' FROM `app_usage` WHERE `package_name` IS NOT NULL GROUP BY `package_name`");
+            db.execSQL("UPDATE `apps` SET `label` = COALESCE((SELECT MAX(u.`app_name`) FROM `app_usage` u " +
+                    "WHERE u.`package_name` = `apps`.`package_name` AND u.`app_name` <> u.`package_name`), '') " +
+                    "WHERE `label` = ''");
+            
+            db.execSQL("CREATE TABLE IF NOT EXISTS `app_usage_new` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `session_id` INTEGER NOT NULL, " +
+                    "`app_id` INTEGER NOT NULL, `usage_time` INTEGER NOT NULL, " +
+                    "`is_whitelisted` INTEGER NOT NULL, `created_at` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`session_id`) REFERENCES `sessions`(`session_id`) ON UPDATE NO ACTION ON DELETE CASCADE, " +
+                    "FOREIGN KEY(`app_id`) REFERENCES `apps`(`app_id`) ON UPDATE NO ACTION ON DELETE NO ACTION)");
+            db.execSQL("INSERT INTO `app_usage_new` (`id`, `session_id`, `app_id`, `usage_time`, `is_whitelisted`, `created_at`) " +
+                    "SELECT u.`id`, u.`session_id`, a.`app_id`, u.`usage_time`, u.`is_whitelisted`, u.`created_at` " +
+                    "FROM `app_usage` u INNER JOIN `apps` a ON a.`package_name` = u.`package_name`");
+            db.execSQL("DROP TABLE `app_usage`");
+            db.execSQL("ALTER TABLE `app_usage_new` RENAME TO `app_usage`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_app_usage_session_id` ON `app_usage` (`session_id`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_app_usage_app_id` ON `app_usage` (`app_id`)");
+        }
+    };
+    
+    /**
+     * v7 -> v8: replaces the repeat days CSV on schedules with a weekday bitmask and adds
+     * every-N-weeks, date range and exclusion columns. The CSV is decoded once here in SQL
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            // Calendar.DAY_OF_WEEK d sets bit (d - 1); values were written without spaces
+            StringBuilder mask = new StringBuilder("0");
+            for (int day = 1; day <= 7; day++) {
+                mask.append(" + (CASE WHEN instr(',' || `repeatDaysCsv` || ',', ',")
+                        .append(day).append(",') > 0 THEN ").append(1 << (day - 1)).append(" ELSE 0 END)");
+            }
+            
+            db.execSQL("CREATE TABLE IF NOT EXISTS `schedules_new` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `name` TEXT NOT NULL, " +
+                    "`startHour` INTEGER NOT NULL, `startMinute` INTEGER NOT NULL, " +
+                    "`focusDurationMinutes` INTEGER NOT NULL, `repeatType` TEXT NOT NULL, " +
+                    "`repeatDaysMask` INTEGER NOT NULL, `repeatIntervalWeeks` INTEGER NOT NULL, " +
+                    "`anchorEpochDay` INTEGER NOT NULL, `startEpochDay` INTEGER NOT NULL, " +
+                    "`endEpochDay` INTEGER NOT NULL, `excludedDays` BLOB, " +
+                    "`preNotifyEnabled` INTEGER NOT NULL, `preNotifyMinutes` INTEGER NOT NULL, " +
+                    "`enabled` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO `schedules_new` (`id`, `name`, `startHour`, `startMinute`, " +
+                    "`focusDurationMinutes`, `repeatType`, `repeatDaysMask`, `repeatIntervalWeeks`, " +
+                    "`anchorEpochDay`, `startEpochDay`, `endEpochDay`, `excludedDays`, " +
+                    "`preNotifyEnabled`, `preNotifyMinutes`, `enabled`) " +
+                    "SELECT `id`, `name`, `startHour`, `startMinute`, `focusDurationMinutes`, `repeatType`, " +
+                    mask + ", 1, 0, 0, 0, NULL, `preNotifyEnabled`, `preNotifyMinutes`, `enabled` " +
+                    "FROM `schedules`");
+            db.execSQL("DROP TABLE `schedules`");
+            db.execSQL("ALTER TABLE `schedules_new` RENAME TO `schedules`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `idx_schedules_enabled` ON `schedules` (`enabled`)");
+        }
+    };
+    
+    /**
+     * v8 -> v9: schedules moved to ScheduleDatabase. The old table is left in place (Room
+     * ignores tables it doesn't declare) because ScheduleDatabase imports from it on first
+     * creation, which may happen after this migration has run. See migration10To11
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            // Nothing to change in the analytics schema itself
+        }
+    };
+    
+    /**
+     * v9 -> v10: adds app_usage_daily, per-app totals folded out of app_usage before the
+     * retention pass deletes old sessions
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `app_usage_daily` (" +
+                    "`date` TEXT NOT NULL, `app_id` INTEGER NOT NULL, `usage_time` INTEGER NOT NULL, " +
+                    "`session_count` INTEGER NOT NULL, PRIMARY KEY(`date`, `app_id`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_app_usage_daily_app_id` ON `app_usage_daily` (`app_id`)");
+        }
+    };
+    
+    /**
+     * v10 -> v11: drops the schedules table left behind at v9 if ScheduleDatabase has already
+     * imported it. Otherwise the table stays until that import, which drops it after copying
+     */
+    static Migration migration10To11(Context context) {
+        return new Migration(10, 11) {
+            @Override
+            public void migrate(SupportSQLiteDatabase db) {
+                if (ScheduleDatabase.hasImportedLegacySchedules(context)) {
+                    db.execSQL("DROP TABLE IF EXISTS `schedules`");
+                }
+            }
+        };
+    }
+    
     /**
      * Close database instance (for testing or cleanup)
      */
@@ -0,0 +1,444 @@
+package com.grepguru.zenlock.data.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.CancellationSignal;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SupportSQLiteDatabase that times every query and statement into QueryProfiler
+ * Queries are measured until the cursor window is filled (getCount), so the recorded time
+ * covers the actual SQLite work and the row count is exact
+ */
+class ProfilingDatabase implements SupportSQLiteDatabase {
+
+    private final SupportSQLiteDatabase delegate;
+
+    ProfilingDatabase(SupportSQLiteDatabase delegate) {
+        this.delegate = delegate;
+    }
+
+    SupportSQLiteDatabase getDelegate() {
+        return delegate;
+    }
+
+    // ===== Profiled calls =====
+
+    @NonNull
+    @Override
+    public Cursor query(@NonNull String query) {
+        if (!QueryProfiler.isEnabled()) return delegate.query(query);
+        long start = System.nanoTime();
+        Cursor cursor = delegate.query(query);
+        int rows = cursor.getCount();
+        QueryProfiler.record(query, null, System.nanoTime() - start, rows);
+        return cursor;
+    }
+
+    @NonNull
+    @Override
+    public Cursor query(@NonNull String query, @NonNull Object[] bindArgs) {
+        if (!QueryProfiler.isEnabled()) return delegate.query(query, bindArgs);
+        long start = System.nanoTime();
+        Cursor cursor = delegate.query(query, bindArgs);
+        int rows = cursor.getCount();
+        QueryProfiler.record(query, bindArgs, System.nanoTime() - start, rows);
+        return cursor;
+    }
+
+    @NonNull
+    @Override
+    public Cursor query(@NonNull SupportSQLiteQuery query) {
+        if (!QueryProfiler.isEnabled()) return delegate.query(query);
+        long start = System.nanoTime();
+        Cursor cursor = delegate.query(query);
+        int rows = cursor.getCount();
+        QueryProfiler.record(query.getSql(), captureArgs(query), System.nanoTime() - start, rows);
+        return cursor;
+    }
+
+    @NonNull
+    @Override
+    public Cursor query(@NonNull SupportSQLiteQuery query, CancellationSignal cancellationSignal) {
+        if (!QueryProfiler.isEnabled()) return delegate.query(query, cancellationSignal);
+        long start = System.nanoTime();
+        Cursor cursor = delegate.query(query, cancellationSignal);
+        int rows = cursor.getCount();
+        QueryProfiler.record(query.getSql(), captureArgs(query), System.nanoTime() - start, rows);
+        return cursor;
+    }
+
+    @NonNull
+    @Override
+    public SupportSQLiteStatement compileStatement(@NonNull String sql) {
+        return new ProfilingStatement(delegate.compileStatement(sql), sql);
+    }
+
+    @Override
+    public void execSQL(@NonNull String sql) throws SQLException {
+        if (!QueryProfiler.isEnabled()) {
+            delegate.execSQL(sql);
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.execSQL(sql);
+        QueryProfiler.record(sql, null, System.nanoTime() - start, -1);
+    }
+
+    @Override
+    public void execSQL(@NonNull String sql, @NonNull Object[] bindArgs) throws SQLException {
+        if (!QueryProfiler.isEnabled()) {
+            delegate.execSQL(sql, bindArgs);
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.execSQL(sql, bindArgs);
+        QueryProfiler.record(sql, bindArgs, System.nanoTime() - start, -1);
+    }
+
+    // ===== Plain delegation =====
+
+    @Override
+    public void beginTransaction() {
+        delegate.beginTransaction();
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+        delegate.beginTransactionNonExclusive();
+    }
+
+    @Override
+    public void beginTransactionWithListener(@NonNull SQLiteTransactionListener transactionListener) {
+        delegate.beginTransactionWithListener(transactionListener);
+    }
+
+    @Override
+    public void beginTransactionWithListenerNonExclusive(@NonNull SQLiteTransactionListener transactionListener) {
+        delegate.beginTransactionWithListenerNonExclusive(transactionListener);
+    }
+
+    @Override
+    public void endTransaction() {
+        delegate.endTransaction();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        delegate.setTransactionSuccessful();
+    }
+
+    @Override
+    public boolean inTransaction() {
+        return delegate.inTransaction();
+    }
+
+    @Override
+    public boolean isDbLockedByCurrentThread() {
+        return delegate.isDbLockedByCurrentThread();
+    }
+
+    @Override
+    public boolean yieldIfContendedSafely() {
+        return delegate.yieldIfContendedSafely();
+    }
+
+    @Override
+    public boolean yieldIfContendedSafely(long sleepAfterYieldDelayMillis) {
+        return delegate.yieldIfContendedSafely(sleepAfterYieldDelayMillis);
+    }
+
+    @Override
+    public boolean isExecPerConnectionSQLSupported() {
+        return delegate.isExecPerConnectionSQLSupported();
+    }
+
+    @Override
+    public void execPerConnectionSQL(@NonNull String sql, Object[] bindArgs) {
+        delegate.execPerConnectionSQL(sql, bindArgs);
+    }
+
+    @Override
+    public int getVersion() {
+        return delegate.getVersion();
+    }
+
+    @Override
+    public void setVersion(int version) {
+        delegate.setVersion(version);
+    }
+
+    @Override
+    public long getMaximumSize() {
+        return delegate.getMaximumSize();
+    }
+
+    @Override
+    public long setMaximumSize(long numBytes) {
+        return delegate.setMaximumSize(numBytes);
+    }
+
+    @Override
+    public long getPageSize() {
+        return delegate.getPageSize();
+    }
+
+    @Override
+    public void setPageSize(long numBytes) {
+        delegate.setPageSize(numBytes);
+    }
+
+    @Override
+    public long insert(@NonNull String table, int conflictAlgorithm, @NonNull ContentValues values) throws SQLException {
+        return delegate.insert(table, conflictAlgorithm, values);
+    }
+
+    @Override
+    public int delete(@NonNull String table, String whereClause, Object[] whereArgs) {
+        return delegate.delete(table, whereClause, whereArgs);
+    }
+
+    @Override
+    public int update(@NonNull String table, int conflictAlgorithm, @NonNull ContentValues values,
+                      String whereClause, Object[] whereArgs) {
+        return delegate.update(table, conflictAlgorithm, values, whereClause, whereArgs);
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return delegate.isReadOnly();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public boolean needUpgrade(int newVersion) {
+        return delegate.needUpgrade(newVersion);
+    }
+
+    @Override
+    public String getPath() {
+        return delegate.getPath();
+    }
+
+    @Override
+    public void setLocale(@NonNull Locale locale) {
+        delegate.setLocale(locale);
+    }
+
+    @Override
+    public void setMaxSqlCacheSize(int cacheSize) {
+        delegate.setMaxSqlCacheSize(cacheSize);
+    }
+
+    @Override
+    public void setForeignKeyConstraintsEnabled(boolean enabled) {
+        delegate.setForeignKeyConstraintsEnabled(enabled);
+    }
+
+    @Override
+    public boolean enableWriteAheadLogging() {
+        return delegate.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void disableWriteAheadLogging() {
+        delegate.disableWriteAheadLogging();
+    }
+
+    @Override
+    public boolean isWriteAheadLoggingEnabled() {
+        return delegate.isWriteAheadLoggingEnabled();
+    }
+
+    @Override
+    public List<Pair<String, String>> getAttachedDbs() {
+        return delegate.getAttachedDbs();
+    }
+
+    @Override
+    public boolean isDatabaseIntegrityOk() {
+        return delegate.isDatabaseIntegrityOk();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    // ===== Helpers =====
+
+    private static Object[] captureArgs(SupportSQLiteQuery query) {
+        ArgCapture capture = new ArgCapture();
+        query.bindTo(capture);
+        return capture.toArray();
+    }
+
+    /**
+     * Records bind arguments by index so they can be replayed for EXPLAIN QUERY PLAN
+     */
+    private static class ArgCapture implements SupportSQLiteProgram {
+        private final List<Object> args = new ArrayList<>();
+
+        private void set(int index, Object value) {
+            while (args.size() < index) args.add(null);
+            args.set(index - 1, value);
+        }
+
+        Object[] toArray() {
+            return args.toArray();
+        }
+
+        @Override
+        public void bindNull(int index) {
+            set(index, null);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            set(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            set(index, value);
+        }
+
+        @Override
+        public void bindString(int index, @NonNull String value) {
+            set(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, @NonNull byte[] value) {
+            set(index, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            args.clear();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Compiled statement wrapper; Room uses these for inserts, updates and DELETE queries
+     */
+    private static class ProfilingStatement implements SupportSQLiteStatement {
+        private final SupportSQLiteStatement delegate;
+        private final String sql;
+        private final ArgCapture capture = new ArgCapture();
+
+        ProfilingStatement(SupportSQLiteStatement delegate, String sql) {
+            this.delegate = delegate;
+            this.sql = sql;
+        }
+
+        @Override
+        public void execute() {
+            if (!QueryProfiler.isEnabled()) {
+                delegate.execute();
+                return;
+            }
+            long start = System.nanoTime();
+            delegate.execute();
+            QueryProfiler.record(sql, capture.toArray(), System.nanoTime() - start, -1);
+        }
+
+        @Override
+        public int executeUpdateDelete() {
+            if (!QueryProfiler.isEnabled()) return delegate.executeUpdateDelete();
+            long start = System.nanoTime();
+            int changed = delegate.executeUpdateDelete();
+            QueryProfiler.record(sql, capture.toArray(), System.nanoTime() - start, changed);
+            return changed;
+        }
+
+        @Override
+        public long executeInsert() {
+            if (!QueryProfiler.isEnabled()) return delegate.executeInsert();
+            long start = System.nanoTime();
+            long rowId = delegate.executeInsert();
+            QueryProfiler.record(sql, capture.toArray(), System.nanoTime() - start, rowId >= 0 ? 1 : 0);
+            return rowId;
+        }
+
+        @Override
+        public long simpleQueryForLong() {
+            if (!QueryProfiler.isEnabled()) return delegate.simpleQueryForLong();
+            long start = System.nanoTime();
+            long value = delegate.simpleQueryForLong();
+            QueryProfiler.record(sql, capture.toArray(), System.nanoTime() - start, 1);
+            return value;
+        }
+
+        @Override
+        public String simpleQueryForString() {
+            if (!QueryProfiler.isEnabled()) return delegate.simpleQueryForString();
+            long start = System.nanoTime();
+            String value = delegate.simpleQueryForString();
+            QueryProfiler.record(sql, capture.toArray(), System.nanoTime() - start, 1);
+            return value;
+        }
+
+        @Override
+        public void bindNull(int index) {
+            capture.bindNull(index);
+            delegate.bindNull(index);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            capture.bindLong(index, value);
+            delegate.bindLong(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            capture.bindDouble(index, value);
+            delegate.bindDouble(index, value);
+        }
+
+        @Override
+        public void bindString(int index, @NonNull String value) {
+            capture.bindString(index, value);
+            delegate.bindString(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, @NonNull byte[] value) {
+            capture.bindBlob(index, value);
+            delegate.bindBlob(index, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            capture.clearBindings();
+            delegate.clearBindings();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
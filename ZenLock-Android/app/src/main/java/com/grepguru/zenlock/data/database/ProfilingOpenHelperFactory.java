@@ -0,0 +1,71 @@
+package com.grepguru.zenlock.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+
+/**
+ * Open helper factory that hands Room a ProfilingDatabase instead of the raw connection
+ * Wrapping happens once per helper; when QueryProfiler is disabled every call is a plain
+ * delegation plus one volatile read
+ */
+public class ProfilingOpenHelperFactory implements SupportSQLiteOpenHelper.Factory {
+
+    private final SupportSQLiteOpenHelper.Factory delegate;
+
+    public ProfilingOpenHelperFactory(SupportSQLiteOpenHelper.Factory delegate) {
+        this.delegate = delegate;
+    }
+
+    @NonNull
+    @Override
+    public SupportSQLiteOpenHelper create(@NonNull SupportSQLiteOpenHelper.Configuration configuration) {
+        return new ProfilingOpenHelper(delegate.create(configuration));
+    }
+
+    private static class ProfilingOpenHelper implements SupportSQLiteOpenHelper {
+
+        private final SupportSQLiteOpenHelper delegate;
+        private ProfilingDatabase writable;
+        private ProfilingDatabase readable;
+
+        ProfilingOpenHelper(SupportSQLiteOpenHelper delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getDatabaseName() {
+            return delegate.getDatabaseName();
+        }
+
+        @Override
+        public void setWriteAheadLoggingEnabled(boolean enabled) {
+            delegate.setWriteAheadLoggingEnabled(enabled);
+        }
+
+        @NonNull
+        @Override
+        public synchronized SupportSQLiteDatabase getWritableDatabase() {
+            SupportSQLiteDatabase db = delegate.getWritableDatabase();
+            if (writable == null || writable.getDelegate() != db) {
+                writable = new ProfilingDatabase(db);
+            }
+            return writable;
+        }
+
+        @NonNull
+        @Override
+        public synchronized SupportSQLiteDatabase getReadableDatabase() {
+            SupportSQLiteDatabase db = delegate.getReadableDatabase();
+            if (readable == null || readable.getDelegate() != db) {
+                readable = new ProfilingDatabase(db);
+            }
+            return readable;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.grepguru.zenlock.data.database;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory profile of every statement run against AnalyticsDatabase
+ * Fed by ProfilingDatabase. One row per distinct SQL string, capped at MAX_STATEMENTS
+ * (least recently run evicted), so memory stays bounded no matter how long the app runs.
+ * Statements slower than SLOW_QUERY_NANOS are also written to logcat. Bind arguments are
+ * never kept, only their count and SQLite types: they carry package names and usage times
+ */
+public final class QueryProfiler {
+
+    private static final String TAG = "QueryProfiler";
+
+    private static final int MAX_STATEMENTS = 128;
+    private static final long SLOW_QUERY_NANOS = 16_000_000L; // One frame
+
+    private static volatile boolean enabled = false;
+
+    // Access-ordered so the eldest entry is the least recently run statement
+    private static final LinkedHashMap<String, QueryStats> stats =
+            new LinkedHashMap<String, QueryStats>(MAX_STATEMENTS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, QueryStats> eldest) {
+                    return size() > MAX_STATEMENTS;
+                }
+            };
+
+    /**
+     * Aggregated timings for one SQL string
+     */
+    public static class QueryStats {
+        public final String sql;
+        public int executions;
+        public int bindCount;
+        public long totalNanos;
+        public long maxNanos;
+        public long lastNanos;
+        public int lastRows;
+        public int maxRows;
+        public String[] bindTypes = new String[0]; // Of the last run, for EXPLAIN QUERY PLAN
+
+        QueryStats(String sql) {
+            this.sql = sql;
+        }
+
+        public long getAverageNanos() {
+            return executions > 0 ? totalNanos / executions : 0;
+        }
+
+        QueryStats copy() {
+            QueryStats copy = new QueryStats(sql);
+            copy.executions = executions;
+            copy.bindCount = bindCount;
+            copy.totalNanos = totalNanos;
+            copy.maxNanos = maxNanos;
+            copy.lastNanos = lastNanos;
+            copy.lastRows = lastRows;
+            copy.maxRows = maxRows;
+            copy.bindTypes = bindTypes;
+            return copy;
+        }
+    }
+
+    private QueryProfiler() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Record one execution. rows is -1 for statements that do not return rows
+     */
+    public static void record(String sql, Object[] bindArgs, long nanos, int rows) {
+        if (sql == null || isExplain(sql)) return;
+        synchronized (stats) {
+            QueryStats entry = stats.get(sql);
+            if (entry == null) {
+                entry = new QueryStats(sql);
+                stats.put(sql, entry);
+            }
+            entry.executions++;
+            entry.bindCount = bindArgs != null ? bindArgs.length : 0;
+            entry.totalNanos += nanos;
+            entry.lastNanos = nanos;
+            entry.maxNanos = Math.max(entry.maxNanos, nanos);
+            entry.lastRows = rows;
+            entry.maxRows = Math.max(entry.maxRows, rows);
+            entry.bindTypes = typesOf(bindArgs);
+        }
+        if (nanos >= SLOW_QUERY_NANOS) {
+            Log.w(TAG, "Slow query (" + nanos / 1_000_000 + " ms, " + rows + " rows): " + sql);
+        }
+    }
+
+    /**
+     * Snapshot of the slowest statements by worst-case time
+     */
+    public static List<QueryStats> getSlowest(int limit) {
+        List<QueryStats> snapshot = new ArrayList<>();
+        synchronized (stats) {
+            for (QueryStats entry : stats.values()) {
+                snapshot.add(entry.copy());
+            }
+        }
+        Collections.sort(snapshot, (a, b) -> Long.compare(b.maxNanos, a.maxNanos));
+        return snapshot.size() > limit ? snapshot.subList(0, limit) : snapshot;
+    }
+
+    public static void clear() {
+        synchronized (stats) {
+            stats.clear();
+        }
+    }
+
+    /**
+     * EXPLAIN QUERY PLAN for a recorded statement, one "detail" line per plan row
+     */
+    public static String explain(SupportSQLiteDatabase db, QueryStats entry) {
+        String sql = entry.sql.trim();
+        String verb = sql.length() >= 6 ? sql.substring(0, 6).toUpperCase() : sql.toUpperCase();
+        if (!verb.startsWith("SELECT") && !verb.startsWith("INSERT") && !verb.startsWith("UPDATE")
+                && !verb.startsWith("DELETE") && !verb.startsWith("WITH")) {
+            return "(no plan for this statement)";
+        }
+
+        // Placeholders of the recorded types; the plan doesn't depend on the values
+        Object[] args = new Object[entry.bindTypes.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = placeholderOf(entry.bindTypes[i]);
+        }
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detailColumn = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                if (plan.length() > 0) plan.append('\n');
+                plan.append(detailColumn >= 0 ? cursor.getString(detailColumn) : cursor.getString(cursor.getColumnCount() - 1));
+            }
+        } catch (Exception e) {
+            return "(plan unavailable: " + e.getMessage() + ")";
+        }
+        return plan.toString();
+    }
+
+    private static String[] typesOf(Object[] bindArgs) {
+        if (bindArgs == null) return new String[0];
+        String[] types = new String[bindArgs.length];
+        for (int i = 0; i < bindArgs.length; i++) {
+            Object arg = bindArgs[i];
+            if (arg == null) {
+                types[i] = "NULL";
+            } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short
+                    || arg instanceof Byte || arg instanceof Boolean) {
+                types[i] = "INTEGER";
+            } else if (arg instanceof Double || arg instanceof Float) {
+                types[i] = "REAL";
+            } else if (arg instanceof byte[]) {
+                types[i] = "BLOB";
+            } else {
+                types[i] = "TEXT";
+            }
+        }
+        return types;
+    }
+
+    private static Object placeholderOf(String type) {
+        switch (type) {
+            case "INTEGER":
+                return 0L;
+            case "REAL":
+                return 0.0;
+            case "BLOB":
+                return new byte[0];
+            case "TEXT":
+                return "";
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isExplain(String sql) {
+        return sql.regionMatches(true, 0, "EXPLAIN", 0, 7);
+    }
+}
@@ -0,0 +1,160 @@
+package com.grepguru.zenlock.data.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.grepguru.zenlock.data.dao.AllowlistProfileDao;
+import com.grepguru.zenlock.data.dao.ScheduleDao;
+import com.grepguru.zenlock.data.entities.AllowlistProfileEntity;
+import com.grepguru.zenlock.data.entities.ScheduleEntity;
+
+/**
+ * Small Room database holding schedules and the allowlist profiles they pick
+ * Kept apart from AnalyticsDatabase so an alarm waking a cold process opens a few-KB file with
+ * no profiling, callbacks or migrations of years of analytics history in the way.
+ * Has its own version and migrations; never migrates destructively
+ */
+@Database(
+    entities = {
+        ScheduleEntity.class,
+        AllowlistProfileEntity.class
+    },
+    version = 3,
+    exportSchema = false
+)
+public abstract class ScheduleDatabase extends RoomDatabase {
+
+    private static final String TAG = "ScheduleDatabase";
+    private static final String DATABASE_NAME = "zenlock_schedule_database";
+
+    // Schedules lived here before this database existed
+    private static final String LEGACY_DATABASE_NAME = "zenlock_analytics_database";
+
+    public abstract ScheduleDao scheduleDao();
+    public abstract AllowlistProfileDao allowlistProfileDao();
+
+    private static volatile ScheduleDatabase INSTANCE;
+    private static volatile boolean importingLegacySchedules;
+
+    public static ScheduleDatabase getDatabase(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (ScheduleDatabase.class) {
+                if (INSTANCE == null) {
+                    final Context appContext = context.getApplicationContext();
+                    INSTANCE = Room.databaseBuilder(appContext, ScheduleDatabase.class, DATABASE_NAME)
+                        // A dozen rows; alarm handlers read them synchronously
+                        .allowMainThreadQueries()
+                        .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
+                        .addCallback(new RoomDatabase.Callback() {
+                            @Override
+                            public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                                importLegacySchedules(appContext, db);
+                            }
+                        })
+                        .build();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * v1 -> v2: focus cycle settings per schedule, 0 for existing (plain) schedules
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `schedules` ADD COLUMN `cycleFocusMinutes` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `schedules` ADD COLUMN `cycleBreakMinutes` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `schedules` ADD COLUMN `cycleCount` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `schedules` ADD COLUMN `cycleLongBreakMinutes` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * v2 -> v3: allowlist profiles, existing schedules use the manual session's profile (0)
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `allowlist_profiles` (`id` INTEGER NOT NULL, "
+                    + "`name` TEXT NOT NULL, `apps` BLOB, PRIMARY KEY(`id`))");
+            db.execSQL("ALTER TABLE `schedules` ADD COLUMN `allowlistProfileId` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * Whether schedules were already copied out of the analytics database, so its legacy table
+     * can go. False while the copy is running: it reads the table through AnalyticsDatabase,
+     * whose migrations run during that read
+     */
+    static boolean hasImportedLegacySchedules(Context context) {
+        return !importingLegacySchedules && context.getDatabasePath(DATABASE_NAME).exists();
+    }
+
+    /**
+     * Copy schedules out of the analytics database the first time this database is created,
+     * then drop them there. Read through AnalyticsDatabase, so its migrations have already
+     * brought the legacy table to the v8 layout
+     */
+    private static void importLegacySchedules(Context context, SupportSQLiteDatabase target) {
+        // Don't create an empty analytics database just to find nothing in it
+        if (!context.getDatabasePath(LEGACY_DATABASE_NAME).exists()) return;
+
+        importingLegacySchedules = true;
+        try {
+            AnalyticsDatabase analytics = AnalyticsDatabase.getDatabase(context);
+            try (Cursor table = analytics.query(
+                    "SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'schedules'", null)) {
+                if (!table.moveToFirst()) return;
+            }
+
+            int imported = 0;
+            try (Cursor cursor = analytics.query("SELECT * FROM `schedules`", null)) {
+                while (cursor.moveToNext()) {
+                    ContentValues values = new ContentValues();
+                    values.put("id", cursor.getInt(cursor.getColumnIndexOrThrow("id")));
+                    values.put("name", cursor.getString(cursor.getColumnIndexOrThrow("name")));
+                    values.put("startHour", cursor.getInt(cursor.getColumnIndexOrThrow("startHour")));
+                    values.put("startMinute", cursor.getInt(cursor.getColumnIndexOrThrow("startMinute")));
+                    values.put("focusDurationMinutes", cursor.getInt(cursor.getColumnIndexOrThrow("focusDurationMinutes")));
+                    values.put("repeatType", cursor.getString(cursor.getColumnIndexOrThrow("repeatType")));
+                    values.put("preNotifyEnabled", cursor.getInt(cursor.getColumnIndexOrThrow("preNotifyEnabled")));
+                    values.put("preNotifyMinutes", cursor.getInt(cursor.getColumnIndexOrThrow("preNotifyMinutes")));
+                    values.put("enabled", cursor.getInt(cursor.getColumnIndexOrThrow("enabled")));
+                    // Legacy schedules never had cycles; the columns have no SQL default
+                    values.put("cycleFocusMinutes", 0);
+                    values.put("cycleBreakMinutes", 0);
+                    values.put("cycleCount", 0);
+                    values.put("cycleLongBreakMinutes", 0);
+                    values.put("allowlistProfileId", 0);
+                    values.put("repeatDaysMask", cursor.getInt(cursor.getColumnIndexOrThrow("repeatDaysMask")));
+                    values.put("repeatIntervalWeeks", cursor.getInt(cursor.getColumnIndexOrThrow("repeatIntervalWeeks")));
+                    values.put("anchorEpochDay", cursor.getInt(cursor.getColumnIndexOrThrow("anchorEpochDay")));
+                    values.put("startEpochDay", cursor.getInt(cursor.getColumnIndexOrThrow("startEpochDay")));
+                    values.put("endEpochDay", cursor.getInt(cursor.getColumnIndexOrThrow("endEpochDay")));
+                    values.put("excludedDays", cursor.getBlob(cursor.getColumnIndexOrThrow("excludedDays")));
+                    target.insert("schedules", SQLiteDatabase.CONFLICT_REPLACE, values);
+                    imported++;
+                }
+            }
+            // Only once every row is in; a failed copy leaves the table for the next attempt
+            analytics.getOpenHelper().getWritableDatabase().execSQL("DROP TABLE IF EXISTS `schedules`");
+            Log.d(TAG, "Imported " + imported + " schedules from the analytics database");
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to import schedules from the analytics database", e);
+        } finally {
+            importingLegacySchedules = false;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.grepguru.zenlock.data.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity for a named allowlist (Work, Study, Sleep...).
+ * Members are AppCatalog app ids stored as BitSet.toByteArray(), see AllowlistProfiles.
+ */
+@Entity(tableName = "allowlist_profiles")
+public class AllowlistProfileEntity {
+    @PrimaryKey
+    public int id;
+
+    @NonNull
+    public String name = "";
+
+    /**
+     * Little-endian bitset over app ids, null or empty for no apps.
+     */
+    public byte[] apps;
+}
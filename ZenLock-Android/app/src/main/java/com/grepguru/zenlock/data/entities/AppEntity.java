@@ -0,0 +1,74 @@
+package com.grepguru.zenlock.data.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity for the app dictionary
+ * Interns package names to small integer ids so app_usage rows and archived usage can
+ * reference apps by id instead of repeating the package and label strings.
+ * Populated from the installed-app inventory by AppCatalog
+ */
+@Entity(tableName = "apps",
+        indices = {@Index(value = "package_name", unique = true)})
+public class AppEntity {
+
+    // Flag bits stored in flags
+    public static final int FLAG_SYSTEM = 1;      // Preinstalled / system image app
+    public static final int FLAG_LAUNCHABLE = 2;  // Has a launcher activity
+    public static final int FLAG_INSTALLED = 4;   // Present at the last inventory sync
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "app_id")
+    public int appId;
+
+    @NonNull
+    @ColumnInfo(name = "package_name")
+    public String packageName;
+
+    @NonNull
+    @ColumnInfo(name = "label")
+    public String label; // Empty until resolved from PackageManager
+
+    @ColumnInfo(name = "flags")
+    public int flags;
+
+    @ColumnInfo(name = "updated_at")
+    public long updatedAt;
+
+    // Default constructor required by Room
+    public AppEntity() {
+        this.packageName = "";
+        this.label = "";
+    }
+
+    // Constructor for interning a new package
+    @Ignore
+    public AppEntity(@NonNull String packageName) {
+        this(packageName, "", 0);
+    }
+
+    // Constructor for inventory entries
+    @Ignore
+    public AppEntity(@NonNull String packageName, @NonNull String label, int flags) {
+        this.packageName = packageName;
+        this.label = label;
+        this.flags = flags;
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * Label to show in the UI, falls back to the package name while unresolved
+     */
+    public String getDisplayName() {
+        return label.isEmpty() ? packageName : label;
+    }
+}
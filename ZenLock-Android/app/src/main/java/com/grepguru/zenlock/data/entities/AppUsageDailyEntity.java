@@ -0,0 +1,45 @@
+package com.grepguru.zenlock.data.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+/**
+ * Room entity for per-app daily totals of focus-session usage
+ * Filled from app_usage by the retention pass, in the same transaction that deletes the raw
+ * rows, so per-app history outlives RAW_SESSION_DAYS. Dates are UTC like session dates
+ */
+@Entity(tableName = "app_usage_daily",
+        primaryKeys = {"date", "app_id"},
+        indices = {@Index(value = "app_id")})
+public class AppUsageDailyEntity {
+
+    @NonNull
+    @ColumnInfo(name = "date")
+    public String date; // YYYY-MM-DD format
+
+    @ColumnInfo(name = "app_id")
+    public int appId; // apps.app_id
+
+    @ColumnInfo(name = "usage_time")
+    public long usageTime; // in milliseconds
+
+    @ColumnInfo(name = "session_count")
+    public int sessionCount;
+
+    // Default constructor required by Room
+    public AppUsageDailyEntity() {
+        this.date = "";
+    }
+
+    // Constructor for creating new daily totals
+    @Ignore
+    public AppUsageDailyEntity(@NonNull String date, int appId, long usageTime, int sessionCount) {
+        this.date = date;
+        this.appId = appId;
+        this.usageTime = usageTime;
+        this.sessionCount = sessionCount;
+    }
+}
@@ -10,13 +10,19 @@ import androidx.room.PrimaryKey;
 /**
  * Room entity for app usage during focus sessions
  * Tracks which whitelisted apps were used and for how long during each session
+ * Apps are referenced by their id in the apps dictionary, labels live there once
  */
 @Entity(tableName = "app_usage",
-        foreignKeys = @ForeignKey(entity = SessionEntity.class,
-                                parentColumns = "session_id",
-                                childColumns = "session_id",
-                                onDelete = ForeignKey.CASCADE),
-        indices = {@Index(value = "session_id")})
+        foreignKeys = {
+            @ForeignKey(entity = SessionEntity.class,
+                        parentColumns = "session_id",
+                        childColumns = "session_id",
+                        onDelete = ForeignKey.CASCADE),
+            @ForeignKey(entity = AppEntity.class,
+                        parentColumns = "app_id",
+                        childColumns = "app_id")
+        },
+        indices = {@Index(value = "session_id"), @Index(value = "app_id")})
 public class AppUsageEntity {
     
     @PrimaryKey(autoGenerate = true)
@@ -26,11 +32,8 @@ public class AppUsageEntity {
     @ColumnInfo(name = "session_id")
     public long sessionId;
     
-    @ColumnInfo(name = "package_name")
-    public String packageName;
-    
-    @ColumnInfo(name = "app_name")
-    public String appName;
+    @ColumnInfo(name = "app_id")
+    public int appId; // apps.app_id
     
     @ColumnInfo(name = "usage_time")
     public long usageTime; // in milliseconds
@@ -46,11 +49,9 @@ public class AppUsageEntity {
     
     // Constructor for creating new app usage records
     @Ignore
-    public AppUsageEntity(long sessionId, String packageName, String appName, 
-                         long usageTime, boolean isWhitelisted) {
+    public AppUsageEntity(long sessionId, int appId, long usageTime, boolean isWhitelisted) {
         this.sessionId = sessionId;
-        this.packageName = packageName;
-        this.appName = appName;
+        this.appId = appId;
         this.usageTime = usageTime;
         this.isWhitelisted = isWhitelisted;
         this.createdAt = System.currentTimeMillis();
@@ -8,7 +8,7 @@ import androidx.room.PrimaryKey;
 
 /**
  * Room entity for daily mobile usage data
- * Stores processed mobile usage data with FIFO-like behavior (max 30 days)
+ * Stores processed mobile usage data with FIFO-like behavior (max 90 days, older days live in usage_rollups)
  * This solves Android's UsageStatsManager data retention limitations
  */
 @Entity(tableName = "daily_mobile_usage")
@@ -2,13 +2,15 @@ package com.grepguru.zenlock.data.entities;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
  * Room entity representing a saved schedule.
- * Repeat days are stored as a comma-separated list of integers (Calendar.DAY_OF_WEEK values).
+ * Repeat days are stored as a 7-bit weekday mask (bit 0 = Sunday), see ScheduleRecurrence.
  */
-@Entity(tableName = "schedules")
+@Entity(tableName = "schedules",
+        indices = {@Index(name = "idx_schedules_enabled", value = "enabled")})
 public class ScheduleEntity {
     @PrimaryKey(autoGenerate = true)
     public int id;
@@ -27,14 +29,43 @@ public class ScheduleEntity {
     public String repeatType;
 
     /**
-     * Comma-separated Calendar.DAY_OF_WEEK ints, e.g. "1,2,3". Empty string if none.
+     * Bit (Calendar.DAY_OF_WEEK - 1) set for every repeat day, 0 if none.
      */
-    @NonNull
-    public String repeatDaysCsv;
+    public int repeatDaysMask;
+
+    /**
+     * Weekly schedules run every N weeks, counted from the week of anchorEpochDay.
+     */
+    public int repeatIntervalWeeks;
+    public int anchorEpochDay;
+
+    /**
+     * Optional local date range in epoch days, 0 for an open end.
+     */
+    public int startEpochDay;
+    public int endEpochDay;
+
+    /**
+     * Sorted excluded epoch days packed as big-endian ints, null if none.
+     */
+    public byte[] excludedDays;
 
     public boolean preNotifyEnabled;
     public int preNotifyMinutes;
 
+    /**
+     * Focus cycle (focus, break, count, long break minutes); cycleCount 0 for a plain session.
+     */
+    public int cycleFocusMinutes;
+    public int cycleBreakMinutes;
+    public int cycleCount;
+    public int cycleLongBreakMinutes;
+
+    /**
+     * AllowlistProfiles id used while this schedule runs, 0 for the manual session's profile.
+     */
+    public int allowlistProfileId;
+
     public boolean enabled;
 }
 
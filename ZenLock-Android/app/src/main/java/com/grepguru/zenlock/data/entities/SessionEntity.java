@@ -3,13 +3,15 @@ package com.grepguru.zenlock.data.entities;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
  * Room entity for focus sessions
  * Stores individual session data including timing, completion status, and metadata
  */
-@Entity(tableName = "sessions")
+@Entity(tableName = "sessions",
+        indices = {@Index(name = "idx_sessions_start_time", value = "start_time")})
 public class SessionEntity {
     
     @PrimaryKey
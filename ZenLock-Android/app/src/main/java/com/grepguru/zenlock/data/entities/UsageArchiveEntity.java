@@ -0,0 +1,40 @@
+package com.grepguru.zenlock.data.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity for the long-term per-app usage archive
+ * One row per day; data is a UsageArchiveCodec blob of (app id, foreground seconds) pairs
+ * referencing the apps dictionary, typically well under 100 bytes per day
+ */
+@Entity(tableName = "usage_archive")
+public class UsageArchiveEntity {
+    
+    @PrimaryKey
+    @ColumnInfo(name = "day")
+    public long day; // epoch day (local date)
+    
+    @NonNull
+    @ColumnInfo(name = "data", typeAffinity = ColumnInfo.BLOB)
+    public byte[] data;
+    
+    @ColumnInfo(name = "created_at")
+    public long createdAt;
+    
+    // Default constructor required by Room
+    public UsageArchiveEntity() {
+        this.data = new byte[0];
+    }
+    
+    // Constructor for archiving a day
+    @Ignore
+    public UsageArchiveEntity(long day, @NonNull byte[] data) {
+        this.day = day;
+        this.data = data;
+        this.createdAt = System.currentTimeMillis();
+    }
+}
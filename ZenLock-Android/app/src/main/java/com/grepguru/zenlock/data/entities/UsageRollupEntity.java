@@ -0,0 +1,60 @@
+package com.grepguru.zenlock.data.entities;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+/**
+ * Room entity for weekly and monthly usage rollups
+ * One row per period (week starting Monday, or calendar month) keyed by the epoch day
+ * of the period's first day, so long-range charts read a handful of rows instead of
+ * walking every day of history
+ */
+@Entity(tableName = "usage_rollups",
+        primaryKeys = {"period_type", "period_start"})
+public class UsageRollupEntity {
+
+    public static final int PERIOD_WEEK = 1;
+    public static final int PERIOD_MONTH = 2;
+
+    @ColumnInfo(name = "period_type")
+    public int periodType; // PERIOD_WEEK or PERIOD_MONTH
+
+    @ColumnInfo(name = "period_start")
+    public long periodStart; // epoch day of the first day in the period
+
+    @ColumnInfo(name = "focus_time")
+    public long focusTime; // in milliseconds
+
+    @ColumnInfo(name = "mobile_usage")
+    public long mobileUsage; // in milliseconds
+
+    @ColumnInfo(name = "session_count")
+    public int sessionCount;
+
+    @ColumnInfo(name = "days_covered")
+    public int daysCovered; // Days with stored mobile usage inside the period
+
+    @ColumnInfo(name = "updated_at")
+    public long updatedAt;
+
+    // Default constructor required by Room
+    public UsageRollupEntity() {}
+
+    // Constructor for creating new rollups
+    @Ignore
+    public UsageRollupEntity(int periodType, long periodStart, long focusTime,
+                             long mobileUsage, int sessionCount, int daysCovered) {
+        this.periodType = periodType;
+        this.periodStart = periodStart;
+        this.focusTime = focusTime;
+        this.mobileUsage = mobileUsage;
+        this.sessionCount = sessionCount;
+        this.daysCovered = daysCovered;
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    public boolean isEmpty() {
+        return focusTime <= 0 && mobileUsage <= 0;
+    }
+}
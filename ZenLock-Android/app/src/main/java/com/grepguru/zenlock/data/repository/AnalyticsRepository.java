@@ -12,12 +12,9 @@ import com.grepguru.zenlock.data.entities.DailyStatsEntity;
 import com.grepguru.zenlock.data.entities.MonthlyStatsEntity;
 import com.grepguru.zenlock.data.entities.SessionEntity;
 import com.grepguru.zenlock.data.entities.WeeklyStatsEntity;
+import com.grepguru.zenlock.utils.TimeService;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -119,31 +116,7 @@ public class AnalyticsRepository {
     public void updateDailyStatsForDate(String date) {
         executor.execute(() -> {
             try {
-                // Calculate aggregated data for the date
-                int totalSessions = analyticsDao.getSessionCountForDate(date);
-                Long totalFocusTime = analyticsDao.getTotalFocusTimeForDate(date);
-                int completedSessions = analyticsDao.getCompletedSessionsForDate(date);
-                int interruptedSessions = analyticsDao.getInterruptedSessionsForDate(date);
-                Float avgFocusScore = analyticsDao.getAverageFocusScoreForDate(date);
-                Long totalWhitelistedTime = analyticsDao.getTotalWhitelistedTimeForDate(date);
-                
-                // Handle null values
-                totalFocusTime = totalFocusTime != null ? totalFocusTime : 0L;
-                avgFocusScore = avgFocusScore != null ? avgFocusScore : 0f;
-                totalWhitelistedTime = totalWhitelistedTime != null ? totalWhitelistedTime : 0L;
-                
-                // Create or update daily stats
-                DailyStatsEntity dailyStats = new DailyStatsEntity(
-                    date,
-                    totalSessions,
-                    totalFocusTime,
-                    completedSessions,
-                    interruptedSessions,
-                    avgFocusScore,
-                    totalWhitelistedTime
-                );
-                
-                analyticsDao.insertDailyStats(dailyStats);
+                updateDailyStatsForDateSync(date);
                 Log.d(TAG, "Daily stats updated for " + date);
                 
             } catch (Exception e) {
@@ -152,6 +125,37 @@ public class AnalyticsRepository {
         });
     }
     
+    /**
+     * Recompute daily stats for a date from raw sessions on the calling thread
+     */
+    public void updateDailyStatsForDateSync(String date) {
+        // Calculate aggregated data for the date
+        int totalSessions = analyticsDao.getSessionCountForDate(date);
+        Long totalFocusTime = analyticsDao.getTotalFocusTimeForDate(date);
+        int completedSessions = analyticsDao.getCompletedSessionsForDate(date);
+        int interruptedSessions = analyticsDao.getInterruptedSessionsForDate(date);
+        Float avgFocusScore = analyticsDao.getAverageFocusScoreForDate(date);
+        Long totalWhitelistedTime = analyticsDao.getTotalWhitelistedTimeForDate(date);
+        
+        // Handle null values
+        totalFocusTime = totalFocusTime != null ? totalFocusTime : 0L;
+        avgFocusScore = avgFocusScore != null ? avgFocusScore : 0f;
+        totalWhitelistedTime = totalWhitelistedTime != null ? totalWhitelistedTime : 0L;
+        
+        // Create or update daily stats
+        DailyStatsEntity dailyStats = new DailyStatsEntity(
+            date,
+            totalSessions,
+            totalFocusTime,
+            completedSessions,
+            interruptedSessions,
+            avgFocusScore,
+            totalWhitelistedTime
+        );
+        
+        analyticsDao.insertDailyStats(dailyStats);
+    }
+    
     // Mobile usage update method removed - data is fetched fresh from UsageStatsManager
     
     /**
@@ -309,86 +313,33 @@ public class AnalyticsRepository {
         return analyticsDao.getLastMonthStats();
     }
     
-    // =====================================
-    // DATA CLEANUP OPERATIONS
-    // =====================================
-    
-    /**
-     * Cleanup old data based on retention policy
-     */
-    public void cleanupOldData() {
-        executor.execute(() -> {
-            try {
-                // Calculate cutoff dates
-                long sessionCutoffTime = System.currentTimeMillis() - (30L * 24 * 60 * 60 * 1000); // 30 days
-                String dailyCutoffDate = getDateFromTimestamp(System.currentTimeMillis() - (365L * 24 * 60 * 60 * 1000)); // 1 year
-                String weeklyCutoffKey = getWeekKeyFromTimestamp(System.currentTimeMillis() - (2L * 365 * 24 * 60 * 60 * 1000)); // 2 years
-                String monthlyCutoffKey = getMonthKeyFromTimestamp(System.currentTimeMillis() - (5L * 365 * 24 * 60 * 60 * 1000)); // 5 years
-                
-                // Perform cleanup
-                analyticsDao.cleanupOldData(sessionCutoffTime, dailyCutoffDate, weeklyCutoffKey, monthlyCutoffKey);
-                
-                Log.d(TAG, "Data cleanup completed");
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error during data cleanup", e);
-            }
-        });
-    }
-    
     // =====================================
     // UTILITY METHODS
     // =====================================
     
     private String getCurrentDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        return sdf.format(new Date());
+        return TimeService.get().todayString();
     }
     
     private String getCurrentWeekKey() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-'W'ww", Locale.US);
-        return sdf.format(new Date());
+        return TimeService.weekKey(TimeService.get().today());
     }
     
     private String getCurrentMonthKey() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM", Locale.US);
-        return sdf.format(new Date());
+        return TimeService.monthKey(TimeService.get().today());
     }
     
     private String getDateFromTimestamp(long timestamp) {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        return sdf.format(new Date(timestamp));
-    }
-    
-    private String getWeekKeyFromTimestamp(long timestamp) {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-'W'ww", Locale.US);
-        return sdf.format(new Date(timestamp));
-    }
-    
-    private String getMonthKeyFromTimestamp(long timestamp) {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM", Locale.US);
-        return sdf.format(new Date(timestamp));
+        return TimeService.get().formatDate(timestamp);
     }
     
     private String[] getWeekDates(String weekKey) {
-        // Parse week key (e.g., "2024-W37")
-        String[] parts = weekKey.split("-W");
-        int year = Integer.parseInt(parts[0]);
-        int week = Integer.parseInt(parts[1]);
-        
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.YEAR, year);
-        cal.set(Calendar.WEEK_OF_YEAR, week);
-        cal.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
-        
+        // Week key e.g. "2024-W37", Monday to Sunday
+        int monday = TimeService.parseWeekKeyMonday(weekKey);
         String[] dates = new String[7];
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        
         for (int i = 0; i < 7; i++) {
-            dates[i] = sdf.format(cal.getTime());
-            cal.add(Calendar.DAY_OF_YEAR, 1);
+            dates[i] = TimeService.formatDay(monday + i);
         }
-        
         return dates;
     }
     
@@ -0,0 +1,314 @@
+package com.grepguru.zenlock.data.repository;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.grepguru.zenlock.data.dao.ScheduleDao;
+import com.grepguru.zenlock.data.database.ScheduleDatabase;
+import com.grepguru.zenlock.data.entities.ScheduleEntity;
+import com.grepguru.zenlock.model.ScheduleModel;
+import com.grepguru.zenlock.utils.ScheduleRecurrence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of all schedules
+ * Rows are decoded from Room once; reads are served from memory and every change is applied
+ * in memory first, published to observers, then written through to Room on a single
+ * background writer so writes land in order. A write that fails puts the cached entry back as
+ * it was, unless a later change already replaced it. Callers always get copies, so a model
+ * edited in a dialog only reaches the cache through update()
+ */
+public class ScheduleRepository {
+
+    private static final String TAG = "ScheduleRepository";
+
+    private static volatile ScheduleRepository INSTANCE;
+
+    /**
+     * Notified after every change, on the thread that made it
+     */
+    public interface ScheduleObserver {
+        void onSchedulesChanged();
+    }
+
+    private final ScheduleDao scheduleDao;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    // Keyed by id so iteration matches the old ORDER BY id
+    private final TreeMap<Integer, ScheduleModel> schedules = new TreeMap<>();
+    private final MutableLiveData<List<ScheduleModel>> liveSchedules = new MutableLiveData<>();
+    private final List<ScheduleObserver> observers = new CopyOnWriteArrayList<>();
+    private int nextId = 1;
+    private long version;
+
+    private ScheduleRepository(Context context) {
+        ScheduleDatabase db = ScheduleDatabase.getDatabase(context);
+        scheduleDao = db.scheduleDao();
+        try {
+            for (ScheduleEntity entity : scheduleDao.getAll()) {
+                schedules.put(entity.id, toModel(entity));
+                nextId = Math.max(nextId, entity.id + 1);
+            }
+            // Ids are assigned here rather than by SQLite; don't reuse ids of deleted rows
+            try (Cursor cursor = db.getOpenHelper().getReadableDatabase()
+                    .query("SELECT seq FROM sqlite_sequence WHERE name = 'schedules'")) {
+                if (cursor.moveToFirst()) nextId = Math.max(nextId, cursor.getInt(0) + 1);
+            }
+            Log.d(TAG, "Loaded " + schedules.size() + " schedules");
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading schedules", e);
+        }
+        liveSchedules.postValue(snapshot(false));
+    }
+
+    public static ScheduleRepository getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ScheduleRepository.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ScheduleRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // =====================================
+    // READS
+    // =====================================
+
+    /**
+     * All schedules ordered by id, updated after every change (for UI)
+     */
+    public LiveData<List<ScheduleModel>> getSchedules() {
+        return liveSchedules;
+    }
+
+    public List<ScheduleModel> getAll() {
+        return snapshot(false);
+    }
+
+    public List<ScheduleModel> getEnabled() {
+        return snapshot(true);
+    }
+
+    public ScheduleModel getById(int id) {
+        synchronized (schedules) {
+            ScheduleModel schedule = schedules.get(id);
+            return schedule == null ? null : schedule.copy();
+        }
+    }
+
+    /**
+     * Incremented on every change, lets derived caches tell whether they are stale
+     */
+    public long getVersion() {
+        synchronized (schedules) {
+            return version;
+        }
+    }
+
+    public void addObserver(ScheduleObserver observer) {
+        if (!observers.contains(observer)) observers.add(observer);
+    }
+
+    public void removeObserver(ScheduleObserver observer) {
+        observers.remove(observer);
+    }
+
+    // =====================================
+    // WRITES
+    // =====================================
+
+    /**
+     * Add a schedule; its id is assigned immediately and set on the passed model
+     */
+    public ScheduleModel insert(ScheduleModel schedule) {
+        ScheduleModel stored = schedule.copy();
+        synchronized (schedules) {
+            stored.setId(nextId++);
+            schedules.put(stored.getId(), stored);
+            version++;
+        }
+        schedule.setId(stored.getId());
+        ScheduleEntity entity = toEntity(stored);
+        write("insert " + stored.getId(), () -> scheduleDao.insert(entity), stored.getId(), stored, null);
+        publish();
+        return stored.copy();
+    }
+
+    /**
+     * Replace a stored schedule; returns false if it doesn't exist
+     */
+    public boolean update(ScheduleModel schedule) {
+        ScheduleModel stored = schedule.copy();
+        ScheduleModel previous;
+        synchronized (schedules) {
+            previous = schedules.get(stored.getId());
+            if (previous == null) return false;
+            schedules.put(stored.getId(), stored);
+            version++;
+        }
+        ScheduleEntity entity = toEntity(stored);
+        write("update " + stored.getId(), () -> scheduleDao.update(entity), stored.getId(), stored, previous);
+        publish();
+        return true;
+    }
+
+    /**
+     * Flip a schedule's enabled flag; read and replaced under the lock so a concurrent update
+     * isn't lost. Returns false if it doesn't exist
+     */
+    public boolean toggle(int id) {
+        ScheduleModel stored;
+        ScheduleModel previous;
+        synchronized (schedules) {
+            previous = schedules.get(id);
+            if (previous == null) return false;
+            stored = previous.copy();
+            stored.setEnabled(!previous.isEnabled());
+            schedules.put(id, stored);
+            version++;
+        }
+        ScheduleEntity entity = toEntity(stored);
+        write("toggle " + id, () -> scheduleDao.update(entity), id, stored, previous);
+        publish();
+        return true;
+    }
+
+    public boolean delete(int id) {
+        ScheduleModel previous;
+        synchronized (schedules) {
+            previous = schedules.remove(id);
+            if (previous == null) return false;
+            version++;
+        }
+        write("delete " + id, () -> scheduleDao.deleteById(id), id, null, previous);
+        publish();
+        return true;
+    }
+
+    /**
+     * Wait for queued writes, for callers about to let the process die (e.g. receivers)
+     */
+    public void flush(long timeoutMillis) {
+        try {
+            writer.submit(() -> { }).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "Timed out waiting for schedule writes", e);
+        }
+    }
+
+    /**
+     * Run op on the writer; if it fails and id still maps to written (null once deleted), put
+     * previous back (null to remove) so the cache doesn't keep what Room never got
+     */
+    private void write(String what, Runnable op, int id, ScheduleModel written, ScheduleModel previous) {
+        writer.execute(() -> {
+            try {
+                op.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Error writing schedule (" + what + ")", e);
+                rollback(id, written, previous);
+            }
+        });
+    }
+
+    private void rollback(int id, ScheduleModel written, ScheduleModel previous) {
+        synchronized (schedules) {
+            if (schedules.get(id) != written) return;
+            if (previous != null) {
+                schedules.put(id, previous);
+            } else {
+                schedules.remove(id);
+            }
+            version++;
+        }
+        publish();
+    }
+
+    private void publish() {
+        liveSchedules.postValue(snapshot(false));
+        for (ScheduleObserver observer : observers) {
+            try {
+                observer.onSchedulesChanged();
+            } catch (Exception e) {
+                Log.e(TAG, "Schedule observer failed", e);
+            }
+        }
+    }
+
+    private List<ScheduleModel> snapshot(boolean enabledOnly) {
+        synchronized (schedules) {
+            List<ScheduleModel> out = new ArrayList<>(schedules.size());
+            for (ScheduleModel schedule : schedules.values()) {
+                if (!enabledOnly || schedule.isEnabled()) out.add(schedule.copy());
+            }
+            return Collections.unmodifiableList(out);
+        }
+    }
+
+    // =====================================
+    // MAPPING
+    // =====================================
+
+    private static ScheduleEntity toEntity(ScheduleModel m) {
+        ScheduleEntity e = new ScheduleEntity();
+        e.id = m.getId();
+        e.name = m.getName() == null ? "" : m.getName();
+        e.startHour = m.getStartHour();
+        e.startMinute = m.getStartMinute();
+        e.focusDurationMinutes = m.getFocusDurationMinutes();
+        e.repeatType = m.getRepeatType() == null ? "DAILY" : m.getRepeatType().name();
+        e.repeatDaysMask = m.getRepeatDaysMask();
+        e.repeatIntervalWeeks = m.getRepeatIntervalWeeks();
+        e.anchorEpochDay = m.getAnchorEpochDay();
+        e.startEpochDay = m.getStartEpochDay();
+        e.endEpochDay = m.getEndEpochDay();
+        e.excludedDays = ScheduleRecurrence.encodeDays(m.getExcludedEpochDays());
+        e.preNotifyEnabled = m.isPreNotifyEnabled();
+        e.preNotifyMinutes = m.getPreNotifyMinutes();
+        e.cycleFocusMinutes = m.getCycleFocusMinutes();
+        e.cycleBreakMinutes = m.getCycleBreakMinutes();
+        e.cycleCount = m.getCycleCount();
+        e.cycleLongBreakMinutes = m.getCycleLongBreakMinutes();
+        e.allowlistProfileId = m.getAllowlistProfileId();
+        e.enabled = m.isEnabled();
+        return e;
+    }
+
+    private static ScheduleModel toModel(ScheduleEntity e) {
+        ScheduleModel m = new ScheduleModel();
+        m.setId(e.id);
+        m.setName(e.name);
+        m.setStartHour(e.startHour);
+        m.setStartMinute(e.startMinute);
+        m.setFocusDurationMinutes(e.focusDurationMinutes);
+        try {
+            m.setRepeatType(ScheduleModel.RepeatType.valueOf(e.repeatType));
+        } catch (Exception ex) {
+            m.setRepeatType(ScheduleModel.RepeatType.DAILY);
+        }
+        m.setRepeatDaysMask(e.repeatDaysMask);
+        m.setRepeatInterval(e.repeatIntervalWeeks, e.anchorEpochDay);
+        m.setDateRange(e.startEpochDay, e.endEpochDay);
+        m.setExcludedEpochDays(ScheduleRecurrence.decodeDays(e.excludedDays));
+        m.setPreNotifyEnabled(e.preNotifyEnabled);
+        m.setPreNotifyMinutes(e.preNotifyMinutes);
+        m.setFocusCycle(e.cycleFocusMinutes, e.cycleBreakMinutes, e.cycleCount, e.cycleLongBreakMinutes);
+        m.setAllowlistProfileId(e.allowlistProfileId);
+        m.setEnabled(e.enabled);
+        return m;
+    }
+}
@@ -3,7 +3,6 @@ package com.grepguru.zenlock.fragments;
 import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -26,8 +25,17 @@ import com.grepguru.zenlock.data.entities.WeeklyStatsEntity;
 import com.grepguru.zenlock.data.entities.SessionEntity;
 import com.grepguru.zenlock.utils.UsageStatsPermissionManager;
 import com.grepguru.zenlock.utils.DailyMobileUsageManager;
-
+import com.grepguru.zenlock.utils.UsageRollupManager;
+import com.grepguru.zenlock.utils.UsageArchiveManager;
+import com.grepguru.zenlock.utils.AppCatalog;
+import com.grepguru.zenlock.utils.ScheduleRecurrence;
+import com.grepguru.zenlock.utils.TimeService;
+import com.grepguru.zenlock.utils.FocusSessionController;
+import com.grepguru.zenlock.utils.MemoryPressure;
+
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Date;
 import java.util.Locale;
 import java.text.SimpleDateFormat;
@@ -95,6 +103,35 @@ public class AnalyticsFragment extends Fragment {
     // Charts
     private CombinedChart weeklyCombinedChart;
     private CombinedChart monthlyCombinedChart;
+    
+    // Trend range selector (null = 30-day daily view, otherwise served from rollups)
+    private TextView monthlyChartTitle;
+    private TextView chartRange30d, chartRange90d, chartRange1y, chartRangeAll;
+    private UsageRollupManager.ChartRange selectedChartRange;
+    private UsageRollupManager usageRollupManager;
+    private TextView longRangeTopApps;
+    private UsageArchiveManager usageArchiveManager;
+    private static final int TOP_APPS_SHOWN = 5;
+
+    // Chart entries are UI-only; dropped while hidden and rebuilt from the rollups on resume
+    private static final int CHART_ENTRY_BYTES = 64;
+    private boolean chartsTrimmed;
+    private final MemoryPressure.Trimmable chartCache = new MemoryPressure.Trimmable() {
+        @Override
+        public long estimateBytes() {
+            return (long) (chartEntryCount(weeklyCombinedChart) + chartEntryCount(monthlyCombinedChart)) * CHART_ENTRY_BYTES;
+        }
+
+        @Override
+        public long trim(int tier) {
+            long freed = estimateBytes();
+            if (freed == 0) return 0;
+            weeklyCombinedChart.clear();
+            monthlyCombinedChart.clear();
+            chartsTrimmed = true;
+            return freed;
+        }
+    };
 
     public AnalyticsFragment() {}
 
@@ -109,13 +146,16 @@ public class AnalyticsFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         // Initialize analytics manager
-        analyticsManager = new AnalyticsManager(requireContext());
+        analyticsManager = AnalyticsManager.getInstance(requireContext());
         
         // Initialize daily mobile usage manager
         dailyMobileUsageManager = new DailyMobileUsageManager(requireContext());
+        usageRollupManager = new UsageRollupManager(requireContext());
+        usageArchiveManager = new UsageArchiveManager(requireContext());
 
         // Initialize UI components
         initializeViews(view);
+        MemoryPressure.get().register("AnalyticsCharts", MemoryPressure.TIER_UI_HIDDEN, chartCache);
 
         // Setup expandable sections
         setupExpandableSections();
@@ -134,8 +174,7 @@ public class AnalyticsFragment extends Fragment {
     public void onResume() {
         super.onResume();
         // Enforce lock: if locked, redirect to lock screen and prevent access
-        SharedPreferences preferences = requireActivity().getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        boolean isLocked = preferences.getBoolean("isLocked", false);
+        boolean isLocked = FocusSessionController.getInstance(requireContext()).isLocked();
         if (isLocked) {
             Intent lockIntent = new Intent(requireContext(), com.grepguru.zenlock.LockScreenActivity.class);
             lockIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
@@ -152,6 +191,22 @@ public class AnalyticsFragment extends Fragment {
         
         // Force refresh mobile usage data every time analytics page is opened
         refreshMobileUsageData();
+
+        if (chartsTrimmed) {
+            chartsTrimmed = false;
+            loadWeeklyChart();
+            loadTrendChart();
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        MemoryPressure.get().unregister(chartCache);
+        super.onDestroyView();
+    }
+
+    private static int chartEntryCount(CombinedChart chart) {
+        return chart != null && chart.getData() != null ? chart.getData().getEntryCount() : 0;
     }
 
     private void initializeViews(View view) {
@@ -209,9 +264,16 @@ public class AnalyticsFragment extends Fragment {
         monthlyFocusChange = view.findViewById(R.id.monthlyFocusChange);
         monthlyMobileChange = view.findViewById(R.id.monthlyMobileChange);
     monthlyCombinedChart = view.findViewById(R.id.monthlyCombinedChart);
+        monthlyChartTitle = view.findViewById(R.id.monthlyChartTitle);
+        chartRange30d = view.findViewById(R.id.chartRange30d);
+        chartRange90d = view.findViewById(R.id.chartRange90d);
+        chartRange1y = view.findViewById(R.id.chartRange1y);
+        chartRangeAll = view.findViewById(R.id.chartRangeAll);
+        longRangeTopApps = view.findViewById(R.id.longRangeTopApps);
 
     setupChart(weeklyCombinedChart, /*maxLabels*/8);
     setupChart(monthlyCombinedChart, /*maxLabels*/31);
+        setupChartRangeSelector();
     }
 
     private void setupExpandableSections() {
@@ -333,7 +395,7 @@ public class AnalyticsFragment extends Fragment {
         loadWeeklyStats();
         loadMonthlyStats();
         loadWeeklyChart();
-        loadMonthlyChart();
+        loadTrendChart();
         loadRecentSessions();
     }
 
@@ -375,11 +437,9 @@ public class AnalyticsFragment extends Fragment {
         new Thread(() -> {
             try {
                 // Rolling window: today (index 0) back to previous 7 days => total 8 points
-                long now = System.currentTimeMillis();
-                java.util.Calendar cal = java.util.Calendar.getInstance();
-                String endDate = AnalyticsManager.formatDate(now);
-                cal.add(java.util.Calendar.DAY_OF_YEAR, -7);
-                String startDate = AnalyticsManager.formatDate(cal.getTimeInMillis());
+                int today = TimeService.get().today();
+                String endDate = TimeService.formatDay(today);
+                String startDate = TimeService.formatDay(today - 7);
 
                 List<com.grepguru.zenlock.data.entities.DailyStatsEntity> days = analyticsManager.getDailyStatsRangeSync(startDate, endDate);
                 // Build a map date->focusMs for quick lookup
@@ -393,18 +453,16 @@ public class AnalyticsFragment extends Fragment {
                 List<Entry> mobileEntries = new java.util.ArrayList<>();
                 List<String> labels = new java.util.ArrayList<>();
 
-                java.util.Calendar walk = java.util.Calendar.getInstance();
                 for (int i = 7; i >= 0; i--) {
-                    java.util.Calendar c = (java.util.Calendar) walk.clone();
-                    c.add(java.util.Calendar.DAY_OF_YEAR, -i);
-                    String ds = AnalyticsManager.formatDate(c.getTimeInMillis());
+                    int day = today - i;
+                    String ds = TimeService.formatDay(day);
                     long focusMs = focusByDate.getOrDefault(ds, 0L);
                     // Use DailyMobileUsageManager for efficient data retrieval
                     long mobileMs = dailyMobileUsageManager.getMobileUsageForDate(ds);
                     int x = 7 - i; // 0..7
                     focusEntries.add(new BarEntry(x, msToHoursFloat(focusMs))); // bars in hours
                     mobileEntries.add(new Entry(x, msToHoursFloat(mobileMs)));  // line in hours
-                    labels.add(shortDayLabel(c));
+                    labels.add(shortDayLabel(day));
                 }
 
                 BarDataSet barSet = new BarDataSet(focusEntries, "Focus (h)");
@@ -452,11 +510,9 @@ public class AnalyticsFragment extends Fragment {
         new Thread(() -> {
             try {
                 // Rolling window: today back 30 days => 31 points
-                long now = System.currentTimeMillis();
-                java.util.Calendar cal = java.util.Calendar.getInstance();
-                String endDate = AnalyticsManager.formatDate(now);
-                cal.add(java.util.Calendar.DAY_OF_YEAR, -30);
-                String startDate = AnalyticsManager.formatDate(cal.getTimeInMillis());
+                int today = TimeService.get().today();
+                String endDate = TimeService.formatDay(today);
+                String startDate = TimeService.formatDay(today - 30);
 
                 List<com.grepguru.zenlock.data.entities.DailyStatsEntity> days = analyticsManager.getDailyStatsRangeSync(startDate, endDate);
                 java.util.Map<String, Long> focusByDate = new java.util.HashMap<>();
@@ -468,11 +524,9 @@ public class AnalyticsFragment extends Fragment {
                 List<Entry> mobileEntries = new java.util.ArrayList<>();
                 List<String> labels = new java.util.ArrayList<>();
 
-                java.util.Calendar walk = java.util.Calendar.getInstance();
                 for (int i = 30; i >= 0; i--) {
-                    java.util.Calendar c = (java.util.Calendar) walk.clone();
-                    c.add(java.util.Calendar.DAY_OF_YEAR, -i);
-                    String ds = AnalyticsManager.formatDate(c.getTimeInMillis());
+                    int day = today - i;
+                    String ds = TimeService.formatDay(day);
                     long focusMs = focusByDate.getOrDefault(ds, 0L);
                     // Use DailyMobileUsageManager for efficient data retrieval
                     long mobileMs = dailyMobileUsageManager.getMobileUsageForDate(ds);
@@ -481,7 +535,7 @@ public class AnalyticsFragment extends Fragment {
                     
                     focusEntries.add(new BarEntry(x, msToHoursFloat(focusMs)));
                     mobileEntries.add(new Entry(x, msToHoursFloat(mobileMs)));
-                    labels.add(dayOfMonthLabel(c));
+                    labels.add(dayOfMonthLabel(day));
                 }
 
                 BarDataSet barSet = new BarDataSet(focusEntries, "Focus (h)");
@@ -504,7 +558,7 @@ public class AnalyticsFragment extends Fragment {
 
                 if (getActivity() != null && isAdded()) {
                     getActivity().runOnUiThread(() -> {
-                        if (monthlyCombinedChart != null && isAdded()) {
+                        if (monthlyCombinedChart != null && isAdded() && selectedChartRange == null) {
                             monthlyCombinedChart.getXAxis().setValueFormatter(new IndexAxisValueFormatter(labels));
                             monthlyCombinedChart.setData(combinedData);
                             monthlyCombinedChart.invalidate();
@@ -524,6 +578,146 @@ public class AnalyticsFragment extends Fragment {
         }).start();
     }
 
+    private void setupChartRangeSelector() {
+        chartRange30d.setOnClickListener(v -> selectChartRange(null));
+        chartRange90d.setOnClickListener(v -> selectChartRange(UsageRollupManager.ChartRange.DAYS_90));
+        chartRange1y.setOnClickListener(v -> selectChartRange(UsageRollupManager.ChartRange.YEAR));
+        chartRangeAll.setOnClickListener(v -> selectChartRange(UsageRollupManager.ChartRange.ALL_TIME));
+    }
+
+    private void selectChartRange(UsageRollupManager.ChartRange range) {
+        if (range == selectedChartRange) return;
+        selectedChartRange = range;
+        styleRangeChip(chartRange30d, range == null);
+        styleRangeChip(chartRange90d, range == UsageRollupManager.ChartRange.DAYS_90);
+        styleRangeChip(chartRange1y, range == UsageRollupManager.ChartRange.YEAR);
+        styleRangeChip(chartRangeAll, range == UsageRollupManager.ChartRange.ALL_TIME);
+        loadTrendChart();
+    }
+
+    private void styleRangeChip(TextView chip, boolean selected) {
+        chip.setBackgroundResource(selected ? R.drawable.chip_selected_background : R.drawable.chip_unselected_background);
+        chip.setTextColor(requireContext().getColor(selected ? R.color.primary : R.color.textSecondary));
+    }
+
+    private void loadTrendChart() {
+        if (selectedChartRange == null) {
+            monthlyChartTitle.setText("Monthly Focus Trend");
+            longRangeTopApps.setVisibility(View.GONE);
+            loadMonthlyChart();
+            return;
+        }
+        switch (selectedChartRange) {
+            case DAYS_90: monthlyChartTitle.setText("90-Day Trend (weekly)"); break;
+            case YEAR: monthlyChartTitle.setText("1-Year Trend (weekly)"); break;
+            default: monthlyChartTitle.setText("All-Time Trend (monthly)"); break;
+        }
+        loadLongRangeChart(selectedChartRange);
+        loadLongRangeTopApps(selectedChartRange);
+    }
+
+    /**
+     * Per-app detail beyond UsageStatsManager's few days only exists in the usage archive;
+     * its days are streamed and summed, not loaded whole
+     */
+    private void loadLongRangeTopApps(UsageRollupManager.ChartRange range) {
+        LocalDate to = LocalDate.now().minusDays(1); // Only finished days are archived
+        LocalDate from;
+        switch (range) {
+            case DAYS_90: from = to.minusDays(89); break;
+            case YEAR: from = to.minusYears(1).plusDays(1); break;
+            default: from = LocalDate.ofEpochDay(0); break;
+        }
+        Context context = requireContext().getApplicationContext();
+        new Thread(() -> {
+            try {
+                Map<String, Long> top = usageArchiveManager.getTopApps(from, to, TOP_APPS_SHOWN);
+                StringBuilder text = new StringBuilder();
+                for (Map.Entry<String, Long> entry : top.entrySet()) {
+                    text.append(text.length() == 0 ? "Top apps: " : " · ")
+                            .append(AppCatalog.getInstance(context).getLabel(entry.getKey()))
+                            .append(' ')
+                            .append(formatTime(entry.getValue() / 60_000));
+                }
+
+                if (getActivity() != null && isAdded()) {
+                    getActivity().runOnUiThread(() -> {
+                        if (longRangeTopApps != null && isAdded() && range == selectedChartRange) {
+                            longRangeTopApps.setText(text);
+                            longRangeTopApps.setVisibility(text.length() > 0 ? View.VISIBLE : View.GONE);
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                Log.e("AnalyticsFragment", "Error loading long-range top apps", e);
+            }
+        }).start();
+    }
+
+    /**
+     * Long ranges come from weekly/monthly rollups and are LTTB-downsampled to roughly one
+     * point per 8dp of chart width, so cost does not grow with history
+     */
+    private void loadLongRangeChart(UsageRollupManager.ChartRange range) {
+        if (monthlyCombinedChart == null) return;
+        int chartWidth = monthlyCombinedChart.getWidth();
+        int maxPoints = chartWidth > 0 ? Math.max(12, chartWidth / dpToPx(8)) : 60;
+        new Thread(() -> {
+            try {
+                usageRollupManager.refreshRecentRollups();
+                UsageRollupManager.ChartSeries series = usageRollupManager.getChartSeries(range, maxPoints);
+
+                List<BarEntry> focusEntries = new java.util.ArrayList<>(series.focusX.length);
+                for (int i = 0; i < series.focusX.length; i++) {
+                    focusEntries.add(new BarEntry(series.focusX[i], series.focusHours[i]));
+                }
+                List<Entry> mobileEntries = new java.util.ArrayList<>(series.mobileX.length);
+                for (int i = 0; i < series.mobileX.length; i++) {
+                    mobileEntries.add(new Entry(series.mobileX[i], series.mobileHours[i]));
+                }
+
+                BarDataSet barSet = new BarDataSet(focusEntries, "Focus (h)");
+                barSet.setColor(requireContext().getColor(R.color.secondary));
+                barSet.setDrawValues(false);
+                BarData barData = new BarData(barSet);
+                barData.setBarWidth(0.4f);
+
+                LineDataSet lineSet = new LineDataSet(mobileEntries, "Mobile (h)");
+                lineSet.setColor(requireContext().getColor(R.color.warning));
+                lineSet.setCircleColor(requireContext().getColor(R.color.warning));
+                lineSet.setLineWidth(1.6f);
+                lineSet.setDrawCircles(mobileEntries.size() <= 31);
+                lineSet.setDrawValues(false);
+                lineSet.setMode(LineDataSet.Mode.LINEAR);
+                LineData lineData = new LineData(lineSet);
+
+                CombinedData combinedData = new CombinedData();
+                combinedData.setData(barData);
+                combinedData.setData(lineData);
+
+                if (getActivity() != null && isAdded()) {
+                    getActivity().runOnUiThread(() -> {
+                        // Ignore results for a range the user already switched away from
+                        if (monthlyCombinedChart != null && isAdded() && range == selectedChartRange) {
+                            monthlyCombinedChart.getXAxis().setValueFormatter(new IndexAxisValueFormatter(series.labels));
+                            monthlyCombinedChart.setData(combinedData);
+                            monthlyCombinedChart.invalidate();
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                Log.e("AnalyticsFragment", "Error loading long-range chart", e);
+                if (getActivity() != null && isAdded()) {
+                    getActivity().runOnUiThread(() -> {
+                        if (monthlyCombinedChart != null && isAdded()) {
+                            monthlyCombinedChart.setNoDataText("No data yet");
+                        }
+                    });
+                }
+            }
+        }).start();
+    }
+
     private static class IndexAxisValueFormatter extends ValueFormatter {
         private final List<String> labels;
         IndexAxisValueFormatter(List<String> labels) { this.labels = labels; }
@@ -534,12 +728,11 @@ public class AnalyticsFragment extends Fragment {
     }
 
     private float msToHoursFloat(long ms) { return (float)(ms / 3600000.0); }
-    private String shortDayLabel(java.util.Calendar c) {
+    private String shortDayLabel(int epochDay) {
         String[] days = {"Sun","Mon","Tue","Wed","Thu","Fri","Sat"};
-        int dow = c.get(java.util.Calendar.DAY_OF_WEEK); // 1..7
-        return days[dow - 1];
+        return days[ScheduleRecurrence.dayOfWeekIndex(epochDay)]; // 0..6
     }
-    private String dayOfMonthLabel(java.util.Calendar c) { return String.valueOf(c.get(java.util.Calendar.DAY_OF_MONTH)); }
+    private String dayOfMonthLabel(int epochDay) { return String.valueOf(TimeService.dayOfMonth(epochDay)); }
     
     private void checkUsageStatsPermission() {
         // Single permission check to avoid redundant calls
@@ -910,22 +1103,17 @@ public class AnalyticsFragment extends Fragment {
 
     // ---- Helpers for normalized comparisons ----
     private int getDaysElapsedThisWeek() {
-        java.util.Calendar cal = java.util.Calendar.getInstance();
-        int dow = cal.get(java.util.Calendar.DAY_OF_WEEK); // Sun=1..Sat=7
-        // Convert to Monday-based index: Mon=1..Sun=7
-        int daysFromMon = ((dow - java.util.Calendar.MONDAY + 7) % 7);
-        return daysFromMon + 1; // inclusive of today
+        int today = TimeService.get().today();
+        return today - TimeService.mondayOf(today) + 1; // Mon=1..Sun=7, inclusive of today
     }
 
     private int getDaysElapsedThisMonth() {
-        java.util.Calendar cal = java.util.Calendar.getInstance();
-        return cal.get(java.util.Calendar.DAY_OF_MONTH); // 1..31 (inclusive to today)
+        return TimeService.dayOfMonth(TimeService.get().today()); // 1..31 (inclusive to today)
     }
 
     private int getDaysInLastMonth() {
-        java.util.Calendar cal = java.util.Calendar.getInstance();
-        cal.add(java.util.Calendar.MONTH, -1);
-        return cal.getActualMaximum(java.util.Calendar.DAY_OF_MONTH);
+        int thisMonth = TimeService.firstOfMonth(TimeService.get().today());
+        return thisMonth - TimeService.firstOfMonth(thisMonth - 1);
     }
 
     private Double computeNormalizedChange(long currentTotalMs, int currentDays, long previousTotalMs, int previousDays) {
@@ -49,8 +49,12 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
 import com.grepguru.zenlock.LockScreenActivity;
 import com.grepguru.zenlock.R;
+import com.grepguru.zenlock.model.FocusCyclePlan;
+import com.grepguru.zenlock.ui.CycleConfigDialog;
 import com.grepguru.zenlock.utils.AlarmPermissionManager;
 import com.grepguru.zenlock.utils.AnalyticsManager;
+import com.grepguru.zenlock.utils.FocusCycleManager;
+import com.grepguru.zenlock.utils.FocusSessionController;
 import com.grepguru.zenlock.utils.ManualStartDelayScheduler;
 
 public class HomeFragment extends Fragment {
@@ -93,6 +97,19 @@ public class HomeFragment extends Fragment {
     private static final long START_DELAY_SCROLL_DISMISS_DELAY_MS = 260;
     private AnalyticsManager analyticsManager;
     private int selectedStartDelayMinutes = 0;
+
+    // Focus cycle (Pomodoro) mode, applies to duration sessions only
+    private static final String PREF_CYCLE_MODE = "cycle_mode";
+    private static final String PREF_CYCLE_FOCUS = "cycle_focus_minutes";
+    private static final String PREF_CYCLE_BREAK = "cycle_break_minutes";
+    private static final String PREF_CYCLE_COUNT = "cycle_count";
+    private static final String PREF_CYCLE_LONG_BREAK = "cycle_long_break_minutes";
+    private TextView cycleModeValue;
+    private boolean cycleModeEnabled = false;
+    private int cycleFocusMinutes = CycleConfigDialog.DEFAULT_FOCUS_MINUTES;
+    private int cycleBreakMinutes = CycleConfigDialog.DEFAULT_BREAK_MINUTES;
+    private int cycleCount = CycleConfigDialog.DEFAULT_CYCLES;
+    private int cycleLongBreakMinutes = CycleConfigDialog.DEFAULT_LONG_BREAK_MINUTES;
     private SharedPreferences.OnSharedPreferenceChangeListener pendingSessionListener;
 
     // Zen Mode Progress Overlay Elements
@@ -126,6 +143,7 @@ public class HomeFragment extends Fragment {
         timeDisplayContainer = view.findViewById(R.id.timeDisplayContainer);
         startDelayValueContainer = view.findViewById(R.id.startDelayValueContainer);
         startDelayChevron = view.findViewById(R.id.startDelayChevron);
+        cycleModeValue = view.findViewById(R.id.cycleModeValue);
         enableLockButton = view.findViewById(R.id.enableLockButton);
         increaseTimeButton = view.findViewById(R.id.increaseTimeButton);
         decreaseTimeButton = view.findViewById(R.id.decreaseTimeButton);
@@ -154,12 +172,13 @@ public class HomeFragment extends Fragment {
         setupNumberPickers();
         setupModernControls();
         setupStartDelayControls();
+        setupCycleControls(view, prefs);
         setupZenLongPressButton();
         setupModeToggle();
 
-        analyticsManager = new AnalyticsManager(requireContext());
+        analyticsManager = AnalyticsManager.getInstance(requireContext());
 
-        setTimeInMinutes(10);
+        setTimeInMinutes(cycleModeEnabled ? getCycleTotalMinutes() : 10);
 
         updateStartDelayDisplay();
         if (prefs.getBoolean("lock_until_mode", false)) {
@@ -443,6 +462,79 @@ public class HomeFragment extends Fragment {
         }
     }
 
+    private void setupCycleControls(View view, SharedPreferences prefs) {
+        cycleModeEnabled = prefs.getBoolean(PREF_CYCLE_MODE, false);
+        cycleFocusMinutes = prefs.getInt(PREF_CYCLE_FOCUS, CycleConfigDialog.DEFAULT_FOCUS_MINUTES);
+        cycleBreakMinutes = prefs.getInt(PREF_CYCLE_BREAK, CycleConfigDialog.DEFAULT_BREAK_MINUTES);
+        cycleCount = prefs.getInt(PREF_CYCLE_COUNT, CycleConfigDialog.DEFAULT_CYCLES);
+        cycleLongBreakMinutes = prefs.getInt(PREF_CYCLE_LONG_BREAK, CycleConfigDialog.DEFAULT_LONG_BREAK_MINUTES);
+        if (!FocusCyclePlan.isValid(cycleFocusMinutes, cycleBreakMinutes, cycleCount, cycleLongBreakMinutes)) {
+            cycleModeEnabled = false;
+        }
+
+        view.findViewById(R.id.cycleModeValueContainer).setOnClickListener(v -> CycleConfigDialog.show(
+                requireContext(), cycleFocusMinutes, cycleBreakMinutes, cycleCount, cycleLongBreakMinutes,
+                new CycleConfigDialog.Listener() {
+                    @Override
+                    public void onCycleSet(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes) {
+                        cycleModeEnabled = true;
+                        cycleFocusMinutes = focusMinutes;
+                        cycleBreakMinutes = breakMinutes;
+                        cycleCount = cycles;
+                        cycleLongBreakMinutes = longBreakMinutes;
+                        saveCycleSettings();
+                        if (isLockUntilMode) {
+                            Toast.makeText(requireContext(), "Cycles apply to duration sessions", Toast.LENGTH_SHORT).show();
+                        } else {
+                            // The session lasts exactly as long as its cycles
+                            setTimeInMinutes(getCycleTotalMinutes());
+                        }
+                        updateCycleDisplay();
+                    }
+
+                    @Override
+                    public void onCycleOff() {
+                        cycleModeEnabled = false;
+                        saveCycleSettings();
+                        updateCycleDisplay();
+                    }
+                }));
+        updateCycleDisplay();
+    }
+
+    private void saveCycleSettings() {
+        requireContext().getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(PREF_CYCLE_MODE, cycleModeEnabled)
+                .putInt(PREF_CYCLE_FOCUS, cycleFocusMinutes)
+                .putInt(PREF_CYCLE_BREAK, cycleBreakMinutes)
+                .putInt(PREF_CYCLE_COUNT, cycleCount)
+                .putInt(PREF_CYCLE_LONG_BREAK, cycleLongBreakMinutes)
+                .apply();
+    }
+
+    private void updateCycleDisplay() {
+        if (cycleModeValue == null) {
+            return;
+        }
+        cycleModeValue.setText(cycleModeEnabled ? cycleCount + " × " + cycleFocusMinutes + "m" : "Off");
+    }
+
+    private int getCycleTotalMinutes() {
+        return FocusCyclePlan.totalMinutes(cycleFocusMinutes, cycleBreakMinutes, cycleCount, cycleLongBreakMinutes);
+    }
+
+    /**
+     * Encoded cycle configuration for the session about to start, null for a plain session
+     */
+    @Nullable
+    private String getActiveCycleConfig() {
+        if (!cycleModeEnabled || isLockUntilMode) {
+            return null;
+        }
+        return FocusCyclePlan.encodeConfig(cycleFocusMinutes, cycleBreakMinutes, cycleCount, cycleLongBreakMinutes);
+    }
+
     private void setupModeToggle() {
         modeToggleButton.setOnClickListener(v -> {
             isLockUntilMode = !isLockUntilMode;
@@ -971,16 +1063,16 @@ public class HomeFragment extends Fragment {
                     })
                     .setNegativeButton("Skip", (dialog, which) -> {
                         // Continue with session start without notification blocking
-                        proceedWithLockSession(preferences);
+                        proceedWithLockSession();
                     })
                     .setCancelable(false)
                     .show();
             return;
         }
-        proceedWithLockSession(preferences);
+        proceedWithLockSession();
     }
 
-    private void proceedWithLockSession(SharedPreferences preferences) {
+    private void proceedWithLockSession() {
         long lockDurationMillis;
         Long absoluteLockEndTimeMillis = null;
 
@@ -992,7 +1084,9 @@ public class HomeFragment extends Fragment {
             absoluteLockEndTimeMillis = getNextLockUntilEndTimeMillis();
             lockDurationMillis = absoluteLockEndTimeMillis - System.currentTimeMillis();
         } else {
-            lockDurationMillis = selectedMinutes * 60 * 1000L;
+            lockDurationMillis = cycleModeEnabled
+                    ? getCycleTotalMinutes() * 60 * 1000L
+                    : selectedMinutes * 60 * 1000L;
             if (lockDurationMillis <= 0) {
                 Toast.makeText(getActivity(), "Please select a valid lock time!", Toast.LENGTH_SHORT).show();
                 return;
@@ -1008,26 +1102,24 @@ public class HomeFragment extends Fragment {
                     .setTitle("Long Session")
                     .setMessage("You're about to lock for " + durationText + ". Are you sure?")
                     .setPositiveButton("Lock", (dialog, which) -> startOrScheduleLockSession(
-                            preferences, lockDurationMillis, finalAbsoluteLockEndTimeMillis
+                            lockDurationMillis, finalAbsoluteLockEndTimeMillis
                     ))
                     .setNegativeButton("Cancel", null)
                     .show();
         } else {
-            startOrScheduleLockSession(preferences, lockDurationMillis, absoluteLockEndTimeMillis);
+            startOrScheduleLockSession(lockDurationMillis, absoluteLockEndTimeMillis);
         }
     }
 
-    private void startOrScheduleLockSession(SharedPreferences preferences, long lockDurationMillis,
-                                            @Nullable Long absoluteLockEndTimeMillis) {
+    private void startOrScheduleLockSession(long lockDurationMillis, @Nullable Long absoluteLockEndTimeMillis) {
         if (selectedStartDelayMinutes > 0) {
-            scheduleManualStart(preferences, lockDurationMillis, absoluteLockEndTimeMillis);
+            scheduleManualStart(lockDurationMillis, absoluteLockEndTimeMillis);
             return;
         }
-        startLockSession(preferences, lockDurationMillis);
+        startLockSession(lockDurationMillis);
     }
 
-    private void scheduleManualStart(SharedPreferences preferences, long lockDurationMillis,
-                                     @Nullable Long absoluteLockEndTimeMillis) {
+    private void scheduleManualStart(long lockDurationMillis, @Nullable Long absoluteLockEndTimeMillis) {
         if (ManualStartDelayScheduler.hasPendingSession(requireContext())) {
             updateLockButtonState();
             Toast.makeText(requireContext(), getPendingStartBlockedMessage(), Toast.LENGTH_SHORT).show();
@@ -1055,15 +1147,26 @@ public class HomeFragment extends Fragment {
                 requireContext(),
                 selectedStartDelayMinutes,
                 lockDurationMillis,
-                absoluteLockEndTimeMillis
+                absoluteLockEndTimeMillis,
+                getActiveCycleConfig()
         );
 
         if (!scheduled) {
-            Toast.makeText(requireContext(), "Couldn't schedule your focus session yet.", Toast.LENGTH_SHORT).show();
+            updateLockButtonState();
+            if (!AlarmPermissionManager.canScheduleExactAlarms(requireContext())
+                    && requireActivity() instanceof AppCompatActivity) {
+                // Revoked between the check above and arming the alarm
+                AlarmPermissionManager.requestExactAlarmPermission((AppCompatActivity) requireActivity());
+                return;
+            }
+            Toast.makeText(
+                    requireContext(),
+                    "Couldn't schedule your focus session. Start it now or try again.",
+                    Toast.LENGTH_LONG
+            ).show();
             return;
         }
 
-        preferences.edit().remove("current_session_source").apply();
         updateLockButtonState();
         Toast.makeText(
                 requireContext(),
@@ -1072,23 +1175,18 @@ public class HomeFragment extends Fragment {
         ).show();
     }
 
-    private void startLockSession(SharedPreferences preferences, long lockDurationMillis) {
+    private void startLockSession(long lockDurationMillis) {
         ManualStartDelayScheduler.cancelPendingSession(requireContext());
 
-        SharedPreferences.Editor editor = preferences.edit();
-
         long lockStartTime = System.currentTimeMillis();
-        long lockEndTime = lockStartTime + lockDurationMillis;
-        long uptimeAtLock = android.os.SystemClock.elapsedRealtime();
-
-        editor.putBoolean("isLocked", true);
-        editor.putLong("lockStartTime", lockStartTime);
-        editor.putLong("lockEndTime", lockEndTime);
-        editor.putLong("lockTargetDuration", lockDurationMillis);
-        editor.putLong("uptimeAtLock", uptimeAtLock);
-        editor.putBoolean("wasDeviceRestarted", false);
-        editor.putString("current_session_source", "manual");
-        editor.apply();
+        FocusSessionController.getInstance(requireContext()).lock(lockStartTime, lockDurationMillis, "manual");
+
+        FocusCyclePlan cyclePlan = FocusCyclePlan.fromConfig(getActiveCycleConfig(), lockStartTime);
+        if (cyclePlan != null) {
+            FocusCycleManager.start(requireContext(), cyclePlan);
+        } else {
+            FocusCycleManager.clear(requireContext());
+        }
 
         analyticsManager.startSession(lockDurationMillis, "manual");
 
@@ -1161,8 +1259,7 @@ public class HomeFragment extends Fragment {
     public void onResume() {
         super.onResume();
         // Enforce lock: if locked, redirect to lock screen
-        SharedPreferences preferences = requireActivity().getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        boolean isLocked = preferences.getBoolean("isLocked", false);
+        boolean isLocked = FocusSessionController.getInstance(requireContext()).isLocked();
         if (isLocked) {
             Intent lockIntent = new Intent(requireContext(), com.grepguru.zenlock.LockScreenActivity.class);
             lockIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
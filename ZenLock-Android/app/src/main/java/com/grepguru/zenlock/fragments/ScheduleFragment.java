@@ -3,7 +3,6 @@ package com.grepguru.zenlock.fragments;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Build;
 import android.os.Bundle;
 import android.provider.Settings;
@@ -24,9 +23,11 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.grepguru.zenlock.R;
+import com.grepguru.zenlock.data.repository.ScheduleRepository;
 import com.grepguru.zenlock.model.ScheduleModel;
 import com.grepguru.zenlock.utils.ScheduleManager;
 import com.grepguru.zenlock.utils.ScheduleActivator;
+import com.grepguru.zenlock.utils.FocusSessionController;
 import com.grepguru.zenlock.ui.adapter.ScheduleAdapter;
 import com.grepguru.zenlock.CreateScheduleDialog;
 
@@ -68,12 +69,18 @@ public class ScheduleFragment extends Fragment {
         setupRecyclerView();
         setupCreateButton();
         
-        // Load schedules
-        loadSchedules();
-        
         return view;
     }
     
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        // The repository publishes a fresh list after every change, including ones made by
+        // alarm handlers, so there is no need to reload after each edit or on resume
+        ScheduleRepository.getInstance(requireContext()).getSchedules()
+                .observe(getViewLifecycleOwner(), this::showSchedules);
+    }
+    
     private void initializeViews(View view) {
         // Create schedule button
         createScheduleBtn = view.findViewById(R.id.createScheduleBtn);
@@ -107,8 +114,6 @@ public class ScheduleFragment extends Fragment {
                         Toast.makeText(requireContext(), "Schedule deactivated: " + updatedSchedule.getName(), Toast.LENGTH_SHORT).show();
                     }
                 }
-                
-                loadSchedules();
             }
             
             @Override
@@ -130,27 +135,13 @@ public class ScheduleFragment extends Fragment {
         createScheduleBtn.setOnClickListener(v -> showCreateScheduleDialog());
     }
     
-    private void loadSchedules() {
-        Log.d(TAG, "Loading schedules...");
-        try {
-            schedules.clear();
-            List<ScheduleModel> allSchedules = scheduleManager.getAllSchedules();
-            Log.d(TAG, "Found " + allSchedules.size() + " schedules from manager");
-            
-            // Debug: Log each schedule
-            for (ScheduleModel schedule : allSchedules) {
-                Log.d(TAG, "Schedule: " + schedule.getName() + " (id=" + schedule.getId() + ", enabled=" + schedule.isEnabled() + ")");
-            }
-            
-            schedules.addAll(allSchedules);
-            scheduleAdapter.notifyDataSetChanged();
-            
-            updateEmptyState();
-            Log.d(TAG, "Schedules loaded: " + schedules.size());
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading schedules", e);
-            Toast.makeText(requireContext(), "Error loading schedules: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
+    private void showSchedules(List<ScheduleModel> allSchedules) {
+        schedules.clear();
+        schedules.addAll(allSchedules);
+        scheduleAdapter.notifyDataSetChanged();
+        
+        updateEmptyState();
+        Log.d(TAG, "Schedules shown: " + schedules.size());
     }
     
     private void updateEmptyState() {
@@ -186,16 +177,13 @@ public class ScheduleFragment extends Fragment {
                 );
                 
                 // Copy additional properties
-                newSchedule.setRepeatDays(schedule.getRepeatDays());
+                newSchedule.copyRecurrenceFrom(schedule);
                 newSchedule.setPreNotifyEnabled(schedule.isPreNotifyEnabled());
                 newSchedule.setPreNotifyMinutes(schedule.getPreNotifyMinutes());
                 
                 // Save the updated schedule
                 scheduleManager.updateSchedule(newSchedule);
                 
-                // Reload and display schedules
-                loadSchedules();
-                
                 // Activate the schedule if enabled
                 if (newSchedule.isEnabled()) {
                     scheduleActivator.scheduleSchedule(newSchedule);
@@ -215,7 +203,6 @@ public class ScheduleFragment extends Fragment {
             @Override
             public void onScheduleCreated(ScheduleModel updatedSchedule) {
                 scheduleManager.updateSchedule(updatedSchedule);
-                loadSchedules();
                 
                 // Reactivate the updated schedule if enabled
                 if (updatedSchedule.isEnabled()) {
@@ -235,7 +222,6 @@ public class ScheduleFragment extends Fragment {
         scheduleActivator.cancelSchedule(schedule);
         
         scheduleManager.deleteSchedule(schedule.getId());
-        loadSchedules();
         Toast.makeText(requireContext(), "Schedule deleted: " + schedule.getName(), Toast.LENGTH_SHORT).show();
     }
     
@@ -243,8 +229,7 @@ public class ScheduleFragment extends Fragment {
     public void onResume() {
         super.onResume();
         // Enforce lock: if locked, redirect to lock screen and prevent access
-        SharedPreferences preferences = requireActivity().getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        boolean isLocked = preferences.getBoolean("isLocked", false);
+        boolean isLocked = FocusSessionController.getInstance(requireContext()).isLocked();
         if (isLocked) {
             Intent lockIntent = new Intent(requireContext(), com.grepguru.zenlock.LockScreenActivity.class);
             lockIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
@@ -252,8 +237,6 @@ public class ScheduleFragment extends Fragment {
             requireActivity().finish();
             return;
         }
-
-        loadSchedules(); // Refresh when returning to fragment
     }
 
     private boolean checkSchedulePermissions() {
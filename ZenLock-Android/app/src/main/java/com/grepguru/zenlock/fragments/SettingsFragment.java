@@ -15,6 +15,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.RadioButton;
@@ -28,7 +29,11 @@ import androidx.appcompat.widget.SwitchCompat;
 import androidx.fragment.app.Fragment;
 
 import com.grepguru.zenlock.R;
+import com.grepguru.zenlock.DebugTools;
 import com.grepguru.zenlock.WhitelistActivity;
+import com.grepguru.zenlock.utils.DomainMatcher;
+import com.grepguru.zenlock.utils.FocusSessionController;
+import com.grepguru.zenlock.utils.SurfaceInspector;
 
 public class SettingsFragment extends Fragment {
 
@@ -62,6 +67,10 @@ public class SettingsFragment extends Fragment {
     // Allow Launcher/Home Screen during Lock toggle
     private SwitchCompat allowLauncherToggle;
 
+    // Sites and short-video surfaces blocked inside allowed apps
+    private SwitchCompat blockShortVideoToggle;
+    private TextView blockedSitesSummary;
+
     public SettingsFragment() {}
 
     @Nullable
@@ -193,9 +202,58 @@ public class SettingsFragment extends Fragment {
             editor.apply();
         });
 
+        // Block Short Videos toggle (default OFF)
+        blockShortVideoToggle = view.findViewById(R.id.blockShortVideoToggle);
+        blockShortVideoToggle.setChecked(preferences.getBoolean(SurfaceInspector.KEY_BLOCK_SHORT_VIDEO, false));
+        blockShortVideoToggle.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putBoolean(SurfaceInspector.KEY_BLOCK_SHORT_VIDEO, isChecked);
+            editor.apply();
+        });
+
+        // Blocked Websites
+        blockedSitesSummary = view.findViewById(R.id.blockedSitesSummary);
+        updateBlockedSitesSummary();
+        view.findViewById(R.id.blockedSitesRow).setOnClickListener(v -> showBlockedSitesDialog());
+
         return view;
     }
 
+    private void updateBlockedSitesSummary() {
+        int count = DomainMatcher.parse(preferences.getString(SurfaceInspector.KEY_BLOCKED_SITES, "")).size();
+        blockedSitesSummary.setText(count == 0 ? "None" : count + (count == 1 ? " site" : " sites") + " blocked in browsers");
+    }
+
+    private void showBlockedSitesDialog() {
+        EditText sitesInput = new EditText(requireContext());
+        sitesInput.setHint("youtube.com\nreddit.com");
+        sitesInput.setMinLines(3);
+        sitesInput.setText(preferences.getString(SurfaceInspector.KEY_BLOCKED_SITES, ""));
+        FrameLayout container = new FrameLayout(requireContext());
+        int padding = (int) (24 * getResources().getDisplayMetrics().density);
+        container.setPadding(padding, padding / 2, padding, 0);
+        container.addView(sitesInput);
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Blocked Websites")
+                .setMessage("One site per line. Subdomains are blocked too.")
+                .setView(container)
+                .setPositiveButton("Save", (dialog, which) -> {
+                    // Store the normalized hosts so the list reads back the way it is matched
+                    StringBuilder sites = new StringBuilder();
+                    for (String entry : sitesInput.getText().toString().split("[\\s,]+")) {
+                        String domain = DomainMatcher.normalize(entry);
+                        if (domain == null) continue;
+                        if (sites.length() > 0) sites.append('\n');
+                        sites.append(domain);
+                    }
+                    preferences.edit().putString(SurfaceInspector.KEY_BLOCKED_SITES, sites.toString()).apply();
+                    updateBlockedSitesSummary();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     private void setupListeners(View view) {
         Button whitelistButton = view.findViewById(R.id.whitelistButton);
 
@@ -206,6 +264,9 @@ public class SettingsFragment extends Fragment {
         feedbackCard.setOnClickListener(v -> openFeedbackEmail());
         supportDeveloperCard.setOnClickListener(v -> openSupportPage());
 
+        // Hidden entry to the analytics query profiler, debug builds only
+        DebugTools.attachEntryPoint(feedbackCard);
+
 
         // Toggle Motivational Quotes
         quotesToggle.setOnCheckedChangeListener((buttonView, isChecked) -> {
@@ -419,8 +480,7 @@ public class SettingsFragment extends Fragment {
     public void onResume() {
         super.onResume();
         // Enforce lock: if locked, redirect to lock screen and prevent access
-        SharedPreferences preferences = requireActivity().getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        boolean isLocked = preferences.getBoolean("isLocked", false);
+        boolean isLocked = FocusSessionController.getInstance(requireContext()).isLocked();
         if (isLocked) {
             Intent lockIntent = new Intent(requireContext(), com.grepguru.zenlock.LockScreenActivity.class);
             lockIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
@@ -0,0 +1,184 @@
+package com.grepguru.zenlock.model;
+
+import android.content.pm.ApplicationInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One line of the blocking policy, e.g.
+ *
+ *   allow com.spotify.music
+ *   block com.facebook.*
+ *   allow category:maps
+ *   block installer:com.sec.android.app.samsungapps
+ *   allow category:productivity @Deep Work
+ *
+ * A trailing "*" turns a package into a prefix, "@name" limits the rule to sessions started by
+ * the schedule of that name. Lines starting with "#" are comments. Rules never run per event;
+ * BlockingPolicy sorts them by precedence and compiles them into its decision table
+ */
+public final class BlockingRule {
+
+    public enum Kind {
+        // Least specific first; ordinal is the precedence rank
+        CATEGORY,
+        INSTALLER,
+        PREFIX,
+        PACKAGE
+    }
+
+    private static final String CATEGORY_PREFIX = "category:";
+    private static final String INSTALLER_PREFIX = "installer:";
+
+    // ApplicationInfo.CATEGORY_* by name, index = constant
+    private static final String[] CATEGORY_NAMES = {
+            "game", "audio", "video", "image", "social", "news", "maps", "productivity", "accessibility"
+    };
+
+    public final boolean allow;
+    public final Kind kind;
+    // Package, prefix (without "*") or installer package; unused for CATEGORY
+    public final String value;
+    // ApplicationInfo.CATEGORY_* for CATEGORY rules
+    public final int category;
+    // Schedule name, or null for every session
+    public final String schedule;
+
+    public BlockingRule(boolean allow, Kind kind, String value, int category, String schedule) {
+        this.allow = allow;
+        this.kind = kind;
+        this.value = value;
+        this.category = category;
+        this.schedule = schedule;
+    }
+
+    /**
+     * Parse one line, null for blanks, comments and anything malformed
+     */
+    public static BlockingRule parse(String line) {
+        if (line == null) return null;
+        String text = line.trim();
+        if (text.isEmpty() || text.startsWith("#")) return null;
+
+        String schedule = null;
+        int at = text.indexOf('@');
+        if (at >= 0) {
+            schedule = text.substring(at + 1).trim();
+            text = text.substring(0, at).trim();
+            if (schedule.isEmpty()) return null;
+        }
+
+        String[] parts = text.split("\\s+");
+        if (parts.length != 2) return null;
+        boolean allow;
+        if ("allow".equalsIgnoreCase(parts[0])) {
+            allow = true;
+        } else if ("block".equalsIgnoreCase(parts[0])) {
+            allow = false;
+        } else {
+            return null;
+        }
+
+        String target = parts[1];
+        String lower = target.toLowerCase(Locale.ROOT);
+        if (lower.startsWith(CATEGORY_PREFIX)) {
+            int category = categoryFor(lower.substring(CATEGORY_PREFIX.length()));
+            if (category == ApplicationInfo.CATEGORY_UNDEFINED) return null;
+            return new BlockingRule(allow, Kind.CATEGORY, null, category, schedule);
+        }
+        if (lower.startsWith(INSTALLER_PREFIX)) {
+            String installer = target.substring(INSTALLER_PREFIX.length());
+            if (installer.isEmpty()) return null;
+            return new BlockingRule(allow, Kind.INSTALLER, installer, ApplicationInfo.CATEGORY_UNDEFINED, schedule);
+        }
+        if (target.endsWith("*")) {
+            String prefix = target.substring(0, target.length() - 1);
+            if (prefix.isEmpty()) return null;
+            return new BlockingRule(allow, Kind.PREFIX, prefix, ApplicationInfo.CATEGORY_UNDEFINED, schedule);
+        }
+        return new BlockingRule(allow, Kind.PACKAGE, target, ApplicationInfo.CATEGORY_UNDEFINED, schedule);
+    }
+
+    /**
+     * Parse a whole policy text, skipping lines that are not rules
+     */
+    public static List<BlockingRule> parseAll(String text) {
+        if (text == null || text.isEmpty()) return Collections.emptyList();
+        List<BlockingRule> rules = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            BlockingRule rule = parse(line);
+            if (rule != null) rules.add(rule);
+        }
+        return rules;
+    }
+
+    private static int categoryFor(String name) {
+        for (int i = 0; i < CATEGORY_NAMES.length; i++) {
+            if (CATEGORY_NAMES[i].equals(name)) return i;
+        }
+        return ApplicationInfo.CATEGORY_UNDEFINED;
+    }
+
+    /**
+     * Applies in a session started from source ("manual" or "schedule:<name>")
+     */
+    public boolean appliesTo(String source) {
+        return schedule == null || (source != null && source.equals("schedule:" + schedule));
+    }
+
+    /**
+     * Matches a package; category and installer are only read by rules of those kinds
+     */
+    public boolean matches(String packageName, int appCategory, String installer) {
+        switch (kind) {
+            case PACKAGE:
+                return value.equals(packageName);
+            case PREFIX:
+                return packageName.startsWith(value);
+            case INSTALLER:
+                return value.equals(installer);
+            case CATEGORY:
+                return category == appCategory;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Positive if this rule wins over other: more specific kind, then schedule-scoped, then the
+     * longer prefix, then block over allow
+     */
+    public int comparePrecedence(BlockingRule other) {
+        if (kind != other.kind) return kind.ordinal() - other.kind.ordinal();
+        boolean scoped = schedule != null;
+        if (scoped != (other.schedule != null)) return scoped ? 1 : -1;
+        if (kind == Kind.PREFIX && value.length() != other.value.length()) {
+            return value.length() - other.value.length();
+        }
+        if (allow != other.allow) return allow ? -1 : 1;
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        String target;
+        switch (kind) {
+            case CATEGORY:
+                target = CATEGORY_PREFIX + (category >= 0 && category < CATEGORY_NAMES.length
+                        ? CATEGORY_NAMES[category] : String.valueOf(category));
+                break;
+            case INSTALLER:
+                target = INSTALLER_PREFIX + value;
+                break;
+            case PREFIX:
+                target = value + "*";
+                break;
+            default:
+                target = value;
+        }
+        return (allow ? "allow " : "block ") + target + (schedule != null ? " @" + schedule : "");
+    }
+}
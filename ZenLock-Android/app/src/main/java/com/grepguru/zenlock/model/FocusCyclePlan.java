@@ -0,0 +1,211 @@
+package com.grepguru.zenlock.model;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Pomodoro-style session plan: K focus blocks separated by short breaks, then an optional
+ * long break. Every transition is computed once when the plan is created, so finding the
+ * phase at an instant or the next transition is a binary search over a small array
+ */
+public final class FocusCyclePlan {
+
+    public enum Phase {
+        FOCUS,
+        BREAK,
+        LONG_BREAK;
+
+        public boolean isBreak() {
+            return this != FOCUS;
+        }
+    }
+
+    public static final int MAX_CYCLES = 12;
+
+    public final int focusMinutes;
+    public final int breakMinutes;
+    public final int cycles;
+    public final int longBreakMinutes;
+    public final long startMillis;
+
+    // segmentEnds[i] is the exclusive end of segment i; segment i starts at segmentEnds[i - 1]
+    private final long[] segmentEnds;
+    private final Phase[] phases;
+
+    private FocusCyclePlan(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes, long startMillis) {
+        this.focusMinutes = focusMinutes;
+        this.breakMinutes = breakMinutes;
+        this.cycles = cycles;
+        this.longBreakMinutes = longBreakMinutes;
+        this.startMillis = startMillis;
+
+        int count = segmentCount(breakMinutes, cycles, longBreakMinutes);
+        segmentEnds = new long[count];
+        phases = new Phase[count];
+        long at = startMillis;
+        int i = 0;
+        for (int cycle = 0; cycle < cycles; cycle++) {
+            at += focusMinutes * 60_000L;
+            phases[i] = Phase.FOCUS;
+            segmentEnds[i++] = at;
+            if (cycle < cycles - 1 && breakMinutes > 0) {
+                at += breakMinutes * 60_000L;
+                phases[i] = Phase.BREAK;
+                segmentEnds[i++] = at;
+            }
+        }
+        if (longBreakMinutes > 0) {
+            at += longBreakMinutes * 60_000L;
+            phases[i] = Phase.LONG_BREAK;
+            segmentEnds[i] = at;
+        }
+    }
+
+    /**
+     * Build a plan starting at startMillis; null if the configuration isn't a valid cycle
+     */
+    @Nullable
+    public static FocusCyclePlan create(int focusMinutes, int breakMinutes, int cycles,
+                                        int longBreakMinutes, long startMillis) {
+        if (!isValid(focusMinutes, breakMinutes, cycles, longBreakMinutes)) return null;
+        return new FocusCyclePlan(focusMinutes, breakMinutes, cycles, longBreakMinutes, startMillis);
+    }
+
+    public static boolean isValid(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes) {
+        return focusMinutes > 0 && breakMinutes >= 0 && longBreakMinutes >= 0
+                && cycles >= 1 && cycles <= MAX_CYCLES;
+    }
+
+    /**
+     * Length of the whole plan in minutes, breaks included
+     */
+    public static int totalMinutes(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes) {
+        return focusMinutes * cycles + breakMinutes * Math.max(0, cycles - 1) + longBreakMinutes;
+    }
+
+    private static int segmentCount(int breakMinutes, int cycles, int longBreakMinutes) {
+        return cycles + (breakMinutes > 0 ? cycles - 1 : 0) + (longBreakMinutes > 0 ? 1 : 0);
+    }
+
+    // =====================================
+    // QUERIES
+    // =====================================
+
+    public long getEndMillis() {
+        return segmentEnds[segmentEnds.length - 1];
+    }
+
+    public int getSegmentCount() {
+        return segmentEnds.length;
+    }
+
+    /**
+     * Index of the segment containing the instant, -1 before the start, getSegmentCount() after the end
+     */
+    public int segmentAt(long millis) {
+        if (millis < startMillis) return -1;
+        int index = Arrays.binarySearch(segmentEnds, millis);
+        // An exact hit is the end of that segment, i.e. the start of the next one
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Phase at the instant, null outside the plan
+     */
+    @Nullable
+    public Phase phaseAt(long millis) {
+        int segment = segmentAt(millis);
+        return segment < 0 || segment >= phases.length ? null : phases[segment];
+    }
+
+    public Phase getPhase(int segment) {
+        return phases[segment];
+    }
+
+    public long getSegmentStart(int segment) {
+        return segment == 0 ? startMillis : segmentEnds[segment - 1];
+    }
+
+    public long getSegmentEnd(int segment) {
+        return segmentEnds[segment];
+    }
+
+    /**
+     * 1-based number of the focus block a segment belongs to (breaks count with the block before them)
+     */
+    public int cycleNumberOf(int segment) {
+        int stride = breakMinutes > 0 ? 2 : 1;
+        return Math.min(cycles, segment / stride + 1);
+    }
+
+    /**
+     * First transition (including the end of the plan) at or after the instant, -1 if none
+     */
+    public long nextTransitionAtOrAfter(long millis) {
+        int index = Arrays.binarySearch(segmentEnds, millis);
+        if (index >= 0) return segmentEnds[index];
+        int insertion = -index - 1;
+        return insertion < segmentEnds.length ? segmentEnds[insertion] : -1L;
+    }
+
+    // =====================================
+    // PERSISTENCE
+    // =====================================
+
+    /**
+     * "focus,break,cycles,longBreak", the configuration without a start time
+     */
+    public static String encodeConfig(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes) {
+        return focusMinutes + "," + breakMinutes + "," + cycles + "," + longBreakMinutes;
+    }
+
+    /**
+     * Plan for an encodeConfig() string starting at startMillis; null if malformed
+     */
+    @Nullable
+    public static FocusCyclePlan fromConfig(@Nullable String config, long startMillis) {
+        if (config == null || config.isEmpty()) return null;
+        String[] parts = config.split(",");
+        if (parts.length != 4) return null;
+        try {
+            return create(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), startMillis);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String encode() {
+        return startMillis + ";" + encodeConfig(focusMinutes, breakMinutes, cycles, longBreakMinutes);
+    }
+
+    @Nullable
+    public static FocusCyclePlan decode(@Nullable String encoded) {
+        if (encoded == null) return null;
+        int separator = encoded.indexOf(';');
+        if (separator <= 0) return null;
+        try {
+            return fromConfig(encoded.substring(separator + 1), Long.parseLong(encoded.substring(0, separator)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Short summary, e.g. "4 × 25m focus, 5m breaks, 15m long break"
+     */
+    public static String describe(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes) {
+        StringBuilder text = new StringBuilder();
+        text.append(cycles).append(" × ").append(focusMinutes).append("m focus");
+        if (cycles > 1 && breakMinutes > 0) text.append(", ").append(breakMinutes).append("m breaks");
+        if (longBreakMinutes > 0) text.append(", ").append(longBreakMinutes).append("m long break");
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "FocusCyclePlan{" + describe(focusMinutes, breakMinutes, cycles, longBreakMinutes)
+                + " from " + startMillis + "}";
+    }
+}
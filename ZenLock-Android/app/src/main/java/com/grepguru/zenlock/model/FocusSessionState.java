@@ -0,0 +1,132 @@
+package com.grepguru.zenlock.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Immutable snapshot of the focus session state machine, one per transition
+ *
+ * IDLE -> PENDING (delayed manual start) -> LOCKED -> EXPIRED (timer ran out) or UNLOCKED
+ * (ended early). A snapshot is also the journal record the controller persists, so
+ * toRecord()/fromRecord() must stay backward compatible; bump RECORD_VERSION when adding fields
+ */
+public final class FocusSessionState {
+
+    public enum Stage {
+        IDLE,
+        PENDING,
+        LOCKED,
+        EXPIRED,
+        UNLOCKED
+    }
+
+    private static final int RECORD_VERSION = 1;
+
+    public static final FocusSessionState IDLE = new FocusSessionState(Stage.IDLE, 0, 0, 0, -1, false, "");
+
+    public final Stage stage;
+    // Lock start, or the planned start while PENDING
+    public final long startTime;
+    public final long endTime;
+    // Full planned length including extensions, 0 if unknown (sessions from old installs)
+    public final long targetDuration;
+    // SystemClock.elapsedRealtime() when locked, a larger value than now means a reboot
+    public final long uptimeAtLock;
+    public final boolean deviceRestarted;
+    // "manual" or "schedule:<name>"
+    public final String source;
+
+    public FocusSessionState(Stage stage, long startTime, long endTime, long targetDuration,
+                             long uptimeAtLock, boolean deviceRestarted, String source) {
+        this.stage = stage;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.targetDuration = targetDuration;
+        this.uptimeAtLock = uptimeAtLock;
+        this.deviceRestarted = deviceRestarted;
+        this.source = source != null ? source : "";
+    }
+
+    public boolean isLocked() {
+        return stage == Stage.LOCKED;
+    }
+
+    public boolean isPending() {
+        return stage == Stage.PENDING;
+    }
+
+    /**
+     * Locked with time left at now
+     */
+    public boolean isLockedAt(long now) {
+        return stage == Stage.LOCKED && endTime > now;
+    }
+
+    /**
+     * Planned length for progress display, falling back to start/end or the time left
+     */
+    public long getEffectiveTargetDuration(long now) {
+        if (targetDuration > 0) return targetDuration;
+        if (startTime > 0 && endTime > startTime) return endTime - startTime;
+        return Math.max(0L, endTime - now);
+    }
+
+    public FocusSessionState withStage(Stage newStage) {
+        return new FocusSessionState(newStage, startTime, endTime, targetDuration, uptimeAtLock, deviceRestarted, source);
+    }
+
+    public FocusSessionState withEndTime(long newEndTime, long newTargetDuration) {
+        return new FocusSessionState(stage, startTime, newEndTime, newTargetDuration, uptimeAtLock, deviceRestarted, source);
+    }
+
+    public FocusSessionState withRestart(long newUptimeAtLock, boolean restarted) {
+        return new FocusSessionState(stage, startTime, endTime, targetDuration, newUptimeAtLock, restarted, source);
+    }
+
+    // =====================================
+    // RECORD ENCODING
+    // =====================================
+
+    public byte[] toRecord() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_VERSION);
+            out.writeByte(stage.ordinal());
+            out.writeLong(startTime);
+            out.writeLong(endTime);
+            out.writeLong(targetDuration);
+            out.writeLong(uptimeAtLock);
+            out.writeBoolean(deviceRestarted);
+            out.writeUTF(source);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a journal record, null if it is from an unknown version or malformed
+     */
+    public static FocusSessionState fromRecord(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            if (in.readByte() != RECORD_VERSION) return null;
+            int ordinal = in.readByte();
+            Stage[] stages = Stage.values();
+            if (ordinal < 0 || ordinal >= stages.length) return null;
+            return new FocusSessionState(stages[ordinal], in.readLong(), in.readLong(), in.readLong(),
+                    in.readLong(), in.readBoolean(), in.readUTF());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return stage + "[" + startTime + ".." + endTime + ", target=" + targetDuration
+                + (deviceRestarted ? ", restarted" : "") + ", source=" + source + "]";
+    }
+}
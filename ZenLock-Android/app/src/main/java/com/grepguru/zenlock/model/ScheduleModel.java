@@ -1,8 +1,9 @@
 package com.grepguru.zenlock.model;
 
+import com.grepguru.zenlock.utils.ScheduleRecurrence;
+
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Model class for ZenLock schedules
@@ -22,12 +23,26 @@ public class ScheduleModel {
     
     // Repeat configuration
     private RepeatType repeatType;
-    private Set<Integer> repeatDays; // Calendar.DAY_OF_WEEK values (1=Sunday, 2=Monday, etc.)
+    private int repeatDaysMask; // Bit (Calendar.DAY_OF_WEEK - 1), bit 0 = Sunday
+    private int repeatIntervalWeeks; // Weekly schedules run every N weeks
+    private int anchorEpochDay; // Week that every-N-weeks counting starts from
+    private int startEpochDay; // First local day the schedule may run, 0 = no limit
+    private int endEpochDay; // Last local day the schedule may run, 0 = no limit
+    private int[] excludedEpochDays; // Sorted local days to skip
     
     // Notification settings
     private boolean preNotifyEnabled;
     private int preNotifyMinutes; // Minutes before start time
     
+    // Focus cycle, cycleCount 0 = plain session
+    private int cycleFocusMinutes;
+    private int cycleBreakMinutes;
+    private int cycleCount;
+    private int cycleLongBreakMinutes;
+    
+    // Allowlist profile for this schedule's sessions, 0 = the manual session's profile
+    private int allowlistProfileId;
+    
     // Timestamps
     private long createdAt;
     private long lastModified;
@@ -53,13 +68,45 @@ public class ScheduleModel {
         this.id = generateId();
         this.isEnabled = true;
         this.repeatType = RepeatType.DAILY;
-        this.repeatDays = new HashSet<>();
+        this.repeatDaysMask = ScheduleRecurrence.MASK_NONE;
+        this.repeatIntervalWeeks = 1;
+        this.excludedEpochDays = ScheduleRecurrence.NO_EXCLUSIONS;
         this.preNotifyEnabled = false;
         this.preNotifyMinutes = 5;
         this.createdAt = System.currentTimeMillis();
         this.lastModified = System.currentTimeMillis();
     }
     
+    /**
+     * Field-for-field copy, including id and timestamps
+     */
+    public ScheduleModel copy() {
+        ScheduleModel copy = new ScheduleModel();
+        copy.id = id;
+        copy.name = name;
+        copy.isEnabled = isEnabled;
+        copy.startHour = startHour;
+        copy.startMinute = startMinute;
+        copy.focusDurationMinutes = focusDurationMinutes;
+        copy.repeatType = repeatType;
+        copy.repeatDaysMask = repeatDaysMask;
+        copy.repeatIntervalWeeks = repeatIntervalWeeks;
+        copy.anchorEpochDay = anchorEpochDay;
+        copy.startEpochDay = startEpochDay;
+        copy.endEpochDay = endEpochDay;
+        copy.excludedEpochDays = excludedEpochDays; // Never mutated in place
+        copy.preNotifyEnabled = preNotifyEnabled;
+        copy.preNotifyMinutes = preNotifyMinutes;
+        copy.cycleFocusMinutes = cycleFocusMinutes;
+        copy.cycleBreakMinutes = cycleBreakMinutes;
+        copy.cycleCount = cycleCount;
+        copy.cycleLongBreakMinutes = cycleLongBreakMinutes;
+        copy.allowlistProfileId = allowlistProfileId;
+        copy.createdAt = createdAt;
+        copy.lastModified = lastModified;
+        return copy;
+    }
+    
     // Generate unique ID
     private int generateId() {
         return (int) (System.currentTimeMillis() % Integer.MAX_VALUE);
@@ -105,9 +152,60 @@ public class ScheduleModel {
         this.lastModified = System.currentTimeMillis();
     }
     
-    public Set<Integer> getRepeatDays() { return repeatDays; }
-    public void setRepeatDays(Set<Integer> repeatDays) { 
-        this.repeatDays = repeatDays; 
+    public int getRepeatDaysMask() { return repeatDaysMask; }
+    public void setRepeatDaysMask(int repeatDaysMask) { 
+        this.repeatDaysMask = repeatDaysMask & ScheduleRecurrence.MASK_ALL_DAYS; 
+        this.lastModified = System.currentTimeMillis();
+    }
+    
+    public boolean hasRepeatDay(int calendarDayOfWeek) {
+        return ScheduleRecurrence.hasDay(repeatDaysMask, calendarDayOfWeek);
+    }
+    
+    public void addRepeatDay(int calendarDayOfWeek) {
+        setRepeatDaysMask(repeatDaysMask | ScheduleRecurrence.bitFor(calendarDayOfWeek));
+    }
+    
+    public int getRepeatIntervalWeeks() { return repeatIntervalWeeks; }
+    public int getAnchorEpochDay() { return anchorEpochDay; }
+    
+    /** Run every intervalWeeks weeks, counting from the week containing anchorEpochDay */
+    public void setRepeatInterval(int intervalWeeks, int anchorEpochDay) {
+        this.repeatIntervalWeeks = Math.max(1, intervalWeeks);
+        this.anchorEpochDay = anchorEpochDay;
+        this.lastModified = System.currentTimeMillis();
+    }
+    
+    public int getStartEpochDay() { return startEpochDay; }
+    public int getEndEpochDay() { return endEpochDay; }
+    
+    /** Limit the schedule to a range of local epoch days, ScheduleRecurrence.NO_DATE for open ends */
+    public void setDateRange(int startEpochDay, int endEpochDay) {
+        this.startEpochDay = startEpochDay;
+        this.endEpochDay = endEpochDay;
+        this.lastModified = System.currentTimeMillis();
+    }
+    
+    public int[] getExcludedEpochDays() { return excludedEpochDays; }
+    public void setExcludedEpochDays(int[] excludedEpochDays) {
+        if (excludedEpochDays == null || excludedEpochDays.length == 0) {
+            this.excludedEpochDays = ScheduleRecurrence.NO_EXCLUSIONS;
+        } else {
+            int[] sorted = excludedEpochDays.clone();
+            Arrays.sort(sorted);
+            this.excludedEpochDays = sorted;
+        }
+        this.lastModified = System.currentTimeMillis();
+    }
+    
+    /** Copy the repeat days, interval, date range and exclusions of another schedule */
+    public void copyRecurrenceFrom(ScheduleModel other) {
+        this.repeatDaysMask = other.repeatDaysMask;
+        this.repeatIntervalWeeks = other.repeatIntervalWeeks;
+        this.anchorEpochDay = other.anchorEpochDay;
+        this.startEpochDay = other.startEpochDay;
+        this.endEpochDay = other.endEpochDay;
+        this.excludedEpochDays = other.excludedEpochDays;
         this.lastModified = System.currentTimeMillis();
     }
     
@@ -123,6 +221,49 @@ public class ScheduleModel {
         this.lastModified = System.currentTimeMillis();
     }
     
+    public int getCycleFocusMinutes() { return cycleFocusMinutes; }
+    public int getCycleBreakMinutes() { return cycleBreakMinutes; }
+    public int getCycleCount() { return cycleCount; }
+    public int getCycleLongBreakMinutes() { return cycleLongBreakMinutes; }
+    
+    public boolean hasFocusCycle() {
+        return cycleCount > 0
+                && FocusCyclePlan.isValid(cycleFocusMinutes, cycleBreakMinutes, cycleCount, cycleLongBreakMinutes);
+    }
+    
+    /**
+     * Run the session as focus/break cycles; focusDurationMinutes should be the plan's total length
+     */
+    public void setFocusCycle(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes) {
+        this.cycleFocusMinutes = focusMinutes;
+        this.cycleBreakMinutes = breakMinutes;
+        this.cycleCount = cycles;
+        this.cycleLongBreakMinutes = longBreakMinutes;
+        this.lastModified = System.currentTimeMillis();
+    }
+    
+    public void clearFocusCycle() {
+        this.cycleFocusMinutes = 0;
+        this.cycleBreakMinutes = 0;
+        this.cycleCount = 0;
+        this.cycleLongBreakMinutes = 0;
+        this.lastModified = System.currentTimeMillis();
+    }
+    
+    /**
+     * Cycle plan for an occurrence starting at startMillis, null for a plain session
+     */
+    public FocusCyclePlan createCyclePlan(long startMillis) {
+        if (!hasFocusCycle()) return null;
+        return FocusCyclePlan.create(cycleFocusMinutes, cycleBreakMinutes, cycleCount, cycleLongBreakMinutes, startMillis);
+    }
+    
+    public int getAllowlistProfileId() { return allowlistProfileId; }
+    public void setAllowlistProfileId(int allowlistProfileId) {
+        this.allowlistProfileId = allowlistProfileId;
+        this.lastModified = System.currentTimeMillis();
+    }
+    
     public long getCreatedAt() { return createdAt; }
     public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
     
@@ -163,16 +304,12 @@ public class ScheduleModel {
             case DAILY:
                 return "Daily";
             case WEEKLY:
-                if (repeatDays.isEmpty()) {
-                    return "Weekly";
-                }
-                StringBuilder days = new StringBuilder();
-                String[] dayNames = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
-                for (int day : repeatDays) {
-                    if (days.length() > 0) days.append(", ");
-                    days.append(dayNames[day - 1]);
+                String days = repeatDaysMask == ScheduleRecurrence.MASK_NONE
+                        ? "Weekly" : ScheduleRecurrence.describeDays(repeatDaysMask);
+                if (repeatIntervalWeeks > 1) {
+                    days += " every " + repeatIntervalWeeks + " weeks";
                 }
-                return days.toString();
+                return days;
             default:
                 return "Unknown";
         }
@@ -0,0 +1,97 @@
+package com.grepguru.zenlock.ui;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.NumberPicker;
+import android.widget.TextView;
+
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.grepguru.zenlock.R;
+import com.grepguru.zenlock.model.FocusCyclePlan;
+
+/**
+ * Picker for a focus cycle (focus length, break length, rounds, long break), shared by the
+ * home screen and the schedule dialog
+ */
+public final class CycleConfigDialog {
+
+    public interface Listener {
+        void onCycleSet(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes);
+
+        void onCycleOff();
+    }
+
+    private static final int[] FOCUS_OPTIONS = {10, 15, 20, 25, 30, 40, 45, 50, 60, 90};
+    private static final int[] BREAK_OPTIONS = {0, 3, 5, 10, 15, 20};
+    private static final int[] LONG_BREAK_OPTIONS = {0, 10, 15, 20, 30, 45};
+
+    public static final int DEFAULT_FOCUS_MINUTES = 25;
+    public static final int DEFAULT_BREAK_MINUTES = 5;
+    public static final int DEFAULT_CYCLES = 4;
+    public static final int DEFAULT_LONG_BREAK_MINUTES = 15;
+
+    private CycleConfigDialog() {}
+
+    public static void show(Context context, int focusMinutes, int breakMinutes, int cycles,
+                            int longBreakMinutes, Listener listener) {
+        View dialogView = LayoutInflater.from(context).inflate(R.layout.dialog_cycle_picker, null);
+        TextView summary = dialogView.findViewById(R.id.cycleSummary);
+        NumberPicker focusPicker = dialogView.findViewById(R.id.cycleFocusPicker);
+        NumberPicker breakPicker = dialogView.findViewById(R.id.cycleBreakPicker);
+        NumberPicker countPicker = dialogView.findViewById(R.id.cycleCountPicker);
+        NumberPicker longBreakPicker = dialogView.findViewById(R.id.cycleLongBreakPicker);
+
+        setup(focusPicker, FOCUS_OPTIONS, focusMinutes);
+        setup(breakPicker, BREAK_OPTIONS, breakMinutes);
+        setup(longBreakPicker, LONG_BREAK_OPTIONS, longBreakMinutes);
+        countPicker.setMinValue(1);
+        countPicker.setMaxValue(FocusCyclePlan.MAX_CYCLES);
+        countPicker.setValue(Math.max(1, Math.min(FocusCyclePlan.MAX_CYCLES, cycles)));
+
+        Runnable updateSummary = () -> summary.setText(describeWithTotal(
+                FOCUS_OPTIONS[focusPicker.getValue()],
+                BREAK_OPTIONS[breakPicker.getValue()],
+                countPicker.getValue(),
+                LONG_BREAK_OPTIONS[longBreakPicker.getValue()]));
+        NumberPicker.OnValueChangeListener onChange = (picker, oldVal, newVal) -> updateSummary.run();
+        focusPicker.setOnValueChangedListener(onChange);
+        breakPicker.setOnValueChangedListener(onChange);
+        countPicker.setOnValueChangedListener(onChange);
+        longBreakPicker.setOnValueChangedListener(onChange);
+        updateSummary.run();
+
+        new MaterialAlertDialogBuilder(context, R.style.ModernAlertDialog)
+                .setView(dialogView)
+                .setPositiveButton("Set", (dialog, which) -> listener.onCycleSet(
+                        FOCUS_OPTIONS[focusPicker.getValue()],
+                        BREAK_OPTIONS[breakPicker.getValue()],
+                        countPicker.getValue(),
+                        LONG_BREAK_OPTIONS[longBreakPicker.getValue()]))
+                .setNeutralButton("Off", (dialog, which) -> listener.onCycleOff())
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Summary plus the total length, e.g. "4 × 25m focus, 5m breaks · 2h 10m"
+     */
+    public static String describeWithTotal(int focusMinutes, int breakMinutes, int cycles, int longBreakMinutes) {
+        int total = FocusCyclePlan.totalMinutes(focusMinutes, breakMinutes, cycles, longBreakMinutes);
+        String length = total >= 60 ? (total / 60) + "h " + (total % 60) + "m" : total + "m";
+        return FocusCyclePlan.describe(focusMinutes, breakMinutes, cycles, longBreakMinutes) + " · " + length;
+    }
+
+    private static void setup(NumberPicker picker, int[] options, int current) {
+        String[] labels = new String[options.length];
+        int selected = 0;
+        for (int i = 0; i < options.length; i++) {
+            labels[i] = String.valueOf(options[i]);
+            if (options[i] == current) selected = i;
+        }
+        picker.setMinValue(0);
+        picker.setMaxValue(options.length - 1);
+        picker.setDisplayedValues(labels);
+        picker.setValue(selected);
+    }
+}
@@ -11,6 +11,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.grepguru.zenlock.R;
 import com.grepguru.zenlock.model.SelectableAppModel;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class WhitelistAdapter extends RecyclerView.Adapter<WhitelistAdapter.ViewHolder> {
@@ -18,11 +19,18 @@ public class WhitelistAdapter extends RecyclerView.Adapter<WhitelistAdapter.View
     private Set<String> selectedApps;
     private int maxAdditionalApps; // Configurable max additional selectable apps
     private OnSelectionChangeListener selectionChangeListener;
+    private Map<String, Integer> sessionBudgets; // Session time limits in minutes, shown under the name
+    private Map<String, Integer> dailyLimits; // Daily limits in minutes, shown under the name
+    private OnLimitRequestListener limitRequestListener;
 
     public interface OnSelectionChangeListener {
         void onSelectionChanged();
     }
 
+    public interface OnLimitRequestListener {
+        void onLimitRequested(SelectableAppModel app);
+    }
+
     public WhitelistAdapter(List<SelectableAppModel> appList, Set<String> selectedApps, int maxAdditionalApps) {
         this.appList = appList;
         this.selectedApps = selectedApps;
@@ -33,6 +41,13 @@ public class WhitelistAdapter extends RecyclerView.Adapter<WhitelistAdapter.View
         this.selectionChangeListener = listener;
     }
 
+    public void setTimeLimits(Map<String, Integer> sessionBudgets, Map<String, Integer> dailyLimits,
+                              OnLimitRequestListener listener) {
+        this.sessionBudgets = sessionBudgets;
+        this.dailyLimits = dailyLimits;
+        this.limitRequestListener = listener;
+    }
+
     public void updateAppList(List<SelectableAppModel> newAppList) {
         this.appList = newAppList;
         notifyDataSetChanged();
@@ -61,6 +76,23 @@ public class WhitelistAdapter extends RecyclerView.Adapter<WhitelistAdapter.View
         } else {
             holder.appPackage.setVisibility(View.GONE);
         }
+
+        // Time limits, set with a long press
+        Integer budgetMinutes = sessionBudgets != null ? sessionBudgets.get(app.getPackageName()) : null;
+        Integer dailyMinutes = dailyLimits != null ? dailyLimits.get(app.getPackageName()) : null;
+        if (budgetMinutes != null || dailyMinutes != null) {
+            StringBuilder limits = new StringBuilder("⏱ ");
+            if (budgetMinutes != null) limits.append(budgetMinutes).append(" min per session");
+            if (budgetMinutes != null && dailyMinutes != null) limits.append(" · ");
+            if (dailyMinutes != null) limits.append(dailyMinutes).append(" min a day");
+            holder.appPackage.setText(limits);
+            holder.appPackage.setVisibility(View.VISIBLE);
+        }
+        holder.itemView.setOnLongClickListener(v -> {
+            if (limitRequestListener == null) return false;
+            limitRequestListener.onLimitRequested(app);
+            return true;
+        });
         
         holder.appCheckBox.setOnCheckedChangeListener(null);
         
@@ -0,0 +1,333 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.grepguru.zenlock.data.dao.AllowlistProfileDao;
+import com.grepguru.zenlock.data.database.ScheduleDatabase;
+import com.grepguru.zenlock.data.entities.AllowlistProfileEntity;
+import com.grepguru.zenlock.data.entities.AppEntity;
+import com.grepguru.zenlock.data.repository.ScheduleRepository;
+import com.grepguru.zenlock.model.FocusSessionState;
+import com.grepguru.zenlock.model.ScheduleModel;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Named allowlists (Work, Study, Sleep...) picked per schedule or for manual sessions
+ *
+ * A profile is a BitSet over AppCatalog app ids, loaded once from ScheduleDatabase. When a
+ * session locks, the profile for its source becomes the active one by swapping a reference, and
+ * membership is a bit test on that set, so schedules switching profiles never rebuild string
+ * sets or ask PackageManager anything. Sets are never modified once published; save() replaces
+ * them. The first load imports the old single whitelisted_apps set as the "Default" profile
+ */
+public final class AllowlistProfiles {
+
+    private static final String TAG = "AllowlistProfiles";
+    private static final String PREFS_NAME = "FocusLockPrefs";
+    private static final String KEY_MANUAL_PROFILE = "manual_allowlist_profile";
+    private static final String KEY_LEGACY_WHITELIST = "whitelisted_apps";
+    private static final String SCHEDULE_SOURCE_PREFIX = "schedule:";
+
+    public static final int DEFAULT_PROFILE_ID = 1;
+    private static final String DEFAULT_PROFILE_NAME = "Default";
+
+    /**
+     * Immutable profile snapshot
+     */
+    public static final class Profile {
+        public final int id;
+        public final String name;
+        // App ids; never mutated after construction
+        final BitSet apps;
+
+        Profile(int id, String name, BitSet apps) {
+            this.id = id;
+            this.name = name;
+            this.apps = apps;
+        }
+
+        public int size() {
+            return apps.cardinality();
+        }
+    }
+
+    public interface Listener {
+        /**
+         * The active profile was switched or its apps were saved
+         */
+        void onActiveProfileChanged(Profile profile);
+    }
+
+    private static volatile AllowlistProfiles INSTANCE;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final AllowlistProfileDao dao;
+    private final AppCatalog catalog;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private final TreeMap<Integer, Profile> profiles = new TreeMap<>();
+    private int nextId = DEFAULT_PROFILE_ID + 1;
+
+    private volatile Profile active;
+
+    private final FocusSessionController.Listener sessionListener = this::onSessionStateChanged;
+
+    private AllowlistProfiles(Context context) {
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        dao = ScheduleDatabase.getDatabase(appContext).allowlistProfileDao();
+        catalog = AppCatalog.getInstance(appContext);
+        load();
+
+        FocusSessionController controller = FocusSessionController.getInstance(appContext);
+        FocusSessionState state = controller.getState();
+        active = getProfile(state.isLocked() ? profileIdFor(state.source) : getManualProfileId());
+        controller.addListener(sessionListener);
+    }
+
+    public static AllowlistProfiles getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (AllowlistProfiles.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AllowlistProfiles(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // =====================================
+    // READS
+    // =====================================
+
+    /**
+     * Profile of the running session, or the manual one when nothing is locked
+     */
+    public Profile getActiveProfile() {
+        return active;
+    }
+
+    /**
+     * Whether an AppCatalog id is in the active profile
+     */
+    public boolean isActive(int appId) {
+        return appId >= 0 && active.apps.get(appId);
+    }
+
+    /**
+     * Whether a package is in the active profile; never interns it
+     */
+    public boolean isInActiveProfile(String packageName) {
+        return packageName != null && isActive(catalog.findAppId(packageName));
+    }
+
+    public Set<String> getActivePackages() {
+        return packagesOf(active);
+    }
+
+    public Set<String> getPackages(int profileId) {
+        return packagesOf(getProfile(profileId));
+    }
+
+    /**
+     * All profiles ordered by id, the default one first
+     */
+    public synchronized List<Profile> getProfiles() {
+        return Collections.unmodifiableList(new ArrayList<>(profiles.values()));
+    }
+
+    /**
+     * A profile by id, falling back to the default one if it was deleted
+     */
+    public synchronized Profile getProfile(int profileId) {
+        Profile profile = profiles.get(profileId);
+        return profile != null ? profile : profiles.get(DEFAULT_PROFILE_ID);
+    }
+
+    /**
+     * Profile for manual sessions and for schedules without one of their own
+     */
+    public int getManualProfileId() {
+        return prefs.getInt(KEY_MANUAL_PROFILE, DEFAULT_PROFILE_ID);
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // =====================================
+    // WRITES
+    // =====================================
+
+    public void setManualProfileId(int profileId) {
+        prefs.edit().putInt(KEY_MANUAL_PROFILE, profileId).apply();
+        if (!FocusSessionController.getInstance(appContext).isLocked()) {
+            activate(getProfile(profileId));
+        }
+    }
+
+    /**
+     * Add an empty profile and return its id
+     */
+    public int create(String name) {
+        Profile profile;
+        synchronized (this) {
+            profile = new Profile(nextId++, name, new BitSet());
+            profiles.put(profile.id, profile);
+        }
+        persist(profile);
+        return profile.id;
+    }
+
+    /**
+     * Replace a profile's apps, interning packages the catalog has not seen yet
+     */
+    public void save(int profileId, Set<String> packages) {
+        BitSet apps = toBits(packages);
+        Profile profile;
+        boolean wasActive;
+        synchronized (this) {
+            Profile old = profiles.get(profileId);
+            if (old == null) return;
+            profile = new Profile(profileId, old.name, apps);
+            profiles.put(profileId, profile);
+            wasActive = active.id == profileId;
+        }
+        if (wasActive) activate(profile);
+        persist(profile);
+    }
+
+    /**
+     * Remove a profile; the default one can't be deleted. Schedules still pointing at it use
+     * the manual session's profile
+     */
+    public boolean delete(int profileId) {
+        if (profileId == DEFAULT_PROFILE_ID) return false;
+        Profile fallback;
+        synchronized (this) {
+            if (profiles.remove(profileId) == null) return false;
+            fallback = active.id == profileId ? profiles.get(DEFAULT_PROFILE_ID) : null;
+        }
+        if (fallback != null) activate(fallback);
+        if (getManualProfileId() == profileId) {
+            prefs.edit().remove(KEY_MANUAL_PROFILE).apply();
+        }
+        writer.execute(() -> {
+            try {
+                dao.deleteById(profileId);
+            } catch (Exception e) {
+                Log.e(TAG, "Error deleting allowlist profile " + profileId, e);
+            }
+        });
+        return true;
+    }
+
+    // =====================================
+    // INTERNALS
+    // =====================================
+
+    private void onSessionStateChanged(FocusSessionState previous, FocusSessionState current) {
+        if (previous.isLocked() == current.isLocked() && previous.source.equals(current.source)) return;
+        Profile next = getProfile(current.isLocked() ? profileIdFor(current.source) : getManualProfileId());
+        if (next != active) {
+            activate(next);
+            Log.d(TAG, "Active allowlist: " + next.name + " (" + next.size() + " apps)");
+        }
+    }
+
+    private void activate(Profile profile) {
+        active = profile;
+        for (Listener listener : listeners) {
+            listener.onActiveProfileChanged(profile);
+        }
+    }
+
+    /**
+     * The schedule's own profile for "schedule:<name>" sources if it still exists, otherwise
+     * the manual one
+     */
+    private int profileIdFor(String source) {
+        if (source != null && source.startsWith(SCHEDULE_SOURCE_PREFIX)) {
+            String name = source.substring(SCHEDULE_SOURCE_PREFIX.length());
+            for (ScheduleModel schedule : ScheduleRepository.getInstance(appContext).getAll()) {
+                if (!name.equals(schedule.getName())) continue;
+                int profileId = schedule.getAllowlistProfileId();
+                synchronized (this) {
+                    if (profiles.containsKey(profileId)) return profileId;
+                }
+                break;
+            }
+        }
+        return getManualProfileId();
+    }
+
+    private synchronized void load() {
+        try {
+            for (AllowlistProfileEntity entity : dao.getAll()) {
+                BitSet apps = entity.apps != null ? BitSet.valueOf(entity.apps) : new BitSet();
+                profiles.put(entity.id, new Profile(entity.id, entity.name, apps));
+                nextId = Math.max(nextId, entity.id + 1);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading allowlist profiles", e);
+        }
+        if (!profiles.containsKey(DEFAULT_PROFILE_ID)) {
+            // First run with profiles: the single whitelist becomes the default profile
+            Set<String> legacy = prefs.getStringSet(KEY_LEGACY_WHITELIST, Collections.emptySet());
+            Profile imported = new Profile(DEFAULT_PROFILE_ID, DEFAULT_PROFILE_NAME, toBits(legacy));
+            profiles.put(DEFAULT_PROFILE_ID, imported);
+            persist(imported);
+            Log.d(TAG, "Imported " + imported.size() + " whitelisted apps into the default profile");
+        }
+    }
+
+    private BitSet toBits(Set<String> packages) {
+        BitSet apps = new BitSet();
+        for (String packageName : packages) {
+            apps.set(catalog.getAppId(packageName));
+        }
+        return apps;
+    }
+
+    private Set<String> packagesOf(Profile profile) {
+        Set<String> packages = new HashSet<>();
+        for (int id = profile.apps.nextSetBit(0); id >= 0; id = profile.apps.nextSetBit(id + 1)) {
+            AppEntity app = catalog.getApp(id);
+            if (app != null) packages.add(app.packageName);
+        }
+        return packages;
+    }
+
+    private void persist(Profile profile) {
+        AllowlistProfileEntity entity = new AllowlistProfileEntity();
+        entity.id = profile.id;
+        entity.name = profile.name;
+        entity.apps = profile.apps.toByteArray();
+        writer.execute(() -> {
+            try {
+                dao.upsert(entity);
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving allowlist profile " + profile.id, e);
+            }
+        });
+    }
+}
@@ -1,7 +1,6 @@
 package com.grepguru.zenlock.utils;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
@@ -14,15 +13,12 @@ import com.grepguru.zenlock.data.entities.WeeklyStatsEntity;
 import com.grepguru.zenlock.data.repository.AnalyticsRepository;
 import com.grepguru.zenlock.model.AnalyticsModels;
 import com.grepguru.zenlock.BuildConfig;
+import com.grepguru.zenlock.ZenLockApplication;
 
 import android.app.usage.UsageStatsManager;
 import android.app.usage.UsageStats;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -35,31 +31,31 @@ public class AnalyticsManager {
     private static final String TAG = "AnalyticsManager";
     
     // Repository for database operations
-    private AnalyticsRepository repository;
-    private Context context;
-    private MobileUsageTracker mobileUsageTracker;
+    private final AnalyticsRepository repository;
+    private final Context context;
+    private final MobileUsageTracker mobileUsageTracker;
+    private final AppCatalog appCatalog;
     
-    // Current session tracking (still using SharedPreferences for active session state)
-    private static final String SESSION_PREFS = "CurrentSessionPrefs";
-    private SharedPreferences sessionPrefs;
+    // Current session state, journaled to disk
+    private final SessionTelemetryJournal telemetry;
     
-    // Current session data
-    private long currentSessionStart;
-    private long currentSessionTarget;
-    private String currentSessionSource;
-    private Map<String, Long> currentSessionAppUsage = new HashMap<>();
-    
-    public AnalyticsManager(Context context) {
+    /**
+     * Built once per process by AppContainer, use getInstance()
+     */
+    public AnalyticsManager(Context context, AnalyticsRepository repository, MobileUsageTracker mobileUsageTracker,
+                            AppCatalog appCatalog, SessionTelemetryJournal telemetry) {
         this.context = context.getApplicationContext();
-        this.repository = new AnalyticsRepository(context);
-        this.sessionPrefs = context.getSharedPreferences(SESSION_PREFS, Context.MODE_PRIVATE);
-        this.mobileUsageTracker = new MobileUsageTracker(context);
-        
-        // Restore current session state if exists
-        restoreCurrentSessionState();
-        
-        // Update today's mobile usage if permission is available (only once per app launch)
-        updateTodayMobileUsageIfAvailable();
+        this.repository = repository;
+        this.mobileUsageTracker = mobileUsageTracker;
+        this.appCatalog = appCatalog;
+        this.telemetry = telemetry;
+    }
+    
+    /**
+     * The process-wide instance, created on first use
+     */
+    public static AnalyticsManager getInstance(Context context) {
+        return ZenLockApplication.container(context).getAnalyticsManager();
     }
     
     // =====================================
@@ -72,8 +68,7 @@ public class AnalyticsManager {
     }
 
     public static String formatDate(long tsMillis) {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        return sdf.format(new Date(tsMillis));
+        return TimeService.get().formatDate(tsMillis);
     }
     
     /**
@@ -87,13 +82,8 @@ public class AnalyticsManager {
      * Start a new focus session with source
      */
     public void startSession(long targetDurationMillis, String source) {
-        currentSessionStart = System.currentTimeMillis();
-        currentSessionTarget = targetDurationMillis;
-        currentSessionSource = source;
-        currentSessionAppUsage.clear();
-        
-        // Save current session state
-        saveCurrentSessionState();
+        // Replaces any state left from a previous session
+        telemetry.begin(System.currentTimeMillis(), targetDurationMillis, source);
         
         Log.d(TAG, "Session started: " + formatDuration(targetDurationMillis) + " from " + source);
     }
@@ -102,15 +92,14 @@ public class AnalyticsManager {
      * Record app usage during current session
      */
     public void recordAppUsage(String packageName, long usageTime) {
-        if (currentSessionStart > 0) {
-            String appName = getAppName(packageName);
-            currentSessionAppUsage.put(packageName, 
-                currentSessionAppUsage.getOrDefault(packageName, 0L) + usageTime);
-            
-            // Update session state
-            saveCurrentSessionState();
+        if (telemetry.isActive()) {
+            // One journal append, synced in batches
+            telemetry.recordUsage(packageName, usageTime);
             
-            Log.d(TAG, "App usage recorded: " + appName + " (" + formatDuration(usageTime) + ")");
+            // Called for every foreground event; don't look up the label unless it is logged
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "App usage recorded: " + getAppName(packageName) + " (" + formatDuration(usageTime) + ")");
+            }
         }
     }
     
@@ -135,34 +124,34 @@ public class AnalyticsManager {
      * End current focus session
      */
     public void endSession(boolean completed) {
-        if (currentSessionStart == 0) {
+        SessionTelemetryJournal.Snapshot current = telemetry.getSnapshot();
+        if (current.startTime == 0) {
             Log.w(TAG, "No active session to end");
             return;
         }
         
         long endTime = System.currentTimeMillis();
-        long actualDuration = endTime - currentSessionStart;
-        int focusScore = calculateFocusScore(actualDuration, currentSessionTarget);
+        long actualDuration = endTime - current.startTime;
+        int focusScore = calculateFocusScore(actualDuration, current.targetDuration);
         
         // Create session entity
         SessionEntity session = new SessionEntity(
             System.currentTimeMillis(), // Use current time as session ID
-            currentSessionStart,
+            current.startTime,
             endTime,
-            currentSessionTarget,
+            current.targetDuration,
             actualDuration,
             completed,
-            currentSessionSource,
+            current.source,
             focusScore
         );
         
         // Create app usage entities
         List<AppUsageEntity> appUsages = new ArrayList<>();
-        for (Map.Entry<String, Long> entry : currentSessionAppUsage.entrySet()) {
+        for (Map.Entry<String, Long> entry : current.appUsage.entrySet()) {
             AppUsageEntity appUsage = new AppUsageEntity(
                 session.sessionId,
-                entry.getKey(),
-                getAppName(entry.getKey()),
+                appCatalog.getAppId(entry.getKey()),
                 entry.getValue(),
                 isWhitelisted(entry.getKey())
             );
@@ -172,12 +161,12 @@ public class AnalyticsManager {
         // Save session to database
         repository.insertSession(session, appUsages);
         
-        // Clear current session
-        clearCurrentSessionState();
+        // Clear current session, compacting its journal away
+        telemetry.clear();
         
         Log.d(TAG, "Session ended: " + (completed ? "COMPLETED" : "INTERRUPTED") + 
               " Duration: " + formatDuration(actualDuration) + 
-              " Target: " + formatDuration(currentSessionTarget) +
+              " Target: " + formatDuration(current.targetDuration) +
               " Score: " + focusScore);
     }
     
@@ -301,19 +290,20 @@ public class AnalyticsManager {
      * Check if there's an active session
      */
     public boolean hasActiveSession() {
-        return currentSessionStart > 0;
+        return telemetry.isActive();
     }
     
     /**
      * Get current session progress
      */
     public double getCurrentSessionProgress() {
-        if (currentSessionStart == 0 || currentSessionTarget == 0) {
+        SessionTelemetryJournal.Snapshot current = telemetry.getSnapshot();
+        if (current.startTime == 0 || current.targetDuration == 0) {
             return 0.0;
         }
         
-        long elapsed = System.currentTimeMillis() - currentSessionStart;
-        return Math.min(100.0, (double) elapsed / currentSessionTarget * 100);
+        long elapsed = System.currentTimeMillis() - current.startTime;
+        return Math.min(100.0, (double) elapsed / current.targetDuration * 100);
     }
     
     // Mobile usage update method removed - data is fetched fresh from UsageStatsManager
@@ -330,15 +320,10 @@ public class AnalyticsManager {
      */
     public long getThisWeekFocusTime() {
         try {
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            
-            long weekStart = calendar.getTimeInMillis();
-            long weekEnd = weekStart + (7 * 24 * 60 * 60 * 1000);
+            TimeService time = TimeService.get();
+            int monday = TimeService.mondayOf(time.today());
+            long weekStart = time.startOfDay(monday);
+            long weekEnd = time.startOfDay(monday + 7);
             
             return repository.getTotalFocusTimeForPeriod(weekStart, weekEnd);
         } catch (Exception e) {
@@ -352,15 +337,10 @@ public class AnalyticsManager {
      */
     public long getLastWeekFocusTime() {
         try {
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            
-            long thisWeekStart = calendar.getTimeInMillis();
-            long lastWeekStart = thisWeekStart - (7 * 24 * 60 * 60 * 1000);
+            TimeService time = TimeService.get();
+            int monday = TimeService.mondayOf(time.today());
+            long thisWeekStart = time.startOfDay(monday);
+            long lastWeekStart = time.startOfDay(monday - 7);
             long lastWeekEnd = thisWeekStart;
             
             return repository.getTotalFocusTimeForPeriod(lastWeekStart, lastWeekEnd);
@@ -399,15 +379,10 @@ public class AnalyticsManager {
      */
     public long getThisMonthFocusTime() {
         try {
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.DAY_OF_MONTH, 1);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            
-            long monthStart = calendar.getTimeInMillis();
-            long monthEnd = monthStart + (30L * 24 * 60 * 60 * 1000); // Approximate month
+            TimeService time = TimeService.get();
+            int today = time.today();
+            long monthStart = time.startOfDay(TimeService.firstOfMonth(today));
+            long monthEnd = time.startOfDay(TimeService.firstOfNextMonth(today));
             
             return repository.getTotalFocusTimeForPeriod(monthStart, monthEnd);
         } catch (Exception e) {
@@ -421,16 +396,10 @@ public class AnalyticsManager {
      */
     public long getLastMonthFocusTime() {
         try {
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.DAY_OF_MONTH, 1);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            
-            long thisMonthStart = calendar.getTimeInMillis();
-            calendar.add(Calendar.MONTH, -1);
-            long lastMonthStart = calendar.getTimeInMillis();
+            TimeService time = TimeService.get();
+            int thisMonth = TimeService.firstOfMonth(time.today());
+            long thisMonthStart = time.startOfDay(thisMonth);
+            long lastMonthStart = time.startOfDay(TimeService.firstOfMonth(thisMonth - 1));
             long lastMonthEnd = thisMonthStart;
             
             return repository.getTotalFocusTimeForPeriod(lastMonthStart, lastMonthEnd);
@@ -523,10 +492,8 @@ public class AnalyticsManager {
         
         // Method 2: Try different interval
         try {
-            Calendar cal = Calendar.getInstance();
-            cal.add(Calendar.DAY_OF_YEAR, -1);
-            long startTime = cal.getTimeInMillis();
-            long endTime = System.currentTimeMillis();
+            long endTime = TimeService.get().now();
+            long startTime = endTime - TimeService.DAY_MS;
             
             List<UsageStats> weeklyStats = ((UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE))
                 .queryUsageStats(UsageStatsManager.INTERVAL_BEST, startTime, endTime);
@@ -555,74 +522,28 @@ public class AnalyticsManager {
     }
     
     /**
-     * Cleanup old data
+     * Cleanup old data now (rolls up before deleting, see AnalyticsRetentionManager)
+     * Regular cleanup runs from AnalyticsMaintenanceJobService
      */
     public void cleanupOldData() {
-        repository.cleanupOldData();
+        new Thread(() -> new AnalyticsRetentionManager(context).applyRetention()).start();
     }
     
     // =====================================
     // PRIVATE HELPER METHODS
     // =====================================
     
-    private void saveCurrentSessionState() {
-        SharedPreferences.Editor editor = sessionPrefs.edit();
-        editor.putLong("session_start", currentSessionStart);
-        editor.putLong("session_target", currentSessionTarget);
-        editor.putString("session_source", currentSessionSource);
-        
-        // Save app usage as JSON or simple format
-        StringBuilder appUsageStr = new StringBuilder();
-        for (Map.Entry<String, Long> entry : currentSessionAppUsage.entrySet()) {
-            if (appUsageStr.length() > 0) appUsageStr.append(";");
-            appUsageStr.append(entry.getKey()).append(":").append(entry.getValue());
-        }
-        editor.putString("app_usage", appUsageStr.toString());
-        editor.apply();
-    }
-    
-    private void restoreCurrentSessionState() {
-        currentSessionStart = sessionPrefs.getLong("session_start", 0);
-        currentSessionTarget = sessionPrefs.getLong("session_target", 0);
-        currentSessionSource = sessionPrefs.getString("session_source", "manual");
-        
-        // Restore app usage
-        String appUsageStr = sessionPrefs.getString("app_usage", "");
-        currentSessionAppUsage.clear();
-        if (!appUsageStr.isEmpty()) {
-            String[] entries = appUsageStr.split(";");
-            for (String entry : entries) {
-                String[] parts = entry.split(":");
-                if (parts.length == 2) {
-                    currentSessionAppUsage.put(parts[0], Long.parseLong(parts[1]));
-                }
-            }
-        }
-    }
-    
-    private void clearCurrentSessionState() {
-        currentSessionStart = 0;
-        currentSessionTarget = 0;
-        currentSessionSource = "";
-        currentSessionAppUsage.clear();
-        
-        // Clear from SharedPreferences
-        sessionPrefs.edit().clear().apply();
-    }
-    
     private int calculateFocusScore(long actualDuration, long targetDuration) {
         if (targetDuration == 0) return 0;
         return (int) Math.min(100, (double) actualDuration / targetDuration * 100);
     }
     
     private String getCurrentDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        return sdf.format(new Date());
+        return TimeService.get().todayString();
     }
     
     private String getCurrentWeekKey() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-'W'ww", Locale.US);
-        return sdf.format(new Date());
+        return TimeService.weekKey(TimeService.get().today());
     }
     
     private String formatDuration(long milliseconds) {
@@ -638,15 +559,11 @@ public class AnalyticsManager {
     }
     
     private String getAppName(String packageName) {
-        // Get app name from package name
-        // This should use AppUtils or similar utility
-        return packageName; // Simplified for now
+        return appCatalog.getLabel(packageName);
     }
     
     private boolean isWhitelisted(String packageName) {
-        // Check if app is whitelisted
-        // This should use WhitelistManager
-        return false; // Simplified for now
+        return WhitelistManager.isAppWhitelisted(context, packageName);
     }
     
     /**
@@ -688,7 +605,7 @@ public class AnalyticsManager {
         
         // Save sample sessions
         List<AppUsageEntity> sampleAppUsage = new ArrayList<>();
-        sampleAppUsage.add(new AppUsageEntity(session1.sessionId, "com.android.phone", "Phone", 300000, true));
+        sampleAppUsage.add(new AppUsageEntity(session1.sessionId, appCatalog.getAppId("com.android.phone"), 300000, true));
         
         repository.insertSession(session1, sampleAppUsage);
         repository.insertSession(session2, new ArrayList<>());
@@ -704,18 +621,10 @@ public class AnalyticsManager {
         // For now, just log the current session count
         Log.d(TAG, "=== SESSION DUPLICATE CHECK ===");
         Log.d(TAG, "Current session active: " + hasActiveSession());
-        Log.d(TAG, "Session start time: " + currentSessionStart);
-        Log.d(TAG, "Session target: " + formatDuration(currentSessionTarget));
-        Log.d(TAG, "Session source: " + currentSessionSource);
+        SessionTelemetryJournal.Snapshot current = telemetry.getSnapshot();
+        Log.d(TAG, "Session start time: " + current.startTime);
+        Log.d(TAG, "Session target: " + formatDuration(current.targetDuration));
+        Log.d(TAG, "Session source: " + current.source);
         Log.d(TAG, "===============================");
     }
-    
-    /**
-     * Close analytics manager and cleanup resources
-     */
-    public void close() {
-        if (repository != null) {
-            repository.close();
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.grepguru.zenlock.ZenLockApplication;
+import com.grepguru.zenlock.data.dao.AnalyticsDao;
+import com.grepguru.zenlock.data.database.AnalyticsDatabase;
+import com.grepguru.zenlock.data.repository.AnalyticsRepository;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tiered retention for the analytics database
+ *
+ * Raw sessions/app_usage  -> kept RAW_SESSION_DAYS, then folded into daily_stats and
+ *                            per-app totals in app_usage_daily
+ * daily_stats             -> kept DAILY_STATS_DAYS, weekly/monthly rollups keep the totals
+ * weekly/monthly rollups, app_usage_daily, usage archive -> kept forever
+ *
+ * Rows are always aggregated before they are deleted, and deletes run in bounded batches
+ * so foreground queries are never blocked for long. Compaction (incremental vacuum and WAL
+ * truncation) is left to AnalyticsMaintenanceJobService, which only runs idle and charging
+ *
+ * All methods hit the database synchronously - call them from a background thread
+ */
+public class AnalyticsRetentionManager {
+
+    private static final String TAG = "AnalyticsRetention";
+
+    public static final int RAW_SESSION_DAYS = 90;
+    public static final int DAILY_STATS_DAYS = 730;
+    private static final int LEGACY_WEEKLY_DAYS = 2 * 365;
+    private static final int LEGACY_MONTHLY_DAYS = 5 * 365;
+
+    private static final int DELETE_BATCH_SIZE = 500;
+    // Pages released per incremental_vacuum call (4 KB pages -> 4 MB)
+    private static final int VACUUM_PAGES_PER_STEP = 1024;
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private final AnalyticsDatabase database;
+    private final AnalyticsDao dao;
+    private final AnalyticsRepository repository;
+    private final UsageRollupManager rollupManager;
+    private final AtomicBoolean stopRequested = new AtomicBoolean(false);
+
+    public AnalyticsRetentionManager(Context context) {
+        this.database = AnalyticsDatabase.getDatabase(context);
+        this.dao = database.analyticsDao();
+        this.repository = ZenLockApplication.container(context).getAnalyticsRepository();
+        this.rollupManager = new UsageRollupManager(context);
+    }
+
+    /**
+     * Ask a running pass to stop after the current batch
+     */
+    public void requestStop() {
+        stopRequested.set(true);
+    }
+
+    /**
+     * Roll up and delete everything past its tier
+     *
+     * @return number of raw sessions deleted
+     */
+    public int applyRetention() {
+        int deletedSessions = 0;
+        try {
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+            // Cut on a UTC day boundary: session dates are UTC, so a date is either fully kept or fully rolled up
+            LocalDate sessionCutoffDate = today.minusDays(RAW_SESSION_DAYS);
+            long sessionCutoffTime = sessionCutoffDate.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            deletedSessions = expireRawSessions(sessionCutoffTime);
+            if (stopRequested.get()) return deletedSessions;
+
+            LocalDate dailyCutoffDate = today.minusDays(DAILY_STATS_DAYS);
+            int deletedDays = expireDailyStats(dailyCutoffDate);
+            if (stopRequested.get()) return deletedSessions;
+
+            dao.deleteOldWeeklyStats(toWeekKey(today.minusDays(LEGACY_WEEKLY_DAYS)));
+            dao.deleteOldMonthlyStats(today.minusDays(LEGACY_MONTHLY_DAYS).toString().substring(0, 7));
+
+            Log.d(TAG, "Retention pass: " + deletedSessions + " sessions, " + deletedDays + " daily rows removed");
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying retention", e);
+        }
+        return deletedSessions;
+    }
+
+    /**
+     * Release free pages and truncate the WAL. Converts the database to incremental
+     * auto-vacuum the first time (one full VACUUM), later passes are incremental
+     */
+    public void compact() {
+        try {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            long sizeBefore = database.getDatabaseSize();
+
+            if (queryLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+                db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+                db.execSQL("VACUUM");
+                Log.d(TAG, "Converted database to incremental auto-vacuum");
+            } else {
+                long freePages = queryLong(db, "PRAGMA freelist_count");
+                while (freePages > 0 && !stopRequested.get()) {
+                    drain(db.query("PRAGMA incremental_vacuum(" + VACUUM_PAGES_PER_STEP + ")"));
+                    freePages = queryLong(db, "PRAGMA freelist_count");
+                }
+            }
+            drain(db.query("PRAGMA wal_checkpoint(TRUNCATE)"));
+
+            Log.d(TAG, "Compaction done: " + sizeBefore + " -> " + database.getDatabaseSize() + " bytes");
+        } catch (Exception e) {
+            Log.e(TAG, "Error compacting analytics database", e);
+        }
+    }
+
+    private int expireRawSessions(long cutoffTime) {
+        // Fold the expiring days into daily_stats while the raw rows still exist
+        List<String> dates = dao.getSessionDatesBefore(cutoffTime);
+        if (dates.isEmpty()) return 0;
+        LocalDate oldest = null;
+        LocalDate newest = null;
+        for (String date : dates) {
+            repository.updateDailyStatsForDateSync(date);
+            LocalDate day = LocalDate.parse(date);
+            if (oldest == null || day.isBefore(oldest)) oldest = day;
+            if (newest == null || day.isAfter(newest)) newest = day;
+        }
+        rollupManager.rollUpRange(oldest, newest);
+
+        int total = 0;
+        int deleted;
+        do {
+            deleted = dao.deleteOldSessionBatch(cutoffTime, DELETE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == DELETE_BATCH_SIZE && !stopRequested.get());
+        return total;
+    }
+
+    private int expireDailyStats(LocalDate cutoffDate) {
+        String oldest = dao.getOldestDailyStatsDate();
+        if (oldest == null || oldest.compareTo(cutoffDate.toString()) >= 0) return 0;
+
+        // Rollups are max-merged, re-rolling only guarantees they cover these days
+        rollupManager.rollUpRange(LocalDate.parse(oldest), cutoffDate.minusDays(1));
+
+        int total = 0;
+        int deleted;
+        do {
+            deleted = dao.deleteOldDailyStatsBatch(cutoffDate.toString(), DELETE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == DELETE_BATCH_SIZE && !stopRequested.get());
+        return total;
+    }
+
+    // Same format as the legacy weekly_stats keys ("yyyy-Www")
+    private static String toWeekKey(LocalDate date) {
+        return TimeService.weekKey((int) date.toEpochDay());
+    }
+
+    private static long queryLong(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0L;
+        }
+    }
+
+    private static void drain(Cursor cursor) {
+        try (Cursor c = cursor) {
+            while (c.moveToNext()) {
+                // Stepping the statement is what does the work
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Time allowances for a set of apps within one scope (a focus session, a day)
+ *
+ * Shared engine of SessionBudgetManager and DailyLimitManager. Each allowed app has a counter
+ * that only moves when the foreground changes: the app that leaves is charged the time it
+ * was in front, so reads are a map lookup and never re-query usage stats. The exhaustion
+ * deadline of the app in front lives in a TimingWheel with a single Handler callback armed
+ * for the wheel's next expiry. Counters are written through per app to the ledger's prefs
+ * file and bound to a scope id, so they survive process death and reset with a new scope
+ */
+final class AppAllowanceLedger {
+
+    private static final String KEY_SCOPE = "scope";
+    private static final String KEY_USED_PREFIX = "used_";
+    private static final String KEY_RUNNING = "running";
+    private static final String KEY_RUNNING_SINCE = "running_since";
+
+    private static final long TICK_MS = 1000;
+
+    interface OnExhaustedListener {
+        /**
+         * Called on the main thread when the app in front runs out of time
+         */
+        void onExhausted(String packageName);
+    }
+
+    /**
+     * The app draining now and when it runs out if it stays in front
+     */
+    static final class Running {
+        final String packageName;
+        final long deadline;
+
+        Running(String packageName, long deadline) {
+            this.packageName = packageName;
+            this.deadline = deadline;
+        }
+    }
+
+    private static final class Allowance {
+        final long limitMillis;
+        long usedMillis;
+
+        Allowance(long limitMillis, long usedMillis) {
+            this.limitMillis = limitMillis;
+            this.usedMillis = usedMillis;
+        }
+    }
+
+    private final String tag;
+    private final SharedPreferences statePrefs;
+    private final OnExhaustedListener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable wheelTick = this::onWheelTick;
+
+    private final Map<String, Allowance> allowances = new HashMap<>();
+    private final TimingWheel wheel = new TimingWheel(TICK_MS, System.currentTimeMillis());
+    private long scope = Long.MIN_VALUE;
+    private String runningPackage;
+    private long runningSince;
+    private long armedFor = -1L;
+
+    AppAllowanceLedger(String tag, SharedPreferences statePrefs, OnExhaustedListener listener) {
+        this.tag = tag;
+        this.statePrefs = statePrefs;
+        this.listener = listener;
+    }
+
+    synchronized long getScope() {
+        return scope;
+    }
+
+    /**
+     * Switch to a scope with the given limits, restoring its stored counters if it is the scope
+     * that was persisted. An app still in front carries over and is charged from scopeStart
+     */
+    synchronized void bind(long newScope, Map<String, Integer> limitMinutes, long scopeStart, long now) {
+        String carried = runningPackage;
+        wheel.clear();
+        allowances.clear();
+        runningPackage = null;
+        scope = newScope;
+
+        boolean stored = statePrefs.getLong(KEY_SCOPE, Long.MIN_VALUE) == newScope;
+        if (!stored) {
+            statePrefs.edit().clear().putLong(KEY_SCOPE, newScope).apply();
+        }
+        for (Map.Entry<String, Integer> entry : limitMinutes.entrySet()) {
+            long used = stored ? statePrefs.getLong(KEY_USED_PREFIX + entry.getKey(), 0L) : 0L;
+            allowances.put(entry.getKey(), new Allowance(entry.getValue() * 60_000L, used));
+        }
+
+        String running = stored ? statePrefs.getString(KEY_RUNNING, carried) : carried;
+        long since = stored && statePrefs.contains(KEY_RUNNING_SINCE)
+                ? statePrefs.getLong(KEY_RUNNING_SINCE, now) : scopeStart;
+        Allowance allowance = running == null ? null : allowances.get(running);
+        if (allowance != null && allowance.usedMillis < allowance.limitMillis) {
+            // Still in front (or was when the process died); count the gap and carry on draining
+            since = Math.min(now, since);
+            startRunning(running, allowance, since);
+            statePrefs.edit().putString(KEY_RUNNING, running).putLong(KEY_RUNNING_SINCE, since).apply();
+        }
+        armWakeup(now);
+        Log.d(tag, (stored ? "Restored " : "Started ") + allowances.size() + " allowances for scope " + newScope);
+    }
+
+    /**
+     * Forget everything, including the persisted scope
+     */
+    synchronized void clear() {
+        wheel.clear();
+        allowances.clear();
+        runningPackage = null;
+        scope = Long.MIN_VALUE;
+        handler.removeCallbacks(wheelTick);
+        armedFor = -1L;
+        statePrefs.edit().clear().apply();
+    }
+
+    // =====================================
+    // QUERIES
+    // =====================================
+
+    synchronized boolean has(String packageName) {
+        return allowances.containsKey(packageName);
+    }
+
+    synchronized boolean isExhausted(String packageName, long now) {
+        Allowance allowance = allowances.get(packageName);
+        return allowance != null && remaining(packageName, allowance, now) <= 0;
+    }
+
+    /**
+     * Time left for the app in this scope, -1 if it has no allowance
+     */
+    synchronized long getRemainingMillis(String packageName, long now) {
+        Allowance allowance = allowances.get(packageName);
+        return allowance == null ? -1L : Math.max(0L, remaining(packageName, allowance, now));
+    }
+
+    /**
+     * The app draining now, null if none is
+     */
+    synchronized Running getRunning() {
+        if (runningPackage == null) return null;
+        Allowance allowance = allowances.get(runningPackage);
+        if (allowance == null) return null;
+        return new Running(runningPackage, runningSince + allowance.limitMillis - allowance.usedMillis);
+    }
+
+    synchronized Set<String> getAll() {
+        return new HashSet<>(allowances.keySet());
+    }
+
+    synchronized Set<String> getPackages(boolean withTimeLeft, long now) {
+        Set<String> packages = new HashSet<>();
+        for (Map.Entry<String, Allowance> entry : allowances.entrySet()) {
+            if ((remaining(entry.getKey(), entry.getValue(), now) > 0) == withTimeLeft) {
+                packages.add(entry.getKey());
+            }
+        }
+        return packages;
+    }
+
+    // =====================================
+    // FOREGROUND TRACKING
+    // =====================================
+
+    /**
+     * packageName came to the front; charge the app that was there and start draining the new one
+     */
+    synchronized void onForeground(String packageName, long now) {
+        if (packageName.equals(runningPackage)) return;
+        stopRunning(now);
+        Allowance allowance = allowances.get(packageName);
+        if (allowance != null && allowance.usedMillis < allowance.limitMillis) {
+            startRunning(packageName, allowance, now);
+            statePrefs.edit()
+                    .putString(KEY_RUNNING, packageName)
+                    .putLong(KEY_RUNNING_SINCE, now)
+                    .apply();
+        }
+        armWakeup(now);
+    }
+
+    /**
+     * Stop draining without a new app in front
+     */
+    synchronized void pause(long now) {
+        if (runningPackage == null) return;
+        stopRunning(now);
+        armWakeup(now);
+    }
+
+    // =====================================
+    // INTERNALS
+    // =====================================
+
+    private void onWheelTick() {
+        List<String> exhausted;
+        synchronized (this) {
+            armedFor = -1L;
+            long now = System.currentTimeMillis();
+            exhausted = wheel.advance(now);
+            for (String packageName : exhausted) {
+                if (packageName.equals(runningPackage)) stopRunning(now);
+                Log.d(tag, "Time used up: " + packageName);
+            }
+            armWakeup(now);
+        }
+        for (String packageName : exhausted) {
+            try {
+                listener.onExhausted(packageName);
+            } catch (Exception e) {
+                Log.e(tag, "Exhausted listener failed", e);
+            }
+        }
+    }
+
+    private long remaining(String packageName, Allowance allowance, long now) {
+        long used = allowance.usedMillis;
+        if (packageName.equals(runningPackage)) used += Math.max(0L, now - runningSince);
+        return allowance.limitMillis - used;
+    }
+
+    private void startRunning(String packageName, Allowance allowance, long since) {
+        runningPackage = packageName;
+        runningSince = since;
+        wheel.schedule(packageName, since + allowance.limitMillis - allowance.usedMillis);
+    }
+
+    private void stopRunning(long now) {
+        if (runningPackage == null) return;
+        Allowance allowance = allowances.get(runningPackage);
+        if (allowance != null) {
+            allowance.usedMillis = Math.min(allowance.limitMillis,
+                    allowance.usedMillis + Math.max(0L, now - runningSince));
+            statePrefs.edit()
+                    .putLong(KEY_USED_PREFIX + runningPackage, allowance.usedMillis)
+                    .remove(KEY_RUNNING)
+                    .remove(KEY_RUNNING_SINCE)
+                    .apply();
+        }
+        wheel.cancel(runningPackage);
+        runningPackage = null;
+    }
+
+    /**
+     * One callback for the whole wheel, moved only when its next expiry changes
+     */
+    private void armWakeup(long now) {
+        long next = wheel.nextExpiryMillis();
+        if (next == armedFor) return;
+        handler.removeCallbacks(wheelTick);
+        armedFor = next;
+        if (next >= 0) handler.postDelayed(wheelTick, Math.max(0L, next - now));
+    }
+
+    // =====================================
+    // CONFIGURATION
+    // =====================================
+
+    /**
+     * Parse "package=minutes" entries, skipping malformed or non-positive ones
+     */
+    static Map<String, Integer> parseMinutes(Set<String> entries, String tag) {
+        Map<String, Integer> minutes = new HashMap<>();
+        for (String entry : entries) {
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) continue;
+            try {
+                int value = Integer.parseInt(entry.substring(separator + 1));
+                if (value > 0) minutes.put(entry.substring(0, separator), value);
+            } catch (NumberFormatException e) {
+                Log.e(tag, "Bad limit entry " + entry, e);
+            }
+        }
+        return minutes;
+    }
+
+    static Set<String> formatMinutes(Map<String, Integer> minutes) {
+        Set<String> entries = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : minutes.entrySet()) {
+            if (entry.getValue() != null && entry.getValue() > 0) {
+                entries.add(entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        return entries;
+    }
+}
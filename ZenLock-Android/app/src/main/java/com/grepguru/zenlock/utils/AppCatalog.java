@@ -0,0 +1,248 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.util.Log;
+import android.util.SparseArray;
+
+import com.grepguru.zenlock.data.dao.AnalyticsDao;
+import com.grepguru.zenlock.data.database.AnalyticsDatabase;
+import com.grepguru.zenlock.data.entities.AppEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide cache over the apps dictionary table
+ * Interns package names to integer ids and resolves labels once, so analytics rows only
+ * store an id and the UI never has to hit PackageManager per row
+ *
+ * Lookups are served from memory; only unknown packages touch the database. The monitor only
+ * guards the in-memory maps: PackageManager and database work happens before it is taken, and
+ * rows are published as new AppEntity objects rather than edited in place
+ */
+public final class AppCatalog {
+
+    private static final String TAG = "AppCatalog";
+    private static final String PREFS_NAME = "FocusLockPrefs";
+    private static final String KEY_LAST_SYNC = "app_catalog_last_sync";
+
+    // Re-read the installed inventory at most once a day
+    private static final long SYNC_INTERVAL_MS = 24L * 60 * 60 * 1000;
+
+    private static volatile AppCatalog INSTANCE;
+
+    private final Context context;
+    private final AnalyticsDao dao;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final Map<String, AppEntity> byPackage = new HashMap<>();
+    private final SparseArray<AppEntity> byId = new SparseArray<>();
+    private boolean loaded = false;
+
+    private AppCatalog(Context context) {
+        this.context = context.getApplicationContext();
+        this.dao = AnalyticsDatabase.getDatabase(this.context).analyticsDao();
+    }
+
+    public static AppCatalog getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (AppCatalog.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AppCatalog(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Id for a package, interning it (and resolving its label) on first sight
+     */
+    public int getAppId(String packageName) {
+        AppEntity app = lookup(packageName);
+        if (app == null) {
+            app = intern(packageName);
+        }
+        return app.appId;
+    }
+
+    /**
+     * Id for a package already in the dictionary, -1 if it was never interned
+     */
+    public int findAppId(String packageName) {
+        AppEntity app = lookup(packageName);
+        return app != null ? app.appId : -1;
+    }
+
+    /**
+     * Human readable label for a package, falls back to the package name
+     */
+    public String getLabel(String packageName) {
+        AppEntity app = lookup(packageName);
+        if (app == null) {
+            app = intern(packageName);
+        }
+        return app.getDisplayName();
+    }
+
+    /**
+     * Dictionary row for an id, or null if unknown
+     */
+    public synchronized AppEntity getApp(int appId) {
+        ensureLoaded();
+        return byId.get(appId);
+    }
+
+    /**
+     * Sync the inventory on the catalog's background thread if the last sync is stale
+     */
+    public void syncIfStaleAsync() {
+        executor.execute(() -> {
+            try {
+                SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                long lastSync = prefs.getLong(KEY_LAST_SYNC, 0);
+                if (System.currentTimeMillis() - lastSync < SYNC_INTERVAL_MS) return;
+
+                syncInstalledApps();
+                prefs.edit().putLong(KEY_LAST_SYNC, System.currentTimeMillis()).apply();
+            } catch (Exception e) {
+                Log.e(TAG, "Error syncing app catalog", e);
+            }
+        });
+    }
+
+    /**
+     * Upsert label and flags for every launchable app and clear FLAG_INSTALLED on packages
+     * that are gone. Rows are never deleted, historical usage keeps pointing at them
+     */
+    public void syncInstalledApps() {
+        PackageManager pm = context.getPackageManager();
+        Intent launcherIntent = new Intent(Intent.ACTION_MAIN);
+        launcherIntent.addCategory(Intent.CATEGORY_LAUNCHER);
+        List<ResolveInfo> activities = pm.queryIntentActivities(launcherIntent, 0);
+
+        // Gather everything first; loadLabel is an IPC per app and lookups must not wait on it
+        Set<String> seen = new HashSet<>();
+        List<AppEntity> scanned = new ArrayList<>();
+        for (ResolveInfo info : activities) {
+            if (info.activityInfo == null) continue;
+            String packageName = info.activityInfo.packageName;
+            if (!seen.add(packageName)) continue;
+
+            ApplicationInfo appInfo = info.activityInfo.applicationInfo;
+            String label = appInfo.loadLabel(pm).toString();
+            int flags = AppEntity.FLAG_INSTALLED | AppEntity.FLAG_LAUNCHABLE;
+            if ((appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0) {
+                flags |= AppEntity.FLAG_SYSTEM;
+            }
+            scanned.add(new AppEntity(packageName, label, flags));
+        }
+
+        // Installed but not launchable apps (services, IMEs) keep their row as long as they exist
+        for (AppEntity app : snapshot()) {
+            if (seen.contains(app.packageName) || !app.hasFlag(AppEntity.FLAG_INSTALLED)) continue;
+            ApplicationInfo appInfo = getApplicationInfo(pm, app.packageName);
+            int flags = appInfo != null ? app.flags & ~AppEntity.FLAG_LAUNCHABLE : 0;
+            scanned.add(new AppEntity(app.packageName, app.label, flags));
+        }
+
+        int updated = 0;
+        for (AppEntity app : scanned) {
+            if (store(app.packageName, app.label, app.flags)) updated++;
+        }
+        Log.d(TAG, "App catalog synced: " + seen.size() + " launchable, " + updated + " rows updated");
+    }
+
+    private AppEntity intern(String packageName) {
+        // Row and label are resolved with no lock held, then the complete row is published
+        PackageManager pm = context.getPackageManager();
+        ApplicationInfo appInfo = getApplicationInfo(pm, packageName);
+
+        int id = dao.internApp(packageName);
+        AppEntity app = dao.getApp(id);
+        if (app == null) {
+            app = new AppEntity(packageName);
+            app.appId = id;
+        }
+        if (app.label.isEmpty() && appInfo != null) {
+            int flags = AppEntity.FLAG_INSTALLED;
+            if ((appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0) {
+                flags |= AppEntity.FLAG_SYSTEM;
+            }
+            app.label = appInfo.loadLabel(pm).toString();
+            app.flags |= flags;
+            app.updatedAt = System.currentTimeMillis();
+            dao.updateAppDetails(app.appId, app.label, app.flags, app.updatedAt);
+        }
+
+        synchronized (this) {
+            // Another thread may have interned it meanwhile; both resolved the same row
+            AppEntity existing = byPackage.get(packageName);
+            if (existing != null) return existing;
+            cache(app);
+            return app;
+        }
+    }
+
+    /**
+     * Write label/flags for a package if they changed
+     *
+     * @return true if the row was written
+     */
+    private boolean store(String packageName, String label, int flags) {
+        AppEntity current = lookup(packageName);
+        if (current != null && current.label.equals(label) && current.flags == flags) {
+            return false;
+        }
+
+        AppEntity app = new AppEntity(packageName, label, flags);
+        app.appId = current != null ? current.appId : dao.internApp(packageName);
+        dao.updateAppDetails(app.appId, label, flags, app.updatedAt);
+        synchronized (this) {
+            cache(app);
+        }
+        return true;
+    }
+
+    private synchronized AppEntity lookup(String packageName) {
+        ensureLoaded();
+        return byPackage.get(packageName);
+    }
+
+    private synchronized List<AppEntity> snapshot() {
+        ensureLoaded();
+        return new ArrayList<>(byPackage.values());
+    }
+
+    private void cache(AppEntity app) {
+        byPackage.put(app.packageName, app);
+        byId.put(app.appId, app);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        for (AppEntity app : dao.getAllApps()) {
+            cache(app);
+        }
+        loaded = true;
+    }
+
+    private static ApplicationInfo getApplicationInfo(PackageManager pm, String packageName) {
+        try {
+            return pm.getApplicationInfo(packageName, 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+}
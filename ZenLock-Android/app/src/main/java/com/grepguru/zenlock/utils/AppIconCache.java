@@ -0,0 +1,129 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+
+/**
+ * App icons shared by the lock screen and the whitelist picker
+ *
+ * LockScreenActivity is recreated every time the blocker sends the user back to it, and each
+ * instance used to load its own copy of every allowed app's icon. Icons are now loaded once and
+ * kept as ConstantState in an LruCache bounded in bytes; every view gets its own Drawable over
+ * the shared bitmap. Registered with MemoryPressure as UI data: half of it goes when the UI is
+ * hidden and all of it once the process is in the background
+ */
+public final class AppIconCache {
+
+    private static final String TAG = "AppIconCache";
+    private static final int MAX_BYTES = 8 * 1024 * 1024;
+    // For icons without a bitmap or an intrinsic size (adaptive icons report one, most do)
+    private static final int DEFAULT_ICON_BYTES = 192 * 192 * 4;
+
+    private static final class Icon {
+        final Drawable.ConstantState state;
+        final int bytes;
+
+        Icon(Drawable.ConstantState state, int bytes) {
+            this.state = state;
+            this.bytes = bytes;
+        }
+    }
+
+    private static volatile AppIconCache INSTANCE;
+
+    private final PackageManager pm;
+    private final LruCache<String, Icon> icons;
+
+    // An update may change the icon
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if (data != null) icons.remove(data.getSchemeSpecificPart());
+        }
+    };
+
+    private final MemoryPressure.Trimmable trimmable = new MemoryPressure.Trimmable() {
+        @Override
+        public long estimateBytes() {
+            return icons.size();
+        }
+
+        @Override
+        public long trim(int tier) {
+            int before = icons.size();
+            if (tier == MemoryPressure.TIER_UI_HIDDEN) {
+                icons.trimToSize(before / 2);
+            } else {
+                icons.evictAll();
+            }
+            return before - icons.size();
+        }
+    };
+
+    private AppIconCache(Context context) {
+        Context appContext = context.getApplicationContext();
+        pm = appContext.getPackageManager();
+        int maxBytes = (int) Math.min(MAX_BYTES, Runtime.getRuntime().maxMemory() / 16);
+        icons = new LruCache<String, Icon>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Icon value) {
+                return value.bytes;
+            }
+        };
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        try {
+            appContext.registerReceiver(packageReceiver, filter);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to register package receiver", e);
+        }
+        MemoryPressure.get().register(TAG, MemoryPressure.TIER_UI_HIDDEN, trimmable);
+    }
+
+    public static AppIconCache getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (AppIconCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AppIconCache(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * A Drawable of the app's icon for one view, loaded from PackageManager on a miss
+     */
+    public Drawable get(String packageName) throws PackageManager.NameNotFoundException {
+        Icon cached = icons.get(packageName);
+        if (cached != null) return cached.state.newDrawable();
+
+        Drawable icon = pm.getApplicationIcon(packageName);
+        Drawable.ConstantState state = icon.getConstantState();
+        // Without a constant state the Drawable can't be shared; hand it out uncached
+        if (state != null) icons.put(packageName, new Icon(state, bytesOf(icon)));
+        return icon;
+    }
+
+    private static int bytesOf(Drawable icon) {
+        if (icon instanceof BitmapDrawable && ((BitmapDrawable) icon).getBitmap() != null) {
+            return ((BitmapDrawable) icon).getBitmap().getAllocationByteCount();
+        }
+        int width = icon.getIntrinsicWidth();
+        int height = icon.getIntrinsicHeight();
+        return width > 0 && height > 0 ? width * height * 4 : DEFAULT_ICON_BYTES;
+    }
+}
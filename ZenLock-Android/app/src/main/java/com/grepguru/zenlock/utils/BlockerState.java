@@ -0,0 +1,438 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Lock state and policy verdicts shared between the app process and the ":blocker" process
+ *
+ * AppBlockerService runs in a process of its own so the part of ZenLock that stays up all day
+ * never loads Room, charts or any UI. BlockerStatePublisher in the app process is the only
+ * writer: it encodes a Snapshot into a memory-mapped file behind a sequence counter that is odd
+ * while a write is in progress. Readers never take a lock; when the counter
+ * still matches the snapshot they decoded last (nearly every accessibility event) a read is one
+ * int load, otherwise they copy the payload and retry if the counter moved or the checksum does
+ * not match. SharedPreferences are not coherent across processes, so nothing the blocker decides
+ * on is read from them. After each write the publisher broadcasts ACTION_CHANGED so the blocker
+ * can react to budgets and limits running out without polling
+ */
+public final class BlockerState {
+
+    private static final String TAG = "BlockerState";
+    private static final String FILE_NAME = "blocker_state.bin";
+    public static final String ACTION_CHANGED = "com.grepguru.zenlock.action.BLOCKER_STATE_CHANGED";
+
+    private static final int MAGIC = 0x5A4C4253;
+    private static final int VERSION = 3;
+
+    // Header, then the encoded snapshot
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_SEQUENCE = 8;
+    private static final int OFFSET_LENGTH = 12;
+    private static final int OFFSET_CRC = 16;
+    // Written by the blocker process only; one aligned long, outside the sequence
+    private static final int OFFSET_LAST_ALLOWED = 24;
+    private static final int OFFSET_PAYLOAD = 32;
+    private static final int CAPACITY = 128 * 1024;
+
+    private static final int MAX_READ_ATTEMPTS = 8;
+
+    public interface Listener {
+        /**
+         * Called on the main thread of the reading process after the publisher wrote a new snapshot
+         */
+        void onBlockerStateChanged(Snapshot previous, Snapshot current);
+    }
+
+    /**
+     * Everything the blocker decides on, immutable
+     */
+    public static final class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(false, false, false, "", false,
+                Collections.emptySet(), Collections.emptySet(), Collections.emptySet(),
+                Collections.emptySet(), Collections.emptySet(), "", 0, Collections.emptySet(),
+                Collections.emptySet(), "", 0, 0);
+
+        public final boolean locked;
+        public final boolean breakActive;
+        public final boolean allowLauncher;
+        public final boolean blockShortVideo;
+        public final DomainMatcher blockedSites;
+        private final String blockedSitesText;
+        // First policy tiers (ZenLock, keyboards, essential system apps), allowed without a table
+        private final Set<String> alwaysAllowed;
+        // Packages the compiled policy and the active allowlist profile let through, or not
+        private final Set<String> allowed;
+        private final Set<String> blocked;
+        // Session budgets, empty outside a session
+        private final Set<String> budgeted;
+        private final Set<String> budgetExhausted;
+        // Daily limits of the day ending at limitsDayEnd
+        private final Set<String> limited;
+        private final Set<String> limitReached;
+        public final long limitsDayEnd;
+        // The app draining a budget or limit when published ("" if none) and when it runs out
+        // in front; checked here so time runs out even while the app process is not running
+        private final String budgetRunning;
+        private final long budgetDeadline;
+        private final String limitRunning;
+        private final long limitDeadline;
+
+        public Snapshot(boolean locked, boolean breakActive, boolean allowLauncher,
+                        String blockedSites, boolean blockShortVideo, Set<String> alwaysAllowed,
+                        Set<String> allowed, Set<String> blocked, Set<String> budgeted,
+                        Set<String> budgetExhausted, String budgetRunning, long budgetDeadline,
+                        Set<String> limited, Set<String> limitReached, String limitRunning,
+                        long limitDeadline, long limitsDayEnd) {
+            this.locked = locked;
+            this.breakActive = breakActive;
+            this.allowLauncher = allowLauncher;
+            this.blockedSitesText = blockedSites != null ? blockedSites : "";
+            this.blockedSites = DomainMatcher.parse(this.blockedSitesText);
+            this.blockShortVideo = blockShortVideo;
+            this.alwaysAllowed = alwaysAllowed;
+            this.allowed = allowed;
+            this.blocked = blocked;
+            this.budgeted = budgeted;
+            this.budgetExhausted = budgetExhausted;
+            this.budgetRunning = budgetRunning != null ? budgetRunning : "";
+            this.budgetDeadline = budgetDeadline;
+            this.limited = limited;
+            this.limitReached = limitReached;
+            this.limitRunning = limitRunning != null ? limitRunning : "";
+            this.limitDeadline = limitDeadline;
+            this.limitsDayEnd = limitsDayEnd;
+        }
+
+        public boolean isAllowed(String packageName) {
+            return alwaysAllowed.contains(packageName) || allowed.contains(packageName);
+        }
+
+        /**
+         * False for packages the policy has not seen yet (installed after the last compile, or
+         * not listed by it); the app process decides those on request
+         */
+        public boolean isDecided(String packageName) {
+            return isAllowed(packageName) || blocked.contains(packageName);
+        }
+
+        BlockingPolicy.Verdicts getVerdicts() {
+            return new BlockingPolicy.Verdicts(allowed, blocked);
+        }
+
+        public boolean hasBudget(String packageName) {
+            return budgeted.contains(packageName);
+        }
+
+        public boolean isBudgetExhausted(String packageName, long now) {
+            return budgetExhausted.contains(packageName)
+                    || (packageName.equals(budgetRunning) && now >= budgetDeadline);
+        }
+
+        public boolean hasLimit(String packageName) {
+            return limited.contains(packageName);
+        }
+
+        /**
+         * Limits reached on a previous day no longer count, even before the next publish
+         */
+        public boolean isLimitReached(String packageName, long now) {
+            return now < limitsDayEnd && (limitReached.contains(packageName)
+                    || (packageName.equals(limitRunning) && now >= limitDeadline));
+        }
+
+        /**
+         * Next moment after now a running budget or limit runs out, -1 if none will
+         */
+        public long nextDeadline(long now) {
+            long next = -1L;
+            if (!budgetRunning.isEmpty() && budgetDeadline > now) next = budgetDeadline;
+            if (!limitRunning.isEmpty() && limitDeadline > now && limitDeadline < limitsDayEnd
+                    && (next < 0 || limitDeadline < next)) {
+                next = limitDeadline;
+            }
+            return next;
+        }
+
+        public boolean isSurfaceBlockingEnabled() {
+            return blockShortVideo || !blockedSites.isEmpty();
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024 + (allowed.size() + blocked.size()) * 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeBoolean(locked);
+            out.writeBoolean(breakActive);
+            out.writeBoolean(allowLauncher);
+            out.writeBoolean(blockShortVideo);
+            out.writeUTF(blockedSitesText);
+            writeSet(out, alwaysAllowed);
+            writeSet(out, allowed);
+            writeSet(out, blocked);
+            writeSet(out, budgeted);
+            writeSet(out, budgetExhausted);
+            out.writeUTF(budgetRunning);
+            out.writeLong(budgetDeadline);
+            writeSet(out, limited);
+            writeSet(out, limitReached);
+            out.writeUTF(limitRunning);
+            out.writeLong(limitDeadline);
+            out.writeLong(limitsDayEnd);
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        static Snapshot decode(byte[] payload) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            boolean locked = in.readBoolean();
+            boolean breakActive = in.readBoolean();
+            boolean allowLauncher = in.readBoolean();
+            boolean blockShortVideo = in.readBoolean();
+            String blockedSites = in.readUTF();
+            Set<String> alwaysAllowed = readSet(in);
+            Set<String> allowed = readSet(in);
+            Set<String> blocked = readSet(in);
+            Set<String> budgeted = readSet(in);
+            Set<String> budgetExhausted = readSet(in);
+            String budgetRunning = in.readUTF();
+            long budgetDeadline = in.readLong();
+            Set<String> limited = readSet(in);
+            Set<String> limitReached = readSet(in);
+            String limitRunning = in.readUTF();
+            long limitDeadline = in.readLong();
+            long limitsDayEnd = in.readLong();
+            return new Snapshot(locked, breakActive, allowLauncher, blockedSites, blockShortVideo,
+                    alwaysAllowed, allowed, blocked, budgeted, budgetExhausted, budgetRunning,
+                    budgetDeadline, limited, limitReached, limitRunning, limitDeadline, limitsDayEnd);
+        }
+
+        private static void writeSet(DataOutputStream out, Set<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static Set<String> readSet(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            if (size == 0) return Collections.emptySet();
+            Set<String> values = new HashSet<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                values.add(in.readUTF());
+            }
+            return values;
+        }
+    }
+
+    /**
+     * A decoded snapshot and the sequence it was read at, swapped as one reference
+     */
+    private static final class Decoded {
+        final int sequence;
+        final Snapshot snapshot;
+
+        Decoded(int sequence, Snapshot snapshot) {
+            this.sequence = sequence;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private static volatile BlockerState INSTANCE;
+
+    private final Context appContext;
+    // Null if the file could not be mapped; then nothing is shared and the blocker stays idle
+    private final MappedByteBuffer buffer;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Decoded decoded = new Decoded(0, Snapshot.EMPTY);
+    // Main thread only
+    private Snapshot lastNotified = Snapshot.EMPTY;
+    private boolean receiverRegistered;
+
+    private final BroadcastReceiver changeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Snapshot current = get();
+            if (current == lastNotified) return;
+            Snapshot previous = lastNotified;
+            lastNotified = current;
+            for (Listener listener : listeners) {
+                listener.onBlockerStateChanged(previous, current);
+            }
+        }
+    };
+
+    private BlockerState(Context context) {
+        appContext = context.getApplicationContext();
+        buffer = map(new File(appContext.getFilesDir(), FILE_NAME));
+    }
+
+    public static BlockerState getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (BlockerState.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new BlockerState(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // =====================================
+    // READS
+    // =====================================
+
+    /**
+     * The latest consistent snapshot; EMPTY (nothing locked) until the app process published one
+     */
+    public Snapshot get() {
+        Decoded current = decoded;
+        if (buffer == null || buffer.getInt(OFFSET_SEQUENCE) == current.sequence) return current.snapshot;
+        return reload(current);
+    }
+
+    /**
+     * Whether the app process ever wrote a snapshot to the file
+     */
+    public boolean isPublished() {
+        return buffer != null && buffer.getInt(OFFSET_MAGIC) == MAGIC && buffer.getInt(OFFSET_VERSION) == VERSION;
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+        registerReceiver();
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private Snapshot reload(Decoded current) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            int sequence = buffer.getInt(OFFSET_SEQUENCE);
+            if (sequence == current.sequence) return current.snapshot;
+            if ((sequence & 1) != 0 || !isPublished()) {
+                Thread.yield(); // Writer is mid-update
+                continue;
+            }
+            int length = buffer.getInt(OFFSET_LENGTH);
+            int crc = buffer.getInt(OFFSET_CRC);
+            if (length < 0 || length > CAPACITY - OFFSET_PAYLOAD) continue;
+            byte[] payload = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(OFFSET_PAYLOAD);
+            view.get(payload);
+            if (buffer.getInt(OFFSET_SEQUENCE) != sequence || checksum(payload) != crc) continue;
+            try {
+                Decoded next = new Decoded(sequence, Snapshot.decode(payload));
+                decoded = next;
+                return next.snapshot;
+            } catch (IOException e) {
+                Log.e(TAG, "Corrupt blocker state at sequence " + sequence, e);
+                return current.snapshot;
+            }
+        }
+        // Kept losing the race with the writer; the broadcast after its write brings us back
+        return current.snapshot;
+    }
+
+    private synchronized void registerReceiver() {
+        if (receiverRegistered) return;
+        try {
+            ContextCompat.registerReceiver(appContext, changeReceiver, new IntentFilter(ACTION_CHANGED),
+                    ContextCompat.RECEIVER_NOT_EXPORTED);
+            receiverRegistered = true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to register state receiver", e);
+        }
+    }
+
+    // =====================================
+    // WRITES
+    // =====================================
+
+    /**
+     * Write a snapshot and tell the blocker process; app process only (BlockerStatePublisher)
+     */
+    synchronized void publish(Snapshot snapshot) {
+        if (buffer == null) return;
+        byte[] payload;
+        try {
+            payload = snapshot.encode();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to encode blocker state", e);
+            return;
+        }
+        if (payload.length > CAPACITY - OFFSET_PAYLOAD) {
+            Log.e(TAG, "Blocker state too large: " + payload.length + " bytes");
+            return;
+        }
+        int sequence = buffer.getInt(OFFSET_SEQUENCE);
+        if ((sequence & 1) != 0) sequence++; // A previous writer died mid-update
+        buffer.putInt(OFFSET_SEQUENCE, sequence + 1);
+        buffer.putInt(OFFSET_MAGIC, MAGIC);
+        buffer.putInt(OFFSET_VERSION, VERSION);
+        ByteBuffer view = buffer.duplicate();
+        view.position(OFFSET_PAYLOAD);
+        view.put(payload);
+        buffer.putInt(OFFSET_LENGTH, payload.length);
+        buffer.putInt(OFFSET_CRC, checksum(payload));
+        buffer.putInt(OFFSET_SEQUENCE, sequence + 2);
+
+        appContext.sendBroadcast(new Intent(ACTION_CHANGED).setPackage(appContext.getPackageName()));
+    }
+
+    /**
+     * The blocker let an app through; LockScreenActivity reads this so it does not jump back over it
+     */
+    public void markAllowed(long now) {
+        if (buffer != null) buffer.putLong(OFFSET_LAST_ALLOWED, now);
+    }
+
+    public long getLastAllowedTime() {
+        return buffer != null ? buffer.getLong(OFFSET_LAST_ALLOWED) : 0;
+    }
+
+    // =====================================
+    // INTERNALS
+    // =====================================
+
+    private static MappedByteBuffer map(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < CAPACITY) raf.setLength(CAPACITY);
+            // The mapping stays valid after the channel is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to map " + file, e);
+            return null;
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,160 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import com.grepguru.zenlock.model.FocusSessionState;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps BlockerState current from the app process
+ *
+ * Listens to everything the blocker decides on (session, compiled policy, active allowlist
+ * profile, budgets, daily limits, focus cycle phase and a few preferences) and writes a whole new
+ * snapshot on its own thread, coalescing a burst of changes (a session start touches most of
+ * them) into one write. The app draining a budget or daily limit goes out with its deadline, so
+ * the blocker can cut it off itself if this process is gone by then. Started by
+ * ZenLockApplication in the app process only
+ */
+public final class BlockerStatePublisher {
+
+    private static final String TAG = "BlockerStatePublisher";
+    private static final String PREFS_NAME = "FocusLockPrefs";
+    private static final String KEY_ALLOW_LAUNCHER = "allow_launcher_during_lock";
+    private static final long PUBLISH_DELAY_MS = 50;
+
+    // Preferences that end up in the snapshot
+    private static final Set<String> PREF_KEYS = new HashSet<>(Arrays.asList(
+            KEY_ALLOW_LAUNCHER, SurfaceInspector.KEY_BLOCKED_SITES, SurfaceInspector.KEY_BLOCK_SHORT_VIDEO,
+            SessionBudgetManager.PREF_BUDGETS, DailyLimitManager.PREF_LIMITS));
+
+    private static volatile BlockerStatePublisher INSTANCE;
+
+    private final Context appContext;
+    private final BlockerState state;
+    private final Handler handler;
+    private final Runnable publishTask = this::publish;
+    private boolean started;
+
+    // Publisher thread only
+    private SharedPreferences prefs;
+    private FocusSessionController sessions;
+    private BlockingPolicy policy;
+    private SessionBudgetManager budgets;
+    private DailyLimitManager limits;
+    // Verdicts of the last compiled table, null until one was compiled or found in the mapped file
+    private BlockingPolicy.Verdicts lastVerdicts;
+
+    // Held here, SharedPreferences only keeps a weak reference
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener = (sharedPreferences, key) -> {
+        if (key == null || PREF_KEYS.contains(key)) requestPublish();
+    };
+    private final FocusSessionController.Listener sessionListener = (previous, current) -> requestPublish();
+    private final BlockingPolicy.Listener policyListener = this::requestPublish;
+    private final AllowlistProfiles.Listener profileListener = profile -> requestPublish();
+    private final SessionBudgetManager.BudgetListener budgetListener = packageName -> requestPublish();
+    private final DailyLimitManager.LimitListener limitListener = packageName -> requestPublish();
+    private final FocusCycleManager.PhaseListener phaseListener = (phase, phaseEndMillis) -> requestPublish();
+
+    private BlockerStatePublisher(Context context) {
+        appContext = context.getApplicationContext();
+        state = BlockerState.getInstance(appContext);
+        HandlerThread thread = new HandlerThread(TAG);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public static BlockerStatePublisher getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (BlockerStatePublisher.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new BlockerStatePublisher(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Attach the listeners and publish once, on the publisher thread since the first policy load
+     * reads the database
+     */
+    public void start() {
+        synchronized (this) {
+            if (started) return;
+            started = true;
+        }
+        handler.post(this::attach);
+    }
+
+    /**
+     * Write a fresh snapshot shortly, merging with other requests in the meantime
+     */
+    public void requestPublish() {
+        handler.removeCallbacks(publishTask);
+        handler.postDelayed(publishTask, PUBLISH_DELAY_MS);
+    }
+
+    private void attach() {
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+        sessions = FocusSessionController.getInstance(appContext);
+        sessions.addListener(sessionListener);
+        policy = BlockingPolicy.getInstance(appContext);
+        policy.addListener(policyListener);
+        AllowlistProfiles.getInstance(appContext).addListener(profileListener);
+        budgets = SessionBudgetManager.getInstance(appContext);
+        budgets.addListener(budgetListener);
+        limits = DailyLimitManager.getInstance(appContext);
+        limits.addListener(limitListener);
+        FocusCycleManager.addListener(phaseListener);
+        // The blocker may still be running on what an earlier app process wrote; keep its verdicts
+        // rather than overwrite them with nothing while the first table compiles
+        if (state.isPublished()) lastVerdicts = state.get().getVerdicts();
+        publish();
+    }
+
+    private void publish() {
+        try {
+            FocusSessionState session = sessions.getState();
+            boolean locked = session.isLocked();
+            BlockingPolicy.Verdicts verdicts = policy.getVerdicts();
+            // Still compiling: keep the last verdicts, the compile listener publishes again
+            if (verdicts != null) lastVerdicts = verdicts;
+            if (lastVerdicts == null) return;
+            Set<String> budgeted = locked ? budgets.getBudgetedPackages() : Collections.emptySet();
+            Set<String> exhausted = locked ? budgets.getExhaustedPackages() : Collections.emptySet();
+            AppAllowanceLedger.Running budgetRunning = locked ? budgets.getRunning() : null;
+            AppAllowanceLedger.Running limitRunning = limits.getRunning();
+
+            BlockerState.Snapshot snapshot = new BlockerState.Snapshot(
+                    locked,
+                    FocusCycleManager.isBreakActive(appContext),
+                    prefs.getBoolean(KEY_ALLOW_LAUNCHER, false),
+                    prefs.getString(SurfaceInspector.KEY_BLOCKED_SITES, ""),
+                    prefs.getBoolean(SurfaceInspector.KEY_BLOCK_SHORT_VIDEO, false),
+                    policy.getAlwaysAllowedPackages(),
+                    lastVerdicts.allowed,
+                    lastVerdicts.blocked,
+                    budgeted,
+                    exhausted,
+                    budgetRunning != null ? budgetRunning.packageName : "",
+                    budgetRunning != null ? budgetRunning.deadline : 0,
+                    limits.getLimitedPackages(),
+                    limits.getLimitReachedPackages(),
+                    limitRunning != null ? limitRunning.packageName : "",
+                    limitRunning != null ? limitRunning.deadline : 0,
+                    limits.getDayEnd());
+            state.publish(snapshot);
+        } catch (Exception e) {
+            Log.e(TAG, "Error publishing blocker state", e);
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+import android.view.inputmethod.InputMethodInfo;
+import android.view.inputmethod.InputMethodManager;
+
+import com.grepguru.zenlock.model.BlockingRule;
+import com.grepguru.zenlock.model.FocusSessionState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Which apps may be used during a focus session, compiled into a decision table
+ *
+ * Decisions are made in tiers: our own app and enabled keyboards are allowed, security risks
+ * (settings, launchers) blocked, essential system packages and default apps allowed, then the
+ * user's rules (BlockingRule) by precedence, and anything else is up to the active allowlist
+ * profile (AllowlistProfiles), which counts as "allow" package rules. All of that, including the
+ * rule ordering, is worked out on a background thread when the policy changes: every installed
+ * package gets an id in that compile and its verdict is stored in a byte array, so isAllowed is
+ * a map lookup, an array read and at most one bit test against the profile, however many rules
+ * there are. The profile is not compiled in, so switching it at session start costs nothing
+ * here. Packages the compile did not see are decided once and remembered; until the first table
+ * is ready, decisions are made per package from the same inputs
+ */
+public final class BlockingPolicy {
+
+    private static final String TAG = "BlockingPolicy";
+    private static final String PREFS_NAME = "FocusLockPrefs";
+    public static final String KEY_RULES = "blocking_rules";
+
+    // Preferences the inputs are built from
+    private static final Set<String> POLICY_KEYS = new HashSet<>(Arrays.asList(
+            KEY_RULES, "allow_phone_app", "allow_clock_app", "allow_calendar_app"));
+
+    private static final byte ALLOWED = 1;
+    private static final byte BLOCKED = 2;
+    // Allowed if in the active allowlist profile
+    private static final byte PROFILE = 3;
+
+    public interface Listener {
+        /**
+         * Called on the compile thread once a new decision table is in place
+         */
+        void onPolicyCompiled();
+    }
+
+    /**
+     * Verdicts of one table with the active profile applied, for packages it has seen
+     */
+    public static final class Verdicts {
+        public final Set<String> allowed;
+        public final Set<String> blocked;
+
+        public Verdicts(Set<String> allowed, Set<String> blocked) {
+            this.allowed = allowed;
+            this.blocked = blocked;
+        }
+    }
+
+    /**
+     * Everything a decision depends on, gathered once per policy generation
+     */
+    private static final class Inputs {
+        final int generation;
+        final String ownPackage;
+        final Set<String> keyboards;
+        final Set<String> systemAllowed;
+        // Rules for the current session, highest precedence first
+        final List<BlockingRule> rules;
+        // Some rule is limited to a schedule, so the rules depend on the session source
+        final boolean scoped;
+        final boolean needsCategory;
+        final boolean needsInstaller;
+
+        Inputs(int generation, String ownPackage, Set<String> keyboards, Set<String> systemAllowed,
+               List<BlockingRule> rules, boolean scoped) {
+            this.generation = generation;
+            this.ownPackage = ownPackage;
+            this.keyboards = keyboards;
+            this.systemAllowed = systemAllowed;
+            this.rules = rules;
+            this.scoped = scoped;
+            boolean category = false;
+            boolean installer = false;
+            for (BlockingRule rule : rules) {
+                category |= rule.kind == BlockingRule.Kind.CATEGORY;
+                installer |= rule.kind == BlockingRule.Kind.INSTALLER;
+            }
+            needsCategory = category;
+            needsInstaller = installer;
+        }
+    }
+
+    /**
+     * Compiled verdicts for the packages installed at compile time
+     */
+    private static final class Table {
+        final Inputs inputs;
+        final Map<String, Integer> ids;
+        final byte[] decisions;
+        // AppCatalog id for PROFILE verdicts, -1 if the catalog did not know the package
+        final int[] appIds;
+        // Packages installed or made visible after the compile
+        final Map<String, Byte> late = new ConcurrentHashMap<>();
+
+        Table(Inputs inputs, Map<String, Integer> ids, byte[] decisions, int[] appIds) {
+            this.inputs = inputs;
+            this.ids = ids;
+            this.decisions = decisions;
+            this.appIds = appIds;
+        }
+    }
+
+    private static volatile BlockingPolicy INSTANCE;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final AllowlistProfiles profiles;
+    private final ExecutorService compiler = Executors.newSingleThreadExecutor();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Inputs inputs;
+    private volatile Table table;
+
+    // Held here, SharedPreferences only keeps a weak reference
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener = (sharedPreferences, key) -> {
+        if (key == null || POLICY_KEYS.contains(key)) invalidate();
+    };
+
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    private final FocusSessionController.Listener sessionListener = this::onSessionStateChanged;
+
+    private BlockingPolicy(Context context) {
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        profiles = AllowlistProfiles.getInstance(appContext);
+        prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+        FocusSessionController.getInstance(appContext).addListener(sessionListener);
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        try {
+            appContext.registerReceiver(packageReceiver, filter);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to register package receiver", e);
+        }
+        invalidate();
+    }
+
+    public static BlockingPolicy getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (BlockingPolicy.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new BlockingPolicy(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Whether packageName may be in front during the current session
+     */
+    public boolean isAllowed(String packageName) {
+        if (packageName == null || packageName.isEmpty()) return false;
+        Table current = table;
+        if (current == null) {
+            return resolve(decide(packageName, currentInputs(), null), packageName);
+        }
+        Integer id = current.ids.get(packageName);
+        if (id != null) return isAllowed(current, id, packageName);
+        Byte late = current.late.get(packageName);
+        if (late == null) {
+            late = decide(packageName, current.inputs, null);
+            current.late.put(packageName, late);
+        }
+        return resolve(late, packageName);
+    }
+
+    /**
+     * Verdict for every package the table knows in the current session with the active profile,
+     * or null while the table is being compiled (listeners hear when it is ready)
+     */
+    public Verdicts getVerdicts() {
+        Table current = table;
+        if (current == null) return null;
+        Set<String> allowed = new HashSet<>();
+        Set<String> blocked = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : current.ids.entrySet()) {
+            (isAllowed(current, entry.getValue(), entry.getKey()) ? allowed : blocked).add(entry.getKey());
+        }
+        for (Map.Entry<String, Byte> entry : current.late.entrySet()) {
+            (resolve(entry.getValue(), entry.getKey()) ? allowed : blocked).add(entry.getKey());
+        }
+        return new Verdicts(allowed, blocked);
+    }
+
+    /**
+     * Packages the first tiers allow whatever the rules and profile say: ZenLock, enabled
+     * keyboards and essential system apps that are not a security risk. Needs no table
+     */
+    public Set<String> getAlwaysAllowedPackages() {
+        Table current = table;
+        Inputs in = current != null ? current.inputs : currentInputs();
+        Set<String> allowed = new HashSet<>(in.keyboards);
+        allowed.add(in.ownPackage);
+        for (String packageName : in.systemAllowed) {
+            if (!WhitelistManager.isSecurityRisk(packageName)) allowed.add(packageName);
+        }
+        return allowed;
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Drop the compiled table and rebuild it in the background
+     */
+    public void invalidate() {
+        synchronized (this) {
+            generation.incrementAndGet();
+            table = null;
+            inputs = null;
+        }
+        compiler.execute(this::compile);
+    }
+
+    // =====================================
+    // COMPILATION
+    // =====================================
+
+    private void onSessionStateChanged(FocusSessionState previous, FocusSessionState current) {
+        // Only schedule-scoped rules depend on which session is running; the profile is looked up live
+        if (current.isLocked() && (!previous.isLocked() || !previous.source.equals(current.source))) {
+            Inputs compiled = inputs;
+            if (compiled == null || compiled.scoped) invalidate();
+        }
+    }
+
+    private void compile() {
+        int target = generation.get();
+        Table current = table;
+        if (current != null && current.inputs.generation == target) return;
+
+        long started = System.currentTimeMillis();
+        Inputs compiledInputs = currentInputs();
+        PackageManager pm = appContext.getPackageManager();
+        List<ApplicationInfo> installed;
+        try {
+            installed = pm.getInstalledApplications(0);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to list installed apps", e);
+            return;
+        }
+
+        AppCatalog catalog = AppCatalog.getInstance(appContext);
+        Map<String, Integer> ids = new HashMap<>(installed.size() * 2);
+        byte[] decisions = new byte[installed.size()];
+        int[] appIds = new int[installed.size()];
+        int allowed = 0;
+        int byProfile = 0;
+        for (ApplicationInfo info : installed) {
+            if (ids.containsKey(info.packageName)) continue;
+            int id = ids.size();
+            ids.put(info.packageName, id);
+            byte verdict = decide(info.packageName, compiledInputs, info);
+            decisions[id] = verdict;
+            appIds[id] = verdict == PROFILE ? catalog.findAppId(info.packageName) : -1;
+            if (verdict == ALLOWED) allowed++;
+            if (verdict == PROFILE) byProfile++;
+        }
+
+        synchronized (this) {
+            // A newer generation means another compile is already queued behind this one
+            if (compiledInputs.generation != generation.get()) return;
+            table = new Table(compiledInputs, ids, decisions, appIds);
+        }
+        Log.d(TAG, "Compiled " + compiledInputs.rules.size() + " rules over " + ids.size()
+                + " packages (" + allowed + " allowed, " + byProfile + " by profile) in "
+                + (System.currentTimeMillis() - started) + " ms");
+        for (Listener listener : listeners) {
+            listener.onPolicyCompiled();
+        }
+    }
+
+    private Inputs currentInputs() {
+        Inputs current = inputs;
+        int target = generation.get();
+        if (current == null || current.generation != target) {
+            current = loadInputs(target);
+            inputs = current;
+        }
+        return current;
+    }
+
+    private Inputs loadInputs(int forGeneration) {
+        String source = FocusSessionController.getInstance(appContext).getState().source;
+
+        Set<String> systemAllowed = new HashSet<>(Arrays.asList(WhitelistManager.ESSENTIAL_SYSTEM_PACKAGES));
+        systemAllowed.addAll(AppUtils.getAllAllowedPackages(appContext));
+
+        List<BlockingRule> rules = new ArrayList<>();
+        boolean scoped = false;
+        for (BlockingRule rule : BlockingRule.parseAll(prefs.getString(KEY_RULES, ""))) {
+            scoped |= rule.schedule != null;
+            if (rule.appliesTo(source)) rules.add(rule);
+        }
+        Collections.sort(rules, (a, b) -> b.comparePrecedence(a));
+
+        return new Inputs(forGeneration, appContext.getPackageName(), enabledKeyboards(), systemAllowed,
+                rules, scoped);
+    }
+
+    /**
+     * Verdict for a package: ALLOWED, BLOCKED, or PROFILE when the allowlist profile decides
+     */
+    private byte decide(String packageName, Inputs in, ApplicationInfo info) {
+        if (packageName.equals(in.ownPackage)) return ALLOWED;
+        if (in.keyboards.contains(packageName)) return ALLOWED;
+        if (WhitelistManager.isSecurityRisk(packageName)) return BLOCKED;
+        if (in.systemAllowed.contains(packageName)) return ALLOWED;
+        if (in.rules.isEmpty()) return PROFILE;
+
+        int category = ApplicationInfo.CATEGORY_UNDEFINED;
+        if (in.needsCategory) {
+            if (info == null) info = applicationInfo(packageName);
+            if (info != null) category = info.category;
+        }
+        String installer = in.needsInstaller ? installerOf(packageName) : null;
+        for (BlockingRule rule : in.rules) {
+            if (!rule.matches(packageName, category, installer)) continue;
+            if (rule.allow) return ALLOWED;
+            // Profile apps are "allow" package rules: only a package "block" outranks them
+            return rule.kind == BlockingRule.Kind.PACKAGE ? BLOCKED : PROFILE;
+        }
+        return PROFILE;
+    }
+
+    private boolean isAllowed(Table current, int id, String packageName) {
+        byte verdict = current.decisions[id];
+        if (verdict != PROFILE) return verdict == ALLOWED;
+        int appId = current.appIds[id];
+        return appId >= 0 ? profiles.isActive(appId) : profiles.isInActiveProfile(packageName);
+    }
+
+    private boolean resolve(byte verdict, String packageName) {
+        return verdict == PROFILE ? profiles.isInActiveProfile(packageName) : verdict == ALLOWED;
+    }
+
+    private Set<String> enabledKeyboards() {
+        Set<String> keyboards = new HashSet<>();
+        try {
+            InputMethodManager imm = (InputMethodManager) appContext.getSystemService(Context.INPUT_METHOD_SERVICE);
+            if (imm != null) {
+                for (InputMethodInfo imi : imm.getEnabledInputMethodList()) {
+                    keyboards.add(imi.getPackageName());
+                    if (imi.getServiceInfo() != null) keyboards.add(imi.getServiceInfo().packageName);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to list keyboards", e);
+        }
+        return keyboards;
+    }
+
+    private ApplicationInfo applicationInfo(String packageName) {
+        try {
+            return appContext.getPackageManager().getApplicationInfo(packageName, 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private String installerOf(String packageName) {
+        PackageManager pm = appContext.getPackageManager();
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                return pm.getInstallSourceInfo(packageName).getInstallingPackageName();
+            }
+            @SuppressWarnings("deprecation")
+            String installer = pm.getInstallerPackageName(packageName);
+            return installer;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
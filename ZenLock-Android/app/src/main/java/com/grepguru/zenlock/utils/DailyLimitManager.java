@@ -0,0 +1,193 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Daily per-app usage limits, e.g. 30 minutes of a video app per day, enforced in and out of
+ * focus sessions
+ *
+ * Counters are kept by an AppAllowanceLedger fed from AppBlockerService's window events, so a
+ * limit check is an in-memory read and UsageStatsManager is never queried on the hot path.
+ * The ledger is scoped to the local day; the first event after midnight rebinds it, carrying
+ * over the app that is still in front. Turning the screen off pauses the ledger, so only an app
+ * actually in use at midnight carries over
+ */
+public final class DailyLimitManager {
+
+    private static final String TAG = "DailyLimitManager";
+    private static final String LOCK_PREFS = "FocusLockPrefs";
+    private static final String STATE_PREFS = "DailyLimitPrefs";
+
+    // Configured limits, "package=minutes" entries in FocusLockPrefs
+    public static final String PREF_LIMITS = "daily_app_limits";
+
+    public interface LimitListener {
+        /**
+         * Called on the main thread when an app hits its daily limit while it is in front
+         */
+        void onDailyLimitReached(String packageName);
+    }
+
+    private static volatile DailyLimitManager INSTANCE;
+
+    private final SharedPreferences lockPrefs;
+    private final AppAllowanceLedger ledger;
+    private final List<LimitListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Bounds of the day the ledger is bound to, [dayStart, dayEnd)
+    private volatile long dayStart = Long.MAX_VALUE;
+    private volatile long dayEnd = Long.MIN_VALUE;
+
+    private DailyLimitManager(Context context) {
+        Context appContext = context.getApplicationContext();
+        lockPrefs = appContext.getSharedPreferences(LOCK_PREFS, Context.MODE_PRIVATE);
+        ledger = new AppAllowanceLedger(TAG,
+                appContext.getSharedPreferences(STATE_PREFS, Context.MODE_PRIVATE),
+                this::notifyLimitReached);
+    }
+
+    public static DailyLimitManager getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (DailyLimitManager.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DailyLimitManager(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public void addListener(LimitListener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(LimitListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean hasLimit(String packageName) {
+        syncDay(System.currentTimeMillis());
+        return ledger.has(packageName);
+    }
+
+    public boolean isLimitReached(String packageName) {
+        long now = System.currentTimeMillis();
+        syncDay(now);
+        return ledger.isExhausted(packageName, now);
+    }
+
+    /**
+     * Time left today for the app, -1 if it has no limit
+     */
+    public long getRemainingMillis(String packageName) {
+        long now = System.currentTimeMillis();
+        syncDay(now);
+        return ledger.getRemainingMillis(packageName, now);
+    }
+
+    /**
+     * Packages whose limit is used up for today
+     */
+    public Set<String> getLimitReachedPackages() {
+        long now = System.currentTimeMillis();
+        syncDay(now);
+        return ledger.getPackages(false, now);
+    }
+
+    /**
+     * Every package with a limit today
+     */
+    public Set<String> getLimitedPackages() {
+        syncDay(System.currentTimeMillis());
+        return ledger.getAll();
+    }
+
+    /**
+     * End of the day today's usage counts towards
+     */
+    public long getDayEnd() {
+        syncDay(System.currentTimeMillis());
+        return dayEnd;
+    }
+
+    /**
+     * The limited app draining now and when it runs out, null if none is
+     */
+    AppAllowanceLedger.Running getRunning() {
+        syncDay(System.currentTimeMillis());
+        return ledger.getRunning();
+    }
+
+    /**
+     * A window of packageName came to the front
+     */
+    public void onForeground(String packageName) {
+        long now = System.currentTimeMillis();
+        syncDay(now);
+        ledger.onForeground(packageName, now);
+    }
+
+    /**
+     * Nothing is in front any more (screen off); stop charging the app that was
+     */
+    public void pause() {
+        long now = System.currentTimeMillis();
+        syncDay(now);
+        ledger.pause(now);
+    }
+
+    /**
+     * Re-read the configured limits, keeping today's usage
+     */
+    public synchronized void reload() {
+        long now = System.currentTimeMillis();
+        ledger.pause(now);
+        bindDay(now);
+    }
+
+    /**
+     * Configured daily limits in minutes by package
+     */
+    public static Map<String, Integer> readConfiguredMinutes(Context context) {
+        return readConfiguredMinutes(context.getSharedPreferences(LOCK_PREFS, Context.MODE_PRIVATE));
+    }
+
+    public static void saveConfiguredMinutes(Context context, Map<String, Integer> minutes) {
+        context.getSharedPreferences(LOCK_PREFS, Context.MODE_PRIVATE)
+                .edit().putStringSet(PREF_LIMITS, AppAllowanceLedger.formatMinutes(minutes)).apply();
+    }
+
+    private static Map<String, Integer> readConfiguredMinutes(SharedPreferences prefs) {
+        return AppAllowanceLedger.parseMinutes(prefs.getStringSet(PREF_LIMITS, new HashSet<>()), TAG);
+    }
+
+    private void syncDay(long now) {
+        if (now >= dayStart && now < dayEnd) return;
+        synchronized (this) {
+            if (now >= dayStart && now < dayEnd) return;
+            bindDay(now);
+        }
+    }
+
+    private void bindDay(long now) {
+        TimeService time = TimeService.get();
+        int today = time.epochDay(now);
+        long start = time.startOfDay(today);
+        ledger.bind(today, readConfiguredMinutes(lockPrefs), start, now);
+        dayStart = start;
+        dayEnd = time.startOfDay(today + 1);
+    }
+
+    private void notifyLimitReached(String packageName) {
+        for (LimitListener listener : listeners) {
+            listener.onDailyLimitReached(packageName);
+        }
+    }
+}
@@ -3,42 +3,44 @@ package com.grepguru.zenlock.utils;
 import android.content.Context;
 import android.util.Log;
 
+import com.grepguru.zenlock.ZenLockApplication;
 import com.grepguru.zenlock.data.database.AnalyticsDatabase;
 import com.grepguru.zenlock.data.entities.DailyMobileUsageEntity;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
  * Manager for daily mobile usage data storage and retrieval
- * Handles FIFO-like behavior with max 30 days of data
+ * Handles FIFO-like behavior with max 90 days of daily data; older days are folded into
+ * weekly/monthly rollups (see UsageRollupManager) before they are trimmed
  * Solves Android's UsageStatsManager data retention limitations
  */
 public class DailyMobileUsageManager {
     
     private static final String TAG = "DailyMobileUsageManager";
-    private static final int MAX_DAYS = 30;
+    private static final int MAX_DAYS = 90;
     
     private final Context context;
     private final AnalyticsDatabase database;
     private final ExecutorService executor;
     private final MobileUsageTracker mobileUsageTracker;
+    private final UsageRollupManager rollupManager;
+    private final UsageArchiveManager archiveManager;
     
     public DailyMobileUsageManager(Context context) {
         this.context = context;
         this.database = AnalyticsDatabase.getDatabase(context);
         this.executor = Executors.newSingleThreadExecutor();
-        this.mobileUsageTracker = new MobileUsageTracker(context);
+        this.mobileUsageTracker = ZenLockApplication.container(context).getMobileUsageTracker();
+        this.rollupManager = new UsageRollupManager(context);
+        this.archiveManager = new UsageArchiveManager(context);
     }
     
     /**
      * Store yesterday's mobile usage data
-     * This should be called daily to maintain the 30-day rolling window
+     * This should be called daily to maintain the rolling window
      */
     public void storeYesterdayMobileUsage() {
         executor.execute(() -> {
@@ -59,8 +61,11 @@ public class DailyMobileUsageManager {
                     }
                 }
                 
-                // Maintain FIFO behavior - keep only last 30 days
-                maintainMax30Days();
+                // Snapshot per-app detail before UsageStatsManager drops it
+                archiveManager.archiveRecentDays(mobileUsageTracker, 7);
+                
+                // Fold recent days into rollups, then trim the daily window
+                maintainMaxDays();
                 
             } catch (Exception e) {
                 Log.e(TAG, "Error storing mobile usage data", e);
@@ -101,15 +106,7 @@ public class DailyMobileUsageManager {
      */
     private boolean isRecentDate(String date) {
         try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-            Date targetDate = sdf.parse(date);
-            if (targetDate == null) return false;
-            
-            Date now = new Date();
-            long diffInMillis = now.getTime() - targetDate.getTime();
-            long diffInDays = diffInMillis / (1000 * 60 * 60 * 24);
-            
-            return diffInDays <= 7; // Only consider dates within last 7 days as "recent"
+            return TimeService.get().today() - TimeService.parseDay(date) <= 7; // Only consider dates within last 7 days as "recent"
         } catch (Exception e) {
             return false;
         }
@@ -141,56 +138,28 @@ public class DailyMobileUsageManager {
     }
     
     /**
-     * Maintain FIFO behavior - keep only last 30 days
+     * Maintain FIFO behavior - keep only last MAX_DAYS days
+     * Rollups are refreshed first so trimmed days stay counted in weekly/monthly totals
      */
-    private void maintainMax30Days() {
+    private void maintainMaxDays() {
         try {
+            rollupManager.refreshRecentRollups();
+            
             int count = database.analyticsDao().getDailyMobileUsageCount();
             
             if (count > MAX_DAYS) {
-                database.analyticsDao().maintainMax30DaysMobileUsage();
+                database.analyticsDao().trimDailyMobileUsage(MAX_DAYS);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error maintaining max 30 days", e);
+            Log.e(TAG, "Error maintaining max " + MAX_DAYS + " days", e);
         }
     }
     
-    /**
-     * Get yesterday's date in YYYY-MM-DD format
-     */
-    private String getYesterdayDate() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, -1);
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        return sdf.format(cal.getTime());
-    }
-    
     /**
      * Get date N days ago in YYYY-MM-DD format
      */
     private String getDateDaysAgo(int daysAgo) {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, -daysAgo);
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        return sdf.format(cal.getTime());
-    }
-    
-    /**
-     * Get today's date in YYYY-MM-DD format
-     */
-    private String getTodayDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        return sdf.format(new Date());
-    }
-    
-    /**
-     * Get date N days ago in YYYY-MM-DD format
-     */
-    private String getDateNDaysAgo(int daysAgo) {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, -daysAgo);
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        return sdf.format(cal.getTime());
+        return TimeService.formatDay(TimeService.get().today() - daysAgo);
     }
     
     /**
@@ -221,6 +190,8 @@ public class DailyMobileUsageManager {
                 Log.d(TAG, "  Oldest: " + oldest);
                 Log.d(TAG, "  Newest: " + newest);
                 Log.d(TAG, "  Max allowed: " + MAX_DAYS);
+                Log.d(TAG, "  Archived days: " + database.analyticsDao().getUsageArchiveCount() +
+                        " (" + archiveManager.getArchiveBytes() + " bytes)");
             } catch (Exception e) {
                 Log.e(TAG, "Error getting database stats", e);
             }
@@ -233,7 +204,7 @@ public class DailyMobileUsageManager {
     public void forceCleanup() {
         executor.execute(() -> {
             try {
-                maintainMax30Days();
+                maintainMaxDays();
                 logDatabaseStats();
             } catch (Exception e) {
                 Log.e(TAG, "Error during force cleanup", e);
@@ -264,8 +235,11 @@ public class DailyMobileUsageManager {
                     }
                 }
                 
-                // Maintain FIFO behavior - keep only last 30 days
-                maintainMax30Days();
+                // Snapshot per-app detail before UsageStatsManager drops it
+                archiveManager.archiveRecentDays(mobileUsageTracker, 7);
+                
+                // Fold recent days into rollups, then trim the daily window
+                maintainMaxDays();
                 
             } catch (Exception e) {
                 Log.e(TAG, "Error pre-populating recent data", e);
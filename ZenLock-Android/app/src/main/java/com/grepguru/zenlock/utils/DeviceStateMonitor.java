@@ -0,0 +1,221 @@
+package com.grepguru.zenlock.utils;
+
+import android.app.AppOpsManager;
+import android.app.KeyguardManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cached device state the blocker consults on every accessibility event: screen interactivity,
+ * keyguard, usage access and MIUI's background-start permission
+ *
+ * Each of these used to be a binder call per check. Here they are read once, then kept current
+ * from ACTION_SCREEN_ON/OFF and ACTION_USER_PRESENT (registered on the application context, the
+ * only way to receive them) and an AppOps watcher on usage access, so callers get a volatile
+ * read. Two cases still fall back to a real query: keyguard while the screen is off, since the
+ * device locks after a configurable delay with no broadcast, and a cached "locked" older than
+ * KEYGUARD_RECHECK_MS, since wrongly thinking the keyguard is up would stop blocking. MIUI's
+ * op has no public watch API, so it is re-read on screen on and on refreshBackgroundStart()
+ * Listeners hear when the user leaves (screen off) and comes back (unlocked), so time spent
+ * in standby is never counted as time in the app left in front
+ */
+public final class DeviceStateMonitor {
+
+    private static final String TAG = "DeviceStateMonitor";
+    private static final long KEYGUARD_RECHECK_MS = 1000;
+
+    private static volatile DeviceStateMonitor INSTANCE;
+
+    /**
+     * Called on the main thread
+     */
+    public interface PresenceListener {
+        /** Screen went off; the keyguard comes up with it or after it */
+        void onUserAway();
+
+        /** Back in front of the device with the keyguard dismissed */
+        void onUserPresent();
+    }
+
+    private final Context appContext;
+    private final PowerManager powerManager;
+    private final KeyguardManager keyguardManager;
+    private final AppOpsManager appOpsManager;
+
+    private volatile boolean interactive;
+    private volatile boolean keyguardLocked;
+    private volatile long keyguardCheckedAt;
+    private volatile boolean usageStatsAllowed;
+    private volatile boolean backgroundStartAllowed;
+    private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (Intent.ACTION_SCREEN_OFF.equals(action)) {
+                interactive = false;
+                queryKeyguard();
+                for (PresenceListener listener : listeners) listener.onUserAway();
+            } else if (Intent.ACTION_SCREEN_ON.equals(action)) {
+                interactive = true;
+                queryKeyguard();
+                backgroundStartAllowed = queryBackgroundStart();
+                // Without a keyguard (or while it is still unlocked) no USER_PRESENT follows
+                if (!keyguardLocked) {
+                    for (PresenceListener listener : listeners) listener.onUserPresent();
+                }
+            } else if (Intent.ACTION_USER_PRESENT.equals(action)) {
+                keyguardLocked = false;
+                keyguardCheckedAt = SystemClock.elapsedRealtime();
+                for (PresenceListener listener : listeners) listener.onUserPresent();
+            }
+        }
+    };
+
+    private final AppOpsManager.OnOpChangedListener usageStatsWatcher = this::onUsageStatsChanged;
+
+    private DeviceStateMonitor(Context context) {
+        appContext = context.getApplicationContext();
+        powerManager = (PowerManager) appContext.getSystemService(Context.POWER_SERVICE);
+        keyguardManager = (KeyguardManager) appContext.getSystemService(Context.KEYGUARD_SERVICE);
+        appOpsManager = (AppOpsManager) appContext.getSystemService(Context.APP_OPS_SERVICE);
+
+        interactive = queryInteractive();
+        queryKeyguard();
+        usageStatsAllowed = queryUsageStats();
+        backgroundStartAllowed = queryBackgroundStart();
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_USER_PRESENT);
+        try {
+            appContext.registerReceiver(screenReceiver, filter);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to register screen receiver", e);
+        }
+        if (appOpsManager != null) {
+            try {
+                appOpsManager.startWatchingMode(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                        appContext.getPackageName(), usageStatsWatcher);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to watch usage access", e);
+            }
+        }
+    }
+
+    public static DeviceStateMonitor getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (DeviceStateMonitor.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DeviceStateMonitor(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public void addListener(PresenceListener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(PresenceListener listener) {
+        listeners.remove(listener);
+    }
+
+    // =====================================
+    // READS
+    // =====================================
+
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    public boolean isKeyguardLocked() {
+        if (!interactive
+                || (keyguardLocked && SystemClock.elapsedRealtime() - keyguardCheckedAt > KEYGUARD_RECHECK_MS)) {
+            queryKeyguard();
+        }
+        return keyguardLocked;
+    }
+
+    public boolean hasUsageStatsPermission() {
+        return usageStatsAllowed;
+    }
+
+    /**
+     * MIUI "display pop-up windows while running in background"; always true off Xiaomi
+     */
+    public boolean canStartActivityFromBackground() {
+        return backgroundStartAllowed;
+    }
+
+    /**
+     * Re-read the MIUI permission, e.g. when returning from its settings page
+     */
+    public boolean refreshBackgroundStart() {
+        backgroundStartAllowed = queryBackgroundStart();
+        return backgroundStartAllowed;
+    }
+
+    // =====================================
+    // QUERIES
+    // =====================================
+
+    private void onUsageStatsChanged(String op, String packageName) {
+        if (appContext.getPackageName().equals(packageName)) {
+            usageStatsAllowed = queryUsageStats();
+            Log.d(TAG, "Usage access changed: " + usageStatsAllowed);
+        }
+    }
+
+    private boolean queryInteractive() {
+        try {
+            return powerManager == null || powerManager.isInteractive();
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking screen state", e);
+            return true; // Assume screen is on if check fails
+        }
+    }
+
+    private void queryKeyguard() {
+        boolean locked = false;
+        try {
+            if (keyguardManager != null) {
+                locked = keyguardManager.isKeyguardLocked();
+            } else {
+                Log.w(TAG, "KeyguardManager is null, assuming keyguard is not locked");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking keyguard state", e);
+        }
+        keyguardLocked = locked;
+        keyguardCheckedAt = SystemClock.elapsedRealtime();
+    }
+
+    private boolean queryUsageStats() {
+        if (appOpsManager == null) return false;
+        try {
+            int mode = appOpsManager.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                    Process.myUid(), appContext.getPackageName());
+            return mode == AppOpsManager.MODE_ALLOWED;
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking usage stats permission", e);
+            return false;
+        }
+    }
+
+    private boolean queryBackgroundStart() {
+        return MiuiUtils.checkBackgroundStartOp(appContext);
+    }
+}
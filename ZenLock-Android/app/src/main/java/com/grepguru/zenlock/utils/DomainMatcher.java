@@ -0,0 +1,145 @@
+package com.grepguru.zenlock.utils;
+
+import java.util.Locale;
+
+/**
+ * Blocked websites compiled into a trie over reversed host names
+ *
+ * "youtube.com" is stored as "moc.ebutuoy", so walking a host from its last character reaches a
+ * blocked domain exactly at a label boundary, which also covers every subdomain (m.youtube.com,
+ * www.youtube.com) but not lookalikes (notyoutube.com). Matching reads the URL bar text in place
+ * and allocates nothing; all allocation happens in parse()
+ */
+public final class DomainMatcher {
+
+    public static final DomainMatcher EMPTY = new DomainMatcher(new Node(), 0);
+
+    // Longest scheme we skip, "https://" plus some room for odd ones like "chrome-extension://"
+    private static final int MAX_SCHEME_LENGTH = 20;
+
+    private static final class Node {
+        // Fan-out is small except at the root, a linear scan beats hashing a char
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        boolean terminal;
+
+        Node child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) return children[i];
+            }
+            return null;
+        }
+
+        Node addChild(char key) {
+            Node existing = child(key);
+            if (existing != null) return existing;
+            int size = keys.length;
+            char[] newKeys = new char[size + 1];
+            Node[] newChildren = new Node[size + 1];
+            System.arraycopy(keys, 0, newKeys, 0, size);
+            System.arraycopy(children, 0, newChildren, 0, size);
+            newKeys[size] = key;
+            newChildren[size] = new Node();
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[size];
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private DomainMatcher(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Compile a list of domains separated by newlines, commas or spaces; entries may be full URLs
+     */
+    public static DomainMatcher parse(String text) {
+        if (text == null || text.trim().isEmpty()) return EMPTY;
+        Node root = new Node();
+        int size = 0;
+        for (String entry : text.split("[\\s,]+")) {
+            String domain = normalize(entry);
+            if (domain == null) continue;
+            Node node = root;
+            for (int i = domain.length() - 1; i >= 0; i--) {
+                node = node.addChild(domain.charAt(i));
+            }
+            if (!node.terminal) {
+                node.terminal = true;
+                size++;
+            }
+        }
+        return size == 0 ? EMPTY : new DomainMatcher(root, size);
+    }
+
+    /**
+     * Bare lowercase host for an entry ("https://www.Reddit.com/r/all" -> "reddit.com"), null if none
+     */
+    public static String normalize(String entry) {
+        if (entry == null) return null;
+        String host = entry.trim().toLowerCase(Locale.ROOT);
+        int scheme = host.indexOf("://");
+        if (scheme >= 0) host = host.substring(scheme + 3);
+        int end = hostEnd(host, 0, host.length());
+        host = host.substring(0, end);
+        while (host.endsWith(".")) host = host.substring(0, host.length() - 1);
+        while (host.startsWith(".")) host = host.substring(1);
+        if (host.startsWith("www.")) host = host.substring(4);
+        return host.isEmpty() ? null : host;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether the host of a URL or URL bar text ("youtube.com/shorts", "https://m.youtube.com")
+     * is blocked
+     */
+    public boolean matchesUrl(CharSequence text) {
+        if (size == 0 || text == null) return false;
+        int length = text.length();
+        int start = 0;
+        while (start < length && Character.isWhitespace(text.charAt(start))) start++;
+        int scheme = indexOfScheme(text, start, Math.min(length, start + MAX_SCHEME_LENGTH));
+        if (scheme >= 0) start = scheme + 3;
+        int end = hostEnd(text, start, length);
+        while (end > start && text.charAt(end - 1) == '.') end--;
+        return matchesHost(text, start, end);
+    }
+
+    private boolean matchesHost(CharSequence text, int start, int end) {
+        Node node = root;
+        for (int i = end - 1; i >= start; i--) {
+            node = node.child(Character.toLowerCase(text.charAt(i)));
+            if (node == null) return false;
+            if (node.terminal && (i == start || text.charAt(i - 1) == '.')) return true;
+        }
+        return false;
+    }
+
+    private static int hostEnd(CharSequence text, int start, int length) {
+        int end = start;
+        while (end < length) {
+            char c = text.charAt(end);
+            if (c == '/' || c == ':' || c == '?' || c == '#' || Character.isWhitespace(c)) break;
+            end++;
+        }
+        return end;
+    }
+
+    private static int indexOfScheme(CharSequence text, int start, int limit) {
+        for (int i = start; i < limit && i + 2 < text.length(); i++) {
+            if (text.charAt(i) == ':' && text.charAt(i + 1) == '/' && text.charAt(i + 2) == '/') return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,223 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.grepguru.zenlock.LockScreenActivity;
+import com.grepguru.zenlock.LockScreenLauncher;
+import com.grepguru.zenlock.model.FocusCyclePlan;
+import com.grepguru.zenlock.model.FocusSessionState;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs the focus/break cycle of the current session
+ * The plan is stored once when the session starts. ScheduleTimeline puts its next transition
+ * on the shared schedule alarm, and each transition swaps the cached phase that the blocker,
+ * overlay and lock screen act on, so nothing polls and between transitions the current phase
+ * is a single field read
+ */
+public final class FocusCycleManager {
+
+    private static final String TAG = "FocusCycleManager";
+    private static final String PREFS_NAME = "FocusLockPrefs";
+    private static final String PREF_PLAN = "cycle_plan";
+
+    /**
+     * Notified on every phase change, on the thread that made it
+     */
+    public interface PhaseListener {
+        /**
+         * @param phase the new phase, null once the plan is over or cleared
+         * @param phaseEndMillis when the new phase ends, 0 if phase is null
+         */
+        void onPhaseChanged(@Nullable FocusCyclePlan.Phase phase, long phaseEndMillis);
+    }
+
+    private static final Object LOCK = new Object();
+    private static final List<PhaseListener> listeners = new CopyOnWriteArrayList<>();
+
+    private static volatile boolean loaded;
+    private static volatile FocusCyclePlan plan;
+    private static volatile FocusCyclePlan.Phase phase;
+
+    private FocusCycleManager() {}
+
+    /**
+     * Make the plan the current session's cycle and arm its first transition
+     */
+    public static void start(Context context, FocusCyclePlan newPlan) {
+        long now = System.currentTimeMillis();
+        FocusCyclePlan.Phase newPhase;
+        synchronized (LOCK) {
+            plan = newPlan;
+            newPhase = newPlan.phaseAt(now);
+            phase = newPhase;
+            loaded = true;
+            prefs(context).edit().putString(PREF_PLAN, newPlan.encode()).apply();
+        }
+        Log.d(TAG, "Started " + newPlan);
+        notifyListeners(newPhase, phaseEnd(newPlan, now));
+        ScheduleAlarmMultiplexer.rearm(context);
+    }
+
+    /**
+     * Drop the cycle, e.g. when the session is unlocked or ends; the session is focus-only after this
+     */
+    public static void clear(Context context) {
+        synchronized (LOCK) {
+            ensureLoaded(context);
+            if (plan == null) return;
+            plan = null;
+            phase = null;
+            prefs(context).edit().remove(PREF_PLAN).apply();
+        }
+        Log.d(TAG, "Cycle cleared");
+        notifyListeners(null, 0L);
+        ScheduleAlarmMultiplexer.rearm(context);
+    }
+
+    public static boolean isBreakActive(Context context) {
+        if (!loaded) ensureLoaded(context);
+        FocusCyclePlan.Phase current = phase;
+        return current != null && current.isBreak();
+    }
+
+    @Nullable
+    public static FocusCyclePlan.Phase getPhase(Context context) {
+        if (!loaded) ensureLoaded(context);
+        return phase;
+    }
+
+    @Nullable
+    public static FocusCyclePlan getPlan(Context context) {
+        if (!loaded) ensureLoaded(context);
+        return plan;
+    }
+
+    public static void addListener(PhaseListener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public static void removeListener(PhaseListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Next transition of the active plan at or after fromMillis, -1 if none, for the alarm timeline
+     */
+    static long readNextTransition(Context context, long fromMillis) {
+        if (!loaded) ensureLoaded(context);
+        FocusCyclePlan current = plan;
+        return current == null ? -1L : current.nextTransitionAtOrAfter(fromMillis);
+    }
+
+    /**
+     * Called by ScheduleAlarmMultiplexer when a transition of the plan is due
+     */
+    static void onTransition(Context context) {
+        long now = System.currentTimeMillis();
+        FocusCyclePlan current;
+        FocusCyclePlan.Phase previous;
+        FocusCyclePlan.Phase next;
+        synchronized (LOCK) {
+            ensureLoaded(context);
+            current = plan;
+            if (current == null) return;
+            previous = phase;
+            next = current.phaseAt(now);
+            phase = next;
+            if (next == null) {
+                plan = null;
+                prefs(context).edit().remove(PREF_PLAN).apply();
+            }
+        }
+
+        if (next == null) {
+            Log.d(TAG, "Cycle finished");
+            notifyListeners(null, 0L);
+            endExpiredSession(context, now);
+            return;
+        }
+        // Back-to-back focus blocks (no short breaks) also land here; listeners show the next round
+        Log.d(TAG, "Phase " + previous + " -> " + next);
+        notifyListeners(next, phaseEnd(current, now));
+        if (next == FocusCyclePlan.Phase.FOCUS && !LockScreenActivity.isActive()) {
+            // Lock screen went away during the break (or the process was restarted); bring it back
+            launchLockScreen(context);
+        }
+    }
+
+    private static long phaseEnd(FocusCyclePlan current, long now) {
+        int segment = current.segmentAt(now);
+        return segment >= 0 && segment < current.getSegmentCount() ? current.getSegmentEnd(segment) : 0L;
+    }
+
+    /**
+     * The plan ends with the lock; if no lock screen is around to notice, close the session here
+     */
+    private static void endExpiredSession(Context context, long now) {
+        if (LockScreenActivity.isActive()) return;
+        FocusSessionController sessions = FocusSessionController.getInstance(context);
+        FocusSessionState session = sessions.getState();
+        if (!session.isLocked()) return;
+        if (session.endTime > now + 1000) {
+            // Session was extended past the plan, it carries on as plain focus time
+            launchLockScreen(context);
+            return;
+        }
+
+        sessions.expire();
+        AnalyticsManager analyticsManager = AnalyticsManager.getInstance(context);
+        if (analyticsManager.hasActiveSession()) {
+            analyticsManager.endSession(true);
+        }
+        Log.d(TAG, "Session ended with its cycle");
+    }
+
+    private static void launchLockScreen(Context context) {
+        try {
+            Intent intent = new Intent(context, LockScreenActivity.class);
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+            context.startActivity(intent);
+        } catch (Exception e) {
+            Log.e(TAG, "Direct lock screen launch failed, using notification", e);
+            LockScreenLauncher.launchFromBlocker(context);
+        }
+    }
+
+    private static void ensureLoaded(Context context) {
+        synchronized (LOCK) {
+            if (loaded) return;
+            FocusCyclePlan stored = FocusCyclePlan.decode(prefs(context).getString(PREF_PLAN, null));
+            long now = System.currentTimeMillis();
+            if (stored != null && now >= stored.getEndMillis()) {
+                // Ran out while the process was gone
+                prefs(context).edit().remove(PREF_PLAN).apply();
+                stored = null;
+            }
+            plan = stored;
+            phase = stored == null ? null : stored.phaseAt(now);
+            loaded = true;
+        }
+    }
+
+    private static void notifyListeners(@Nullable FocusCyclePlan.Phase newPhase, long phaseEndMillis) {
+        for (PhaseListener listener : listeners) {
+            try {
+                listener.onPhaseChanged(newPhase, phaseEndMillis);
+            } catch (Exception e) {
+                Log.e(TAG, "Phase listener failed", e);
+            }
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,311 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.grepguru.zenlock.model.FocusSessionState;
+import com.grepguru.zenlock.model.FocusSessionState.Stage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owner of the focus session state machine: IDLE -> PENDING -> LOCKED -> EXPIRED / UNLOCKED
+ *
+ * Every component reads the session from the volatile snapshot here instead of FocusLockPrefs,
+ * and every change goes through one synchronized compare-and-set on that snapshot. Appending the
+ * new snapshot to a RecordJournal, the fsync and compaction run in order on a single writer
+ * thread, so transitions made on the main thread never wait for the disk; receivers that may
+ * let the process die right after a transition call flush() first. On first load the journal is
+ * replayed (its last record is the state); installs that predate it are imported from the old
+ * prefs keys once. Session-wide cleanup (cycle plan, session budgets, consumed schedule
+ * occurrences) happens here when a locked session ends, so callers only deal with their own UI
+ * and analytics
+ */
+public final class FocusSessionController {
+
+    private static final String TAG = "FocusSessionController";
+    private static final String JOURNAL_FILE = "focus_session.journal";
+    private static final String LEGACY_PREFS = "FocusLockPrefs";
+    // Only the last record matters, rewrite the journal once it holds this many
+    private static final int COMPACT_THRESHOLD = 32;
+
+    /**
+     * Notified after a transition, on the thread that made it
+     */
+    public interface Listener {
+        void onSessionStateChanged(FocusSessionState previous, FocusSessionState current);
+    }
+
+    private static volatile FocusSessionController INSTANCE;
+
+    private final Context appContext;
+    // Writer thread only, after load()
+    private final RecordJournal journal;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile FocusSessionState state;
+
+    private FocusSessionController(Context context) {
+        appContext = context.getApplicationContext();
+        journal = new RecordJournal(new File(appContext.getFilesDir(), JOURNAL_FILE));
+        state = load();
+        Log.d(TAG, "Loaded " + state);
+    }
+
+    public static FocusSessionController getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (FocusSessionController.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new FocusSessionController(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // =====================================
+    // READS
+    // =====================================
+
+    public FocusSessionState getState() {
+        return state;
+    }
+
+    public boolean isLocked() {
+        return state.isLocked();
+    }
+
+    /**
+     * Locked with time left at now; a LOCKED session past its end is treated as over
+     */
+    public boolean isLockedAt(long now) {
+        return state.isLockedAt(now);
+    }
+
+    /**
+     * The device rebooted since the session locked (flagged by BootReceiver or seen from uptime)
+     */
+    public boolean wasDeviceRestarted() {
+        FocusSessionState current = state;
+        return current.isLocked()
+                && (current.deviceRestarted || current.uptimeAtLock > SystemClock.elapsedRealtime());
+    }
+
+    // =====================================
+    // TRANSITIONS
+    // =====================================
+
+    /**
+     * A delayed manual start is waiting for its alarm
+     */
+    public void markPending(long startAt, long durationMillis, String source) {
+        FocusSessionState current = state;
+        if (current.isLocked()) return;
+        transitionFrom(current, new FocusSessionState(Stage.PENDING, startAt, startAt + durationMillis, durationMillis,
+                -1, false, source));
+    }
+
+    public void cancelPending() {
+        FocusSessionState current = state;
+        if (current.isPending()) transitionFrom(current, FocusSessionState.IDLE);
+    }
+
+    /**
+     * Start a session now; replaces a pending start or a session that was still marked locked
+     */
+    public void lock(long startTime, long durationMillis, String source) {
+        transition(new FocusSessionState(Stage.LOCKED, startTime, startTime + durationMillis, durationMillis,
+                SystemClock.elapsedRealtime(), false, source));
+    }
+
+    /**
+     * Move the end of the locked session, growing its target by the same amount
+     */
+    public void extendTo(long newEndTime) {
+        FocusSessionState current = state;
+        if (!current.isLocked() || newEndTime <= current.endTime) return;
+        long target = current.targetDuration > 0
+                ? current.targetDuration + (newEndTime - current.endTime) : 0;
+        transitionFrom(current, current.withEndTime(newEndTime, target));
+    }
+
+    public void markDeviceRestarted() {
+        FocusSessionState current = state;
+        if (!current.isLocked() || current.deviceRestarted) return;
+        transitionFrom(current, current.withRestart(current.uptimeAtLock, true));
+    }
+
+    /**
+     * The session carries on after a reboot; measure uptime from now
+     */
+    public void clearRestartFlag() {
+        FocusSessionState current = state;
+        if (!current.isLocked()) return;
+        transitionFrom(current, current.withRestart(SystemClock.elapsedRealtime(), false));
+    }
+
+    /**
+     * The session ran its course (or can no longer be enforced)
+     */
+    public void expire() {
+        end(Stage.EXPIRED);
+    }
+
+    /**
+     * The session was ended early by an unlock
+     */
+    public void unlock() {
+        end(Stage.UNLOCKED);
+    }
+
+    /**
+     * Expire the session if it is locked past its end; true if it did
+     */
+    public boolean expireIfDue(long now) {
+        FocusSessionState current = state;
+        if (!current.isLocked() || current.endTime > now) return false;
+        return transitionFrom(current, current.withStage(Stage.EXPIRED));
+    }
+
+    /**
+     * Wait until every transition made so far is on disk, for callers about to let the process
+     * die (e.g. receivers)
+     */
+    public void flush(long timeoutMillis) {
+        try {
+            writer.submit(() -> { }).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "Timed out waiting for the session journal", e);
+        }
+    }
+
+    // =====================================
+    // INTERNALS
+    // =====================================
+
+    private void end(Stage stage) {
+        FocusSessionState current = state;
+        if (!current.isLocked()) return;
+        transitionFrom(current, current.withStage(stage));
+    }
+
+    private void transition(FocusSessionState next) {
+        FocusSessionState previous;
+        synchronized (this) {
+            previous = state;
+            commit(next);
+        }
+        afterTransition(previous, next);
+    }
+
+    /**
+     * Apply next only if expected is still the state, so racing callers end a session once
+     */
+    private boolean transitionFrom(FocusSessionState expected, FocusSessionState next) {
+        synchronized (this) {
+            if (state != expected) return false;
+            commit(next);
+        }
+        afterTransition(expected, next);
+        return true;
+    }
+
+    /**
+     * Under the lock, so writes are queued in transition order
+     */
+    private void commit(FocusSessionState next) {
+        state = next;
+        writer.execute(() -> persist(next));
+    }
+
+    private void persist(FocusSessionState next) {
+        try {
+            journal.append(next.toRecord());
+            journal.commit();
+            if (journal.getRecordCount() > COMPACT_THRESHOLD) {
+                journal.compact(Collections.singletonList(next.toRecord()));
+            }
+        } catch (IOException e) {
+            // Keep serving the new state; the journal catches up on the next transition
+            Log.e(TAG, "Failed to persist " + next, e);
+            journal.close();
+        }
+    }
+
+    private void afterTransition(FocusSessionState previous, FocusSessionState current) {
+        Log.d(TAG, previous.stage + " -> " + current);
+        if (previous.isLocked() && !current.isLocked()) {
+            FocusCycleManager.clear(appContext);
+            SessionBudgetManager.getInstance(appContext).clear();
+            // Expired late (device off): only what ran up to the end was covered
+            ScheduleIntervalIndex.markConsumed(appContext,
+                    Math.min(System.currentTimeMillis(), previous.endTime - 1));
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onSessionStateChanged(previous, current);
+            } catch (Exception e) {
+                Log.e(TAG, "Session listener failed", e);
+            }
+        }
+    }
+
+    private FocusSessionState load() {
+        List<byte[]> records = journal.replay();
+        for (int i = records.size() - 1; i >= 0; i--) {
+            FocusSessionState stored = FocusSessionState.fromRecord(records.get(i));
+            if (stored != null) return stored;
+        }
+        FocusSessionState imported = importLegacyPrefs();
+        try {
+            journal.compact(Collections.singletonList(imported.toRecord()));
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write initial session record", e);
+        }
+        return imported;
+    }
+
+    /**
+     * One-time import of the session keys FocusLockPrefs used to hold, which are then removed
+     */
+    private FocusSessionState importLegacyPrefs() {
+        SharedPreferences prefs = appContext.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+        FocusSessionState imported = FocusSessionState.IDLE;
+        if (prefs.getBoolean("isLocked", false)) {
+            imported = new FocusSessionState(Stage.LOCKED,
+                    prefs.getLong("lockStartTime", 0),
+                    prefs.getLong("lockEndTime", 0),
+                    prefs.getLong("lockTargetDuration", 0),
+                    prefs.getLong("uptimeAtLock", -1),
+                    prefs.getBoolean("wasDeviceRestarted", false),
+                    prefs.getString("current_session_source", ""));
+        }
+        prefs.edit()
+                .remove("isLocked")
+                .remove("lockStartTime")
+                .remove("lockEndTime")
+                .remove("lockTargetDuration")
+                .remove("uptimeAtLock")
+                .remove("wasDeviceRestarted")
+                .remove("current_session_source")
+                .apply();
+        return imported;
+    }
+}
@@ -1,8 +1,6 @@
 package com.grepguru.zenlock.utils;
 
-import android.app.KeyguardManager;
 import android.content.Context;
-import android.util.Log;
 
 /**
  * Utility class for KeyguardManager operations to prevent code duplication
@@ -10,28 +8,14 @@ import android.util.Log;
  */
 public class KeyguardUtils {
     
-    private static final String TAG = "KeyguardUtils";
-    
     /**
      * Check if the system lock screen (Keyguard) is currently active
+     * Served from DeviceStateMonitor, which tracks it from screen and user-present broadcasts
      * @param context The context
      * @return True if the system lock screen is active, false otherwise
      */
     public static boolean isKeyguardLocked(Context context) {
-        try {
-            KeyguardManager keyguardManager = (KeyguardManager) context.getSystemService(Context.KEYGUARD_SERVICE);
-            if (keyguardManager != null) {
-                boolean isLocked = keyguardManager.isKeyguardLocked();
-                // Log.d(TAG, "System Keyguard is " + (isLocked ? "active" : "inactive"));
-                return isLocked;
-            } else {
-                Log.w(TAG, "KeyguardManager is null, assuming keyguard is not locked");
-                return false;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking keyguard state", e);
-            return false; // Assume not locked on error
-        }
+        return DeviceStateMonitor.getInstance(context).isKeyguardLocked();
     }
     
     /**
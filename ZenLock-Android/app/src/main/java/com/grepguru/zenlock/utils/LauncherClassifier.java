@@ -0,0 +1,215 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ResolveInfo;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Single answer to "is this the home screen or recents?" for the blocker, whitelist and usage stats
+ *
+ * Launcher packages are the OEM table below plus every activity resolving CATEGORY_HOME, resolved
+ * once and again only when a package is added, removed or changed. Class names are matched
+ * against one precompiled case-insensitive pattern and the verdict cached per class name, so the
+ * per-event checks are hash lookups rather than a lowercase copy and substring scans
+ */
+public final class LauncherClassifier {
+
+    private static final String TAG = "LauncherClassifier";
+
+    /**
+     * Known home screen packages, including ones that may not resolve CATEGORY_HOME for us
+     */
+    private static final Set<String> OEM_LAUNCHERS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        // Samsung
+        "com.sec.android.app.launcher",           // Samsung One UI Launcher
+        "com.samsung.android.launcher",           // Samsung Launcher (legacy)
+        // Google / AOSP
+        "com.google.android.apps.nexuslauncher",  // Pixel Launcher
+        "com.android.launcher",                   // Stock Android Launcher (legacy)
+        "com.android.launcher2",                  // AOSP Launcher2 (legacy)
+        "com.android.launcher3",                  // AOSP Launcher3
+        "com.google.android.launcher",            // Google Now Launcher (legacy)
+        // Xiaomi / Redmi / POCO
+        "com.miui.home",                          // MIUI / HyperOS Launcher
+        "com.mi.android.globallauncher",          // POCO Launcher
+        // OnePlus
+        "com.oneplus.launcher",                   // OnePlus Launcher (OxygenOS 13+)
+        "net.oneplus.launcher",                   // OnePlus Launcher (older OxygenOS)
+        // Huawei / Honor
+        "com.huawei.android.launcher",            // Huawei EMUI Launcher
+        "com.hihonor.android.launcher",           // Honor MagicOS Launcher
+        // Oppo / Realme
+        "com.oppo.launcher",                      // OPPO ColorOS / Realme UI Launcher
+        "com.realme.launcher",                    // Realme Launcher (legacy)
+        // Vivo
+        "com.bbk.launcher2",                      // Vivo FuntouchOS / OriginOS Launcher
+        "com.vivo.launcher",                      // Vivo Launcher (legacy)
+        // Nothing
+        "com.nothing.launcher",                   // Nothing Phone Launcher
+        // Motorola
+        "com.motorola.launcher3",                 // Moto Launcher
+        "com.motorola.launcher",                  // Moto Launcher (legacy)
+        // Nokia (HMD)
+        "com.hmd.launcher",                       // Nokia Launcher
+        // ASUS
+        "com.asus.launcher",                      // ASUS ZenUI / ROG Launcher
+        // Lenovo
+        "com.lenovo.launcher",                    // Lenovo Launcher
+        // Sony
+        "com.sonymobile.home",                    // Sony Xperia Home (older)
+        "com.sonymobile.launcher",                // Sony Xperia Launcher (newer)
+        "com.sony.launcher",                      // Sony Launcher (legacy)
+        // LG (legacy)
+        "com.lge.launcher2",                      // LG Launcher (older)
+        "com.lge.launcher3",                      // LG Launcher (newer)
+        // HTC
+        "com.htc.launcher",                       // HTC Sense Home
+        "com.htc.launcher.edge",                  // HTC Edge Launcher
+        // Tecno / Infinix / itel (Transsion)
+        "com.transsion.hilauncher",               // Tecno HiOS Launcher
+        "com.transsion.XOSLauncher",              // Infinix XOS Launcher
+        "com.transsion.itel.launcher",            // itel Launcher
+        // ZTE / Nubia
+        "com.zte.mifavor.launcher",               // ZTE MiFavor Launcher
+        "com.nubia.launcher",                     // Nubia Launcher
+        // Third-party launchers
+        "com.nova.launcher",                      // Nova Launcher
+        "com.teslacoilsw.launcher",               // Nova Launcher (alternative pkg)
+        "com.microsoft.launcher",                 // Microsoft Launcher
+        "com.anddoes.launcher",                   // ADW Launcher
+        "com.go.launcher",                        // GO Launcher
+        "com.apex.launcher",                      // Apex Launcher
+        "com.lx.launcher8"                        // Launcher 8
+    )));
+
+    // Settings resolves CATEGORY_HOME through FallbackHome (direct boot); it is never a launcher
+    private static final String SETTINGS_PACKAGE = "com.android.settings";
+
+    // Home screen and recents activities, which can be used to get around the lock
+    private static final Pattern BYPASS_CLASS = Pattern.compile("launcher|recents", Pattern.CASE_INSENSITIVE);
+
+    // Class names seen on a device are a small, fixed set; this only guards against a runaway app
+    private static final int MAX_CACHED_CLASSES = 1024;
+    // Map entry, class name and boxed verdict, roughly
+    private static final int CACHED_CLASS_BYTES = 160;
+
+    private static volatile LauncherClassifier INSTANCE;
+
+    private final Context appContext;
+    private final Map<String, Boolean> bypassByClass = new ConcurrentHashMap<>();
+    private volatile Set<String> launcherPackages;
+
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            launcherPackages = resolveLauncherPackages();
+        }
+    };
+
+    // Verdicts are one regex match away, so the cache goes as soon as the process is in the background
+    private final MemoryPressure.Trimmable classCache = new MemoryPressure.Trimmable() {
+        @Override
+        public long estimateBytes() {
+            return (long) bypassByClass.size() * CACHED_CLASS_BYTES;
+        }
+
+        @Override
+        public long trim(int tier) {
+            long freed = estimateBytes();
+            bypassByClass.clear();
+            return freed;
+        }
+    };
+
+    private LauncherClassifier(Context context) {
+        appContext = context.getApplicationContext();
+        launcherPackages = resolveLauncherPackages();
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        try {
+            appContext.registerReceiver(packageReceiver, filter);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to register package receiver", e);
+        }
+        MemoryPressure.get().register(TAG, MemoryPressure.TIER_BACKGROUND, classCache);
+    }
+
+    public static LauncherClassifier getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (LauncherClassifier.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new LauncherClassifier(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * In the OEM table; for callers without a Context, does not include resolved home apps
+     */
+    public static boolean isKnownLauncher(String packageName) {
+        return packageName != null && OEM_LAUNCHERS.contains(packageName);
+    }
+
+    /**
+     * Installed home apps plus the OEM table, read-only
+     */
+    public Set<String> getLauncherPackages() {
+        return launcherPackages;
+    }
+
+    public boolean isLauncherPackage(String packageName) {
+        return packageName != null && launcherPackages.contains(packageName);
+    }
+
+    /**
+     * A launcher or recents activity class, blocked unless the launcher is allowed during a lock
+     */
+    public boolean isBypassClass(String className) {
+        if (className == null) return false;
+        Boolean cached = bypassByClass.get(className);
+        if (cached != null) return cached;
+
+        boolean bypass = BYPASS_CLASS.matcher(className).find();
+        if (bypassByClass.size() >= MAX_CACHED_CLASSES) {
+            bypassByClass.clear();
+        }
+        bypassByClass.put(className, bypass);
+        return bypass;
+    }
+
+    private Set<String> resolveLauncherPackages() {
+        Set<String> packages = new HashSet<>(OEM_LAUNCHERS);
+        try {
+            Intent intent = new Intent(Intent.ACTION_MAIN);
+            intent.addCategory(Intent.CATEGORY_HOME);
+            List<ResolveInfo> infos = appContext.getPackageManager()
+                    .queryIntentActivities(intent, 0);
+            for (ResolveInfo info : infos) {
+                if (info.activityInfo != null && !SETTINGS_PACKAGE.equals(info.activityInfo.packageName)) {
+                    packages.add(info.activityInfo.packageName);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to resolve home activities", e);
+        }
+        return Collections.unmodifiableSet(packages);
+    }
+}
@@ -0,0 +1,77 @@
+package com.grepguru.zenlock.utils;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampler for chart series
+ * Reduces a series to at most a fixed number of points while keeping its visual shape
+ * (peaks and dips survive), so charts cost the same no matter how much history exists
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {}
+
+    /**
+     * Select the indices of the points to keep
+     *
+     * @param x         ascending x values
+     * @param y         y values, same length as x
+     * @param threshold maximum number of points to keep (values below 3 keep everything)
+     * @return indices into x/y in ascending order
+     */
+    public static int[] selectIndices(float[] x, float[] y, int threshold) {
+        int length = x.length;
+        if (threshold >= length || threshold < 3) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) all[i] = i;
+            return all;
+        }
+
+        int[] selected = new int[threshold];
+        int count = 0;
+        selected[count++] = 0; // Always keep the first point
+
+        // Buckets exclude the first and last point
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int a = 0;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // Average point of the next bucket is the third triangle vertex
+            int nextStart = (int) Math.floor((i + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * bucketSize) + 1, length);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int nextCount = nextEnd - nextStart;
+            if (nextCount > 0) {
+                avgX /= nextCount;
+                avgY /= nextCount;
+            } else {
+                avgX = x[length - 1];
+                avgY = y[length - 1];
+            }
+
+            // Pick the point in the current bucket forming the largest triangle
+            int rangeStart = (int) Math.floor(i * bucketSize) + 1;
+            int rangeEnd = (int) Math.floor((i + 1) * bucketSize) + 1;
+            double ax = x[a];
+            double ay = y[a];
+            double maxArea = -1;
+            int maxIndex = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+
+            selected[count++] = maxIndex;
+            a = maxIndex;
+        }
+
+        selected[count] = length - 1; // Always keep the last point
+        return selected;
+    }
+}
@@ -20,6 +20,8 @@ import com.grepguru.zenlock.R;
 
 /**
  * Schedules one-off delayed manual focus sessions from the home screen.
+ * The pending start is kept in prefs and armed through ScheduleAlarmMultiplexer; FocusSessionController
+ * shows it as the PENDING stage.
  */
 public final class ManualStartDelayScheduler {
 
@@ -36,11 +38,16 @@ public final class ManualStartDelayScheduler {
     private static final String PREF_DELAY_MINUTES = "pending_manual_delay_minutes";
     private static final String PREF_DURATION_MS = "pending_manual_duration_ms";
     private static final String PREF_END_AT_MS = "pending_manual_end_at_ms";
+    private static final String PREF_CYCLE = "pending_manual_cycle";
 
     private ManualStartDelayScheduler() {}
 
+    /**
+     * @param cycleConfig FocusCyclePlan.encodeConfig() string if the session runs in cycles, else null
+     * @return false if nothing was scheduled; no pending state is left behind then
+     */
     public static boolean scheduleSession(Context context, int delayMinutes, long durationMillis,
-                                          @Nullable Long absoluteEndTimeMillis) {
+                                          @Nullable Long absoluteEndTimeMillis, @Nullable String cycleConfig) {
         if (delayMinutes <= 0) {
             cancelPendingSession(context);
             return false;
@@ -60,33 +67,30 @@ public final class ManualStartDelayScheduler {
         long triggerAtMillis = System.currentTimeMillis() + (delayMinutes * 60_000L);
         long absoluteEndMillis = absoluteEndTimeMillis != null ? absoluteEndTimeMillis : 0L;
 
-        try {
-            PendingIntent pendingIntent = createPendingIntent(
-                    context, durationMillis, absoluteEndMillis
-            );
-
-            alarmManager.cancel(pendingIntent);
-            alarmManager.setExactAndAllowWhileIdle(
-                    AlarmManager.RTC_WAKEUP,
-                    triggerAtMillis,
-                    pendingIntent
-            );
+        // Drop any alarm registered by older versions before the multiplexer owned it
+        alarmManager.cancel(createPendingIntent(context, 0L, 0L));
 
-            savePendingSessionState(
-                    context,
-                    triggerAtMillis,
-                    delayMinutes,
-                    durationMillis,
-                    absoluteEndMillis
-            );
-            showScheduledNotification(context, triggerAtMillis);
-
-            Log.d(TAG, "Scheduled delayed manual session for " + triggerAtMillis);
-            return true;
-        } catch (SecurityException e) {
-            Log.e(TAG, "Unable to schedule delayed manual session", e);
+        savePendingSessionState(
+                context,
+                triggerAtMillis,
+                delayMinutes,
+                durationMillis,
+                absoluteEndMillis,
+                cycleConfig
+        );
+        FocusSessionController.getInstance(context).markPending(triggerAtMillis,
+                absoluteEndMillis > 0L ? absoluteEndMillis - triggerAtMillis : durationMillis, "manual");
+        if (!ScheduleAlarmMultiplexer.rearm(context)) {
+            // Nothing would start it; don't show a pending session that never comes
+            Log.e(TAG, "Failed to arm delayed manual session, rolling back");
+            clearPendingSessionState(context);
+            ScheduleAlarmMultiplexer.rearm(context);
             return false;
         }
+        showScheduledNotification(context, triggerAtMillis);
+
+        Log.d(TAG, "Scheduled delayed manual session for " + triggerAtMillis);
+        return true;
     }
 
     public static void cancelPendingSession(Context context) {
@@ -95,6 +99,7 @@ public final class ManualStartDelayScheduler {
             alarmManager.cancel(createPendingIntent(context, 0L, 0L));
         }
         clearPendingSessionState(context);
+        ScheduleAlarmMultiplexer.rearm(context);
     }
 
     public static boolean hasPendingSession(Context context) {
@@ -136,8 +141,6 @@ public final class ManualStartDelayScheduler {
         }
 
         long triggerAtMillis = prefs.getLong(PREF_START_AT, 0L);
-        long durationMillis = prefs.getLong(PREF_DURATION_MS, 0L);
-        long absoluteEndMillis = prefs.getLong(PREF_END_AT_MS, 0L);
         int delayMinutes = prefs.getInt(PREF_DELAY_MINUTES, 0);
 
         if (triggerAtMillis <= System.currentTimeMillis()) {
@@ -152,25 +155,9 @@ public final class ManualStartDelayScheduler {
             return;
         }
 
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager == null) {
-            Log.e(TAG, "AlarmManager unavailable during delayed session reschedule");
-            return;
-        }
-
-        try {
-            PendingIntent pendingIntent = createPendingIntent(context, durationMillis, absoluteEndMillis);
-            alarmManager.cancel(pendingIntent);
-            alarmManager.setExactAndAllowWhileIdle(
-                    AlarmManager.RTC_WAKEUP,
-                    triggerAtMillis,
-                    pendingIntent
-            );
-            showScheduledNotification(context, triggerAtMillis);
-            Log.d(TAG, "Rescheduled delayed manual session after reboot with original delay " + delayMinutes);
-        } catch (SecurityException e) {
-            Log.e(TAG, "Unable to reschedule delayed manual session after reboot", e);
-        }
+        ScheduleAlarmMultiplexer.rearm(context);
+        showScheduledNotification(context, triggerAtMillis);
+        Log.d(TAG, "Rescheduled delayed manual session after reboot with original delay " + delayMinutes);
     }
 
     public static void clearPendingSessionState(Context context) {
@@ -182,9 +169,32 @@ public final class ManualStartDelayScheduler {
                 .remove(PREF_DELAY_MINUTES)
                 .remove(PREF_DURATION_MS)
                 .remove(PREF_END_AT_MS)
+                .remove(PREF_CYCLE)
                 .apply();
+        FocusSessionController.getInstance(context).cancelPending();
     }
 
+    /**
+     * Start time of the pending session without expiring stale state, for the alarm timeline
+     */
+    static long readPendingStartAt(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getBoolean(PREF_PENDING, false) ? prefs.getLong(PREF_START_AT, 0L) : -1L;
+    }
+
+    /**
+     * Intent for ManualStartDelayReceiver carrying the pending session's parameters
+     */
+    static Intent createStartIntent(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Intent intent = new Intent(context, ManualStartDelayReceiver.class);
+        intent.putExtra(ManualStartDelayReceiver.EXTRA_DURATION_MS, prefs.getLong(PREF_DURATION_MS, 0L));
+        intent.putExtra(ManualStartDelayReceiver.EXTRA_ABSOLUTE_END_TIME_MS, prefs.getLong(PREF_END_AT_MS, 0L));
+        intent.putExtra(ManualStartDelayReceiver.EXTRA_CYCLE_CONFIG, prefs.getString(PREF_CYCLE, null));
+        return intent;
+    }
+
+    // Only used to cancel alarms registered before ScheduleAlarmMultiplexer
     private static PendingIntent createPendingIntent(Context context, long durationMillis, long absoluteEndMillis) {
         Intent intent = new Intent(context, ManualStartDelayReceiver.class);
         intent.putExtra(ManualStartDelayReceiver.EXTRA_DURATION_MS, durationMillis);
@@ -199,10 +209,15 @@ public final class ManualStartDelayScheduler {
     }
 
     private static void savePendingSessionState(Context context, long triggerAtMillis, int delayMinutes,
-                                                long durationMillis, long absoluteEndMillis) {
-        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
-                .edit()
-                .putBoolean(PREF_PENDING, true)
+                                                long durationMillis, long absoluteEndMillis,
+                                                @Nullable String cycleConfig) {
+        SharedPreferences.Editor editor = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit();
+        if (cycleConfig != null) {
+            editor.putString(PREF_CYCLE, cycleConfig);
+        } else {
+            editor.remove(PREF_CYCLE);
+        }
+        editor.putBoolean(PREF_PENDING, true)
                 .putLong(PREF_START_AT, triggerAtMillis)
                 .putInt(PREF_DELAY_MINUTES, delayMinutes)
                 .putLong(PREF_DURATION_MS, durationMillis)
@@ -0,0 +1,189 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Releases in-memory caches when the system asks the process to shrink
+ *
+ * Each cache registers with the tier from which it may be trimmed: UI-only data (app icons,
+ * chart entries) goes as soon as the UI is hidden, caches that are cheap to rebuild once the
+ * process is in the background list, and hot-path caches of the blocker only when memory is
+ * critical. onTrimMemory maps the TRIM_MEMORY_* level to a tier and trims every cache at or below
+ * it, lowest tier first and biggest first within a tier, passing the tier on so a cache can give
+ * up part of itself at a mild level and everything at a severe one. What each trim freed is
+ * logged and kept for getReport(). Registered by ZenLockApplication in every process; the small
+ * heap of the ":blocker" process is what keeps the accessibility service off the low-memory
+ * killer's list on budget phones. Callbacks run on the main thread
+ */
+public final class MemoryPressure implements ComponentCallbacks2 {
+
+    private static final String TAG = "MemoryPressure";
+
+    // Trim tiers, in increasing severity
+    public static final int TIER_UI_HIDDEN = 1;
+    public static final int TIER_BACKGROUND = 2;
+    public static final int TIER_CRITICAL = 3;
+
+    /**
+     * A cache that can give memory back
+     */
+    public interface Trimmable {
+        /**
+         * Rough size in bytes of what is held now
+         */
+        long estimateBytes();
+
+        /**
+         * Release what is appropriate at tier (one of TIER_*)
+         *
+         * @return roughly how many bytes were freed
+         */
+        long trim(int tier);
+    }
+
+    /**
+     * One registered cache and what it gave back so far
+     */
+    public static final class Entry {
+        public final String name;
+        public final int tier;
+        final Trimmable cache;
+        public volatile int trims;
+        public volatile long lastFreedBytes;
+        public volatile long totalFreedBytes;
+
+        Entry(String name, int tier, Trimmable cache) {
+            this.name = name;
+            this.tier = tier;
+            this.cache = cache;
+        }
+
+        public long estimateBytes() {
+            return cache.estimateBytes();
+        }
+    }
+
+    private static final class Due {
+        final Entry entry;
+        final long bytes;
+
+        Due(Entry entry, long bytes) {
+            this.entry = entry;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final MemoryPressure INSTANCE = new MemoryPressure();
+
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+    private MemoryPressure() {
+    }
+
+    public static MemoryPressure get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add a cache; it is trimmed at tier and every more severe one
+     */
+    public void register(String name, int tier, Trimmable cache) {
+        for (Entry entry : entries) {
+            if (entry.cache == cache) return;
+        }
+        entries.add(new Entry(name, tier, cache));
+    }
+
+    public void unregister(Trimmable cache) {
+        entries.removeIf(entry -> entry.cache == cache);
+    }
+
+    /**
+     * Registered caches with their current size and what they freed, lowest tier first
+     */
+    public List<Entry> getReport() {
+        List<Entry> report = new ArrayList<>(entries);
+        Collections.sort(report, (a, b) -> Integer.compare(a.tier, b.tier));
+        return report;
+    }
+
+    /**
+     * Trim every cache registered at tier or below
+     *
+     * @return roughly how many bytes were freed in total
+     */
+    public long trim(int tier) {
+        return trim(TIER_UI_HIDDEN, tier);
+    }
+
+    private long trim(int fromTier, int tier) {
+        List<Due> due = new ArrayList<>();
+        for (Entry entry : entries) {
+            // Sizes are read once, caches may change while others are trimmed
+            if (entry.tier >= fromTier && entry.tier <= tier) due.add(new Due(entry, entry.estimateBytes()));
+        }
+        if (due.isEmpty()) return 0;
+        Collections.sort(due, (a, b) -> a.entry.tier != b.entry.tier
+                ? Integer.compare(a.entry.tier, b.entry.tier) : Long.compare(b.bytes, a.bytes));
+
+        long total = 0;
+        StringBuilder summary = new StringBuilder();
+        for (Due next : due) {
+            Entry entry = next.entry;
+            long freed;
+            try {
+                freed = entry.cache.trim(tier);
+            } catch (Exception e) {
+                Log.e(TAG, "Error trimming " + entry.name, e);
+                continue;
+            }
+            entry.trims++;
+            entry.lastFreedBytes = freed;
+            entry.totalFreedBytes += freed;
+            total += freed;
+            summary.append(String.format(Locale.US, " %s=%d KB", entry.name, freed / 1024));
+        }
+        Log.d(TAG, "Tier " + tier + " freed " + total / 1024 + " KB:" + summary);
+        return total;
+    }
+
+    // =====================================
+    // ComponentCallbacks2
+    // =====================================
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            trim(TIER_CRITICAL);
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            trim(TIER_BACKGROUND);
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            trim(TIER_UI_HIDDEN);
+        } else if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            // Running levels (API 33 and below): still in front, so the UI keeps its caches
+            trim(TIER_BACKGROUND, TIER_CRITICAL);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            trim(TIER_BACKGROUND, TIER_BACKGROUND);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        trim(TIER_CRITICAL);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
@@ -23,11 +23,17 @@ public class MiuiUtils {
 
     private static final String TAG = "MiuiUtils";
     private static final int OP_BACKGROUND_START_ACTIVITY = 10021;
+    // The manufacturer never changes while the process lives
+    private static final boolean XIAOMI_DEVICE = detectXiaomiDevice();
 
     /**
      * Check if the device is a Xiaomi/Redmi/POCO device
      */
     public static boolean isXiaomiDevice() {
+        return XIAOMI_DEVICE;
+    }
+
+    private static boolean detectXiaomiDevice() {
         String manufacturer = Build.MANUFACTURER.toLowerCase();
         return manufacturer.contains("xiaomi") || manufacturer.contains("redmi") || manufacturer.contains("poco");
     }
@@ -37,9 +43,18 @@ public class MiuiUtils {
      * This is a MIUI-specific permission (opcode 10021) that controls whether an app
      * can launch activities from background services.
      *
+     * Served from DeviceStateMonitor's cache; see checkBackgroundStartOp for the query itself.
+     *
      * @return true if permission is granted or device is not Xiaomi, false if denied on Xiaomi
      */
     public static boolean canStartActivityFromBackground(Context context) {
+        return DeviceStateMonitor.getInstance(context).canStartActivityFromBackground();
+    }
+
+    /**
+     * Query opcode 10021 through AppOpsManager (reflection, one binder call)
+     */
+    static boolean checkBackgroundStartOp(Context context) {
         if (!isXiaomiDevice()) {
             return true;
         }
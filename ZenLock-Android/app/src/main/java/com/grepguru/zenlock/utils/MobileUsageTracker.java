@@ -1,29 +1,22 @@
 package com.grepguru.zenlock.utils;
 
-import android.app.AppOpsManager;
 import android.app.usage.UsageStats;
 import android.app.usage.UsageStatsManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.content.pm.ResolveInfo;
-import android.os.Build;
-import android.os.Process;
 import android.provider.Settings;
 import android.util.Log;
 import android.view.inputmethod.InputMethodInfo;
 import android.view.inputmethod.InputMethodManager;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
 import java.util.Set;
 
 /**
@@ -44,73 +37,41 @@ public class MobileUsageTracker {
     }
     
     // ---- Modular utilities for time ranges + total usage ----
-    public static long[] getMonthTimestamps(int year, int month) {
-        Calendar calendar = Calendar.getInstance(TimeZone.getDefault());
-        // Start of month
-        calendar.set(year, month, 1, 0, 0, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long startTime = calendar.getTimeInMillis();
-
-        // End of month (inclusive)
-        calendar.set(year, month, calendar.getActualMaximum(Calendar.DAY_OF_MONTH), 23, 59, 59);
-        calendar.set(Calendar.MILLISECOND, 999);
-        long endTime = calendar.getTimeInMillis();
 
+    /**
+     * Returns start/end (inclusive) timestamps of the month containing the local epoch day.
+     */
+    public static long[] getMonthTimestamps(int anyEpochDay) {
+        TimeService time = TimeService.get();
+        long startTime = time.startOfDay(TimeService.firstOfMonth(anyEpochDay));
+        long endTime = time.startOfDay(TimeService.firstOfNextMonth(anyEpochDay)) - 1;
         return new long[]{startTime, endTime};
     }
 
     /**
-     * Returns start/end timestamps for the provided calendar's day (local TZ).
+     * Returns start/end timestamps for a local epoch day.
      */
-    public static long[] getDayTimestamps(Calendar day) {
-        Calendar cal = (Calendar) day.clone();
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        long start = cal.getTimeInMillis();
-
-        cal.set(Calendar.HOUR_OF_DAY, 23);
-        cal.set(Calendar.MINUTE, 59);
-        cal.set(Calendar.SECOND, 59);
-        cal.set(Calendar.MILLISECOND, 999);
-        long end = cal.getTimeInMillis();
-        return new long[]{start, end};
+    public static long[] getDayTimestamps(int epochDay) {
+        TimeService time = TimeService.get();
+        return new long[]{time.startOfDay(epochDay), time.endOfDay(epochDay)};
     }
 
     /**
-     * Returns start-of-week (Mon 00:00) and end-of-week (Sun 23:59:59.999) for the week containing 'anyDay'.
+     * Returns start-of-week (Mon 00:00) and end-of-week (Sun 23:59:59.999) for the week containing 'anyEpochDay'.
      */
-    public static long[] getWeekTimestamps(Calendar anyDay) {
-        Calendar cal = (Calendar) anyDay.clone();
-        cal.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        long start = cal.getTimeInMillis();
-
-        cal.add(Calendar.DAY_OF_YEAR, 6);
-        cal.set(Calendar.HOUR_OF_DAY, 23);
-        cal.set(Calendar.MINUTE, 59);
-        cal.set(Calendar.SECOND, 59);
-        cal.set(Calendar.MILLISECOND, 999);
-        long end = cal.getTimeInMillis();
-        return new long[]{start, end};
+    public static long[] getWeekTimestamps(int anyEpochDay) {
+        TimeService time = TimeService.get();
+        int monday = TimeService.mondayOf(anyEpochDay);
+        return new long[]{time.startOfDay(monday), time.endOfDay(monday + 6)};
     }
 
     /**
      * Returns start-of-week (Mon 00:00) to now for the current week.
      */
     public static long[] getThisWeekSoFarTimestamps() {
-        Calendar now = Calendar.getInstance(TimeZone.getDefault());
-        Calendar start = (Calendar) now.clone();
-        start.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
-        start.set(Calendar.HOUR_OF_DAY, 0);
-        start.set(Calendar.MINUTE, 0);
-        start.set(Calendar.SECOND, 0);
-        start.set(Calendar.MILLISECOND, 0);
-        return new long[]{start.getTimeInMillis(), System.currentTimeMillis()};
+        TimeService time = TimeService.get();
+        long now = time.now();
+        return new long[]{time.startOfDay(TimeService.mondayOf(time.epochDay(now))), now};
     }
 
     public static long getTotalPhoneUsage(Context context, long startTime, long endTime) {
@@ -189,90 +150,14 @@ public class MobileUsageTracker {
     }
 
     private static Set<String> getLauncherPackages(Context context) {
-        Set<String> set = new HashSet<>();
-        try {
-            final Intent intent = new Intent(Intent.ACTION_MAIN);
-            intent.addCategory(Intent.CATEGORY_HOME);
-            PackageManager pm = context.getPackageManager();
-            List<ResolveInfo> infos = pm.queryIntentActivities(intent, 0);
-            if (infos != null) {
-                for (ResolveInfo ri : infos) {
-                    if (ri != null && ri.activityInfo != null) {
-                        set.add(ri.activityInfo.packageName);
-                    }
-                }
-            }
-        } catch (Exception ignored) {}
-        // Common launcher fallbacks
-        set.add("com.android.launcher3");
-        set.add("com.google.android.apps.nexuslauncher"); // Pixel Launcher
-        set.add("com.teslacoilsw.launcher"); // Nova
-        set.add("com.mi.android.globallauncher");
-        set.add("com.sec.android.app.launcher"); // Samsung
-        return set;
+        return LauncherClassifier.getInstance(context).getLauncherPackages();
     }
     
     /**
      * Check if the app has usage access permission
      */
     public boolean hasUsageStatsPermission() {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
-            return false; // UsageStatsManager not available before Lollipop
-        }
-        
-        try {
-            AppOpsManager appOpsManager = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
-            if (appOpsManager == null) {
-                Log.e(TAG, "AppOpsManager is null, cannot check usage stats permission.");
-                return false;
-            }
-            
-            int mode;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                // For Android 10 (API 29) and above, use checkOpNoThrow
-                mode = appOpsManager.checkOpNoThrow(
-                        AppOpsManager.OPSTR_GET_USAGE_STATS,
-                        Process.myUid(),
-                        context.getPackageName()
-                );
-            } else {
-                // For versions below Q, use the deprecated method with suppression
-                @SuppressWarnings("deprecation")
-                int deprecatedMode = appOpsManager.checkOpNoThrow(
-                        AppOpsManager.OPSTR_GET_USAGE_STATS,
-                        Process.myUid(),
-                        context.getPackageName()
-                );
-                mode = deprecatedMode;
-            }
-            
-            if (DEBUG_LOGS) {
-                Log.d(TAG, "Usage stats permission mode: " + modeToString(mode));
-            }
-            return mode == AppOpsManager.MODE_ALLOWED;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking usage stats permission", e);
-            return false;
-        }
-    }
-    
-    /**
-     * Helper method to convert mode to string for logging
-     */
-    private String modeToString(int mode) {
-        switch (mode) {
-            case AppOpsManager.MODE_ALLOWED:
-                return "MODE_ALLOWED";
-            case AppOpsManager.MODE_ERRORED:
-                return "MODE_ERRORED";
-            case AppOpsManager.MODE_IGNORED:
-                return "MODE_IGNORED";
-            case AppOpsManager.MODE_DEFAULT:
-                return "MODE_DEFAULT";
-            default:
-                return "Unknown mode: " + mode;
-        }
+        return DeviceStateMonitor.getInstance(context).hasUsageStatsPermission();
     }
     
     /**
@@ -308,9 +193,7 @@ public class MobileUsageTracker {
     public long getLastWeekMobileUsage() {
         if (!hasUsageStatsPermission()) return 0;
         try {
-            Calendar anyDayLastWeek = Calendar.getInstance(TimeZone.getDefault());
-            anyDayLastWeek.add(Calendar.WEEK_OF_YEAR, -1);
-            long[] range = getWeekTimestamps(anyDayLastWeek);
+            long[] range = getWeekTimestamps(TimeService.get().today() - 7);
             return getTotalPhoneUsage(context, range[0], range[1]);
         } catch (Exception e) {
             Log.e(TAG, "Error getting last week's mobile usage", e);
@@ -329,12 +212,9 @@ public class MobileUsageTracker {
         
         try {
             // Use modular utilities: start = first day, end = now (so far)
-            Calendar now = Calendar.getInstance();
-            int year = now.get(Calendar.YEAR);
-            int month = now.get(Calendar.MONTH);
-            long[] range = getMonthTimestamps(year, month);
-            long startTime = range[0];
-            long endTime = System.currentTimeMillis(); // so far
+            TimeService time = TimeService.get();
+            long endTime = time.now(); // so far
+            long startTime = getMonthTimestamps(time.epochDay(endTime))[0];
 
             return getTotalPhoneUsage(context, startTime, endTime);
         } catch (Exception e) {
@@ -353,12 +233,8 @@ public class MobileUsageTracker {
         }
         
         try {
-            // Compute last month year/month, then use modular utilities
-            Calendar cal = Calendar.getInstance();
-            cal.add(Calendar.MONTH, -1);
-            int year = cal.get(Calendar.YEAR);
-            int month = cal.get(Calendar.MONTH); // 0-indexed
-            long[] range = getMonthTimestamps(year, month);
+            // The day before the 1st of this month is in last month
+            long[] range = getMonthTimestamps(TimeService.firstOfMonth(TimeService.get().today()) - 1);
             long startTime = range[0];
             long endTime = range[1];
 
@@ -380,9 +256,9 @@ public class MobileUsageTracker {
             return 0;
         }
         try {
-            Calendar cal = Calendar.getInstance(TimeZone.getDefault());
-            long start = getDayTimestamps(cal)[0];
-            long end = System.currentTimeMillis();
+            TimeService time = TimeService.get();
+            long end = time.now();
+            long start = time.startOfDay(time.epochDay(end));
             return getTotalPhoneUsage(context, start, end);
         } catch (Exception e) {
             Log.e(TAG, "Error getting today's mobile usage", e);
@@ -396,9 +272,7 @@ public class MobileUsageTracker {
     public long getYesterdayMobileUsage() {
         if (!hasUsageStatsPermission()) return 0;
         try {
-            Calendar cal = Calendar.getInstance(TimeZone.getDefault());
-            cal.add(Calendar.DAY_OF_YEAR, -1);
-            long[] range = getDayTimestamps(cal);
+            long[] range = getDayTimestamps(TimeService.get().today() - 1);
             return getTotalPhoneUsage(context, range[0], range[1]);
         } catch (Exception e) {
             Log.e(TAG, "Error getting yesterday's mobile usage", e);
@@ -417,15 +291,7 @@ public class MobileUsageTracker {
         
         try {
             // Parse date and set time range
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-            Date targetDate = sdf.parse(date);
-            if (targetDate == null) {
-                return 0;
-            }
-
-            Calendar cal = Calendar.getInstance(TimeZone.getDefault());
-            cal.setTime(targetDate);
-            long[] range = getDayTimestamps(cal);
+            long[] range = getDayTimestamps(TimeService.parseDay(date));
             
             // For historical dates, use queryUsageStats with INTERVAL_DAILY to get actual daily usage
             // instead of cumulative data from queryAndAggregateUsageStats
@@ -444,8 +310,19 @@ public class MobileUsageTracker {
      */
     private long getDailyUsageFromQueryStats(Context context, long startTime, long endTime, String date) {
         long totalTimeInMillis = 0L;
+        for (long appUsageTime : getDailyAppUsageFromQueryStats(context, startTime, endTime).values()) {
+            totalTimeInMillis += appUsageTime;
+        }
+        return totalTimeInMillis;
+    }
+    
+    /**
+     * Per-app foreground time for a day range, with the same filtering as getTotalPhoneUsage
+     */
+    private static Map<String, Long> getDailyAppUsageFromQueryStats(Context context, long startTime, long endTime) {
+        Map<String, Long> perApp = new HashMap<>();
         UsageStatsManager usageStatsManager = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
-        if (usageStatsManager == null) return 0L;
+        if (usageStatsManager == null) return perApp;
 
         // Build exclusion sets
         Set<String> keyboardPackages = getEnabledKeyboardPackages(context);
@@ -463,16 +340,37 @@ public class MobileUsageTracker {
                 
                 String packageName = usageStats.getPackageName();
                 long appUsageTime = usageStats.getTotalTimeInForeground();
+                if (appUsageTime <= 0) continue;
                 
                 // Apply the same filtering as getTotalPhoneUsage
                 if (shouldExcludePackage(packageName, context, pm, keyboardPackages, launcherPackages, ourPackage)) {
                     continue;
                 }
                 
-                totalTimeInMillis += appUsageTime;
+                Long existing = perApp.get(packageName);
+                perApp.put(packageName, existing != null ? existing + appUsageTime : appUsageTime);
             }
         }
-        return totalTimeInMillis;
+        return perApp;
+    }
+    
+    /**
+     * Get per-app foreground time for a specific date (package -> milliseconds)
+     * Used by UsageArchiveManager to keep per-app history beyond UsageStatsManager's retention
+     */
+    public Map<String, Long> getAppUsageForDate(String date) {
+        if (!hasUsageStatsPermission()) {
+            return new HashMap<>();
+        }
+        
+        try {
+            long[] range = getDayTimestamps(TimeService.parseDay(date));
+            return getDailyAppUsageFromQueryStats(context, range[0], range[1]);
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting app usage for date: " + date, e);
+            return new HashMap<>();
+        }
     }
     
     
@@ -506,13 +404,9 @@ public class MobileUsageTracker {
         }
         
         try {
-            Calendar cal = Calendar.getInstance();
-            cal.set(Calendar.HOUR_OF_DAY, 0);
-            cal.set(Calendar.MINUTE, 0);
-            cal.set(Calendar.SECOND, 0);
-            cal.set(Calendar.MILLISECOND, 0);
-            long startTime = cal.getTimeInMillis();
-            long endTime = System.currentTimeMillis();
+            TimeService time = TimeService.get();
+            long endTime = time.now();
+            long startTime = time.startOfDay(time.epochDay(endTime));
             
             List<UsageStats> usageStatsList = usageStatsManager.queryUsageStats(
                 UsageStatsManager.INTERVAL_DAILY, startTime, endTime);
@@ -0,0 +1,178 @@
+package com.grepguru.zenlock.utils;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of checksummed records
+ *
+ * Each record is [int length][int crc32][payload]. Appends are buffered and made durable by
+ * commit() (flush + fsync), so a record either replays intact or not at all: replay() stops
+ * at the first torn or corrupt record and cuts the file back to the last good one. compact()
+ * swaps in a rewritten file through a synced temp file and a rename, which is atomic on the
+ * same filesystem; a temp file left by a crash before the rename is deleted on replay.
+ * Not thread-safe, owners serialize access
+ */
+public final class RecordJournal {
+
+    private static final String TAG = "RecordJournal";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private final File file;
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private int recordCount;
+    private int pending;
+
+    public RecordJournal(File file) {
+        this.file = file;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Records not yet committed
+     */
+    public int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * Every intact record in order; drops a torn tail left by a crash mid-append
+     */
+    public List<byte[]> replay() {
+        close();
+        // The journal itself is still the one from before an interrupted compact()
+        File temp = tempFile();
+        if (temp.exists() && !temp.delete()) Log.w(TAG, "Failed to delete " + temp.getName());
+
+        List<byte[]> records = new ArrayList<>();
+        if (!file.exists()) {
+            recordCount = 0;
+            return records;
+        }
+
+        long validLength = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new java.io.BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 0 || length > MAX_RECORD_BYTES) break;
+                int checksum = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) break;
+                records.add(payload);
+                validLength += HEADER_BYTES + length;
+            }
+        } catch (EOFException e) {
+            // Torn record at the end, everything before it is kept
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to replay " + file.getName(), e);
+        }
+
+        if (validLength < file.length()) {
+            Log.w(TAG, "Dropping " + (file.length() - validLength) + " bytes of torn tail from " + file.getName());
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to truncate " + file.getName(), e);
+            }
+        }
+        recordCount = records.size();
+        return records;
+    }
+
+    /**
+     * Buffer a record; it is durable once commit() returns
+     */
+    public void append(byte[] payload) throws IOException {
+        if (payload.length > MAX_RECORD_BYTES) throw new IOException("Record too large: " + payload.length);
+        ensureOpen();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+        recordCount++;
+        pending++;
+    }
+
+    public void commit() throws IOException {
+        if (out == null || pending == 0) return;
+        out.flush();
+        fileOut.getFD().sync();
+        pending = 0;
+    }
+
+    /**
+     * Atomically replace the journal with just these records
+     */
+    public void compact(List<byte[]> records) throws IOException {
+        commit();
+        close();
+        File temp = tempFile();
+        CRC32 crc = new CRC32();
+        try (FileOutputStream tempOut = new FileOutputStream(temp)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(tempOut));
+            for (byte[] payload : records) {
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                data.writeInt(payload.length);
+                data.writeInt((int) crc.getValue());
+                data.write(payload);
+            }
+            data.flush();
+            tempOut.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Failed to replace " + file.getName());
+        }
+        recordCount = records.size();
+    }
+
+    public void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close " + file.getName(), e);
+        }
+        out = null;
+        fileOut = null;
+        pending = 0;
+    }
+
+    private File tempFile() {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    private void ensureOpen() throws IOException {
+        if (out != null) return;
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+    }
+}
@@ -4,46 +4,62 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.util.Log;
 
 import com.grepguru.zenlock.ScheduleTriggerReceiver;
 import com.grepguru.zenlock.PreNotificationReceiver;
+import com.grepguru.zenlock.data.repository.ScheduleRepository;
 import com.grepguru.zenlock.model.ScheduleModel;
-import com.grepguru.zenlock.utils.AlarmPermissionManager;
 
 import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Enhanced ScheduleActivator using AlarmManager with proper focus session integration
  * Handles scheduling focus sessions at specified times using ScheduleTriggerReceiver
  * Properly integrates with existing focus session flow and state management
+ *
+ * All alarms go through ScheduleAlarmMultiplexer, which keeps a single exact alarm armed
+ * for the earliest event across every schedule
  */
 public class ScheduleActivator {
-    
+
     private static final String TAG = "ScheduleActivator";
+    private static final String PREFS_NAME = "FocusLockPrefs";
+    private static final String PREF_LEGACY_ALARMS_CLEARED = "legacy_schedule_alarms_cleared";
+    
+    private static final AtomicBoolean observingSchedules = new AtomicBoolean(false);
+
     private final Context context;
     private final ScheduleManager scheduleManager;
     private final AlarmManager alarmManager;
-    
+
     public ScheduleActivator(Context context) {
         this.context = context;
         this.scheduleManager = new ScheduleManager(context);
         this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        observeScheduleChanges(context.getApplicationContext());
     }
     
+    /**
+     * Re-arm the multiplexed alarm whenever any schedule changes, whoever changed it
+     */
+    private static void observeScheduleChanges(Context appContext) {
+        if (!observingSchedules.compareAndSet(false, true)) return;
+        ScheduleRepository.getInstance(appContext)
+                .addObserver(() -> ScheduleAlarmMultiplexer.rearm(appContext));
+    }
+
     /**
      * Schedule all enabled schedules
      */
     public void scheduleAllSchedules() {
-        List<ScheduleModel> enabledSchedules = scheduleManager.getEnabledSchedules();
-        Log.d(TAG, "Scheduling " + enabledSchedules.size() + " enabled schedules");
-        
-        for (ScheduleModel schedule : enabledSchedules) {
-            scheduleSchedule(schedule);
-        }
+        clearLegacyAlarmsOnce();
+        ScheduleAlarmMultiplexer.rearm(context);
     }
-    
+
     /**
      * Schedule a specific schedule
      */
@@ -52,245 +68,53 @@ public class ScheduleActivator {
             Log.d(TAG, "Schedule " + schedule.getName() + " is disabled, skipping");
             return;
         }
-        
+
         try {
-            // Calculate next trigger time
-            Calendar triggerTime = getNextTriggerTime(schedule);
-            if (triggerTime == null) {
+            long triggerAt = ScheduleTimeline.nextStartMillis(schedule, System.currentTimeMillis());
+            if (triggerAt < 0) {
                 Log.w(TAG, "Schedule " + schedule.getName() + " has no next trigger time");
-                return;
-            }
-            
-            // Check permission before setting alarms
-            if (!AlarmPermissionManager.canScheduleExactAlarms(context)) {
-                Log.e(TAG, "Cannot schedule exact alarms - permission not granted");
-                return;
-            }
-            
-            if (alarmManager == null) {
-                Log.e(TAG, "AlarmManager is null");
-                return;
-            }
-            
-            // Schedule main trigger
-            scheduleMainTrigger(schedule, triggerTime);
-            
-            // Schedule pre-notification if enabled
-            if (schedule.isPreNotifyEnabled() && schedule.getPreNotifyMinutes() > 0) {
-                schedulePreNotification(schedule, triggerTime);
+            } else {
+                Calendar triggerTime = Calendar.getInstance();
+                triggerTime.setTimeInMillis(triggerAt);
+                Log.d(TAG, "Next run of " + schedule.getName() + " at " +
+                      String.format("%02d:%02d on %s",
+                                  triggerTime.get(Calendar.HOUR_OF_DAY),
+                                  triggerTime.get(Calendar.MINUTE),
+                                  formatDate(triggerTime)));
             }
-            
+
+            // The schedule may now be the earliest event, recompute the head
+            ScheduleAlarmMultiplexer.rearm(context);
+
         } catch (Exception e) {
             Log.e(TAG, "Failed to schedule " + schedule.getName(), e);
         }
     }
-    
-    /**
-     * Schedule the main focus session trigger
-     */
-    private void scheduleMainTrigger(ScheduleModel schedule, Calendar triggerTime) {
-        try {
-            // Create intent for ScheduleTriggerReceiver
-            Intent intent = new Intent(context, ScheduleTriggerReceiver.class);
-            intent.putExtra(ScheduleTriggerReceiver.EXTRA_SCHEDULE_ID, schedule.getId());
-            intent.putExtra(ScheduleTriggerReceiver.EXTRA_SCHEDULE_NAME, schedule.getName());
-            intent.putExtra(ScheduleTriggerReceiver.EXTRA_DURATION_MINUTES, schedule.getFocusDurationMinutes());
-            
-            // Create pending intent for BroadcastReceiver
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                schedule.getId(),
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            // Set exact alarm
-            alarmManager.setExactAndAllowWhileIdle(
-                AlarmManager.RTC_WAKEUP,
-                triggerTime.getTimeInMillis(),
-                pendingIntent
-            );
-            
-            Log.d(TAG, "Scheduled " + schedule.getName() + " for " + 
-                  String.format("%02d:%02d on %s", 
-                              triggerTime.get(Calendar.HOUR_OF_DAY), 
-                              triggerTime.get(Calendar.MINUTE),
-                              formatDate(triggerTime)));
-                              
-        } catch (SecurityException e) {
-            Log.e(TAG, "SecurityException when setting main trigger - permission issue", e);
-        }
-    }
-    
-    /**
-     * Schedule pre-notification for the schedule
-     */
-    private void schedulePreNotification(ScheduleModel schedule, Calendar triggerTime) {
-        try {
-            // Calculate pre-notification time
-            Calendar preNotifyTime = (Calendar) triggerTime.clone();
-            preNotifyTime.add(Calendar.MINUTE, -schedule.getPreNotifyMinutes());
-            
-            // Don't schedule if pre-notification time has already passed
-            if (preNotifyTime.before(Calendar.getInstance())) {
-                Log.d(TAG, "Pre-notification time has passed for " + schedule.getName() + ", skipping");
-                return;
-            }
-            
-            // Create intent for PreNotificationReceiver
-            Intent preNotifyIntent = new Intent(context, PreNotificationReceiver.class);
-            preNotifyIntent.putExtra("schedule_id", schedule.getId());
-            preNotifyIntent.putExtra("schedule_name", schedule.getName());
-            preNotifyIntent.putExtra("duration_minutes", schedule.getFocusDurationMinutes());
-            preNotifyIntent.putExtra("pre_notify_minutes", schedule.getPreNotifyMinutes());
-            
-            // Create pending intent for pre-notification (use negative ID to avoid conflicts)
-            PendingIntent preNotifyPendingIntent = PendingIntent.getBroadcast(
-                context,
-                -schedule.getId(), // Negative ID to avoid conflicts with main trigger
-                preNotifyIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            // Set exact alarm for pre-notification
-            alarmManager.setExactAndAllowWhileIdle(
-                AlarmManager.RTC_WAKEUP,
-                preNotifyTime.getTimeInMillis(),
-                preNotifyPendingIntent
-            );
-            
-            Log.d(TAG, "Scheduled pre-notification for " + schedule.getName() + " at " + 
-                  String.format("%02d:%02d on %s", 
-                              preNotifyTime.get(Calendar.HOUR_OF_DAY), 
-                              preNotifyTime.get(Calendar.MINUTE),
-                              formatDate(preNotifyTime)) + 
-                  " (" + schedule.getPreNotifyMinutes() + " minutes before)");
-                              
-        } catch (SecurityException e) {
-            Log.e(TAG, "SecurityException when setting pre-notification - permission issue", e);
-        }
-    }
-    
+
     /**
      * Cancel a specific schedule
+     * Callers may delete the schedule right after, so it is excluded explicitly
      */
     public void cancelSchedule(ScheduleModel schedule) {
         try {
-            // Cancel main trigger
-            Intent intent = new Intent(context, ScheduleTriggerReceiver.class);
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                schedule.getId(),
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            if (alarmManager != null) {
-                alarmManager.cancel(pendingIntent);
-                Log.d(TAG, "Cancelled main trigger for: " + schedule.getName());
-            }
-            
-            // Cancel pre-notification if it exists
-            Intent preNotifyIntent = new Intent(context, PreNotificationReceiver.class);
-            PendingIntent preNotifyPendingIntent = PendingIntent.getBroadcast(
-                context,
-                -schedule.getId(), // Negative ID to match the one used in scheduling
-                preNotifyIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            if (alarmManager != null) {
-                alarmManager.cancel(preNotifyPendingIntent);
-                Log.d(TAG, "Cancelled pre-notification for: " + schedule.getName());
-            }
-            
+            cancelLegacyAlarms(schedule);
+            ScheduleAlarmMultiplexer.rearmExcluding(context, schedule.getId());
+            Log.d(TAG, "Cancelled alarms for: " + schedule.getName());
         } catch (Exception e) {
             Log.e(TAG, "Failed to cancel schedule " + schedule.getName(), e);
         }
     }
-    
-    /**
-     * Calculate the next trigger time for a schedule
-     */
-    private Calendar getNextTriggerTime(ScheduleModel schedule) {
-        Calendar now = Calendar.getInstance();
-        Calendar triggerTime = Calendar.getInstance();
-        
-        // Set the time
-        triggerTime.set(Calendar.HOUR_OF_DAY, schedule.getStartHour());
-        triggerTime.set(Calendar.MINUTE, schedule.getStartMinute());
-        triggerTime.set(Calendar.SECOND, 0);
-        triggerTime.set(Calendar.MILLISECOND, 0);
-        
-        
-        switch (schedule.getRepeatType()) {
-            case ONCE:
-                // For one-time schedules, if time has passed today, return null
-                // But if time is still available today, schedule for today
-                if (triggerTime.before(now)) {
-                    return null;
-                }
-                return triggerTime;
-                
-            case DAILY:
-                // If time has passed today, move to tomorrow
-                if (triggerTime.before(now)) {
-                    triggerTime.add(Calendar.DAY_OF_YEAR, 1);
-                }
-                return triggerTime;
-                
-            case WEEKLY:
-                return getNextWeeklyTriggerTime(schedule, now, triggerTime);
-                
-            default:
-                return null;
-        }
-    }
-    
-    /**
-     * Calculate next trigger time for weekly schedules
-     */
-    private Calendar getNextWeeklyTriggerTime(ScheduleModel schedule, Calendar now, Calendar triggerTime) {
-        java.util.Set<Integer> repeatDays = schedule.getRepeatDays();
-        if (repeatDays.isEmpty()) {
-            Log.w(TAG, "Weekly schedule has no repeat days set");
-            return null;
-        }
-        
-        int currentDayOfWeek = now.get(Calendar.DAY_OF_WEEK);
-        
-        // Check if schedule can run today
-        if (repeatDays.contains(currentDayOfWeek) && triggerTime.after(now)) {
-            return triggerTime;
-        }
-        
-        // Find next valid day
-        Calendar nextTrigger = (Calendar) triggerTime.clone();
-        
-        // Check remaining days this week
-        for (int daysToAdd = 1; daysToAdd <= 7; daysToAdd++) {
-            nextTrigger.add(Calendar.DAY_OF_YEAR, 1);
-            int dayOfWeek = nextTrigger.get(Calendar.DAY_OF_WEEK);
-            
-            if (repeatDays.contains(dayOfWeek)) {
-                return nextTrigger;
-            }
-        }
-        
-        // Should not reach here, but fallback
-        return null;
-    }
-    
+
     /**
      * Format date for logging
      */
     private String formatDate(Calendar calendar) {
-        return String.format("%d/%d/%d", 
+        return String.format("%d/%d/%d",
             calendar.get(Calendar.MONTH) + 1,
             calendar.get(Calendar.DAY_OF_MONTH),
             calendar.get(Calendar.YEAR));
     }
-    
+
     /**
      * Reschedule all schedules (useful after device reboot)
      */
@@ -298,15 +122,51 @@ public class ScheduleActivator {
         Log.d(TAG, "Rescheduling all schedules");
         scheduleAllSchedules();
     }
-    
+
     /**
      * Cancel all scheduled alarms (useful for cleanup)
      */
     public void cancelAllSchedules() {
         List<ScheduleModel> allSchedules = scheduleManager.getAllSchedules();
         for (ScheduleModel schedule : allSchedules) {
-            cancelSchedule(schedule);
+            cancelLegacyAlarms(schedule);
         }
+        ScheduleAlarmMultiplexer.rearm(context);
         Log.d(TAG, "Cancelled all scheduled alarms");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Older versions registered one main and one pre-notification alarm per schedule;
+     * drop them once so they don't fire alongside the multiplexed alarm
+     */
+    private void clearLegacyAlarmsOnce() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(PREF_LEGACY_ALARMS_CLEARED, false)) return;
+
+        for (ScheduleModel schedule : scheduleManager.getAllSchedules()) {
+            cancelLegacyAlarms(schedule);
+        }
+        prefs.edit().putBoolean(PREF_LEGACY_ALARMS_CLEARED, true).apply();
+        Log.d(TAG, "Cleared per-schedule alarms from previous versions");
+    }
+
+    private void cancelLegacyAlarms(ScheduleModel schedule) {
+        if (alarmManager == null) return;
+
+        Intent intent = new Intent(context, ScheduleTriggerReceiver.class);
+        alarmManager.cancel(PendingIntent.getBroadcast(
+            context,
+            schedule.getId(),
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        ));
+
+        Intent preNotifyIntent = new Intent(context, PreNotificationReceiver.class);
+        alarmManager.cancel(PendingIntent.getBroadcast(
+            context,
+            -schedule.getId(), // Negative ID matches the one used for pre-notifications
+            preNotifyIntent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        ));
+    }
+}
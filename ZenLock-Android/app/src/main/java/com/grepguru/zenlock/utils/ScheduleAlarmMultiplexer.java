@@ -0,0 +1,156 @@
+package com.grepguru.zenlock.utils;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.grepguru.zenlock.ManualStartDelayReceiver;
+import com.grepguru.zenlock.PreNotificationReceiver;
+import com.grepguru.zenlock.ScheduleAlarmReceiver;
+import com.grepguru.zenlock.ScheduleTriggerReceiver;
+import com.grepguru.zenlock.model.ScheduleModel;
+
+import java.util.PriorityQueue;
+
+/**
+ * Keeps exactly one exact alarm armed for the earliest upcoming schedule event
+ * When it fires, every event that is due is dispatched to its existing receiver and the
+ * alarm is re-armed for the new head of the timeline. Many schedules therefore cost one
+ * wakeup per event instead of one registered alarm each, which keeps us clear of OEM
+ * alarm quotas and makes restoring after boot a single call
+ */
+public final class ScheduleAlarmMultiplexer {
+
+    private static final String TAG = "ScheduleAlarmMux";
+    private static final int REQUEST_CODE = 41050;
+
+    public static final String EXTRA_DUE_AT = "due_at";
+
+    // Exact alarms can be delivered slightly early; treat events this close as due
+    private static final long DISPATCH_TOLERANCE_MS = 1000;
+
+    private ScheduleAlarmMultiplexer() {}
+
+    /**
+     * Recompute the timeline and arm the alarm for its head
+     *
+     * @return false if the timeline has an event but no alarm could be armed for it
+     */
+    public static boolean rearm(Context context) {
+        return arm(context, System.currentTimeMillis(), -1);
+    }
+
+    /**
+     * Recompute the timeline leaving out one schedule (used before it is deleted)
+     */
+    public static boolean rearmExcluding(Context context, int excludedScheduleId) {
+        return arm(context, System.currentTimeMillis(), excludedScheduleId);
+    }
+
+    /**
+     * Called by ScheduleAlarmReceiver when the armed alarm fires
+     */
+    public static void onAlarm(Context context, long dueAtMillis) {
+        long now = System.currentTimeMillis();
+        long dispatchedUpTo = Math.max(now, dueAtMillis);
+
+        PriorityQueue<ScheduleTimeline.Event> timeline = ScheduleTimeline.build(context, dueAtMillis, -1);
+        while (!timeline.isEmpty() && timeline.peek().triggerAtMillis <= now + DISPATCH_TOLERANCE_MS) {
+            ScheduleTimeline.Event event = timeline.poll();
+            dispatchedUpTo = Math.max(dispatchedUpTo, event.triggerAtMillis);
+            try {
+                dispatch(context, event);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to dispatch " + event, e);
+            }
+        }
+
+        // Never re-arm for something already dispatched, even if the alarm came in early
+        arm(context, dispatchedUpTo + 1, -1);
+    }
+
+    private static synchronized boolean arm(Context context, long fromMillis, int excludedScheduleId) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            Log.e(TAG, "AlarmManager unavailable");
+            return false;
+        }
+
+        ScheduleTimeline.Event head = ScheduleTimeline.build(context, fromMillis, excludedScheduleId).peek();
+        if (head == null) {
+            alarmManager.cancel(createPendingIntent(context, 0L));
+            Log.d(TAG, "Timeline empty, alarm cleared");
+            return true;
+        }
+
+        if (!AlarmPermissionManager.canScheduleExactAlarms(context)) {
+            Log.e(TAG, "Cannot schedule exact alarms - permission not granted");
+            return false;
+        }
+
+        try {
+            alarmManager.setExactAndAllowWhileIdle(
+                    AlarmManager.RTC_WAKEUP,
+                    head.triggerAtMillis,
+                    createPendingIntent(context, head.triggerAtMillis)
+            );
+            Log.d(TAG, "Armed for " + head);
+            return true;
+        } catch (SecurityException e) {
+            Log.e(TAG, "SecurityException when arming schedule alarm - permission issue", e);
+        } catch (IllegalStateException e) {
+            // Thrown once the app holds too many alarms
+            Log.e(TAG, "Failed to arm schedule alarm", e);
+        }
+        return false;
+    }
+
+    /**
+     * Hand a due event to the receiver that used to own its alarm.
+     * Receivers are invoked in-process so ordering is preserved (pre-notify before start)
+     */
+    private static void dispatch(Context context, ScheduleTimeline.Event event) {
+        Log.d(TAG, "Dispatching " + event);
+        ScheduleModel schedule = event.schedule;
+        switch (event.type) {
+            case ScheduleTimeline.TYPE_PRE_NOTIFY: {
+                Intent intent = new Intent(context, PreNotificationReceiver.class);
+                intent.putExtra("schedule_id", schedule.getId());
+                intent.putExtra("schedule_name", schedule.getName());
+                intent.putExtra("duration_minutes", schedule.getFocusDurationMinutes());
+                intent.putExtra("pre_notify_minutes", schedule.getPreNotifyMinutes());
+                new PreNotificationReceiver().handleNow(context, intent);
+                break;
+            }
+            case ScheduleTimeline.TYPE_START: {
+                Intent intent = new Intent(context, ScheduleTriggerReceiver.class);
+                intent.putExtra(ScheduleTriggerReceiver.EXTRA_SCHEDULE_ID, schedule.getId());
+                intent.putExtra(ScheduleTriggerReceiver.EXTRA_SCHEDULE_NAME, schedule.getName());
+                intent.putExtra(ScheduleTriggerReceiver.EXTRA_DURATION_MINUTES, schedule.getFocusDurationMinutes());
+                new ScheduleTriggerReceiver().handleNow(context, intent);
+                break;
+            }
+            case ScheduleTimeline.TYPE_MANUAL_START: {
+                Intent intent = ManualStartDelayScheduler.createStartIntent(context);
+                new ManualStartDelayReceiver().handleNow(context, intent);
+                break;
+            }
+            case ScheduleTimeline.TYPE_CYCLE_TRANSITION:
+                FocusCycleManager.onTransition(context);
+                break;
+        }
+    }
+
+    private static PendingIntent createPendingIntent(Context context, long dueAtMillis) {
+        Intent intent = new Intent(context, ScheduleAlarmReceiver.class);
+        intent.putExtra(EXTRA_DUE_AT, dueAtMillis);
+        return PendingIntent.getBroadcast(
+                context,
+                REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+}
@@ -0,0 +1,262 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.grepguru.zenlock.data.repository.ScheduleRepository;
+import com.grepguru.zenlock.model.ScheduleModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Interval tree over the expanded occurrences of every enabled schedule for the next 7 days
+ *
+ * Occurrences are half-open [start, end) intervals sorted by start and laid out as an implicit
+ * balanced BST (the middle of each range is the node), with the max end of every subtree kept
+ * alongside. Stabbing and range queries are O(log n + k). The shared instance is rebuilt lazily
+ * when ScheduleRepository's version moves on or once its window is a day old
+ */
+public final class ScheduleIntervalIndex {
+
+    private static final String TAG = "ScheduleIntervalIndex";
+    private static final String PREFS_NAME = "FocusLockPrefs";
+    // Occurrences ("scheduleId@startMillis") the last session covered when it ended
+    private static final String KEY_CONSUMED = "consumed_schedule_occurrences";
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    public static final long HORIZON_MS = 7 * DAY_MS;
+
+    private static volatile ScheduleIntervalIndex cached;
+
+    /**
+     * One concrete run of a schedule
+     */
+    public static final class Occurrence {
+        public final ScheduleModel schedule;
+        public final long startMillis;
+        public final long endMillis;
+
+        Occurrence(ScheduleModel schedule, long startMillis, long endMillis) {
+            this.schedule = schedule;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        public boolean overlaps(long start, long end) {
+            return startMillis < end && start < endMillis;
+        }
+
+        String key() {
+            return schedule.getId() + "@" + startMillis;
+        }
+    }
+
+    private final long windowStart;
+    private final long windowEnd;
+    private long scheduleVersion = -1;
+    private final Occurrence[] nodes;  // Sorted by start
+    private final long[] maxEnd;       // Max end within the subtree rooted at each node
+
+    private ScheduleIntervalIndex(long windowStart, long windowEnd, List<Occurrence> occurrences) {
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.nodes = occurrences.toArray(new Occurrence[0]);
+        Arrays.sort(nodes, (a, b) -> Long.compare(a.startMillis, b.startMillis));
+        this.maxEnd = new long[nodes.length];
+        buildMaxEnd(0, nodes.length - 1);
+    }
+
+    /**
+     * Shared index for the current time, rebuilt if schedules changed since it was built
+     */
+    public static ScheduleIntervalIndex get(Context context) {
+        ScheduleRepository repository = ScheduleRepository.getInstance(context);
+        long now = System.currentTimeMillis();
+        ScheduleIntervalIndex index = cached;
+        if (isStale(index, repository.getVersion(), now)) {
+            synchronized (ScheduleIntervalIndex.class) {
+                index = cached;
+                long version = repository.getVersion();
+                if (isStale(index, version, now)) {
+                    List<ScheduleModel> schedules = repository.getEnabled();
+                    index = build(schedules, now, now + HORIZON_MS);
+                    index.scheduleVersion = version;
+                    cached = index;
+                    Log.d(TAG, "Indexed " + index.size() + " occurrences of " + schedules.size() + " schedules");
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * A locked session ended with endedAt as its last covered instant: the occurrences still under
+     * way then were finished or unlocked early, and must not be resumed after a reboot
+     */
+    public static void markConsumed(Context context, long endedAt) {
+        Set<String> keys = new HashSet<>();
+        try {
+            for (Occurrence occurrence : get(context).activeAt(endedAt)) {
+                keys.add(occurrence.key());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to look up consumed occurrences", e);
+        }
+        prefs(context).edit().putStringSet(KEY_CONSUMED, keys).apply();
+    }
+
+    /**
+     * The occurrence was under way when the last session ended
+     */
+    public static boolean isConsumed(Context context, Occurrence occurrence) {
+        return prefs(context).getStringSet(KEY_CONSUMED, Collections.emptySet()).contains(occurrence.key());
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static boolean isStale(ScheduleIntervalIndex index, long version, long now) {
+        return index == null || index.scheduleVersion != version
+                || now < index.windowStart || now - index.windowStart > DAY_MS;
+    }
+
+    /**
+     * Expand schedules into occurrences overlapping [fromMillis, toMillis), including ones
+     * that started earlier and are still running at fromMillis
+     */
+    public static ScheduleIntervalIndex build(List<ScheduleModel> schedules, long fromMillis, long toMillis) {
+        ScheduleRecurrence.ZoneOffsets zone = ScheduleRecurrence.ZoneOffsets.systemDefault();
+        List<Occurrence> occurrences = new ArrayList<>();
+        for (ScheduleModel schedule : schedules) {
+            expand(schedule, fromMillis, toMillis, zone, occurrences);
+        }
+        return new ScheduleIntervalIndex(fromMillis, toMillis, occurrences);
+    }
+
+    /**
+     * Append the occurrences of one schedule that overlap [fromMillis, toMillis)
+     */
+    public static void expand(ScheduleModel schedule, long fromMillis, long toMillis,
+                              ScheduleRecurrence.ZoneOffsets zone, List<Occurrence> out) {
+        long durationMillis = schedule.getFocusDurationMinutes() * 60_000L;
+        if (durationMillis <= 0) return;
+
+        long cursor = fromMillis - durationMillis + 1;
+        if (schedule.getRepeatType() == ScheduleModel.RepeatType.ONCE
+                && schedule.getStartEpochDay() == ScheduleRecurrence.NO_DATE) {
+            // An undated one-time schedule belongs to the current day, don't evaluate it yesterday
+            long fromLocal = fromMillis + zone.offsetAt(fromMillis);
+            cursor = Math.max(cursor, zone.toUtc(Math.floorDiv(fromLocal, DAY_MS) * DAY_MS));
+        }
+
+        while (cursor < toMillis) {
+            long start = ScheduleRecurrence.nextOccurrenceMillis(schedule, cursor, zone);
+            if (start < 0 || start >= toMillis) break;
+            out.add(new Occurrence(schedule, start, start + durationMillis));
+            cursor = start + 1;
+        }
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    /**
+     * Occurrences active at the instant t
+     */
+    public List<Occurrence> activeAt(long t) {
+        return overlapping(t, t + 1);
+    }
+
+    /**
+     * Occurrences overlapping [start, end)
+     */
+    public List<Occurrence> overlapping(long start, long end) {
+        List<Occurrence> out = new ArrayList<>();
+        collect(0, nodes.length - 1, start, end, -1, out);
+        return out;
+    }
+
+    /**
+     * Occurrences overlapping [start, end) that belong to a different schedule
+     */
+    public List<Occurrence> overlappingExcept(long start, long end, int scheduleId) {
+        List<Occurrence> out = new ArrayList<>();
+        collect(0, nodes.length - 1, start, end, scheduleId, out);
+        return out;
+    }
+
+    /**
+     * End of the merged block of occurrences covering t (overlapping occurrences are chained),
+     * or -1 if nothing is active at t
+     */
+    public long coverageEnd(long t) {
+        long end = -1;
+        long probe = t;
+        while (true) {
+            long furthest = -1;
+            for (Occurrence occurrence : activeAt(probe)) {
+                furthest = Math.max(furthest, occurrence.endMillis);
+            }
+            if (furthest <= end) return end;
+            end = furthest;
+            // Anything still running at the current end keeps the block going
+            probe = end - 1;
+        }
+    }
+
+    /**
+     * Occurrences of other schedules that overlap any occurrence of the candidate
+     * within this index's window. The candidate's own id is excluded so edits don't self-conflict
+     */
+    public List<Occurrence> conflictsWith(ScheduleModel candidate) {
+        List<Occurrence> candidateOccurrences = new ArrayList<>();
+        expand(candidate, windowStart, windowEnd, ScheduleRecurrence.ZoneOffsets.systemDefault(),
+                candidateOccurrences);
+
+        List<Occurrence> conflicts = new ArrayList<>();
+        for (Occurrence occurrence : candidateOccurrences) {
+            for (Occurrence other : overlappingExcept(occurrence.startMillis, occurrence.endMillis, candidate.getId())) {
+                if (!conflicts.contains(other)) conflicts.add(other);
+            }
+        }
+        return conflicts;
+    }
+
+    private long buildMaxEnd(int lo, int hi) {
+        if (lo > hi) return Long.MIN_VALUE;
+        int mid = (lo + hi) >>> 1;
+        long max = nodes[mid].endMillis;
+        max = Math.max(max, buildMaxEnd(lo, mid - 1));
+        max = Math.max(max, buildMaxEnd(mid + 1, hi));
+        maxEnd[mid] = max;
+        return max;
+    }
+
+    private void collect(int lo, int hi, long start, long end, int excludedScheduleId, List<Occurrence> out) {
+        if (lo > hi) return;
+        int mid = (lo + hi) >>> 1;
+        // Nothing in this subtree ends after start
+        if (maxEnd[mid] <= start) return;
+
+        collect(lo, mid - 1, start, end, excludedScheduleId, out);
+        Occurrence node = nodes[mid];
+        // Nodes are sorted by start, so the right subtree only begins later
+        if (node.startMillis >= end) return;
+        if (node.endMillis > start && node.schedule.getId() != excludedScheduleId) {
+            out.add(node);
+        }
+        collect(mid + 1, hi, start, end, excludedScheduleId, out);
+    }
+}
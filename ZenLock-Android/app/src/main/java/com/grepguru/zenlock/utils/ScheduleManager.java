@@ -3,88 +3,24 @@ package com.grepguru.zenlock.utils;
 import android.content.Context;
 import android.util.Log;
 
-import com.grepguru.zenlock.data.dao.ScheduleDao;
-import com.grepguru.zenlock.data.database.AnalyticsDatabase;
-import com.grepguru.zenlock.data.entities.ScheduleEntity;
+import com.grepguru.zenlock.data.repository.ScheduleRepository;
 import com.grepguru.zenlock.model.ScheduleModel;
 
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
- * Schedule Manager - Handles schedule CRUD operations using Room
- * All schedule data is stored in SQLite database
+ * Schedule Manager - Handles schedule CRUD operations
+ * Reads come from the in-memory ScheduleRepository, which writes changes through to Room
  */
 public class ScheduleManager {
     
     private static final String TAG = "ScheduleManager";
     
-    private final Context context;
-    private final ScheduleDao scheduleDao;
+    private final ScheduleRepository repository;
     
     public ScheduleManager(Context context) {
-        this.context = context.getApplicationContext();
-        AnalyticsDatabase db = AnalyticsDatabase.getDatabase(this.context);
-        this.scheduleDao = db.scheduleDao();
-    }
-    
-    // Mapping helpers
-    private static ScheduleEntity toEntity(ScheduleModel m) {
-        ScheduleEntity e = new ScheduleEntity();
-        e.id = m.getId();
-        e.name = m.getName() == null ? "" : m.getName();
-        e.startHour = m.getStartHour();
-        e.startMinute = m.getStartMinute();
-        e.focusDurationMinutes = m.getFocusDurationMinutes();
-        e.repeatType = m.getRepeatType() == null ? "DAILY" : m.getRepeatType().name();
-        e.repeatDaysCsv = toCsv(m.getRepeatDays());
-        e.preNotifyEnabled = m.isPreNotifyEnabled();
-        e.preNotifyMinutes = m.getPreNotifyMinutes();
-        e.enabled = m.isEnabled();
-        return e;
-    }
-    
-    private static ScheduleModel toModel(ScheduleEntity e) {
-        ScheduleModel m = new ScheduleModel();
-        m.setId(e.id);
-        m.setName(e.name);
-        m.setStartHour(e.startHour);
-        m.setStartMinute(e.startMinute);
-        m.setFocusDurationMinutes(e.focusDurationMinutes);
-        try {
-            m.setRepeatType(ScheduleModel.RepeatType.valueOf(e.repeatType));
-        } catch (Exception ex) {
-            m.setRepeatType(ScheduleModel.RepeatType.DAILY);
-        }
-        m.setRepeatDays(fromCsv(e.repeatDaysCsv));
-        m.setPreNotifyEnabled(e.preNotifyEnabled);
-        m.setPreNotifyMinutes(e.preNotifyMinutes);
-        m.setEnabled(e.enabled);
-        return m;
-    }
-    
-    private static String toCsv(Set<Integer> set) {
-        if (set == null || set.isEmpty()) return "";
-        StringBuilder sb = new StringBuilder();
-        for (Integer v : set) {
-            if (v == null) continue;
-            if (sb.length() > 0) sb.append(',');
-            sb.append(v);
-        }
-        return sb.toString();
-    }
-    
-    private static Set<Integer> fromCsv(String csv) {
-        Set<Integer> set = new HashSet<>();
-        if (csv == null || csv.isEmpty()) return set;
-        String[] parts = csv.split(",");
-        for (String p : parts) {
-            try { set.add(Integer.parseInt(p.trim())); } catch (Exception ignored) {}
-        }
-        return set;
+        this.repository = ScheduleRepository.getInstance(context);
     }
     
     /** Create a new schedule */
@@ -100,19 +36,11 @@ public class ScheduleManager {
             schedule.setRepeatType(repeatType);
             
             if (repeatType == ScheduleModel.RepeatType.WEEKLY) {
-                schedule.getRepeatDays().add(Calendar.MONDAY);
-                schedule.getRepeatDays().add(Calendar.TUESDAY);
-                schedule.getRepeatDays().add(Calendar.WEDNESDAY);
-                schedule.getRepeatDays().add(Calendar.THURSDAY);
-                schedule.getRepeatDays().add(Calendar.FRIDAY);
+                schedule.setRepeatDaysMask(ScheduleRecurrence.MASK_WEEKDAYS);
             }
             
-            ScheduleEntity entity = toEntity(schedule);
-            entity.id = 0; // autogen
-            Log.d(TAG, "Inserting entity: " + entity.name + " (repeatDays=" + entity.repeatDaysCsv + ")");
-            long rowId = scheduleDao.insert(entity);
-            schedule.setId((int) rowId);
-            Log.d(TAG, "Created schedule: " + name + " (id=" + rowId + ")");
+            repository.insert(schedule);
+            Log.d(TAG, "Created schedule: " + name + " (id=" + schedule.getId() + ")");
             return schedule;
         } catch (Exception e) {
             Log.e(TAG, "Error creating schedule: " + name, e);
@@ -123,12 +51,9 @@ public class ScheduleManager {
     /** Update an existing schedule */
     public boolean updateSchedule(ScheduleModel schedule) {
         try {
-            Log.d(TAG, "Updating schedule: " + schedule.getName() + " (id=" + schedule.getId() + ")");
-            ScheduleEntity e = toEntity(schedule);
-            Log.d(TAG, "Entity to update: " + e.name + " (repeatDays=" + e.repeatDaysCsv + ")");
-            int rows = scheduleDao.update(e);
-            Log.d(TAG, "Updated schedule: " + schedule.getName() + " rows=" + rows);
-            return rows > 0;
+            boolean updated = repository.update(schedule);
+            Log.d(TAG, "Updated schedule: " + schedule.getName() + " (id=" + schedule.getId() + ") " + updated);
+            return updated;
         } catch (Exception ex) {
             Log.e(TAG, "Error updating schedule: " + schedule.getName(), ex);
             return false;
@@ -137,72 +62,38 @@ public class ScheduleManager {
     
     /** Delete a schedule */
     public boolean deleteSchedule(int scheduleId) {
-        int rows = scheduleDao.deleteById(scheduleId);
-        Log.d(TAG, "Deleted schedule id=" + scheduleId + " rows=" + rows);
-        return rows > 0;
+        boolean deleted = repository.delete(scheduleId);
+        Log.d(TAG, "Deleted schedule id=" + scheduleId + " " + deleted);
+        return deleted;
     }
     
     /** Get all schedules */
     public List<ScheduleModel> getAllSchedules() {
-        try {
-            Log.d(TAG, "Getting all schedules from database...");
-            List<ScheduleEntity> entities = scheduleDao.getAll();
-            Log.d(TAG, "Found " + entities.size() + " entities in database");
-            
-            List<ScheduleModel> out = new ArrayList<>();
-            for (ScheduleEntity e : entities) {
-                Log.d(TAG, "Entity: id=" + e.id + ", name=" + e.name + ", enabled=" + e.enabled);
-                ScheduleModel model = toModel(e);
-                out.add(model);
-            }
-            Log.d(TAG, "Converted to " + out.size() + " models");
-            return out;
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting all schedules", e);
-            return new ArrayList<>();
-        }
+        return new ArrayList<>(repository.getAll());
     }
     
     /** Get enabled schedules only */
     public List<ScheduleModel> getEnabledSchedules() {
-        List<ScheduleEntity> entities = scheduleDao.getEnabled();
-        List<ScheduleModel> out = new ArrayList<>();
-        for (ScheduleEntity e : entities) out.add(toModel(e));
-        return out;
+        return new ArrayList<>(repository.getEnabled());
     }
     
     /** Get schedule by ID */
     public ScheduleModel getScheduleById(int scheduleId) {
-        ScheduleEntity e = scheduleDao.getById(scheduleId);
-        return e == null ? null : toModel(e);
+        return repository.getById(scheduleId);
     }
     
     /** Toggle schedule enabled/disabled */
     public boolean toggleSchedule(int scheduleId) {
-        ScheduleEntity e = scheduleDao.getById(scheduleId);
-        if (e == null) return false;
-        e.enabled = !e.enabled;
-        return scheduleDao.update(e) > 0;
+        return repository.toggle(scheduleId);
     }
     
     /** Get schedules that should trigger today */
     public List<ScheduleModel> getSchedulesForToday() {
         List<ScheduleModel> todaySchedules = new ArrayList<>();
-        Calendar today = Calendar.getInstance();
-        int todayOfWeek = today.get(Calendar.DAY_OF_WEEK);
+        int today = ScheduleRecurrence.today();
         for (ScheduleModel schedule : getEnabledSchedules()) {
-            switch (schedule.getRepeatType()) {
-                case DAILY:
-                    todaySchedules.add(schedule);
-                    break;
-                case WEEKLY:
-                    if (schedule.getRepeatDays().contains(todayOfWeek)) {
-                        todaySchedules.add(schedule);
-                    }
-                    break;
-                case ONCE:
-                    todaySchedules.add(schedule);
-                    break;
+            if (ScheduleRecurrence.occursOn(schedule, today)) {
+                todaySchedules.add(schedule);
             }
         }
         return todaySchedules;
@@ -214,9 +105,7 @@ public class ScheduleManager {
         createSchedule("Work Hours", 9, 0, 480, ScheduleModel.RepeatType.WEEKLY);
         createSchedule("Study Session", 19, 0, 180, ScheduleModel.RepeatType.DAILY);
         ScheduleModel weekendSchedule = createSchedule("Weekend Focus", 10, 0, 240, ScheduleModel.RepeatType.WEEKLY);
-        weekendSchedule.getRepeatDays().clear();
-        weekendSchedule.getRepeatDays().add(Calendar.SATURDAY);
-        weekendSchedule.getRepeatDays().add(Calendar.SUNDAY);
+        weekendSchedule.setRepeatDaysMask(ScheduleRecurrence.MASK_WEEKEND);
         updateSchedule(weekendSchedule);
     }
     
@@ -0,0 +1,247 @@
+package com.grepguru.zenlock.utils;
+
+import com.grepguru.zenlock.model.ScheduleModel;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+
+/**
+ * Recurrence math for schedules on local epoch days/minutes instead of Calendar walks
+ *
+ * Weekdays are a 7-bit mask with bit 0 = Sunday (Calendar.DAY_OF_WEEK - 1), so finding the
+ * next matching weekday is a shift and numberOfTrailingZeros. Patterns can repeat every N
+ * weeks (aligned to the week of anchorEpochDay), be limited to a date range and skip
+ * individual excluded dates. Epoch days are local days since 1970-01-01
+ */
+public final class ScheduleRecurrence {
+
+    public static final int MASK_NONE = 0;
+    public static final int MASK_ALL_DAYS = 0x7F;
+    public static final int MASK_WEEKDAYS = 0x3E;  // Mon-Fri
+    public static final int MASK_WEEKEND = 0x41;   // Sat + Sun
+
+    /** Sentinel for an open-ended date range */
+    public static final int NO_DATE = 0;
+
+    public static final int[] NO_EXCLUSIONS = new int[0];
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long DAY_MS = 24 * 60 * MINUTE_MS;
+
+    private ScheduleRecurrence() {}
+
+    /**
+     * UTC offsets of one time zone, cached for the span between two transitions.
+     * Create one per batch (e.g. per timeline build); lookups are allocation-free until
+     * a DST transition is crossed
+     */
+    public static final class ZoneOffsets {
+        private final ZoneRules rules;
+        private long windowStart = Long.MAX_VALUE;
+        private long windowEnd = Long.MIN_VALUE;
+        private long offsetMillis;
+
+        public ZoneOffsets(ZoneRules rules) {
+            this.rules = rules;
+        }
+
+        public static ZoneOffsets systemDefault() {
+            return new ZoneOffsets(ZoneId.systemDefault().getRules());
+        }
+
+        /** Offset to add to a UTC instant to get local wall time */
+        public long offsetAt(long utcMillis) {
+            if (utcMillis >= windowStart && utcMillis < windowEnd) return offsetMillis;
+
+            Instant instant = Instant.ofEpochMilli(utcMillis);
+            offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1000L;
+            // previousTransition is strictly before its argument; include a transition at utcMillis
+            ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+            ZoneOffsetTransition next = rules.nextTransition(instant);
+            windowStart = previous == null ? Long.MIN_VALUE : previous.toEpochSecond() * 1000L;
+            windowEnd = next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1000L;
+            return offsetMillis;
+        }
+
+        /**
+         * Convert local wall time to UTC. Times skipped by a spring-forward gap move forward
+         * by the gap, like a lenient Calendar
+         */
+        public long toUtc(long localMillis) {
+            long offset = offsetAt(localMillis - offsetAt(localMillis));
+            long utc = localMillis - offset;
+            long actual = offsetAt(utc);
+            if (actual == offset) return utc;
+            // In a gap neither offset maps back to localMillis; the one from before it moves forward
+            return localMillis - Math.min(offset, actual);
+        }
+
+        public int toEpochDay(long utcMillis) {
+            return (int) Math.floorDiv(utcMillis + offsetAt(utcMillis), DAY_MS);
+        }
+    }
+
+    // ---- Weekday masks ----
+
+    /** Bit for a Calendar.DAY_OF_WEEK value */
+    public static int bitFor(int calendarDayOfWeek) {
+        return 1 << (calendarDayOfWeek - 1);
+    }
+
+    public static boolean hasDay(int mask, int calendarDayOfWeek) {
+        return (mask & bitFor(calendarDayOfWeek)) != 0;
+    }
+
+    /** 0 = Sunday ... 6 = Saturday, matching the mask bit order. 1970-01-01 was a Thursday */
+    public static int dayOfWeekIndex(int epochDay) {
+        return Math.floorMod(epochDay + 4, 7);
+    }
+
+    /** Epoch day of the Sunday starting the week that contains epochDay */
+    public static int weekStart(int epochDay) {
+        return epochDay - dayOfWeekIndex(epochDay);
+    }
+
+    // ---- Occurrences ----
+
+    /**
+     * First start of the schedule at or after fromMillis, or -1 if it will not run again
+     */
+    public static long nextOccurrenceMillis(ScheduleModel schedule, long fromMillis, ZoneOffsets zone) {
+        long startOfDayOffset = (schedule.getStartHour() * 60L + schedule.getStartMinute()) * MINUTE_MS;
+        long fromLocal = fromMillis + zone.offsetAt(fromMillis);
+        int fromDay = (int) Math.floorDiv(fromLocal, DAY_MS);
+        int day = fromDay;
+        if (day * DAY_MS + startOfDayOffset < fromLocal) day++;
+
+        int rangeStart = schedule.getStartEpochDay();
+        int rangeEnd = schedule.getEndEpochDay();
+        int[] excluded = schedule.getExcludedEpochDays();
+
+        // Each pass either returns or steps past one excluded date or the already-passed first
+        // run of a fall-back day, so this is bounded
+        for (int pass = 0; pass <= excluded.length + 1; pass++) {
+            int candidate;
+            switch (schedule.getRepeatType()) {
+                case ONCE: {
+                    // Without a date, a one-time schedule runs on the day it is evaluated
+                    int target = rangeStart != NO_DATE ? rangeStart : fromDay;
+                    candidate = day <= target ? target : -1;
+                    break;
+                }
+                case DAILY:
+                    candidate = rangeStart != NO_DATE ? Math.max(day, rangeStart) : day;
+                    break;
+                case WEEKLY:
+                    candidate = nextWeeklyDay(schedule.getRepeatDaysMask(), schedule.getRepeatIntervalWeeks(),
+                            schedule.getAnchorEpochDay(),
+                            rangeStart != NO_DATE ? Math.max(day, rangeStart) : day);
+                    break;
+                default:
+                    candidate = -1;
+            }
+            if (candidate < 0) return -1;
+            if (rangeEnd != NO_DATE && candidate > rangeEnd) return -1;
+            if (excluded.length > 0 && Arrays.binarySearch(excluded, candidate) >= 0) {
+                if (schedule.getRepeatType() == ScheduleModel.RepeatType.ONCE) return -1;
+                day = candidate + 1;
+                continue;
+            }
+            long startMillis = zone.toUtc(candidate * DAY_MS + startOfDayOffset);
+            // From the repeated hour of a fall-back day, today's start was the first one
+            if (startMillis < fromMillis) {
+                day = candidate + 1;
+                continue;
+            }
+            return startMillis;
+        }
+        return -1;
+    }
+
+    /**
+     * First day at or after fromDay whose weekday is in mask and whose week is one of every
+     * intervalWeeks weeks counted from the anchor's week; -1 if the mask is empty
+     */
+    static int nextWeeklyDay(int mask, int intervalWeeks, int anchorEpochDay, int fromDay) {
+        mask &= MASK_ALL_DAYS;
+        if (mask == MASK_NONE) return -1;
+        int interval = Math.max(1, intervalWeeks);
+        int anchorWeek = weekStart(anchorEpochDay);
+
+        int week = Math.floorDiv(fromDay - anchorWeek, 7);
+        int phase = Math.floorMod(week, interval);
+        if (phase == 0) {
+            // Remaining days of the current (active) week
+            int remaining = mask >>> dayOfWeekIndex(fromDay);
+            if (remaining != 0) return fromDay + Integer.numberOfTrailingZeros(remaining);
+        }
+        int nextActiveWeek = week + (interval - phase);
+        return anchorWeek + nextActiveWeek * 7 + Integer.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * Whether the schedule runs on a local epoch day
+     */
+    public static boolean occursOn(ScheduleModel schedule, int epochDay) {
+        int rangeStart = schedule.getStartEpochDay();
+        int rangeEnd = schedule.getEndEpochDay();
+        if (rangeStart != NO_DATE && epochDay < rangeStart) return false;
+        if (rangeEnd != NO_DATE && epochDay > rangeEnd) return false;
+        if (Arrays.binarySearch(schedule.getExcludedEpochDays(), epochDay) >= 0) return false;
+
+        switch (schedule.getRepeatType()) {
+            case ONCE:
+                return rangeStart == NO_DATE || epochDay == rangeStart;
+            case DAILY:
+                return true;
+            case WEEKLY:
+                return nextWeeklyDay(schedule.getRepeatDaysMask(), schedule.getRepeatIntervalWeeks(),
+                        schedule.getAnchorEpochDay(), epochDay) == epochDay;
+            default:
+                return false;
+        }
+    }
+
+    // ---- Persistence helpers ----
+
+    /**
+     * Pack sorted excluded epoch days as big-endian ints; null when there are none
+     */
+    public static byte[] encodeDays(int[] days) {
+        if (days == null || days.length == 0) return null;
+        ByteBuffer buffer = ByteBuffer.allocate(days.length * 4);
+        for (int day : days) buffer.putInt(day);
+        return buffer.array();
+    }
+
+    public static int[] decodeDays(byte[] data) {
+        if (data == null || data.length < 4) return NO_EXCLUSIONS;
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int[] days = new int[data.length / 4];
+        for (int i = 0; i < days.length; i++) days[i] = buffer.getInt();
+        return days;
+    }
+
+    /**
+     * Short names of the days in a mask, Sunday first
+     */
+    public static String describeDays(int mask) {
+        String[] dayNames = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
+        StringBuilder days = new StringBuilder();
+        for (int i = 0; i < 7; i++) {
+            if ((mask & (1 << i)) == 0) continue;
+            if (days.length() > 0) days.append(", ");
+            days.append(dayNames[i]);
+        }
+        return days.toString();
+    }
+
+    /** Today's local epoch day */
+    public static int today() {
+        return TimeService.get().today();
+    }
+}
@@ -0,0 +1,97 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+
+import com.grepguru.zenlock.model.ScheduleModel;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Upcoming alarm events for every enabled schedule, the pending delayed manual start and the
+ * next focus/break transition of a running cycle, ordered in a min-heap by trigger time. ScheduleAlarmMultiplexer arms one exact alarm
+ * for the head of this timeline instead of one alarm per schedule
+ */
+public final class ScheduleTimeline {
+
+    public static final int TYPE_PRE_NOTIFY = 0;
+    public static final int TYPE_START = 1;
+    public static final int TYPE_MANUAL_START = 2;
+    public static final int TYPE_CYCLE_TRANSITION = 3;
+
+    /**
+     * One upcoming event. Pre-notifications sort before a start at the same instant
+     */
+    public static final class Event implements Comparable<Event> {
+        public final int type;
+        public final long triggerAtMillis;
+        public final ScheduleModel schedule; // null for TYPE_MANUAL_START and TYPE_CYCLE_TRANSITION
+
+        Event(int type, long triggerAtMillis, ScheduleModel schedule) {
+            this.type = type;
+            this.triggerAtMillis = triggerAtMillis;
+            this.schedule = schedule;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(triggerAtMillis, other.triggerAtMillis);
+            return byTime != 0 ? byTime : Integer.compare(type, other.type);
+        }
+
+        @Override
+        public String toString() {
+            String what = type == TYPE_PRE_NOTIFY ? "pre-notify" : type == TYPE_START ? "start"
+                    : type == TYPE_MANUAL_START ? "manual start" : "cycle transition";
+            return what + (schedule != null ? " '" + schedule.getName() + "'" : "") + " at " + triggerAtMillis;
+        }
+    }
+
+    private ScheduleTimeline() {}
+
+    /**
+     * Build the timeline of events at or after fromMillis
+     *
+     * @param excludedScheduleId schedule to leave out (e.g. one being deleted), -1 for none
+     */
+    public static PriorityQueue<Event> build(Context context, long fromMillis, int excludedScheduleId) {
+        PriorityQueue<Event> timeline = new PriorityQueue<>();
+        ScheduleRecurrence.ZoneOffsets zone = ScheduleRecurrence.ZoneOffsets.systemDefault();
+
+        List<ScheduleModel> schedules = new ScheduleManager(context).getEnabledSchedules();
+        for (ScheduleModel schedule : schedules) {
+            if (schedule.getId() == excludedScheduleId) continue;
+
+            long startAt = ScheduleRecurrence.nextOccurrenceMillis(schedule, fromMillis, zone);
+            if (startAt < 0) continue;
+            timeline.add(new Event(TYPE_START, startAt, schedule));
+
+            if (schedule.isPreNotifyEnabled() && schedule.getPreNotifyMinutes() > 0) {
+                long preNotifyAt = startAt - schedule.getPreNotifyMinutes() * 60_000L;
+                // Same as before: a pre-notification whose time has passed is skipped
+                if (preNotifyAt >= fromMillis) {
+                    timeline.add(new Event(TYPE_PRE_NOTIFY, preNotifyAt, schedule));
+                }
+            }
+        }
+
+        long manualStartAt = ManualStartDelayScheduler.readPendingStartAt(context);
+        if (manualStartAt >= fromMillis) {
+            timeline.add(new Event(TYPE_MANUAL_START, manualStartAt, null));
+        }
+
+        long cycleTransitionAt = FocusCycleManager.readNextTransition(context, fromMillis);
+        if (cycleTransitionAt >= fromMillis) {
+            timeline.add(new Event(TYPE_CYCLE_TRANSITION, cycleTransitionAt, null));
+        }
+        return timeline;
+    }
+
+    /**
+     * First start of a schedule at or after fromMillis, or -1 if it will not run again
+     */
+    public static long nextStartMillis(ScheduleModel schedule, long fromMillis) {
+        return ScheduleRecurrence.nextOccurrenceMillis(schedule, fromMillis,
+                ScheduleRecurrence.ZoneOffsets.systemDefault());
+    }
+}
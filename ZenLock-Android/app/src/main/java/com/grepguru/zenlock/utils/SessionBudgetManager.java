@@ -0,0 +1,184 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.grepguru.zenlock.model.FocusSessionState;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Per-app time budgets inside a focus session, e.g. Maps for 10 minutes in total
+ *
+ * AppBlockerService reports every foreground switch and the budget of the app in front drains
+ * while it stays there (see AppAllowanceLedger). Usage is tied to the session's start time,
+ * so it survives LockScreenActivity restarts and process death, and a new session starts
+ * from full budgets
+ */
+public final class SessionBudgetManager {
+
+    private static final String TAG = "SessionBudgetManager";
+    private static final String LOCK_PREFS = "FocusLockPrefs";
+    private static final String STATE_PREFS = "SessionBudgetPrefs";
+
+    // Configured limits, "package=minutes" entries in FocusLockPrefs
+    public static final String PREF_BUDGETS = "session_app_budgets";
+
+    public interface BudgetListener {
+        /**
+         * Called on the main thread when an app's budget runs out while it is in front
+         */
+        void onBudgetExhausted(String packageName);
+    }
+
+    private static volatile SessionBudgetManager INSTANCE;
+
+    private final SharedPreferences lockPrefs;
+    private final AppAllowanceLedger ledger;
+    private final FocusSessionController sessions;
+    private final List<BudgetListener> listeners = new CopyOnWriteArrayList<>();
+
+    private SessionBudgetManager(Context context) {
+        Context appContext = context.getApplicationContext();
+        lockPrefs = appContext.getSharedPreferences(LOCK_PREFS, Context.MODE_PRIVATE);
+        sessions = FocusSessionController.getInstance(appContext);
+        ledger = new AppAllowanceLedger(TAG,
+                appContext.getSharedPreferences(STATE_PREFS, Context.MODE_PRIVATE),
+                this::notifyExhausted);
+        // Budgets only drain during focus blocks of a cycle
+        FocusCycleManager.addListener((phase, phaseEndMillis) -> {
+            if (phase != null && phase.isBreak()) ledger.pause(System.currentTimeMillis());
+        });
+    }
+
+    public static SessionBudgetManager getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (SessionBudgetManager.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SessionBudgetManager(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public void addListener(BudgetListener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(BudgetListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean hasBudget(String packageName) {
+        syncSession();
+        return ledger.has(packageName);
+    }
+
+    public boolean isExhausted(String packageName) {
+        syncSession();
+        return ledger.isExhausted(packageName, System.currentTimeMillis());
+    }
+
+    /**
+     * Time left for the app in this session, -1 if it has no budget
+     */
+    public long getRemainingMillis(String packageName) {
+        syncSession();
+        return ledger.getRemainingMillis(packageName, System.currentTimeMillis());
+    }
+
+    /**
+     * Budgeted packages that still have time left in this session
+     */
+    public Set<String> getAvailablePackages() {
+        syncSession();
+        return ledger.getPackages(true, System.currentTimeMillis());
+    }
+
+    /**
+     * Budgeted packages with no time left in this session
+     */
+    public Set<String> getExhaustedPackages() {
+        syncSession();
+        return ledger.getPackages(false, System.currentTimeMillis());
+    }
+
+    /**
+     * Every package with a budget in this session
+     */
+    public Set<String> getBudgetedPackages() {
+        syncSession();
+        return ledger.getAll();
+    }
+
+    /**
+     * The budgeted app draining now and when it runs out, null if none is
+     */
+    AppAllowanceLedger.Running getRunning() {
+        syncSession();
+        return ledger.getRunning();
+    }
+
+    /**
+     * A window of packageName came to the front
+     */
+    public void onForeground(String packageName) {
+        syncSession();
+        ledger.onForeground(packageName, System.currentTimeMillis());
+    }
+
+    /**
+     * Nothing is in front any more (screen off); stop charging the app that was
+     */
+    public void pause() {
+        syncSession();
+        ledger.pause(System.currentTimeMillis());
+    }
+
+    /**
+     * Drop all session usage, called when the session ends
+     */
+    public void clear() {
+        ledger.clear();
+    }
+
+    /**
+     * Configured session budgets in minutes by package
+     */
+    public static Map<String, Integer> readConfiguredMinutes(Context context) {
+        return readConfiguredMinutes(context.getSharedPreferences(LOCK_PREFS, Context.MODE_PRIVATE));
+    }
+
+    public static void saveConfiguredMinutes(Context context, Map<String, Integer> minutes) {
+        context.getSharedPreferences(LOCK_PREFS, Context.MODE_PRIVATE)
+                .edit().putStringSet(PREF_BUDGETS, AppAllowanceLedger.formatMinutes(minutes)).apply();
+    }
+
+    private static Map<String, Integer> readConfiguredMinutes(SharedPreferences prefs) {
+        return AppAllowanceLedger.parseMinutes(prefs.getStringSet(PREF_BUDGETS, new HashSet<>()), TAG);
+    }
+
+    /**
+     * Bind the ledger to the running session, restoring or resetting its budgets
+     */
+    private void syncSession() {
+        FocusSessionState session = sessions.getState();
+        long lockStart = session.isLocked() ? session.startTime : 0;
+        if (lockStart == ledger.getScope()) return;
+        synchronized (this) {
+            if (lockStart == ledger.getScope()) return;
+            ledger.bind(lockStart, readConfiguredMinutes(lockPrefs), lockStart, System.currentTimeMillis());
+        }
+    }
+
+    private void notifyExhausted(String packageName) {
+        for (BudgetListener listener : listeners) {
+            listener.onBudgetExhausted(packageName);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live telemetry of the running focus session (start, target, source, per-app usage), kept in
+ * a RecordJournal so an update is one small append instead of rewriting the whole session
+ *
+ * A session starts with a BEGIN record; each package gets an APP record once, mapping it to a
+ * small slot, after which usage is logged as fixed-size USAGE records (slot, millis). Appends
+ * are fsynced in batches on a background thread, so a crash or force-stop loses at most the
+ * last batch. Replay on first use rebuilds the totals; a long session is compacted to one
+ * record per app, and ending the session empties the file
+ */
+public final class SessionTelemetryJournal {
+
+    private static final String TAG = "SessionTelemetry";
+    private static final String JOURNAL_FILE = "session_telemetry.journal";
+    // Where sessions were kept before the journal, imported once
+    private static final String LEGACY_PREFS = "CurrentSessionPrefs";
+
+    private static final byte TYPE_BEGIN = 1;
+    private static final byte TYPE_APP = 2;
+    private static final byte TYPE_USAGE = 3;
+    // type + short slot + long millis
+    private static final int USAGE_RECORD_BYTES = 11;
+
+    // Sync once this many records are waiting or the oldest has waited this long
+    private static final int SYNC_BATCH = 32;
+    private static final long SYNC_INTERVAL_MS = 10_000;
+    private static final int COMPACT_THRESHOLD = 4096;
+
+    /**
+     * Copy of the session's telemetry
+     */
+    public static final class Snapshot {
+        public final long startTime;
+        public final long targetDuration;
+        public final String source;
+        public final Map<String, Long> appUsage;
+
+        Snapshot(long startTime, long targetDuration, String source, Map<String, Long> appUsage) {
+            this.startTime = startTime;
+            this.targetDuration = targetDuration;
+            this.source = source;
+            this.appUsage = appUsage;
+        }
+    }
+
+    private static volatile SessionTelemetryJournal INSTANCE;
+
+    private final Context context;
+    private final RecordJournal journal;
+    private final ScheduledExecutorService syncExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    private long startTime;
+    private long targetDuration;
+    private String source = "";
+    private final List<String> slots = new ArrayList<>();
+    private final Map<String, Integer> slotByPackage = new HashMap<>();
+    private final List<Long> usageBySlot = new ArrayList<>();
+    // Posted when the first unsynced record arrives, cancelled by any sync before it
+    private ScheduledFuture<?> delayedSync;
+    private boolean syncQueued;
+
+    private SessionTelemetryJournal(Context context) {
+        this.context = context.getApplicationContext();
+        journal = new RecordJournal(new File(this.context.getFilesDir(), JOURNAL_FILE));
+        replay();
+    }
+
+    public static SessionTelemetryJournal getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (SessionTelemetryJournal.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SessionTelemetryJournal(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public synchronized boolean isActive() {
+        return startTime > 0;
+    }
+
+    public synchronized Snapshot getSnapshot() {
+        Map<String, Long> usage = new HashMap<>();
+        for (int slot = 0; slot < slots.size(); slot++) {
+            usage.put(slots.get(slot), usageBySlot.get(slot));
+        }
+        return new Snapshot(startTime, targetDuration, source, usage);
+    }
+
+    /**
+     * Start a new session, dropping whatever was logged for the previous one
+     */
+    public synchronized void begin(long sessionStart, long target, String sessionSource) {
+        resetState();
+        startTime = sessionStart;
+        targetDuration = target;
+        source = sessionSource != null ? sessionSource : "";
+        try {
+            List<byte[]> records = new ArrayList<>(1);
+            records.add(beginRecord());
+            journal.compact(records);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to start session journal", e);
+        }
+    }
+
+    /**
+     * Add usage time for a package; durable with the next batch
+     */
+    public synchronized void recordUsage(String packageName, long millis) {
+        if (startTime <= 0 || millis <= 0) return;
+        try {
+            Integer slot = slotByPackage.get(packageName);
+            if (slot == null) {
+                slot = slots.size();
+                slots.add(packageName);
+                slotByPackage.put(packageName, slot);
+                usageBySlot.add(0L);
+                journal.append(appRecord(slot, packageName));
+            }
+            usageBySlot.set(slot, usageBySlot.get(slot) + millis);
+            journal.append(usageRecord(slot, millis));
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to log usage of " + packageName, e);
+            journal.close();
+            return;
+        }
+
+        if (journal.getRecordCount() > COMPACT_THRESHOLD) {
+            compact();
+        } else {
+            scheduleSync();
+        }
+    }
+
+    /**
+     * Session ended (or was discarded); empties the journal
+     */
+    public synchronized void clear() {
+        resetState();
+        try {
+            journal.compact(new ArrayList<>());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to clear session journal", e);
+        }
+    }
+
+    // =====================================
+    // INTERNALS
+    // =====================================
+
+    private void resetState() {
+        startTime = 0;
+        targetDuration = 0;
+        source = "";
+        slots.clear();
+        slotByPackage.clear();
+        usageBySlot.clear();
+        cancelDelayedSync();
+    }
+
+    private void scheduleSync() {
+        if (delayedSync == null) {
+            // A quiet session may not reach a full batch for a long time
+            delayedSync = syncExecutor.schedule(this::sync, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        if (journal.getPendingCount() < SYNC_BATCH || syncQueued) return;
+        syncQueued = true;
+        syncExecutor.execute(this::sync);
+    }
+
+    private void cancelDelayedSync() {
+        if (delayedSync == null) return;
+        delayedSync.cancel(false);
+        delayedSync = null;
+    }
+
+    private synchronized void sync() {
+        syncQueued = false;
+        cancelDelayedSync();
+        try {
+            journal.commit();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to sync session journal", e);
+            journal.close();
+        }
+    }
+
+    /**
+     * Rewrite the journal as BEGIN plus one APP and one USAGE record per package
+     */
+    private void compact() {
+        List<byte[]> records = new ArrayList<>(1 + slots.size() * 2);
+        records.add(beginRecord());
+        for (int slot = 0; slot < slots.size(); slot++) {
+            records.add(appRecord(slot, slots.get(slot)));
+            records.add(usageRecord(slot, usageBySlot.get(slot)));
+        }
+        try {
+            journal.compact(records);
+            cancelDelayedSync();
+            Log.d(TAG, "Compacted session journal to " + records.size() + " records");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to compact session journal", e);
+        }
+    }
+
+    private void replay() {
+        resetState();
+        for (byte[] record : journal.replay()) {
+            try {
+                apply(record);
+            } catch (IOException e) {
+                Log.e(TAG, "Skipping malformed telemetry record", e);
+            }
+        }
+        if (startTime <= 0) {
+            importLegacyPrefs();
+        } else {
+            Log.d(TAG, "Restored session from " + startTime + " with " + slots.size() + " apps");
+        }
+    }
+
+    private void apply(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        switch (in.readByte()) {
+            case TYPE_BEGIN:
+                resetState();
+                startTime = in.readLong();
+                targetDuration = in.readLong();
+                source = in.readUTF();
+                break;
+            case TYPE_APP: {
+                int slot = in.readShort();
+                String packageName = in.readUTF();
+                // Slots are handed out in order, so a definition is always the next one
+                if (slot != slots.size()) throw new IOException("Out of order slot " + slot);
+                slots.add(packageName);
+                slotByPackage.put(packageName, slot);
+                usageBySlot.add(0L);
+                break;
+            }
+            case TYPE_USAGE: {
+                int slot = in.readShort();
+                long millis = in.readLong();
+                if (slot < 0 || slot >= usageBySlot.size()) throw new IOException("Unknown slot " + slot);
+                usageBySlot.set(slot, usageBySlot.get(slot) + millis);
+                break;
+            }
+            default:
+                throw new IOException("Unknown record type");
+        }
+    }
+
+    /**
+     * Sessions saved by older versions as a "pkg:ms;pkg:ms" string in CurrentSessionPrefs
+     */
+    private void importLegacyPrefs() {
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+        long legacyStart = prefs.getLong("session_start", 0);
+        if (legacyStart > 0) {
+            begin(legacyStart, prefs.getLong("session_target", 0), prefs.getString("session_source", "manual"));
+            String appUsage = prefs.getString("app_usage", "");
+            for (String entry : appUsage.split(";")) {
+                int separator = entry.lastIndexOf(':');
+                if (separator <= 0) continue;
+                try {
+                    recordUsage(entry.substring(0, separator), Long.parseLong(entry.substring(separator + 1)));
+                } catch (NumberFormatException e) {
+                    Log.e(TAG, "Bad legacy usage entry " + entry, e);
+                }
+            }
+            sync();
+            Log.d(TAG, "Imported legacy session from " + legacyStart);
+        }
+        if (!prefs.getAll().isEmpty()) prefs.edit().clear().apply();
+    }
+
+    private byte[] beginRecord() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(TYPE_BEGIN);
+            out.writeLong(startTime);
+            out.writeLong(targetDuration);
+            out.writeUTF(source);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] appRecord(int slot, String packageName) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(TYPE_APP);
+            out.writeShort(slot);
+            out.writeUTF(packageName);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] usageRecord(int slot, long millis) {
+        return ByteBuffer.allocate(USAGE_RECORD_BYTES)
+                .put(TYPE_USAGE)
+                .putShort((short) slot)
+                .putLong(millis)
+                .array();
+    }
+}
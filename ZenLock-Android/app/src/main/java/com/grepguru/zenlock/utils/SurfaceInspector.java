@@ -0,0 +1,421 @@
+package com.grepguru.zenlock.utils;
+
+import android.accessibilityservice.AccessibilityService;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Blocks websites in browsers and short-video surfaces inside apps that are otherwise allowed,
+ * by looking for known views in the accessibility node tree
+ *
+ * Each watched app has a few view ids to look for (the URL bar, the Shorts/Reels pager). The
+ * child-index path to the view that matched is cached per (package, window class), so a repeat
+ * inspection is a handful of getChild() calls; only a cache miss walks the tree, depth-first,
+ * skipping invisible subtrees, up to MAX_DEPTH levels and MAX_NODES nodes. Every inspection has a
+ * wall-clock budget of BUDGET_NANOS (binder calls for nodes the framework did not prefetch count
+ * too) after which it gives up and lets the window through. Content-change events, which fire per
+ * frame while a page scrolls, re-inspect a window at most every CONTENT_THROTTLE_MS. Called from
+ * the accessibility thread only; metrics can be read from anywhere. Lives in the blocker process,
+ * which gets the settings through BlockerState rather than preferences
+ */
+public final class SurfaceInspector {
+
+    private static final String TAG = "SurfaceInspector";
+    // Settings in FocusLockPrefs, published to the blocker process by BlockerStatePublisher
+    public static final String KEY_BLOCKED_SITES = "blocked_sites";
+    public static final String KEY_BLOCK_SHORT_VIDEO = "block_short_video";
+
+    private static final long BUDGET_NANOS = 4_000_000L;
+    private static final int MAX_DEPTH = 32;
+    private static final int MAX_NODES = 600;
+    private static final long CONTENT_THROTTLE_MS = 750;
+    private static final int MAX_CACHED_PATHS = 64;
+    // Map entry, "package/class" key and a short int[], roughly
+    private static final int CACHED_PATH_BYTES = 256;
+    private static final int METRICS_LOG_INTERVAL = 500;
+
+    /**
+     * Notified when blocking is switched on or off, so the service can (un)subscribe from
+     * content-change events
+     */
+    public interface ConfigListener {
+        void onSurfaceBlockingChanged(boolean enabled);
+    }
+
+    /**
+     * Counters since the process started
+     */
+    public static final class Metrics {
+        public long inspections;
+        public long throttled;
+        public long pathHits;
+        public long walks;
+        public long nodesVisited;
+        public long overBudget;
+        public long blocked;
+        public long totalNanos;
+        public long maxNanos;
+
+        public long getAverageNanos() {
+            return inspections > 0 ? totalNanos / inspections : 0;
+        }
+
+        Metrics copy() {
+            Metrics copy = new Metrics();
+            copy.inspections = inspections;
+            copy.throttled = throttled;
+            copy.pathHits = pathHits;
+            copy.walks = walks;
+            copy.nodesVisited = nodesVisited;
+            copy.overBudget = overBudget;
+            copy.blocked = blocked;
+            copy.totalNanos = totalNanos;
+            copy.maxNanos = maxNanos;
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return inspections + " inspections (" + throttled + " throttled, " + pathHits + " path hits, "
+                    + walks + " walks over " + nodesVisited + " nodes, " + overBudget + " over budget), "
+                    + blocked + " blocked, avg " + getAverageNanos() / 1000 + " us, max " + maxNanos / 1000 + " us";
+        }
+    }
+
+    private enum Kind {
+        URL_BAR,
+        SURFACE
+    }
+
+    /**
+     * Views to look for in one app
+     */
+    private static final class Target {
+        final Kind kind;
+        final String label;
+        // Full resource names, "package:id/name"
+        final String[] viewIds;
+
+        Target(Kind kind, String packageName, String label, String... ids) {
+            this.kind = kind;
+            this.label = label;
+            viewIds = new String[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                viewIds[i] = packageName + ":id/" + ids[i];
+            }
+        }
+    }
+
+    // URL bars of common browsers; ids change with app updates, a miss only means no blocking
+    private static final Map<String, Target> BROWSERS = new HashMap<>();
+    // Short-video surfaces inside apps people keep allowed for messaging
+    private static final Map<String, Target> SHORT_VIDEO = new HashMap<>();
+
+    static {
+        browser("com.android.chrome", "Chrome", "url_bar");
+        browser("com.chrome.beta", "Chrome Beta", "url_bar");
+        browser("com.brave.browser", "Brave", "url_bar");
+        browser("com.microsoft.emmx", "Edge", "url_bar");
+        browser("com.kiwibrowser.browser", "Kiwi", "url_bar");
+        browser("com.vivaldi.browser", "Vivaldi", "url_bar");
+        browser("com.sec.android.app.sbrowser", "Samsung Internet", "location_bar_edit_text");
+        browser("org.mozilla.firefox", "Firefox", "mozac_browser_toolbar_url_view", "url_bar_title");
+        browser("com.opera.browser", "Opera", "url_field");
+        browser("com.duckduckgo.mobile.android", "DuckDuckGo", "omnibarTextInput");
+
+        surface("com.google.android.youtube", "YouTube Shorts", "reel_recycler", "reel_player_page_container");
+        surface("com.instagram.android", "Instagram Reels", "clips_viewer_view_pager");
+    }
+
+    private static void browser(String packageName, String label, String... ids) {
+        BROWSERS.put(packageName, new Target(Kind.URL_BAR, packageName, label, ids));
+    }
+
+    private static void surface(String packageName, String label, String... ids) {
+        SHORT_VIDEO.put(packageName, new Target(Kind.SURFACE, packageName, label, ids));
+    }
+
+    private static volatile SurfaceInspector INSTANCE;
+
+    private final List<ConfigListener> listeners = new CopyOnWriteArrayList<>();
+    private final Metrics metrics = new Metrics();
+
+    private volatile DomainMatcher sites = DomainMatcher.EMPTY;
+    private volatile boolean blockShortVideo;
+
+    // Accessibility thread only
+    private final Map<String, int[]> paths = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+            return size() > MAX_CACHED_PATHS;
+        }
+    };
+    private final int[] pathStack = new int[MAX_DEPTH];
+    private String windowPackage = "";
+    private String windowKey = "";
+    private long lastInspectedAt;
+    private int visited;
+    private int foundDepth;
+    private boolean outOfBudget;
+
+    // Hot path of the blocker, and small: only given up when memory is critical. ComponentCallbacks
+    // run on the main thread, the same one accessibility events arrive on
+    private final MemoryPressure.Trimmable pathCache = new MemoryPressure.Trimmable() {
+        @Override
+        public long estimateBytes() {
+            return (long) paths.size() * CACHED_PATH_BYTES;
+        }
+
+        @Override
+        public long trim(int tier) {
+            long freed = estimateBytes();
+            paths.clear();
+            return freed;
+        }
+    };
+
+    private SurfaceInspector() {
+        MemoryPressure.get().register(TAG, MemoryPressure.TIER_CRITICAL, pathCache);
+    }
+
+    public static SurfaceInspector getInstance() {
+        if (INSTANCE == null) {
+            synchronized (SurfaceInspector.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SurfaceInspector();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return blockShortVideo || !sites.isEmpty();
+    }
+
+    public void addListener(ConfigListener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(ConfigListener listener) {
+        listeners.remove(listener);
+    }
+
+    public Metrics getMetrics() {
+        synchronized (metrics) {
+            return metrics.copy();
+        }
+    }
+
+    // =====================================
+    // INSPECTION
+    // =====================================
+
+    /**
+     * Look at the active window of an app the policy allows
+     *
+     * @return what was found ("YouTube Shorts", "reddit.com in Chrome"), or null to let it through
+     */
+    public String inspect(AccessibilityService service, AccessibilityEvent event, String packageName) {
+        Target target = targetFor(packageName);
+        if (target == null) return null;
+
+        long now = SystemClock.uptimeMillis();
+        if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
+            onWindowChanged(packageName, event.getClassName());
+        } else {
+            if (!packageName.equals(windowPackage)) {
+                onWindowChanged(packageName, null);
+            } else if (now - lastInspectedAt < CONTENT_THROTTLE_MS) {
+                synchronized (metrics) {
+                    metrics.throttled++;
+                }
+                return null;
+            }
+        }
+        lastInspectedAt = now;
+
+        long started = System.nanoTime();
+        long deadline = started + BUDGET_NANOS;
+        visited = 0;
+        outOfBudget = false;
+        boolean pathHit = false;
+        String found = null;
+        AccessibilityNodeInfo root = service.getRootInActiveWindow();
+        if (root != null) {
+            try {
+                if (packageName.contentEquals(root.getPackageName() != null ? root.getPackageName() : "")) {
+                    AccessibilityNodeInfo node = followCachedPath(root, target);
+                    pathHit = node != null;
+                    if (node == null) node = findTarget(root, target, deadline);
+                    if (node != null) {
+                        found = evaluate(target, node);
+                        if (node != root) release(node);
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error inspecting " + packageName, e);
+            } finally {
+                release(root);
+            }
+        }
+        record(System.nanoTime() - started, pathHit, found != null);
+        return found;
+    }
+
+    private void onWindowChanged(String packageName, CharSequence className) {
+        windowPackage = packageName;
+        windowKey = className != null ? packageName + '/' + className : packageName;
+        lastInspectedAt = 0;
+    }
+
+    private Target targetFor(String packageName) {
+        if (blockShortVideo) {
+            Target target = SHORT_VIDEO.get(packageName);
+            if (target != null) return target;
+        }
+        return sites.isEmpty() ? null : BROWSERS.get(packageName);
+    }
+
+    /**
+     * The view at the path cached for this window, or null (and the entry dropped) if it moved
+     */
+    private AccessibilityNodeInfo followCachedPath(AccessibilityNodeInfo root, Target target) {
+        int[] path = paths.get(windowKey);
+        if (path == null) return null;
+        AccessibilityNodeInfo node = root;
+        for (int index : path) {
+            AccessibilityNodeInfo child = index < node.getChildCount() ? node.getChild(index) : null;
+            if (node != root) release(node);
+            if (child == null) {
+                paths.remove(windowKey);
+                return null;
+            }
+            node = child;
+        }
+        if (node.isVisibleToUser() && matches(node, target)) return node;
+        if (node != root) release(node);
+        paths.remove(windowKey);
+        return null;
+    }
+
+    /**
+     * Bounded depth-first search from root, caching the path on a hit
+     */
+    private AccessibilityNodeInfo findTarget(AccessibilityNodeInfo root, Target target, long deadline) {
+        AccessibilityNodeInfo hit = search(root, target, 0, deadline);
+        if (hit != null) {
+            paths.put(windowKey, Arrays.copyOf(pathStack, foundDepth));
+        }
+        return hit;
+    }
+
+    /**
+     * On a hit, pathStack[0, foundDepth) holds the child indices from the root
+     */
+    private AccessibilityNodeInfo search(AccessibilityNodeInfo node, Target target, int depth, long deadline) {
+        if (matches(node, target)) {
+            foundDepth = depth;
+            return node;
+        }
+        if (depth >= MAX_DEPTH) return null;
+        int count = node.getChildCount();
+        for (int i = 0; i < count; i++) {
+            if (++visited > MAX_NODES || System.nanoTime() > deadline) {
+                outOfBudget = true;
+                return null;
+            }
+            AccessibilityNodeInfo child = node.getChild(i);
+            if (child == null) continue;
+            if (!child.isVisibleToUser()) {
+                release(child);
+                continue;
+            }
+            pathStack[depth] = i;
+            AccessibilityNodeInfo hit = search(child, target, depth + 1, deadline);
+            if (hit != null) {
+                if (hit != child) release(child);
+                return hit;
+            }
+            release(child);
+            if (outOfBudget) return null;
+        }
+        return null;
+    }
+
+    private static boolean matches(AccessibilityNodeInfo node, Target target) {
+        String id = node.getViewIdResourceName();
+        if (id == null) return false;
+        for (String viewId : target.viewIds) {
+            if (viewId.equals(id)) return true;
+        }
+        return false;
+    }
+
+    private String evaluate(Target target, AccessibilityNodeInfo node) {
+        if (target.kind == Kind.SURFACE) return target.label;
+        CharSequence url = node.getText();
+        if (!sites.matchesUrl(url)) return null;
+        return url + " in " + target.label;
+    }
+
+    private void record(long nanos, boolean pathHit, boolean blocked) {
+        boolean log;
+        synchronized (metrics) {
+            metrics.inspections++;
+            if (pathHit) {
+                metrics.pathHits++;
+            } else if (visited > 0) {
+                metrics.walks++;
+                metrics.nodesVisited += visited;
+            }
+            if (outOfBudget) metrics.overBudget++;
+            if (blocked) metrics.blocked++;
+            metrics.totalNanos += nanos;
+            metrics.maxNanos = Math.max(metrics.maxNanos, nanos);
+            log = metrics.inspections % METRICS_LOG_INTERVAL == 0;
+        }
+        if (outOfBudget) {
+            Log.w(TAG, "Inspection of " + windowKey + " gave up after " + visited + " nodes, "
+                    + nanos / 1000 + " us");
+        }
+        if (log) Log.d(TAG, "Metrics: " + getMetrics());
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void release(AccessibilityNodeInfo node) {
+        // Pooled before API 33, a no-op since
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) node.recycle();
+    }
+
+    // =====================================
+    // SETTINGS
+    // =====================================
+
+    /**
+     * Apply the blocked sites and short-video switch from the latest BlockerState snapshot
+     */
+    public void configure(DomainMatcher blockedSites, boolean shortVideo) {
+        if (blockedSites == sites && shortVideo == blockShortVideo) return;
+        boolean wasEnabled = isEnabled();
+        sites = blockedSites;
+        blockShortVideo = shortVideo;
+        boolean enabled = isEnabled();
+        Log.d(TAG, "Blocking " + sites.size() + " sites, short videos " + blockShortVideo);
+        if (enabled != wasEnabled) {
+            for (ConfigListener listener : listeners) {
+                listener.onSurfaceBlockingChanged(enabled);
+            }
+        }
+    }
+}
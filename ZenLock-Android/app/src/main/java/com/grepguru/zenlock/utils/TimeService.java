@@ -0,0 +1,264 @@
+package com.grepguru.zenlock.utils;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Locale;
+
+/**
+ * Process-wide clock and calendar math on local epoch days
+ *
+ * Replaces per-call SimpleDateFormat/Calendar construction: zone rules are resolved once and
+ * the current UTC offset is cached until the next DST transition, formatters are shared
+ * (DateTimeFormatter is immutable and thread-safe), and days/weeks are handled as int epoch
+ * days. String keys keep the exact formats already stored in the analytics tables.
+ * The clock can be swapped with setClock() so date logic can be driven deterministically
+ */
+public final class TimeService {
+
+    public static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    // How often the system zone is re-read when following the device time zone
+    private static final long ZONE_RECHECK_MS = 60_000L;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd", Locale.US);
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM", Locale.US);
+
+    private static volatile TimeService INSTANCE;
+
+    /**
+     * UTC offset valid for [start, end), between two transitions of the zone
+     */
+    private static final class OffsetWindow {
+        final ZoneId zone;
+        final long start;
+        final long end;
+        final long offsetMillis;
+
+        OffsetWindow(ZoneId zone, long start, long end, long offsetMillis) {
+            this.zone = zone;
+            this.start = start;
+            this.end = end;
+            this.offsetMillis = offsetMillis;
+        }
+    }
+
+    /**
+     * Last formatted day, today's date string is asked for far more than any other
+     */
+    private static final class FormattedDay {
+        final int epochDay;
+        final String text;
+
+        FormattedDay(int epochDay, String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+
+    private final Clock clock;
+    private final boolean followsSystemZone;
+
+    // Immutable snapshots swapped atomically, so readers on any thread see a consistent pair
+    private volatile ZoneId zoneId;
+    private volatile long zoneCheckedAt;
+    private volatile OffsetWindow window;
+    private volatile FormattedDay lastFormatted;
+
+    private TimeService(Clock clock, boolean followsSystemZone) {
+        this.clock = clock;
+        this.followsSystemZone = followsSystemZone;
+        this.zoneId = clock.getZone();
+    }
+
+    public static TimeService get() {
+        if (INSTANCE == null) {
+            synchronized (TimeService.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new TimeService(Clock.systemDefaultZone(), true);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Replace the clock (and zone) used app-wide; null goes back to the system clock
+     */
+    @VisibleForTesting
+    public static void setClock(Clock clock) {
+        synchronized (TimeService.class) {
+            INSTANCE = clock == null ? null : new TimeService(clock, false);
+        }
+    }
+
+    // ---- Instants ----
+
+    public long now() {
+        return clock.millis();
+    }
+
+    public ZoneId getZone() {
+        refreshZoneIfNeeded();
+        return zoneId;
+    }
+
+    /** Offset to add to a UTC instant to get local wall time */
+    public long offsetAt(long utcMillis) {
+        refreshZoneIfNeeded();
+        ZoneId zone = zoneId;
+        OffsetWindow current = window;
+        if (current != null && current.zone == zone && utcMillis >= current.start && utcMillis < current.end) {
+            return current.offsetMillis;
+        }
+
+        ZoneRules rules = zone.getRules();
+        Instant instant = Instant.ofEpochMilli(utcMillis);
+        long offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1000L;
+        // previousTransition is strictly before its argument; include a transition at utcMillis
+        ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        window = new OffsetWindow(zone,
+                previous == null ? Long.MIN_VALUE : previous.toEpochSecond() * 1000L,
+                next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1000L,
+                offsetMillis);
+        return offsetMillis;
+    }
+
+    /**
+     * Convert local wall time to UTC. Times skipped by a spring-forward gap move forward
+     * by the gap, like a lenient Calendar
+     */
+    public long toUtc(long localMillis) {
+        long offset = offsetAt(localMillis - offsetAt(localMillis));
+        long utc = localMillis - offset;
+        long actual = offsetAt(utc);
+        if (actual == offset) return utc;
+        // In a gap neither offset maps back to localMillis; the one from before it moves forward
+        return localMillis - Math.min(offset, actual);
+    }
+
+    // ---- Epoch days ----
+
+    /** Local epoch day (days since 1970-01-01) containing a UTC instant */
+    public int epochDay(long utcMillis) {
+        return (int) Math.floorDiv(utcMillis + offsetAt(utcMillis), DAY_MS);
+    }
+
+    public int today() {
+        return epochDay(now());
+    }
+
+    /** UTC millis of local midnight starting the day */
+    public long startOfDay(int epochDay) {
+        return toUtc(epochDay * DAY_MS);
+    }
+
+    /** Last millisecond of the day (23:59:59.999 local) */
+    public long endOfDay(int epochDay) {
+        return startOfDay(epochDay + 1) - 1;
+    }
+
+    /** Epoch day of the Monday starting the week that contains epochDay */
+    public static int mondayOf(int epochDay) {
+        // 0 = Monday ... 6 = Sunday; 1970-01-01 was a Thursday
+        return epochDay - Math.floorMod(epochDay + 3, 7);
+    }
+
+    public static int firstOfMonth(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return (int) date.withDayOfMonth(1).toEpochDay();
+    }
+
+    public static int firstOfNextMonth(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return (int) date.withDayOfMonth(1).plusMonths(1).toEpochDay();
+    }
+
+    public static int dayOfMonth(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).getDayOfMonth();
+    }
+
+    /** ISO week as a single int, week-based year * 100 + week (e.g. 202437) */
+    public static int isoWeek(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.get(IsoFields.WEEK_BASED_YEAR) * 100 + date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+    }
+
+    // ---- String keys ----
+
+    /** "yyyy-MM-dd", the key of daily_stats and daily_mobile_usage */
+    public static String formatDay(int epochDay) {
+        return DATE_FORMAT.format(LocalDate.ofEpochDay(epochDay));
+    }
+
+    public String formatDate(long utcMillis) {
+        int day = epochDay(utcMillis);
+        FormattedDay cached = lastFormatted;
+        if (cached != null && cached.epochDay == day) return cached.text;
+        String text = formatDay(day);
+        lastFormatted = new FormattedDay(day, text);
+        return text;
+    }
+
+    public String todayString() {
+        return formatDate(now());
+    }
+
+    /** Epoch day of a "yyyy-MM-dd" key; throws DateTimeParseException on malformed input */
+    public static int parseDay(String date) {
+        return (int) LocalDate.parse(date, DATE_FORMAT).toEpochDay();
+    }
+
+    /** "yyyy-MM", the key of monthly_stats */
+    public static String monthKey(int epochDay) {
+        return MONTH_FORMAT.format(LocalDate.ofEpochDay(epochDay));
+    }
+
+    /**
+     * "yyyy-Www", the key of weekly_stats. Kept identical to the SimpleDateFormat("yyyy-'W'ww",
+     * Locale.US) keys already stored: US weeks (Sunday first, week 1 contains Jan 1) paired
+     * with the calendar year, so the last days of December can read "W01"
+     */
+    public static String weekKey(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int year = date.getYear();
+        int nextYearWeek1 = ScheduleRecurrence.weekStart((int) LocalDate.of(year + 1, 1, 1).toEpochDay());
+        int week;
+        if (epochDay >= nextYearWeek1) {
+            week = 1;
+        } else {
+            int week1 = ScheduleRecurrence.weekStart((int) LocalDate.of(year, 1, 1).toEpochDay());
+            week = (epochDay - week1) / 7 + 1;
+        }
+        return year + (week < 10 ? "-W0" : "-W") + week;
+    }
+
+    /**
+     * Monday of the week named by a weekKey() string, matching how the keys were read back
+     * with Calendar (week N of the key's year, then DAY_OF_WEEK = MONDAY)
+     */
+    public static int parseWeekKeyMonday(String weekKey) {
+        String[] parts = weekKey.split("-W");
+        int year = Integer.parseInt(parts[0]);
+        int week = Integer.parseInt(parts[1]);
+        int week1 = ScheduleRecurrence.weekStart((int) LocalDate.of(year, 1, 1).toEpochDay());
+        return week1 + (week - 1) * 7 + 1;
+    }
+
+    private void refreshZoneIfNeeded() {
+        if (!followsSystemZone) return;
+        long now = clock.millis();
+        if (now - zoneCheckedAt < ZONE_RECHECK_MS && now >= zoneCheckedAt) return;
+        zoneCheckedAt = now;
+        ZoneId current = ZoneId.systemDefault();
+        if (!current.equals(zoneId)) zoneId = current;
+    }
+}
@@ -0,0 +1,219 @@
+package com.grepguru.zenlock.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel keyed by string
+ *
+ * Time is counted in ticks. Level L has 64 slots of 64^L ticks each; an entry sits in the
+ * lowest level where its deadline shares all higher digits with the current tick, and moves
+ * down a level when the wheel reaches its slot. Scheduling and cancelling are O(1) (a map
+ * lookup plus a linked-list splice), and a 64-bit occupancy mask per level finds the next
+ * occupied slot without scanning, so the owner can arm a single wakeup for the whole wheel.
+ * Deadlines beyond the top level wait in an overflow list until the top level comes round.
+ * Not thread-safe, callers serialize access
+ */
+public final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int TOP_SHIFT = SLOT_BITS * LEVELS;
+    // Pseudo-level past the top one, a single list re-placed each time the top level wraps
+    private static final int OVERFLOW = LEVELS;
+
+    private static final class Node {
+        final String key;
+        final long deadlineTick;
+        int level;
+        int slot;
+        Node prev;
+        Node next;
+
+        Node(String key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMillis;
+    private final Node[][] slots = new Node[LEVELS + 1][SLOTS];
+    private final long[] occupied = new long[LEVELS + 1];
+    private final Map<String, Node> nodes = new HashMap<>();
+
+    // Last tick whose level-0 slot has been fired
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public boolean contains(String key) {
+        return nodes.containsKey(key);
+    }
+
+    /**
+     * Fire key at deadlineMillis (rounded up to the next tick), replacing any earlier deadline
+     */
+    public void schedule(String key, long deadlineMillis) {
+        cancel(key);
+        long deadlineTick = Math.max(currentTick + 1, -Math.floorDiv(-deadlineMillis, tickMillis));
+        Node node = new Node(key, deadlineTick);
+        nodes.put(key, node);
+        place(node);
+    }
+
+    public boolean cancel(String key) {
+        Node node = nodes.remove(key);
+        if (node == null) return false;
+        unlink(node);
+        return true;
+    }
+
+    public void clear() {
+        for (int level = 0; level <= OVERFLOW; level++) {
+            Arrays.fill(slots[level], null);
+            occupied[level] = 0L;
+        }
+        nodes.clear();
+    }
+
+    /**
+     * Move the wheel to nowMillis and return the keys whose deadline has passed, earliest first.
+     * Only occupied slots are visited, however far the wheel jumps
+     */
+    public List<String> advance(long nowMillis) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        List<String> expired = null;
+        while (currentTick < target) {
+            long next = nodes.isEmpty() ? Long.MAX_VALUE : nextOccupiedTick();
+            if (next > target) {
+                currentTick = target;
+                break;
+            }
+            currentTick = next;
+            expired = processTick(expired);
+        }
+        return expired == null ? Collections.emptyList() : expired;
+    }
+
+    /**
+     * Earliest deadline in the wheel in millis, -1 if empty
+     */
+    public long nextExpiryMillis() {
+        if (nodes.isEmpty()) return -1L;
+        for (int level = 0; level < LEVELS; level++) {
+            int slot = firstSlotAfterCurrent(level);
+            if (slot < 0) continue;
+            // Every entry of this slot is earlier than anything in later slots or higher levels
+            return earliestIn(slots[level][slot]) * tickMillis;
+        }
+        return earliestIn(slots[OVERFLOW][0]) * tickMillis;
+    }
+
+    // =====================================
+    // INTERNALS
+    // =====================================
+
+    /**
+     * Tick at which the first occupied slot is processed (fired at level 0, cascaded above)
+     */
+    private long nextOccupiedTick() {
+        for (int level = 0; level < LEVELS; level++) {
+            int slot = firstSlotAfterCurrent(level);
+            if (slot < 0) continue;
+            int shift = SLOT_BITS * (level + 1);
+            return ((currentTick >>> shift) << shift) | ((long) slot << (SLOT_BITS * level));
+        }
+        if (occupied[OVERFLOW] != 0L) return ((currentTick >>> TOP_SHIFT) + 1) << TOP_SHIFT;
+        return Long.MAX_VALUE;
+    }
+
+    private static long earliestIn(Node head) {
+        long earliest = Long.MAX_VALUE;
+        for (Node node = head; node != null; node = node.next) {
+            earliest = Math.min(earliest, node.deadlineTick);
+        }
+        return earliest;
+    }
+
+    private int firstSlotAfterCurrent(int level) {
+        int digit = (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK;
+        if (digit == SLOT_MASK) return -1;
+        long later = occupied[level] & (-1L << (digit + 1));
+        return later == 0L ? -1 : Long.numberOfTrailingZeros(later);
+    }
+
+    private List<String> processTick(List<String> expired) {
+        // Higher levels first, so entries cascading into this tick's level-0 slot fire with it
+        for (int level = OVERFLOW; level >= 1; level--) {
+            long lowBits = (1L << (SLOT_BITS * level)) - 1;
+            if ((currentTick & lowBits) != 0) continue;
+            int slot = level == OVERFLOW ? 0 : (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK;
+            Node node = takeSlot(level, slot);
+            while (node != null) {
+                Node next = node.next;
+                place(node);
+                node = next;
+            }
+        }
+
+        Node node = takeSlot(0, (int) currentTick & SLOT_MASK);
+        while (node != null) {
+            Node next = node.next;
+            nodes.remove(node.key);
+            if (expired == null) expired = new ArrayList<>();
+            expired.add(node.key);
+            node = next;
+        }
+        return expired;
+    }
+
+    private void place(Node node) {
+        long deadline = node.deadlineTick;
+        int level = 0;
+        // Lowest level above which deadline and current tick agree; OVERFLOW if even the top differs
+        while (level < OVERFLOW
+                && (deadline >>> (SLOT_BITS * (level + 1))) != (currentTick >>> (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = level == OVERFLOW ? 0 : (int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+        node.level = level;
+        node.slot = slot;
+        node.prev = null;
+        node.next = slots[level][slot];
+        if (node.next != null) node.next.prev = node;
+        slots[level][slot] = node;
+        occupied[level] |= 1L << slot;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            slots[node.level][node.slot] = node.next;
+        }
+        if (node.next != null) node.next.prev = node.prev;
+        if (slots[node.level][node.slot] == null) occupied[node.level] &= ~(1L << node.slot);
+        node.prev = null;
+        node.next = null;
+    }
+
+    private Node takeSlot(int level, int slot) {
+        Node head = slots[level][slot];
+        slots[level][slot] = null;
+        occupied[level] &= ~(1L << slot);
+        return head;
+    }
+}
@@ -0,0 +1,120 @@
+package com.grepguru.zenlock.utils;
+
+import java.util.Arrays;
+
+/**
+ * Binary format for one archived day of per-app usage
+ *
+ * Layout: [version:1 byte][count:varint] then count pairs of
+ * [appId delta:varint][foreground seconds:varint], sorted by app id so the deltas stay small.
+ * Varints are unsigned LEB128 (7 bits per byte, high bit = continuation).
+ * A typical day of 20-40 apps encodes in 60-120 bytes
+ */
+public final class UsageArchiveCodec {
+
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Receives decoded entries; implementations should avoid allocating per call so whole
+     * ranges can be streamed into aggregations
+     */
+    public interface AppUsageVisitor {
+        void onAppUsage(int appId, long foregroundMillis);
+    }
+
+    private UsageArchiveCodec() {}
+
+    /**
+     * Encode the first count entries of appIds/millis. The arrays are sorted in place by app id
+     */
+    public static byte[] encode(int[] appIds, long[] millis, int count) {
+        sortByAppId(appIds, millis, count);
+
+        // Worst case: 5 bytes per id delta + 10 per duration, plus header
+        byte[] buffer = new byte[1 + 5 + count * 15];
+        int pos = 0;
+        buffer[pos++] = (byte) FORMAT_VERSION;
+        pos = writeVarint(buffer, pos, count);
+
+        int previousId = 0;
+        for (int i = 0; i < count; i++) {
+            pos = writeVarint(buffer, pos, appIds[i] - previousId);
+            pos = writeVarint(buffer, pos, (millis[i] + 500) / 1000); // second precision
+            previousId = appIds[i];
+        }
+        return Arrays.copyOf(buffer, pos);
+    }
+
+    /**
+     * Stream every entry of a day blob into the visitor
+     *
+     * @return number of entries decoded
+     */
+    public static int decode(byte[] data, AppUsageVisitor visitor) {
+        if (data == null || data.length == 0) return 0;
+        if (data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported archive format version: " + data[0]);
+        }
+
+        int[] cursor = {1};
+        int count = (int) readVarint(data, cursor);
+        int appId = 0;
+        for (int i = 0; i < count; i++) {
+            appId += (int) readVarint(data, cursor);
+            long seconds = readVarint(data, cursor);
+            visitor.onAppUsage(appId, seconds * 1000);
+        }
+        return count;
+    }
+
+    /**
+     * Sum of all foreground time in a day blob without visiting entries individually
+     */
+    public static long totalMillis(byte[] data) {
+        long[] total = {0};
+        decode(data, (appId, foregroundMillis) -> total[0] += foregroundMillis);
+        return total[0];
+    }
+
+    private static int writeVarint(byte[] buffer, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static long readVarint(byte[] data, int[] cursor) {
+        long result = 0;
+        int shift = 0;
+        int pos = cursor[0];
+        while (true) {
+            if (pos >= data.length || shift > 63) {
+                throw new IllegalArgumentException("Truncated archive blob");
+            }
+            byte b = data[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+            shift += 7;
+        }
+        cursor[0] = pos;
+        return result;
+    }
+
+    // Insertion sort: a day holds a few dozen apps, not worth boxing for Arrays.sort
+    private static void sortByAppId(int[] appIds, long[] millis, int count) {
+        for (int i = 1; i < count; i++) {
+            int id = appIds[i];
+            long ms = millis[i];
+            int j = i - 1;
+            while (j >= 0 && appIds[j] > id) {
+                appIds[j + 1] = appIds[j];
+                millis[j + 1] = millis[j];
+                j--;
+            }
+            appIds[j + 1] = id;
+            millis[j + 1] = ms;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.SparseLongArray;
+
+import com.grepguru.zenlock.data.dao.AnalyticsDao;
+import com.grepguru.zenlock.data.database.AnalyticsDatabase;
+import com.grepguru.zenlock.data.entities.AppEntity;
+import com.grepguru.zenlock.data.entities.UsageArchiveEntity;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Long-term per-app usage archive
+ * UsageStatsManager only keeps per-app detail for a few days, so each finished day is
+ * snapshotted into a compact UsageArchiveCodec blob keyed by the apps dictionary.
+ * Years of history stay in the low hundreds of KB and are streamed into aggregations page by
+ * page, so a multi-year scan never holds more than a few weeks of blobs
+ *
+ * All methods hit the database synchronously - call them from a background thread
+ */
+public class UsageArchiveManager {
+
+    private static final String TAG = "UsageArchiveManager";
+
+    // Rows fetched per page when streaming a range, keeps memory flat for multi-year scans
+    private static final int PAGE_DAYS = 64;
+
+    private final AnalyticsDao dao;
+    private final AppCatalog appCatalog;
+
+    public UsageArchiveManager(Context context) {
+        this.dao = AnalyticsDatabase.getDatabase(context).analyticsDao();
+        this.appCatalog = AppCatalog.getInstance(context);
+    }
+
+    /**
+     * Archive the given days (days ago, starting from yesterday) that are not archived yet
+     */
+    public void archiveRecentDays(MobileUsageTracker tracker, int days) {
+        LocalDate today = LocalDate.now();
+        for (int i = 1; i <= days; i++) {
+            LocalDate date = today.minusDays(i);
+            try {
+                if (dao.getUsageArchiveCountForDay(date.toEpochDay()) > 0) continue;
+                Map<String, Long> perApp = tracker.getAppUsageForDate(date.toString());
+                if (!perApp.isEmpty()) {
+                    archiveDay(date, perApp);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error archiving usage for " + date, e);
+            }
+        }
+    }
+
+    /**
+     * Encode and store one day of per-app usage (package -> milliseconds)
+     */
+    public synchronized void archiveDay(LocalDate date, Map<String, Long> perApp) {
+        int[] ids = new int[perApp.size()];
+        long[] millis = new long[perApp.size()];
+        int count = 0;
+        for (Map.Entry<String, Long> entry : perApp.entrySet()) {
+            ids[count] = appCatalog.getAppId(entry.getKey());
+            millis[count] = entry.getValue();
+            count++;
+        }
+        byte[] blob = UsageArchiveCodec.encode(ids, millis, count);
+        dao.insertUsageArchive(new UsageArchiveEntity(date.toEpochDay(), blob));
+    }
+
+    /**
+     * Stream every archived entry between two dates (inclusive), oldest first
+     */
+    public void streamRange(LocalDate from, LocalDate to, UsageArchiveCodec.AppUsageVisitor visitor) {
+        long day = from.toEpochDay();
+        long lastDay = to.toEpochDay();
+        while (day <= lastDay) {
+            List<UsageArchiveEntity> page = dao.getUsageArchiveRange(day, lastDay, PAGE_DAYS);
+            if (page.isEmpty()) break;
+            for (UsageArchiveEntity row : page) {
+                UsageArchiveCodec.decode(row.data, visitor);
+            }
+            day = page.get(page.size() - 1).day + 1;
+        }
+    }
+
+    /**
+     * Packages with the most foreground time between two dates (inclusive), most used first
+     * Totals are summed by app id while streaming; only the winners are resolved to packages
+     */
+    public Map<String, Long> getTopApps(LocalDate from, LocalDate to, int limit) {
+        SparseLongArray totals = new SparseLongArray();
+        streamRange(from, to, (appId, foregroundMillis) ->
+                totals.put(appId, totals.get(appId) + foregroundMillis));
+
+        List<Integer> order = new ArrayList<>(totals.size());
+        for (int i = 0; i < totals.size(); i++) {
+            if (totals.valueAt(i) > 0) order.add(i);
+        }
+        order.sort((a, b) -> Long.compare(totals.valueAt(b), totals.valueAt(a)));
+
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (int index : order) {
+            if (top.size() >= limit) break;
+            AppEntity app = appCatalog.getApp(totals.keyAt(index));
+            if (app != null) top.put(app.packageName, totals.valueAt(index));
+        }
+        return top;
+    }
+
+    /**
+     * Archive footprint in bytes (blob payload only)
+     */
+    public long getArchiveBytes() {
+        Long bytes = dao.getUsageArchiveBytes();
+        return bytes != null ? bytes : 0L;
+    }
+}
@@ -0,0 +1,236 @@
+package com.grepguru.zenlock.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.grepguru.zenlock.data.dao.AnalyticsDao;
+import com.grepguru.zenlock.data.database.AnalyticsDatabase;
+import com.grepguru.zenlock.data.entities.UsageRollupEntity;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maintains weekly and monthly usage rollups and serves long-range chart series from them
+ * Daily tables are trimmed over time; rollups keep the totals so 90-day, 1-year and all-time
+ * views stay available and read a bounded number of rows
+ *
+ * All methods hit the database synchronously - call them from a background thread
+ */
+public class UsageRollupManager {
+
+    private static final String TAG = "UsageRollupManager";
+
+    // Days re-rolled on every refresh; matches the window DailyMobileUsageManager backfills
+    private static final int REFRESH_WINDOW_DAYS = 8;
+    // Upper bound on rows read for the all-time view (50 years of months)
+    private static final int MAX_MONTH_ROWS = 600;
+
+    private static final DateTimeFormatter WEEK_LABEL = DateTimeFormatter.ofPattern("MMM d", Locale.US);
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMM yy", Locale.US);
+
+    /**
+     * Long-range chart windows served from rollups
+     */
+    public enum ChartRange {
+        DAYS_90(UsageRollupEntity.PERIOD_WEEK, 13),
+        YEAR(UsageRollupEntity.PERIOD_WEEK, 53),
+        ALL_TIME(UsageRollupEntity.PERIOD_MONTH, 0);
+
+        final int periodType;
+        final int buckets; // 0 = everything since the first rollup
+
+        ChartRange(int periodType, int buckets) {
+            this.periodType = periodType;
+            this.buckets = buckets;
+        }
+    }
+
+    /**
+     * Downsampled chart data. X values are bucket indices into labels, so the bar and line
+     * series can keep different points and still share one axis formatter
+     */
+    public static class ChartSeries {
+        public final float[] focusX;
+        public final float[] focusHours;
+        public final float[] mobileX;
+        public final float[] mobileHours;
+        public final List<String> labels;
+
+        ChartSeries(float[] focusX, float[] focusHours, float[] mobileX, float[] mobileHours, List<String> labels) {
+            this.focusX = focusX;
+            this.focusHours = focusHours;
+            this.mobileX = mobileX;
+            this.mobileHours = mobileHours;
+            this.labels = labels;
+        }
+
+        public boolean isEmpty() {
+            return labels.isEmpty();
+        }
+    }
+
+    private final AnalyticsDao dao;
+
+    public UsageRollupManager(Context context) {
+        this.dao = AnalyticsDatabase.getDatabase(context).analyticsDao();
+    }
+
+    /**
+     * Re-roll the weeks and months touched by the last few days of daily data
+     */
+    public void refreshRecentRollups() {
+        try {
+            if (dao.getUsageRollupCount() == 0) {
+                rollUpRange(getOldestDailyDate(), LocalDate.now());
+                return;
+            }
+            rollUpRange(LocalDate.now().minusDays(REFRESH_WINDOW_DAYS - 1), LocalDate.now());
+        } catch (Exception e) {
+            Log.e(TAG, "Error refreshing usage rollups", e);
+        }
+    }
+
+    /**
+     * Roll up every week and month touching the given days (inclusive)
+     * Safe to call repeatedly, totals are max-merged with what is already stored
+     */
+    public void rollUpRange(LocalDate fromDate, LocalDate toDate) {
+        LocalDate today = LocalDate.now();
+        if (toDate == null || toDate.isAfter(today)) {
+            toDate = today;
+        }
+        if (fromDate == null || fromDate.isAfter(toDate)) {
+            fromDate = toDate;
+        }
+
+        List<UsageRollupEntity> rollups = new ArrayList<>();
+        for (LocalDate week = weekStart(fromDate); !week.isAfter(toDate); week = week.plusWeeks(1)) {
+            rollups.add(buildRollup(UsageRollupEntity.PERIOD_WEEK, week, week.plusDays(6)));
+        }
+        for (LocalDate month = fromDate.withDayOfMonth(1); !month.isAfter(toDate); month = month.plusMonths(1)) {
+            rollups.add(buildRollup(UsageRollupEntity.PERIOD_MONTH, month,
+                    month.with(TemporalAdjusters.lastDayOfMonth())));
+        }
+        dao.insertUsageRollups(rollups);
+        Log.d(TAG, "Rolled up " + rollups.size() + " periods from " + fromDate);
+    }
+
+    /**
+     * Aggregate one period from the daily tables. Daily rows may already have been trimmed,
+     * so never let a recomputed total drop below what the rollup recorded earlier
+     */
+    private UsageRollupEntity buildRollup(int periodType, LocalDate start, LocalDate end) {
+        String startDate = start.toString();
+        String endDate = end.toString();
+
+        Long focus = dao.getTotalFocusTimeForDateRange(startDate, endDate);
+        Integer sessions = dao.getTotalSessionsForDateRange(startDate, endDate);
+        Long mobile = dao.getTotalMobileUsageForDateRange(startDate, endDate);
+        int days = dao.getDailyMobileUsageCountForDateRange(startDate, endDate);
+
+        UsageRollupEntity rollup = new UsageRollupEntity(periodType, start.toEpochDay(),
+                focus != null ? focus : 0L,
+                mobile != null ? mobile : 0L,
+                sessions != null ? sessions : 0,
+                days);
+
+        UsageRollupEntity existing = dao.getUsageRollup(periodType, start.toEpochDay());
+        if (existing != null) {
+            rollup.focusTime = Math.max(rollup.focusTime, existing.focusTime);
+            rollup.mobileUsage = Math.max(rollup.mobileUsage, existing.mobileUsage);
+            rollup.sessionCount = Math.max(rollup.sessionCount, existing.sessionCount);
+            rollup.daysCovered = Math.max(rollup.daysCovered, existing.daysCovered);
+        }
+        return rollup;
+    }
+
+    /**
+     * Build a chart series for a long range, downsampled to at most maxPoints per series
+     */
+    public ChartSeries getChartSeries(ChartRange range, int maxPoints) {
+        LocalDate today = LocalDate.now();
+        boolean weekly = range.periodType == UsageRollupEntity.PERIOD_WEEK;
+        LocalDate currentPeriod = weekly ? weekStart(today) : today.withDayOfMonth(1);
+
+        LocalDate firstPeriod;
+        List<UsageRollupEntity> rows;
+        if (range.buckets > 0) {
+            firstPeriod = currentPeriod.minusWeeks(range.buckets - 1);
+            rows = dao.getUsageRollups(range.periodType, firstPeriod.toEpochDay(), range.buckets);
+        } else {
+            rows = dao.getUsageRollups(range.periodType, Long.MIN_VALUE, MAX_MONTH_ROWS);
+            firstPeriod = rows.isEmpty() ? currentPeriod
+                    : LocalDate.ofEpochDay(rows.get(0).periodStart);
+        }
+
+        int bucketCount = (int) (weekly
+                ? ChronoUnit.WEEKS.between(firstPeriod, currentPeriod)
+                : ChronoUnit.MONTHS.between(firstPeriod, currentPeriod)) + 1;
+        bucketCount = Math.max(1, Math.min(bucketCount, weekly ? range.buckets : MAX_MONTH_ROWS));
+
+        // Dense buckets so gaps render as zero instead of being skipped
+        float[] x = new float[bucketCount];
+        float[] focus = new float[bucketCount];
+        float[] mobile = new float[bucketCount];
+        List<String> labels = new ArrayList<>(bucketCount);
+        LocalDate period = firstPeriod;
+        for (int i = 0; i < bucketCount; i++) {
+            x[i] = i;
+            labels.add((weekly ? WEEK_LABEL : MONTH_LABEL).format(period));
+            period = weekly ? period.plusWeeks(1) : period.plusMonths(1);
+        }
+        for (UsageRollupEntity row : rows) {
+            LocalDate rowStart = LocalDate.ofEpochDay(row.periodStart);
+            long index = weekly
+                    ? ChronoUnit.WEEKS.between(firstPeriod, rowStart)
+                    : ChronoUnit.MONTHS.between(firstPeriod, rowStart);
+            if (index >= 0 && index < bucketCount) {
+                focus[(int) index] = msToHours(row.focusTime);
+                mobile[(int) index] = msToHours(row.mobileUsage);
+            }
+        }
+
+        int[] focusKeep = LttbDownsampler.selectIndices(x, focus, maxPoints);
+        int[] mobileKeep = LttbDownsampler.selectIndices(x, mobile, maxPoints);
+        return new ChartSeries(pick(x, focusKeep), pick(focus, focusKeep),
+                pick(x, mobileKeep), pick(mobile, mobileKeep), labels);
+    }
+
+    private LocalDate getOldestDailyDate() {
+        LocalDate oldest = parseDate(dao.getOldestDailyStatsDate());
+        LocalDate oldestMobile = parseDate(dao.getOldestDailyMobileUsageDate());
+        if (oldest == null || (oldestMobile != null && oldestMobile.isBefore(oldest))) {
+            oldest = oldestMobile;
+        }
+        return oldest;
+    }
+
+    private static LocalDate parseDate(String date) {
+        try {
+            return date != null ? LocalDate.parse(date) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static float msToHours(long ms) {
+        return (float) (ms / 3600000.0);
+    }
+
+    private static float[] pick(float[] values, int[] indices) {
+        float[] out = new float[indices.length];
+        for (int i = 0; i < indices.length; i++) out[i] = values[indices[i]];
+        return out;
+    }
+}
@@ -1,11 +1,8 @@
 package com.grepguru.zenlock.utils;
 
-import android.app.AppOpsManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.os.Build;
-import android.os.Process;
 import android.provider.Settings;
 import android.util.Log;
 
@@ -24,41 +21,8 @@ public class UsageStatsPermissionManager {
      * Check if the app has usage stats permission
      */
     public static boolean hasUsageStatsPermission(Context context) {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
-            return false; // UsageStatsManager not available before Lollipop
-        }
-        
-        try {
-            AppOpsManager appOpsManager = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
-            if (appOpsManager == null) return false;
-            
-            int mode;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                // For Android 10 (API 29) and above, use checkOpNoThrow
-                mode = appOpsManager.checkOpNoThrow(
-                    AppOpsManager.OPSTR_GET_USAGE_STATS,
-                    Process.myUid(),
-                    context.getPackageName()
-                );
-            } else {
-                // For versions below Q, use the deprecated method with suppression
-                @SuppressWarnings("deprecation")
-                int deprecatedMode = appOpsManager.checkOpNoThrow(
-                    AppOpsManager.OPSTR_GET_USAGE_STATS,
-                    Process.myUid(),
-                    context.getPackageName()
-                );
-                mode = deprecatedMode;
-            }
-            
-            boolean hasPermission = mode == AppOpsManager.MODE_ALLOWED;
-            // Log.d(TAG, "Usage stats permission status: " + hasPermission);
-            return hasPermission;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking usage stats permission", e);
-            return false;
-        }
+        // Cached and kept current by an AppOps watcher
+        return DeviceStateMonitor.getInstance(context).hasUsageStatsPermission();
     }
     
     /**
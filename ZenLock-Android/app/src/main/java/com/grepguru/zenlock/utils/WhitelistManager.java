@@ -1,13 +1,10 @@
 package com.grepguru.zenlock.utils;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.util.Log;
-import android.view.inputmethod.InputMethodInfo;
-import android.view.inputmethod.InputMethodManager;
 
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -18,84 +15,30 @@ public class WhitelistManager {
     
     private static final String TAG = "WhitelistManager";
     
+    // Allowed in every session (SECURITY: settings and launchers are deliberately absent)
+    static final String[] ESSENTIAL_SYSTEM_PACKAGES = {
+        "com.android.systemui",           // System UI (status bar, navigation, etc.)
+        "com.android.keyguard",           // System lock screen
+        "android",                        // Core Android system
+        "com.android.phone",              // Phone app (for emergency calls)
+        "com.android.incallui",           // In-call UI
+        "com.android.dialer",             // Dialer app
+        "com.android.emergency",          // Emergency services
+        "com.android.camera2",            // Camera (for emergency photos)
+        "com.android.camera",             // Camera (alternative)
+        "com.google.android.gms",         // Google Play Services
+        "com.google.android.gsf"          // Google Services Framework
+    };
+    
     /**
-     * Check if an app is whitelisted (centralized logic)
+     * Check if an app is allowed during the current session (centralized logic)
+     * Answered from BlockingPolicy's compiled table, which combines these lists with the user's rules
      * @param context The context
      * @param packageName The package name to check
      * @return True if the app is whitelisted, false otherwise
      */
     public static boolean isAppWhitelisted(Context context, String packageName) {
-        if (packageName == null || packageName.isEmpty()) {
-            return false;
-        }
-
-        // Always allow the ZenLock app itself
-        if ("com.grepguru.zenlock".equals(packageName)) {
-            return true;
-        }
-        
-        // Allow any keyboard enabled on the device
-        try {
-            InputMethodManager imm = (InputMethodManager) context.getSystemService(Context.INPUT_METHOD_SERVICE);
-            if (imm != null) {
-                List<InputMethodInfo> enabledIMEs = imm.getEnabledInputMethodList();
-                for (InputMethodInfo imi : enabledIMEs) {
-                    if (imi.getPackageName().equals(packageName)) {
-                        return true;
-                    }
-                    if (imi.getServiceInfo() != null && imi.getServiceInfo().packageName.equals(packageName)) {
-                        return true;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "IME check failed for: " + packageName, e);
-        }
-
-        // SECURITY CHECK: Block known security risk packages
-        if (isSecurityRisk(packageName)) {
-            return false;
-        }
-        
-        // Allow essential system packages (SECURITY: Removed settings and launcher)
-        String[] essentialSystemPackages = {
-            "com.android.systemui",           // System UI (status bar, navigation, etc.)
-            "com.android.keyguard",           // System lock screen
-            "android",                        // Core Android system
-            "com.android.phone",              // Phone app (for emergency calls)
-            "com.android.incallui",           // In-call UI
-            "com.android.dialer",             // Dialer app
-            "com.android.emergency",          // Emergency services
-            "com.android.camera2",            // Camera (for emergency photos)
-            "com.android.camera",             // Camera (alternative)
-            "com.google.android.gms",         // Google Play Services
-            "com.google.android.gsf"          // Google Services Framework
-            // REMOVED: "com.android.settings" - Security risk (allows force stop)
-            // REMOVED: "com.sec.android.app.launcher" - Security risk (allows home screen access)
-            // REMOVED: All launcher packages - Security risk (allows home screen access)
-        };
-        
-        for (String systemPackage : essentialSystemPackages) {
-            if (systemPackage.equals(packageName)) {
-                Log.d(TAG, "Essential system package allowed: " + packageName);
-                return true;
-            }
-        }
-        
-        // Check user whitelisted apps
-        SharedPreferences preferences = context.getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        Set<String> whitelistedApps = preferences.getStringSet("whitelisted_apps", new HashSet<>());
-        
-        // Get ALL allowed packages (including system services for in-app activities)
-        Set<String> allAllowedApps = new HashSet<>(whitelistedApps);
-        allAllowedApps.addAll(AppUtils.getAllAllowedPackages(context));
-        
-        boolean isWhitelisted = allAllowedApps.contains(packageName);
-        if (isWhitelisted) {
-            Log.d(TAG, "User whitelisted app allowed: " + packageName);
-        }
-        
-        return isWhitelisted;
+        return BlockingPolicy.getInstance(context).isAllowed(packageName);
     }
     
     /**
@@ -107,28 +50,10 @@ public class WhitelistManager {
         Set<String> allWhitelisted = new HashSet<>();
         
         // Add essential system packages
-        String[] essentialSystemPackages = {
-            "com.android.systemui",
-            "com.android.keyguard", 
-            "android",
-            "com.android.phone",
-            "com.android.incallui",
-            "com.android.dialer",
-            "com.android.emergency",
-            "com.android.camera2",
-            "com.android.camera",
-            "com.google.android.gms",
-            "com.google.android.gsf"
-        };
-        
-        for (String systemPackage : essentialSystemPackages) {
-            allWhitelisted.add(systemPackage);
-        }
+        allWhitelisted.addAll(Arrays.asList(ESSENTIAL_SYSTEM_PACKAGES));
         
-        // Add user whitelisted apps
-        SharedPreferences preferences = context.getSharedPreferences("FocusLockPrefs", Context.MODE_PRIVATE);
-        Set<String> whitelistedApps = preferences.getStringSet("whitelisted_apps", new HashSet<>());
-        allWhitelisted.addAll(whitelistedApps);
+        // Add apps in the active allowlist profile
+        allWhitelisted.addAll(AllowlistProfiles.getInstance(context).getActivePackages());
         
         // Add AppUtils allowed packages
         allWhitelisted.addAll(AppUtils.getAllAllowedPackages(context));
@@ -155,67 +80,10 @@ public class WhitelistManager {
             return false;
         }
         
-        String[] securityRiskPackages = {
-            "com.android.settings",           // Allows force stop
-            // Samsung
-            "com.sec.android.app.launcher",   // Samsung One UI Launcher
-            "com.samsung.android.launcher",   // Samsung Launcher (legacy)
-            // Google / AOSP
-            "com.google.android.apps.nexuslauncher", // Pixel Launcher
-            "com.android.launcher",           // Stock launcher
-            "com.android.launcher2",          // Legacy launcher
-            "com.android.launcher3",          // AOSP launcher
-            "com.google.android.launcher",    // Google Now Launcher (legacy)
-            // Xiaomi / Redmi / POCO
-            "com.miui.home",                  // MIUI / HyperOS launcher
-            "com.mi.android.globallauncher",  // POCO launcher
-            // OnePlus
-            "com.oneplus.launcher",           // OnePlus launcher (newer)
-            "net.oneplus.launcher",           // OnePlus launcher (older)
-            // Huawei / Honor
-            "com.huawei.android.launcher",    // Huawei launcher
-            "com.hihonor.android.launcher",   // Honor launcher
-            // Oppo / Realme
-            "com.oppo.launcher",              // OPPO / Realme launcher
-            "com.realme.launcher",            // Realme launcher (legacy)
-            // Vivo
-            "com.bbk.launcher2",              // Vivo launcher
-            "com.vivo.launcher",              // Vivo launcher (legacy)
-            // Nothing
-            "com.nothing.launcher",           // Nothing Phone launcher
-            // Motorola
-            "com.motorola.launcher3",         // Moto launcher
-            "com.motorola.launcher",          // Moto launcher (legacy)
-            // Nokia (HMD)
-            "com.hmd.launcher",               // Nokia launcher
-            // ASUS
-            "com.asus.launcher",              // ASUS launcher
-            // Lenovo
-            "com.lenovo.launcher",            // Lenovo launcher
-            // Sony
-            "com.sonymobile.home",            // Sony Xperia Home (older)
-            "com.sonymobile.launcher",        // Sony Xperia launcher (newer)
-            "com.sony.launcher",              // Sony launcher (legacy)
-            // LG (legacy)
-            "com.lge.launcher2",              // LG launcher (older)
-            "com.lge.launcher3",              // LG launcher (newer)
-            // HTC
-            "com.htc.launcher",               // HTC Sense Home
-            "com.htc.launcher.edge",          // HTC Edge launcher
-            // Tecno / Infinix / itel (Transsion)
-            "com.transsion.hilauncher",       // Tecno HiOS launcher
-            "com.transsion.XOSLauncher",      // Infinix XOS launcher
-            "com.transsion.itel.launcher",    // itel launcher
-            // ZTE / Nubia
-            "com.zte.mifavor.launcher",       // ZTE MiFavor launcher
-            "com.nubia.launcher"              // Nubia launcher
-        };
-        
-        for (String riskPackage : securityRiskPackages) {
-            if (riskPackage.equals(packageName)) {
-                Log.w(TAG, "SECURITY RISK: Package " + packageName + " is blocked for security reasons");
-                return true;
-            }
+        // Settings allows force stop; launchers allow home screen access
+        if ("com.android.settings".equals(packageName) || LauncherClassifier.isKnownLauncher(packageName)) {
+            Log.w(TAG, "SECURITY RISK: Package " + packageName + " is blocked for security reasons");
+            return true;
         }
         
         return false;
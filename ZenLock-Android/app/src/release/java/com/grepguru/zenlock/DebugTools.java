@@ -0,0 +1,14 @@
+package com.grepguru.zenlock;
+
+import android.view.View;
+
+/**
+ * Release builds ship without the debug screens; see the copy in src/debug
+ */
+public final class DebugTools {
+
+    private DebugTools() {}
+
+    public static void attachEntryPoint(View trigger) {
+    }
+}
@@ -0,0 +1,266 @@
+package com.grepguru.zenlock.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class RecordJournalTest {
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal").toFile();
+        file = new File(dir, "test.journal");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    private static byte[] record(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> texts(List<byte[]> records) {
+        List<String> out = new ArrayList<>();
+        for (byte[] payload : records) out.add(text(payload));
+        return out;
+    }
+
+    private void write(String... records) throws IOException {
+        RecordJournal journal = new RecordJournal(file);
+        journal.replay();
+        for (String record : records) journal.append(record(record));
+        journal.commit();
+        journal.close();
+    }
+
+    // ---- Replay order ----
+
+    @Test
+    public void replayReturnsRecordsInAppendOrder() throws IOException {
+        RecordJournal journal = new RecordJournal(file);
+        journal.replay();
+        List<byte[]> written = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // Sizes from empty to a few KB, so records straddle buffer boundaries
+            byte[] payload = new byte[(i * 37) % 3000];
+            Arrays.fill(payload, (byte) i);
+            written.add(payload);
+            journal.append(payload);
+        }
+        journal.commit();
+        journal.close();
+
+        List<byte[]> replayed = new RecordJournal(file).replay();
+        assertEquals(written.size(), replayed.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertArrayEquals(written.get(i), replayed.get(i));
+        }
+    }
+
+    @Test
+    public void appendsAfterReplayFollowExistingRecords() throws IOException {
+        write("a", "b");
+        write("c");
+
+        RecordJournal journal = new RecordJournal(file);
+        assertEquals(Arrays.asList("a", "b", "c"), texts(journal.replay()));
+        assertEquals(3, journal.getRecordCount());
+    }
+
+    @Test
+    public void missingFileReplaysEmpty() {
+        RecordJournal journal = new RecordJournal(file);
+
+        assertEquals(0, journal.replay().size());
+        assertEquals(0, journal.getRecordCount());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void commitClearsPending() throws IOException {
+        RecordJournal journal = new RecordJournal(file);
+        journal.replay();
+        journal.append(record("a"));
+        journal.append(record("b"));
+
+        assertEquals(2, journal.getPendingCount());
+        journal.commit();
+        assertEquals(0, journal.getPendingCount());
+        assertEquals(Arrays.asList("a", "b"), texts(new RecordJournal(file).replay()));
+        journal.close();
+    }
+
+    @Test
+    public void oversizedRecordIsRejected() throws IOException {
+        RecordJournal journal = new RecordJournal(file);
+        journal.replay();
+        try {
+            journal.append(new byte[64 * 1024 + 1]);
+            fail();
+        } catch (IOException expected) {
+            // Nothing was written
+        }
+        assertEquals(0, journal.getRecordCount());
+    }
+
+    // ---- Torn and corrupt tails ----
+
+    @Test
+    public void tornPayloadIsDroppedAndTruncated() throws IOException {
+        write("first", "second", "third");
+        long intact = file.length() - "third".length() - 8;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 2);
+        }
+
+        RecordJournal journal = new RecordJournal(file);
+        assertEquals(Arrays.asList("first", "second"), texts(journal.replay()));
+        assertEquals(intact, file.length());
+
+        // New appends land right after the last good record
+        journal.append(record("fourth"));
+        journal.commit();
+        journal.close();
+        assertEquals(Arrays.asList("first", "second", "fourth"), texts(new RecordJournal(file).replay()));
+    }
+
+    @Test
+    public void tornHeaderIsDropped() throws IOException {
+        write("first");
+        long intact = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{0, 0});
+        }
+
+        assertEquals(Arrays.asList("first"), texts(new RecordJournal(file).replay()));
+        assertEquals(intact, file.length());
+    }
+
+    @Test
+    public void crcMismatchAtTailIsDropped() throws IOException {
+        write("first", "second");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(file.length() - 1);
+            raf.write('X');
+        }
+
+        assertEquals(Arrays.asList("first"), texts(new RecordJournal(file).replay()));
+        assertEquals(8 + "first".length(), file.length());
+    }
+
+    @Test
+    public void corruptRecordDropsEverythingAfterIt() throws IOException {
+        write("first", "second", "third");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Last byte of "second"'s payload
+            raf.seek(8 + "first".length() + 8 + "second".length() - 1);
+            raf.write('X');
+        }
+
+        assertEquals(Arrays.asList("first"), texts(new RecordJournal(file).replay()));
+    }
+
+    @Test
+    public void implausibleLengthStopsReplay() throws IOException {
+        write("first");
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            // Length field of -1, then something that could pass for a header
+            out.write(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0, 0, 0});
+        }
+
+        assertEquals(Arrays.asList("first"), texts(new RecordJournal(file).replay()));
+        assertEquals(8 + "first".length(), file.length());
+    }
+
+    // ---- Compaction ----
+
+    @Test
+    public void compactReplacesRecords() throws IOException {
+        write("a", "b", "c", "d");
+
+        RecordJournal journal = new RecordJournal(file);
+        journal.replay();
+        journal.compact(Arrays.asList(record("summary")));
+        assertEquals(1, journal.getRecordCount());
+        journal.append(record("e"));
+        journal.commit();
+        journal.close();
+
+        assertEquals(Arrays.asList("summary", "e"), texts(new RecordJournal(file).replay()));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void compactCommitsPendingAppendsFirst() throws IOException {
+        RecordJournal journal = new RecordJournal(file);
+        journal.replay();
+        journal.append(record("pending"));
+        journal.compact(Arrays.asList(record("kept")));
+        journal.close();
+
+        assertEquals(Arrays.asList("kept"), texts(new RecordJournal(file).replay()));
+    }
+
+    @Test
+    public void crashBeforeCompactRenameKeepsOldJournal() throws IOException {
+        write("a", "b");
+        // A compact() that died after writing part of its temp file
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(new byte[]{0, 0, 0, 9, 1, 2});
+        }
+
+        RecordJournal journal = new RecordJournal(file);
+        assertEquals(Arrays.asList("a", "b"), texts(journal.replay()));
+        assertFalse(temp.exists());
+
+        // The next compaction starts from a clean temp file
+        journal.compact(Arrays.asList(record("c")));
+        journal.close();
+        assertEquals(Arrays.asList("c"), texts(new RecordJournal(file).replay()));
+    }
+
+    @Test
+    public void completeTempFileIsNotMistakenForJournal() throws IOException {
+        write("old");
+        // Fully written and synced, but the rename never happened
+        File temp = new File(file.getPath() + ".tmp");
+        File other = new File(dir, "other.journal");
+        RecordJournal otherJournal = new RecordJournal(other);
+        otherJournal.replay();
+        otherJournal.append(record("new"));
+        otherJournal.commit();
+        otherJournal.close();
+        assertEquals(true, other.renameTo(temp));
+
+        assertEquals(Arrays.asList("old"), texts(new RecordJournal(file).replay()));
+    }
+}
@@ -0,0 +1,216 @@
+package com.grepguru.zenlock.utils;
+
+import com.grepguru.zenlock.model.ScheduleModel;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduleRecurrenceTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    private static final int MON_WED_FRI = 0x2A;
+    private static final int SUNDAY = 0x01;
+    private static final int MONDAY = 0x02;
+    private static final int SATURDAY = 0x40;
+
+    private static long at(ZoneId zone, int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, zone).toInstant().toEpochMilli();
+    }
+
+    private static int day(int year, int month, int day) {
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    private static ScheduleModel daily(int hour, int minute) {
+        ScheduleModel schedule = new ScheduleModel();
+        schedule.setStartHour(hour);
+        schedule.setStartMinute(minute);
+        schedule.setRepeatType(ScheduleModel.RepeatType.DAILY);
+        return schedule;
+    }
+
+    private static ScheduleModel weekly(int hour, int minute, int mask) {
+        ScheduleModel schedule = daily(hour, minute);
+        schedule.setRepeatType(ScheduleModel.RepeatType.WEEKLY);
+        schedule.setRepeatDaysMask(mask);
+        return schedule;
+    }
+
+    private static long next(ScheduleModel schedule, long fromMillis, ZoneId zone) {
+        return ScheduleRecurrence.nextOccurrenceMillis(schedule, fromMillis,
+                new ScheduleRecurrence.ZoneOffsets(zone.getRules()));
+    }
+
+    // ---- Week rollover ----
+
+    @Test
+    public void weekly_rollsOverPastLastDayOfWeek() {
+        ScheduleModel schedule = weekly(9, 0, MON_WED_FRI);
+
+        // Friday after the start: next is Monday of the following week
+        assertEquals(at(NEW_YORK, 2024, 6, 10, 9, 0), next(schedule, at(NEW_YORK, 2024, 6, 7, 10, 0), NEW_YORK));
+    }
+
+    @Test
+    public void weekly_sameDayAtOrBeforeStart() {
+        ScheduleModel schedule = weekly(9, 0, MON_WED_FRI);
+
+        assertEquals(at(NEW_YORK, 2024, 6, 7, 9, 0), next(schedule, at(NEW_YORK, 2024, 6, 7, 8, 0), NEW_YORK));
+        assertEquals(at(NEW_YORK, 2024, 6, 7, 9, 0), next(schedule, at(NEW_YORK, 2024, 6, 7, 9, 0), NEW_YORK));
+    }
+
+    @Test
+    public void weekly_sundayStartsTheWeek() {
+        // Saturday is the last day of a week, Sunday the first of the next
+        assertEquals(at(NEW_YORK, 2024, 6, 9, 9, 0),
+                next(weekly(9, 0, SUNDAY), at(NEW_YORK, 2024, 6, 8, 10, 0), NEW_YORK));
+        assertEquals(at(NEW_YORK, 2024, 6, 15, 9, 0),
+                next(weekly(9, 0, SATURDAY), at(NEW_YORK, 2024, 6, 8, 10, 0), NEW_YORK));
+    }
+
+    @Test
+    public void weekly_rollsOverYearEnd() {
+        // Tuesday 2024-12-31 to Monday 2025-01-06
+        assertEquals(at(NEW_YORK, 2025, 1, 6, 9, 0),
+                next(weekly(9, 0, MONDAY), at(NEW_YORK, 2024, 12, 31, 10, 0), NEW_YORK));
+    }
+
+    @Test
+    public void weekly_emptyMaskNeverRuns() {
+        assertEquals(-1, next(weekly(9, 0, ScheduleRecurrence.MASK_NONE), at(NEW_YORK, 2024, 6, 7, 8, 0), NEW_YORK));
+    }
+
+    @Test
+    public void everyOtherWeek_skipsOffWeeks() {
+        ScheduleModel schedule = weekly(9, 0, MONDAY);
+        schedule.setRepeatInterval(2, day(2024, 6, 10));
+
+        // Past Monday of an active week: the next active week is two weeks on
+        assertEquals(at(NEW_YORK, 2024, 6, 24, 9, 0), next(schedule, at(NEW_YORK, 2024, 6, 11, 10, 0), NEW_YORK));
+        // Monday of an off week
+        assertEquals(at(NEW_YORK, 2024, 6, 24, 9, 0), next(schedule, at(NEW_YORK, 2024, 6, 17, 8, 0), NEW_YORK));
+        assertEquals(at(NEW_YORK, 2024, 6, 24, 9, 0), next(schedule, at(NEW_YORK, 2024, 6, 24, 8, 0), NEW_YORK));
+    }
+
+    @Test
+    public void everyOtherWeek_occursOnBothSidesOfAnchor() {
+        ScheduleModel schedule = weekly(9, 0, MONDAY);
+        schedule.setRepeatInterval(2, day(2024, 6, 12));
+
+        // The anchor's week counts from its Sunday, so a mid-week anchor still activates its Monday
+        assertTrue(ScheduleRecurrence.occursOn(schedule, day(2024, 6, 10)));
+        assertFalse(ScheduleRecurrence.occursOn(schedule, day(2024, 6, 17)));
+        assertTrue(ScheduleRecurrence.occursOn(schedule, day(2024, 6, 24)));
+        assertTrue(ScheduleRecurrence.occursOn(schedule, day(2024, 5, 27)));
+        assertFalse(ScheduleRecurrence.occursOn(schedule, day(2024, 6, 3)));
+        assertFalse(ScheduleRecurrence.occursOn(schedule, day(2024, 6, 11)));
+    }
+
+    // ---- Exclusions and date range ----
+
+    @Test
+    public void excludedDayIsSkipped() {
+        ScheduleModel schedule = daily(9, 0);
+        schedule.setExcludedEpochDays(new int[]{day(2024, 6, 9), day(2024, 6, 8)});
+
+        assertEquals(at(NEW_YORK, 2024, 6, 10, 9, 0), next(schedule, at(NEW_YORK, 2024, 6, 7, 10, 0), NEW_YORK));
+        assertFalse(ScheduleRecurrence.occursOn(schedule, day(2024, 6, 8)));
+    }
+
+    @Test
+    public void dateRangeEndStopsSchedule() {
+        ScheduleModel schedule = daily(9, 0);
+        schedule.setDateRange(ScheduleRecurrence.NO_DATE, day(2024, 6, 8));
+        schedule.setExcludedEpochDays(new int[]{day(2024, 6, 8)});
+
+        assertEquals(-1, next(schedule, at(NEW_YORK, 2024, 6, 7, 10, 0), NEW_YORK));
+    }
+
+    @Test
+    public void dateRangeStartDelaysSchedule() {
+        ScheduleModel schedule = weekly(9, 0, MONDAY);
+        schedule.setDateRange(day(2024, 7, 1), ScheduleRecurrence.NO_DATE);
+
+        assertEquals(at(NEW_YORK, 2024, 7, 1, 9, 0), next(schedule, at(NEW_YORK, 2024, 6, 7, 10, 0), NEW_YORK));
+    }
+
+    // ---- DST ----
+
+    @Test
+    public void springForward_keepsWallClockTime() {
+        ScheduleModel schedule = daily(9, 0);
+        long from = at(NEW_YORK, 2024, 3, 9, 10, 0);
+
+        long next = next(schedule, from, NEW_YORK);
+        assertEquals(at(NEW_YORK, 2024, 3, 10, 9, 0), next);
+        // The local day is 23 hours long
+        assertEquals(23 * 3_600_000L, next - at(NEW_YORK, 2024, 3, 9, 9, 0));
+    }
+
+    @Test
+    public void fallBack_keepsWallClockTime() {
+        ScheduleModel schedule = daily(9, 0);
+
+        long next = next(schedule, at(NEW_YORK, 2024, 11, 2, 10, 0), NEW_YORK);
+        assertEquals(at(NEW_YORK, 2024, 11, 3, 9, 0), next);
+        assertEquals(25 * 3_600_000L, next - at(NEW_YORK, 2024, 11, 2, 9, 0));
+    }
+
+    @Test
+    public void springForwardGap_movesForwardByGap() {
+        // 02:30 doesn't exist on 2024-03-10; it runs at 03:30 EDT, as ZonedDateTime resolves it
+        ScheduleModel schedule = daily(2, 30);
+
+        assertEquals(at(NEW_YORK, 2024, 3, 10, 3, 30), next(schedule, at(NEW_YORK, 2024, 3, 9, 10, 0), NEW_YORK));
+        assertEquals(at(BERLIN, 2024, 3, 31, 3, 30), next(schedule, at(BERLIN, 2024, 3, 30, 10, 0), BERLIN));
+    }
+
+    @Test
+    public void fallBackOverlap_runsOnce() {
+        // 01:30 happens twice on 2024-11-03; the earlier one is taken and the day after is next
+        ScheduleModel schedule = daily(1, 30);
+
+        long first = next(schedule, at(NEW_YORK, 2024, 11, 2, 10, 0), NEW_YORK);
+        assertEquals(at(NEW_YORK, 2024, 11, 3, 1, 30), first);
+        assertEquals(at(NEW_YORK, 2024, 11, 4, 1, 30), next(schedule, first + 3_600_000L, NEW_YORK));
+    }
+
+    @Test
+    public void weekly_acrossSpringForward() {
+        assertEquals(at(BERLIN, 2024, 3, 31, 9, 0),
+                next(weekly(9, 0, SUNDAY), at(BERLIN, 2024, 3, 25, 10, 0), BERLIN));
+    }
+
+    @Test
+    public void zoneOffsets_epochDayAroundMidnight() {
+        ScheduleRecurrence.ZoneOffsets zone = new ScheduleRecurrence.ZoneOffsets(NEW_YORK.getRules());
+
+        assertEquals(day(2024, 3, 9), zone.toEpochDay(at(NEW_YORK, 2024, 3, 9, 23, 59)));
+        assertEquals(day(2024, 3, 10), zone.toEpochDay(at(NEW_YORK, 2024, 3, 10, 0, 0)));
+        assertEquals(day(2024, 3, 10), zone.toEpochDay(at(NEW_YORK, 2024, 3, 10, 23, 59)));
+    }
+
+    // ---- Persistence ----
+
+    @Test
+    public void excludedDays_roundTrip() {
+        int[] days = {-5, 0, day(2024, 6, 8), Integer.MAX_VALUE};
+
+        int[] decoded = ScheduleRecurrence.decodeDays(ScheduleRecurrence.encodeDays(days));
+        assertEquals(days.length, decoded.length);
+        for (int i = 0; i < days.length; i++) {
+            assertEquals(days[i], decoded[i]);
+        }
+        assertEquals(null, ScheduleRecurrence.encodeDays(new int[0]));
+        assertEquals(0, ScheduleRecurrence.decodeDays(null).length);
+    }
+}
@@ -0,0 +1,240 @@
+package com.grepguru.zenlock.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TimeServiceTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+    // Skipped midnight when DST started on 2018-11-04
+    private static final ZoneId SAO_PAULO = ZoneId.of("America/Sao_Paulo");
+
+    private static final long HOUR_MS = 3_600_000L;
+
+    @After
+    public void restoreSystemClock() {
+        TimeService.setClock(null);
+    }
+
+    private static ZonedDateTime local(ZoneId zone, int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, zone);
+    }
+
+    private static TimeService fixedAt(ZonedDateTime time) {
+        TimeService.setClock(Clock.fixed(time.toInstant(), time.getZone()));
+        return TimeService.get();
+    }
+
+    private static int day(int year, int month, int day) {
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    // ---- Fixed clock ----
+
+    @Test
+    public void fixedClockDrivesToday() {
+        TimeService time = fixedAt(local(NEW_YORK, 2024, 3, 9, 23, 30));
+
+        assertEquals(local(NEW_YORK, 2024, 3, 9, 23, 30).toInstant().toEpochMilli(), time.now());
+        assertEquals(NEW_YORK, time.getZone());
+        assertEquals(day(2024, 3, 9), time.today());
+        assertEquals("2024-03-09", time.todayString());
+    }
+
+    @Test
+    public void setClockReplacesInstance() {
+        TimeService first = fixedAt(local(NEW_YORK, 2024, 3, 9, 12, 0));
+        TimeService second = fixedAt(local(BERLIN, 2024, 3, 9, 12, 0));
+
+        assertNotEquals(first, second);
+        assertEquals(BERLIN, TimeService.get().getZone());
+        TimeService.setClock(null);
+        assertNotEquals(second, TimeService.get());
+    }
+
+    // ---- DST ----
+
+    @Test
+    public void epochDayAcrossSpringForward() {
+        TimeService time = fixedAt(local(NEW_YORK, 2024, 3, 10, 12, 0));
+
+        assertEquals(day(2024, 3, 9), time.epochDay(local(NEW_YORK, 2024, 3, 9, 23, 59).toInstant().toEpochMilli()));
+        assertEquals(day(2024, 3, 10), time.epochDay(local(NEW_YORK, 2024, 3, 10, 0, 0).toInstant().toEpochMilli()));
+        // First instant of EDT, and the last of EST just before it
+        long transition = local(NEW_YORK, 2024, 3, 10, 3, 0).toInstant().toEpochMilli();
+        assertEquals(-4 * HOUR_MS, time.offsetAt(transition));
+        assertEquals(-5 * HOUR_MS, time.offsetAt(transition - 1));
+        assertEquals(day(2024, 3, 10), time.epochDay(local(NEW_YORK, 2024, 3, 10, 23, 59).toInstant().toEpochMilli()));
+        assertEquals(day(2024, 3, 11), time.epochDay(local(NEW_YORK, 2024, 3, 11, 0, 0).toInstant().toEpochMilli()));
+    }
+
+    @Test
+    public void dayLengthAcrossTransitions() {
+        TimeService time = fixedAt(local(NEW_YORK, 2024, 6, 1, 12, 0));
+
+        assertEquals(24 * HOUR_MS, time.endOfDay(day(2024, 3, 9)) + 1 - time.startOfDay(day(2024, 3, 9)));
+        assertEquals(23 * HOUR_MS, time.endOfDay(day(2024, 3, 10)) + 1 - time.startOfDay(day(2024, 3, 10)));
+        assertEquals(25 * HOUR_MS, time.endOfDay(day(2024, 11, 3)) + 1 - time.startOfDay(day(2024, 11, 3)));
+        assertEquals(local(NEW_YORK, 2024, 11, 3, 0, 0).toInstant().toEpochMilli(), time.startOfDay(day(2024, 11, 3)));
+    }
+
+    @Test
+    public void toUtcMovesGapTimesForward() {
+        TimeService time = fixedAt(local(NEW_YORK, 2024, 3, 10, 12, 0));
+        long wallClock = LocalDate.of(2024, 3, 10).toEpochDay() * TimeService.DAY_MS + 2 * HOUR_MS + 30 * 60_000L;
+
+        // 02:30 doesn't exist; ZonedDateTime resolves it to 03:30 EDT as well
+        assertEquals(local(NEW_YORK, 2024, 3, 10, 2, 30).toInstant().toEpochMilli(), time.toUtc(wallClock));
+        assertEquals(local(NEW_YORK, 2024, 3, 10, 3, 30).toInstant().toEpochMilli(), time.toUtc(wallClock));
+    }
+
+    @Test
+    public void toUtcTakesEarlierOffsetInOverlap() {
+        TimeService time = fixedAt(local(NEW_YORK, 2024, 11, 3, 12, 0));
+        long wallClock = LocalDate.of(2024, 11, 3).toEpochDay() * TimeService.DAY_MS + HOUR_MS + 30 * 60_000L;
+
+        assertEquals(local(NEW_YORK, 2024, 11, 3, 1, 30).toInstant().toEpochMilli(), time.toUtc(wallClock));
+    }
+
+    @Test
+    public void startOfDayWhenMidnightIsSkipped() {
+        TimeService time = fixedAt(local(SAO_PAULO, 2018, 11, 4, 12, 0));
+        int dstDay = day(2018, 11, 4);
+
+        // The day starts at 01:00 -02, and still belongs to that day
+        long start = time.startOfDay(dstDay);
+        assertEquals(local(SAO_PAULO, 2018, 11, 4, 1, 0).toInstant().toEpochMilli(), start);
+        assertEquals(dstDay, time.epochDay(start));
+        assertEquals(dstDay - 1, time.epochDay(time.endOfDay(dstDay - 1)));
+        assertEquals(start - 1, time.endOfDay(dstDay - 1));
+    }
+
+    @Test
+    public void offsetsFollowFixedZoneNotSystem() {
+        TimeZone saved = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            TimeService time = fixedAt(local(BERLIN, 2024, 7, 1, 12, 0));
+            assertEquals(2 * HOUR_MS, time.offsetAt(time.now()));
+        } finally {
+            TimeZone.setDefault(saved);
+        }
+    }
+
+    // ---- Week keys ----
+
+    @Test
+    public void weekKeyAtYearBoundaries() {
+        // 2024-12-29 is the Sunday starting the week that holds 2025-01-01
+        assertEquals("2024-W52", TimeService.weekKey(day(2024, 12, 28)));
+        assertEquals("2024-W01", TimeService.weekKey(day(2024, 12, 29)));
+        assertEquals("2024-W01", TimeService.weekKey(day(2024, 12, 31)));
+        assertEquals("2025-W01", TimeService.weekKey(day(2025, 1, 1)));
+        assertEquals("2025-W01", TimeService.weekKey(day(2025, 1, 4)));
+        assertEquals("2025-W02", TimeService.weekKey(day(2025, 1, 5)));
+        // 2023 started on a Sunday and 2022 on a Saturday
+        assertEquals("2023-W01", TimeService.weekKey(day(2023, 1, 1)));
+        assertEquals("2022-W01", TimeService.weekKey(day(2022, 1, 1)));
+        assertEquals("2022-W02", TimeService.weekKey(day(2022, 1, 2)));
+        // A leap year starting on a Friday has a 53rd week
+        assertEquals("2016-W53", TimeService.weekKey(day(2016, 12, 31)));
+        assertEquals("2020-W52", TimeService.weekKey(day(2020, 12, 26)));
+    }
+
+    @Test
+    public void weekKeyMatchesStoredSimpleDateFormatKeys() {
+        SimpleDateFormat legacy = new SimpleDateFormat("yyyy-'W'ww", Locale.US);
+        legacy.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        for (int epochDay = day(1999, 12, 1); epochDay <= day(2041, 1, 31); epochDay++) {
+            String expected = legacy.format(new Date(epochDay * TimeService.DAY_MS + 12 * HOUR_MS));
+            assertEquals(LocalDate.ofEpochDay(epochDay).toString(), expected, TimeService.weekKey(epochDay));
+        }
+    }
+
+    @Test
+    public void parseWeekKeyMondayMatchesCalendar() {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        for (int year = 2000; year <= 2040; year++) {
+            for (int week = 1; week <= 53; week++) {
+                calendar.clear();
+                calendar.set(Calendar.YEAR, year);
+                calendar.set(Calendar.WEEK_OF_YEAR, week);
+                calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+                int expected = (int) Math.floorDiv(calendar.getTimeInMillis(), TimeService.DAY_MS);
+
+                String key = year + (week < 10 ? "-W0" : "-W") + week;
+                assertEquals(key, expected, TimeService.parseWeekKeyMonday(key));
+            }
+        }
+    }
+
+    @Test
+    public void weekKeyRoundTripsThroughMonday() {
+        for (int epochDay = day(2019, 12, 20); epochDay <= day(2026, 1, 10); epochDay++) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            int nextYearWeek1 = ScheduleRecurrence.weekStart((int) LocalDate.of(date.getYear() + 1, 1, 1).toEpochDay());
+            if (epochDay >= nextYearWeek1) continue;
+            int monday = TimeService.parseWeekKeyMonday(TimeService.weekKey(epochDay));
+            // Monday of the same Sunday-first week
+            assertEquals(date.toString(), ScheduleRecurrence.weekStart(epochDay) + 1, monday);
+        }
+    }
+
+    @Test
+    public void weekKeyOfLastDaysOfDecemberReadsBackAsJanuary() {
+        // "2024-W01" names both ends of 2024, and Calendar read it back as the January week
+        assertEquals("2024-W01", TimeService.weekKey(day(2024, 12, 30)));
+        assertEquals(day(2024, 1, 1), TimeService.parseWeekKeyMonday("2024-W01"));
+    }
+
+    @Test
+    public void isoWeekAtYearBoundaries() {
+        assertEquals(202053, TimeService.isoWeek(day(2020, 12, 31)));
+        assertEquals(202053, TimeService.isoWeek(day(2021, 1, 3)));
+        assertEquals(202101, TimeService.isoWeek(day(2021, 1, 4)));
+        assertEquals(202501, TimeService.isoWeek(day(2024, 12, 30)));
+        assertEquals(day(2024, 12, 30), TimeService.mondayOf(day(2025, 1, 5)));
+        assertEquals(day(2025, 1, 6), TimeService.mondayOf(day(2025, 1, 6)));
+    }
+
+    // ---- Other keys ----
+
+    @Test
+    public void dayAndMonthKeys() {
+        int leapDay = day(2024, 2, 29);
+
+        assertEquals("2024-02-29", TimeService.formatDay(leapDay));
+        assertEquals(leapDay, TimeService.parseDay("2024-02-29"));
+        assertEquals("2024-02", TimeService.monthKey(leapDay));
+        assertEquals(day(2024, 2, 1), TimeService.firstOfMonth(leapDay));
+        assertEquals(day(2024, 3, 1), TimeService.firstOfNextMonth(leapDay));
+        assertEquals(day(2025, 1, 1), TimeService.firstOfNextMonth(day(2024, 12, 31)));
+        assertEquals(29, TimeService.dayOfMonth(leapDay));
+    }
+
+    @Test
+    public void formatDateFollowsLocalDay() {
+        TimeService time = fixedAt(local(BERLIN, 2024, 3, 31, 12, 0));
+
+        // 23:30 UTC on the 30th is already the 31st in Berlin
+        long lateUtc = ZonedDateTime.of(2024, 3, 30, 23, 30, 0, 0, ZoneId.of("UTC")).toInstant().toEpochMilli();
+        assertEquals("2024-03-31", time.formatDate(lateUtc));
+        assertEquals("2024-03-30", time.formatDate(lateUtc - HOUR_MS));
+        assertEquals("2024-03-31", time.formatDate(lateUtc));
+    }
+}
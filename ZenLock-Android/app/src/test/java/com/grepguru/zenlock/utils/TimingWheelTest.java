@@ -0,0 +1,234 @@
+package com.grepguru.zenlock.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 1_000L;
+    // Ticks spanned by levels 0..n-1
+    private static final long LEVEL_1 = 64L;
+    private static final long LEVEL_2 = 64L * 64;
+    private static final long LEVEL_3 = 64L * 64 * 64;
+    private static final long TOP = 64L * 64 * 64 * 64;
+
+    private static List<String> sorted(List<String> keys) {
+        List<String> copy = new ArrayList<>(keys);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    @Test
+    public void firesAtDeadlineRoundedUpToTick() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule("a", 1_500);
+
+        assertEquals(2_000, wheel.nextExpiryMillis());
+        assertTrue(wheel.advance(1_999).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(2_000));
+        assertEquals(0, wheel.size());
+        assertEquals(-1, wheel.nextExpiryMillis());
+    }
+
+    @Test
+    public void pastDeadlineFiresOnNextTick() {
+        TimingWheel wheel = new TimingWheel(TICK, 10_000);
+        wheel.schedule("late", 3_000);
+
+        assertTrue(wheel.advance(10_999).isEmpty());
+        assertEquals(Collections.singletonList("late"), wheel.advance(11_000));
+    }
+
+    @Test
+    public void multipleExpiriesInSameTick() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule("a", 5_000);
+        wheel.schedule("b", 4_200);
+        wheel.schedule("c", 4_999);
+        wheel.schedule("d", 6_000);
+
+        assertEquals(Arrays.asList("a", "b", "c"), sorted(wheel.advance(5_000)));
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.contains("d"));
+    }
+
+    @Test
+    public void jumpReturnsEarliestFirst() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule("third", LEVEL_2 * TICK + 3_000);
+        wheel.schedule("first", 2_000);
+        wheel.schedule("second", LEVEL_1 * TICK);
+
+        assertEquals(Arrays.asList("first", "second", "third"), wheel.advance(LEVEL_3 * TICK));
+    }
+
+    @Test
+    public void cascadesAtLevelBoundaries() {
+        // Deadlines one tick either side of where each level's digit rolls over
+        long[] deadlines = {
+                LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 1,
+                LEVEL_2 - 1, LEVEL_2, LEVEL_2 + 1,
+                LEVEL_3 - 1, LEVEL_3, LEVEL_3 + 1,
+                TOP - 1};
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        for (long deadline : deadlines) {
+            wheel.schedule("t" + deadline, deadline * TICK);
+        }
+
+        for (long deadline : deadlines) {
+            assertEquals(deadline * TICK, wheel.nextExpiryMillis());
+            assertTrue(wheel.advance(deadline * TICK - 1).isEmpty());
+            assertEquals(Collections.singletonList("t" + deadline), wheel.advance(deadline * TICK));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cascadesFromUnalignedStart() {
+        // Current tick mid-slot at every level, so placement compares non-zero digits
+        long start = LEVEL_3 + 5 * LEVEL_2 + 7 * LEVEL_1 + 37;
+        TimingWheel wheel = new TimingWheel(TICK, start * TICK);
+        long[] offsets = {26, 27, 28, LEVEL_1, LEVEL_2 - 37, LEVEL_3 - 1, LEVEL_3 * 3};
+        for (long offset : offsets) {
+            wheel.schedule("t" + offset, (start + offset) * TICK);
+        }
+
+        for (long offset : offsets) {
+            long deadline = (start + offset) * TICK;
+            assertTrue(wheel.advance(deadline - 1).isEmpty());
+            assertEquals(Collections.singletonList("t" + offset), wheel.advance(deadline));
+        }
+    }
+
+    @Test
+    public void overflowIsPromotedWhenTopLevelWraps() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        wheel.schedule("beyond", TOP + 5);
+        wheel.schedule("far", 3 * TOP + 17);
+
+        assertEquals(TOP + 5, wheel.nextExpiryMillis());
+        // Crossing the wrap cascades "beyond" down without firing it
+        assertTrue(wheel.advance(TOP).isEmpty());
+        assertTrue(wheel.contains("beyond"));
+        assertTrue(wheel.advance(TOP + 4).isEmpty());
+        assertEquals(Collections.singletonList("beyond"), wheel.advance(TOP + 5));
+
+        assertEquals(3 * TOP + 17, wheel.nextExpiryMillis());
+        assertTrue(wheel.advance(2 * TOP).isEmpty());
+        assertTrue(wheel.advance(3 * TOP + 16).isEmpty());
+        assertEquals(Collections.singletonList("far"), wheel.advance(3 * TOP + 17));
+    }
+
+    @Test
+    public void cancelRemovesEntry() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule("a", 5_000);
+        wheel.schedule("b", 5_000);
+        wheel.schedule("c", (LEVEL_2 + LEVEL_1 + 5) * TICK);
+
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+        assertFalse(wheel.cancel("missing"));
+        assertEquals(Collections.singletonList("b"), wheel.advance(5_000));
+
+        // Cancelled after it cascaded from level 2 down to level 0
+        assertTrue(wheel.advance((LEVEL_2 + LEVEL_1) * TICK).isEmpty());
+        assertTrue(wheel.cancel("c"));
+        assertTrue(wheel.advance(LEVEL_3 * TICK).isEmpty());
+        assertEquals(-1, wheel.nextExpiryMillis());
+    }
+
+    @Test
+    public void cancelOnlyEntryOfSlotFreesIt() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule("a", 3_000);
+        wheel.schedule("b", 9_000);
+
+        wheel.cancel("a");
+        assertEquals(9_000, wheel.nextExpiryMillis());
+        assertEquals(Collections.singletonList("b"), wheel.advance(9_000));
+    }
+
+    @Test
+    public void rescheduleReplacesDeadline() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule("a", 3_000);
+        wheel.schedule("a", LEVEL_1 * TICK + 2_000);
+
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(3_000).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(LEVEL_1 * TICK + 2_000));
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule("a", 3_000);
+        wheel.schedule("b", TOP * TICK * 2);
+        wheel.clear();
+
+        assertEquals(0, wheel.size());
+        assertEquals(-1, wheel.nextExpiryMillis());
+        assertTrue(wheel.advance(TOP * TICK * 3).isEmpty());
+    }
+
+    @Test
+    public void matchesSortedReference() {
+        Random random = new Random(42);
+        TimingWheel wheel = new TimingWheel(1, 0);
+        Map<String, Long> reference = new HashMap<>();
+        long now = 0;
+
+        for (int round = 0; round < 2_000; round++) {
+            int op = random.nextInt(10);
+            String key = "k" + random.nextInt(200);
+            if (op < 6) {
+                // Spread over every level and the overflow
+                long delay = (long) Math.pow(64, random.nextInt(5)) * (1 + random.nextInt(64)) - random.nextInt(3);
+                long deadline = now + Math.max(1, delay);
+                wheel.schedule(key, deadline);
+                reference.put(key, deadline);
+            } else if (op < 8) {
+                assertEquals(reference.remove(key) != null, wheel.cancel(key));
+            } else {
+                now += 1 + (long) (random.nextDouble() * LEVEL_3);
+                List<String> fired = wheel.advance(now);
+
+                TreeMap<Long, List<String>> due = new TreeMap<>();
+                for (Map.Entry<String, Long> entry : reference.entrySet()) {
+                    if (entry.getValue() <= now) {
+                        due.computeIfAbsent(entry.getValue(), d -> new ArrayList<>()).add(entry.getKey());
+                    }
+                }
+                List<String> expected = new ArrayList<>();
+                for (List<String> keys : due.values()) expected.addAll(keys);
+                assertEquals(new HashSet<>(expected), new HashSet<>(fired));
+                assertEquals(expected.size(), fired.size());
+                // Earliest first across ticks
+                long previous = Long.MIN_VALUE;
+                for (String fire : fired) {
+                    long deadline = reference.get(fire);
+                    assertTrue(deadline >= previous);
+                    previous = deadline;
+                }
+                reference.keySet().removeAll(fired);
+            }
+            assertEquals(reference.size(), wheel.size());
+            long earliest = reference.isEmpty() ? -1 : Collections.min(reference.values());
+            assertEquals(earliest, wheel.nextExpiryMillis());
+        }
+    }
+}
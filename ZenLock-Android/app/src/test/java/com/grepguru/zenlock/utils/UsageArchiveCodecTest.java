@@ -0,0 +1,141 @@
+package com.grepguru.zenlock.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class UsageArchiveCodecTest {
+
+    private static List<long[]> decodeAll(byte[] blob) {
+        List<long[]> entries = new ArrayList<>();
+        UsageArchiveCodec.decode(blob, (appId, foregroundMillis) -> entries.add(new long[]{appId, foregroundMillis}));
+        return entries;
+    }
+
+    @Test
+    public void roundTrip_sortsByAppId() {
+        int[] ids = {42, 3, 17};
+        long[] millis = {5_000, 60_000, 1_000};
+        byte[] blob = UsageArchiveCodec.encode(ids, millis, 3);
+
+        List<long[]> entries = decodeAll(blob);
+        assertEquals(3, entries.size());
+        assertArrayEquals(new long[]{3, 60_000}, entries.get(0));
+        assertArrayEquals(new long[]{17, 1_000}, entries.get(1));
+        assertArrayEquals(new long[]{42, 5_000}, entries.get(2));
+        // Sorted in place, durations moved along with their ids
+        assertArrayEquals(new int[]{3, 17, 42}, ids);
+        assertArrayEquals(new long[]{60_000, 1_000, 5_000}, millis);
+    }
+
+    @Test
+    public void encode_onlyFirstCountEntries() {
+        byte[] blob = UsageArchiveCodec.encode(new int[]{9, 1, 5}, new long[]{9_000, 1_000, 5_000}, 2);
+
+        List<long[]> entries = decodeAll(blob);
+        assertEquals(2, entries.size());
+        assertArrayEquals(new long[]{1, 1_000}, entries.get(0));
+        assertArrayEquals(new long[]{9, 9_000}, entries.get(1));
+    }
+
+    @Test
+    public void encode_emptyDay() {
+        byte[] blob = UsageArchiveCodec.encode(new int[0], new long[0], 0);
+
+        assertArrayEquals(new byte[]{UsageArchiveCodec.FORMAT_VERSION, 0}, blob);
+        assertEquals(0, UsageArchiveCodec.decode(blob, (appId, foregroundMillis) -> fail()));
+    }
+
+    @Test
+    public void encode_roundsToNearestSecond() {
+        byte[] blob = UsageArchiveCodec.encode(new int[]{1, 2, 3}, new long[]{499, 500, 1_499}, 3);
+
+        List<long[]> entries = decodeAll(blob);
+        assertEquals(0, entries.get(0)[1]);
+        assertEquals(1_000, entries.get(1)[1]);
+        assertEquals(1_000, entries.get(2)[1]);
+    }
+
+    @Test
+    public void encode_varintBoundaries() {
+        // 127 fits one byte, 128 needs two
+        assertArrayEquals(new byte[]{1, 1, 127, 0},
+                UsageArchiveCodec.encode(new int[]{127}, new long[]{0}, 1));
+        assertArrayEquals(new byte[]{1, 1, (byte) 0x80, 0x01, 0},
+                UsageArchiveCodec.encode(new int[]{128}, new long[]{0}, 1));
+        // 16383 seconds is the last two-byte value
+        assertArrayEquals(new byte[]{1, 1, 1, (byte) 0xFF, 0x7F},
+                UsageArchiveCodec.encode(new int[]{1}, new long[]{16_383_000L}, 1));
+        assertArrayEquals(new byte[]{1, 1, 1, (byte) 0x80, (byte) 0x80, 0x01},
+                UsageArchiveCodec.encode(new int[]{1}, new long[]{16_384_000L}, 1));
+    }
+
+    @Test
+    public void roundTrip_extremeValues() {
+        long hugeMillis = (Long.MAX_VALUE / 1000 - 1) * 1000;
+        int[] ids = {Integer.MAX_VALUE, 1};
+        long[] millis = {hugeMillis, 0};
+        byte[] blob = UsageArchiveCodec.encode(ids, millis, 2);
+
+        List<long[]> entries = decodeAll(blob);
+        assertArrayEquals(new long[]{1, 0}, entries.get(0));
+        assertArrayEquals(new long[]{Integer.MAX_VALUE, hugeMillis}, entries.get(1));
+    }
+
+    @Test
+    public void roundTrip_manyApps() {
+        int count = 300;
+        int[] ids = new int[count];
+        long[] millis = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (count - i) * 7;
+            millis[i] = i * 1_000L;
+        }
+        byte[] blob = UsageArchiveCodec.encode(ids, millis, count);
+
+        List<long[]> entries = decodeAll(blob);
+        assertEquals(count, entries.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals((i + 1) * 7, entries.get(i)[0]);
+            assertEquals((count - 1 - i) * 1_000L, entries.get(i)[1]);
+        }
+    }
+
+    @Test
+    public void totalMillis_sumsEntries() {
+        byte[] blob = UsageArchiveCodec.encode(new int[]{1, 2, 3}, new long[]{1_000, 2_000, 3_000}, 3);
+
+        assertEquals(6_000, UsageArchiveCodec.totalMillis(blob));
+        assertEquals(0, UsageArchiveCodec.totalMillis(null));
+    }
+
+    @Test
+    public void decode_nullOrEmpty() {
+        assertEquals(0, UsageArchiveCodec.decode(null, (appId, foregroundMillis) -> fail()));
+        assertEquals(0, UsageArchiveCodec.decode(new byte[0], (appId, foregroundMillis) -> fail()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsUnknownVersion() {
+        UsageArchiveCodec.decode(new byte[]{2, 0}, (appId, foregroundMillis) -> { });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsTruncatedBlob() {
+        byte[] blob = UsageArchiveCodec.encode(new int[]{1, 200}, new long[]{1_000, 20_000_000}, 2);
+        byte[] truncated = new byte[blob.length - 1];
+        System.arraycopy(blob, 0, truncated, 0, truncated.length);
+
+        UsageArchiveCodec.decode(truncated, (appId, foregroundMillis) -> { });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsUnterminatedVarint() {
+        UsageArchiveCodec.decode(new byte[]{1, 1, (byte) 0x80}, (appId, foregroundMillis) -> { });
+    }
+}